@@ -22,6 +22,7 @@ REQUIRED_VARS=(
   "REDIS_PORT"
   "REDIS_PASSWORD"
   "JWT_SECRET"
+  "JWT_REFRESH_TOKEN_SECRET"
   "BILLING_CRYPTO_SECRET"
   "BILLING_WEBHOOK_SECRET"
   "BILLING_DOCUMENTS_BASE_URL"
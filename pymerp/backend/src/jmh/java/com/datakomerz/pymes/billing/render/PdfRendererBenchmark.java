@@ -0,0 +1,197 @@
+package com.datakomerz.pymes.billing.render;
+
+import com.company.billing.persistence.FiscalDocument;
+import com.company.billing.persistence.FiscalDocumentType;
+import com.company.billing.persistence.NonFiscalDocument;
+import com.company.billing.persistence.NonFiscalDocumentType;
+import com.company.billing.persistence.TaxMode;
+import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload;
+import com.datakomerz.pymes.company.Company;
+import com.datakomerz.pymes.company.CompanyRepository;
+import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductRepository;
+import com.datakomerz.pymes.products.QrCodeService;
+import com.datakomerz.pymes.sales.Sale;
+import com.datakomerz.pymes.sales.SaleItem;
+import com.datakomerz.pymes.sales.SaleItemRepository;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+
+/**
+ * PDFs per second for a 50-line document on each local template, rendered through
+ * {@link PdfLocalInvoiceRenderer} with in-memory repositories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfRendererBenchmark {
+
+  private static final int LINES = 50;
+
+  @Param({"contingency", "quotation", "deliveryNote", "creditNote", "purchaseOrder", "receptionGuide"})
+  public String template;
+
+  private PdfLocalInvoiceRenderer renderer;
+  private Sale sale;
+  private FiscalDocument fiscalDocument;
+  private NonFiscalDocument nonFiscalDocument;
+  private PurchaseOrderPayload purchaseOrder;
+
+  @Setup
+  public void setUp() {
+    UUID companyId = UUID.randomUUID();
+    Company company = new Company();
+    company.setId(companyId);
+    company.setBusinessName("Demo SpA");
+    company.setRut("76.123.456-7");
+    company.setBusinessActivity("Comercio al por menor");
+    company.setAddress("Av. Demo 123");
+    company.setCommune("Santiago");
+    company.setEmail("contacto@demo.cl");
+
+    Customer customer = new Customer();
+    customer.setId(UUID.randomUUID());
+    customer.setCompanyId(companyId);
+    customer.setName("Cliente Demo");
+    customer.setAddress("Calle Cliente 456");
+
+    sale = new Sale();
+    sale.setId(UUID.randomUUID());
+    sale.setCompanyId(companyId);
+    sale.setCustomerId(customer.getId());
+    sale.setPaymentMethod("TRANSFERENCIA");
+    sale.setDocType("FACTURA");
+    sale.setIssuedAt(OffsetDateTime.of(2025, 1, 15, 10, 0, 0, 0, ZoneOffset.UTC));
+    sale.setNet(new BigDecimal("500000"));
+    sale.setVat(new BigDecimal("95000"));
+    sale.setTotal(new BigDecimal("595000"));
+
+    List<SaleItem> items = new ArrayList<>(LINES);
+    Map<UUID, Product> products = new HashMap<>();
+    List<PurchaseOrderPayload.PurchaseOrderItem> orderItems = new ArrayList<>(LINES);
+    for (int i = 1; i <= LINES; i++) {
+      Product product = new Product();
+      product.setId(UUID.randomUUID());
+      product.setCompanyId(companyId);
+      product.setName("Producto de prueba " + i);
+      product.setSku("SKU-" + i);
+      products.put(product.getId(), product);
+      SaleItem item = new SaleItem();
+      item.setSaleId(sale.getId());
+      item.setProductId(product.getId());
+      item.setQty(BigDecimal.valueOf(i % 5 + 1));
+      item.setUnitPrice(new BigDecimal("10000"));
+      item.setDiscount(BigDecimal.ZERO);
+      items.add(item);
+      orderItems.add(new PurchaseOrderPayload.PurchaseOrderItem(
+          "SKU-" + i, "Producto de prueba " + i, BigDecimal.valueOf(i % 5 + 1), "unid.",
+          new BigDecimal("10000"), new BigDecimal("10000").multiply(BigDecimal.valueOf(i % 5 + 1))));
+    }
+
+    renderer = new PdfLocalInvoiceRenderer(
+        repository(SaleItemRepository.class, "findBySaleId", args -> items),
+        repository(ProductRepository.class, "findById", args -> Optional.ofNullable(products.get(args[0]))),
+        repository(CustomerRepository.class, "findById", args -> Optional.of(customer)),
+        repository(CompanyRepository.class, "findById", args -> Optional.of(company)),
+        new BillingPdfProperties(),
+        new DefaultResourceLoader(),
+        new QrCodeService(16),
+        new StaticListableBeanFactory(Map.of(
+            "clock", Clock.fixed(Instant.parse("2025-01-15T10:00:00Z"), ZoneOffset.UTC)))
+            .getBeanProvider(Clock.class),
+        "Documento emitido en contingencia.");
+
+    fiscalDocument = new FiscalDocument();
+    fiscalDocument.setId(UUID.randomUUID());
+    fiscalDocument.setSale(sale);
+    fiscalDocument.setDocumentType(FiscalDocumentType.FACTURA);
+    fiscalDocument.setTaxMode(TaxMode.AFECTA);
+    fiscalDocument.setProvisionalNumber("CTG-2025-00001");
+
+    nonFiscalDocument = new NonFiscalDocument();
+    nonFiscalDocument.setId(UUID.randomUUID());
+    nonFiscalDocument.setSale(sale);
+    nonFiscalDocument.setDocumentType(NonFiscalDocumentType.COTIZACION);
+    nonFiscalDocument.setNumber("NF-2025-00001");
+
+    PurchaseOrderPayload.CompanyInfo buyer = new PurchaseOrderPayload.CompanyInfo(
+        "Demo SpA", "76.123.456-7", "Av. Demo 123", "+56 2 2222 2222", "contacto@demo.cl");
+    PurchaseOrderPayload.SupplierInfo supplier = new PurchaseOrderPayload.SupplierInfo(
+        "Proveedor Ltda", "77.000.000-0", "Camino Proveedor 1", "+56 2 3333 3333", "ventas@proveedor.cl");
+    purchaseOrder = PurchaseOrderPayload.builder()
+        .orderNumber("OC-2025-00001")
+        .orderDate(LocalDate.of(2025, 1, 15))
+        .expectedDeliveryDate(LocalDate.of(2025, 1, 22))
+        .buyer(buyer)
+        .supplier(supplier)
+        .items(orderItems)
+        .subtotal(new BigDecimal("500000"))
+        .tax(new BigDecimal("95000"))
+        .total(new BigDecimal("595000"))
+        .deliveryAddress("Av. Demo 123")
+        .build();
+  }
+
+  @Benchmark
+  public byte[] render() {
+    LocalInvoiceRenderer.RenderedInvoice rendered = switch (template) {
+      case "contingency" -> renderer.renderContingencyFiscalPdf(fiscalDocument, sale);
+      case "quotation" -> renderer.renderQuotationPdf(nonFiscalDocument, sale);
+      case "deliveryNote" -> renderer.renderDeliveryNotePdf(nonFiscalDocument, sale);
+      case "creditNote" -> renderer.renderCreditNotePdf(fiscalDocument, sale);
+      case "purchaseOrder" -> renderer.renderPurchaseOrderPdf(purchaseOrder);
+      case "receptionGuide" -> renderer.renderReceptionGuidePdf(purchaseOrder);
+      default -> throw new IllegalArgumentException(template);
+    };
+    return rendered.content();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T repository(Class<T> type, String method,
+                                  Function<Object[], Object> answer) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, invoked, args) -> {
+      if (invoked.getName().equals(method)) {
+        return answer.apply(args);
+      }
+      if (invoked.getDeclaringClass() == Object.class) {
+        return switch (invoked.getName()) {
+          case "hashCode" -> System.identityHashCode(proxy);
+          case "equals" -> proxy == args[0];
+          default -> type.getSimpleName() + "Stub";
+        };
+      }
+      throw new UnsupportedOperationException(invoked.getName());
+    });
+  }
+}
@@ -0,0 +1,109 @@
+package com.datakomerz.pymes.multitenancy;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Per repository-call cost of enabling the tenant filter inside a transaction, the
+ * way {@link TenantFilterAspect} does it. {@code enableEveryCall} is the previous
+ * behaviour (unwrap + enableFilter on every call); {@code ensureOncePerTransaction}
+ * only pays that on the first call of the transaction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TenantFilterBenchmark {
+
+  private LocalContainerEntityManagerFactoryBean factoryBean;
+  private JpaTransactionManager transactionManager;
+  private EntityManager sharedEntityManager;
+  private TenantFilterEnabler enabler;
+  private TransactionStatus transaction;
+
+  @Setup(Level.Trial)
+  public void setUpPersistence() {
+    DriverManagerDataSource dataSource = new DriverManagerDataSource(
+      "jdbc:h2:mem:tenant_filter_bench;DB_CLOSE_DELAY=-1", "sa", "");
+    Properties jpaProperties = new Properties();
+    jpaProperties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+
+    factoryBean = new LocalContainerEntityManagerFactoryBean();
+    factoryBean.setDataSource(dataSource);
+    factoryBean.setPackagesToScan(TenantFilterBenchmark.class.getPackageName());
+    factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+    factoryBean.setJpaProperties(jpaProperties);
+    factoryBean.afterPropertiesSet();
+
+    EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+    transactionManager = new JpaTransactionManager(entityManagerFactory);
+    sharedEntityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    enabler = new TenantFilterEnabler();
+    TenantContext.setTenantId(UUID.randomUUID());
+  }
+
+  @Setup(Level.Iteration)
+  public void beginTransaction() {
+    transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+  }
+
+  @TearDown(Level.Iteration)
+  public void commitTransaction() {
+    transactionManager.commit(transaction);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownPersistence() {
+    TenantContext.clear();
+    factoryBean.destroy();
+  }
+
+  @Benchmark
+  public boolean enableEveryCall() {
+    return enabler.enableTenantFilter(sharedEntityManager);
+  }
+
+  @Benchmark
+  public boolean ensureOncePerTransaction() {
+    return enabler.ensureTenantFilter(sharedEntityManager);
+  }
+
+  @Benchmark
+  public boolean tenantContextOnly() {
+    return TenantContext.isPresent();
+  }
+
+  @Entity
+  @Table(name = "tenant_filter_bench")
+  public static class BenchEntity extends TenantAwareEntity {
+    @Id
+    private UUID id;
+  }
+}
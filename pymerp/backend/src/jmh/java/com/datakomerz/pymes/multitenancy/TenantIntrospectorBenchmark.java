@@ -0,0 +1,76 @@
+package com.datakomerz.pymes.multitenancy;
+
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-entity cost of resolving the tenant identifier, compared to a direct getter
+ * call and to the previous reflective {@code Method.invoke} accessor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TenantIntrospectorBenchmark {
+
+  private BenchTenantAwareEntity tenantAware;
+  private PlainEntity plain;
+  private Method reflectiveGetter;
+
+  @Setup
+  public void setUp() throws NoSuchMethodException {
+    tenantAware = new BenchTenantAwareEntity();
+    tenantAware.setCompanyId(UUID.randomUUID());
+    plain = new PlainEntity(UUID.randomUUID());
+    reflectiveGetter = PlainEntity.class.getMethod("getCompanyId");
+    reflectiveGetter.setAccessible(true);
+  }
+
+  @Benchmark
+  public UUID directGetter() {
+    return plain.getCompanyId();
+  }
+
+  @Benchmark
+  public UUID tenantAwareFastPath() {
+    return TenantIntrospector.resolveTenantId(tenantAware);
+  }
+
+  @Benchmark
+  public UUID generatedAccessor() {
+    return TenantIntrospector.resolveTenantId(plain);
+  }
+
+  @Benchmark
+  public Object legacyReflection() throws Exception {
+    return reflectiveGetter.invoke(plain);
+  }
+
+  public static class BenchTenantAwareEntity extends TenantAwareEntity {
+  }
+
+  public static class PlainEntity {
+    private final UUID companyId;
+
+    public PlainEntity(UUID companyId) {
+      this.companyId = companyId;
+    }
+
+    public UUID getCompanyId() {
+      return companyId;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package com.datakomerz.pymes.products;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * POS lookups against a warm tenant catalogue: barcode scan, SKU lookup and name typeahead.
+ * {@code applySaveEvent} is the cost paid per product save while the tenant is cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductCatalogIndexBenchmark {
+
+  private static final String[] WORDS = {
+    "leche", "pan", "queso", "jugo", "agua", "cafe", "arroz", "aceite", "azucar", "harina",
+    "yogurt", "galletas", "cerveza", "vino", "detergente", "jabon", "papel", "fideos", "atun", "te"
+  };
+
+  @Param({"1000", "20000"})
+  public int products;
+
+  private ProductCatalogIndex index;
+  private UUID companyId;
+  private String[] barcodes;
+  private String[] skus;
+  private Product changed;
+  private int cursor;
+
+  @Setup
+  public void setUp() {
+    companyId = UUID.randomUUID();
+    List<ProductCatalogIndex.Entry> entries = new ArrayList<>(products);
+    barcodes = new String[products];
+    skus = new String[products];
+    for (int i = 0; i < products; i++) {
+      Product product = new Product();
+      product.setId(UUID.randomUUID());
+      product.setCompanyId(companyId);
+      product.setSku("SKU-" + i);
+      product.setName(WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i);
+      product.setBarcode(String.valueOf(7_800_000_000_000L + i));
+      product.setActive(Boolean.TRUE);
+      entries.add(ProductCatalogIndex.Entry.of(product, null));
+      barcodes[i] = product.getBarcode();
+      skus[i] = product.getSku().toLowerCase();
+      changed = product;
+    }
+    index = new ProductCatalogIndex(ignored -> entries, 10, 1_000_000);
+    index.findBySku(companyId, skus[0]);
+  }
+
+  @Benchmark
+  public List<ProductCatalogIndex.Entry> barcodeScan() {
+    return index.findByBarcode(companyId, barcodes[next()]);
+  }
+
+  @Benchmark
+  public Optional<ProductCatalogIndex.Entry> skuLookup() {
+    return index.findBySku(companyId, skus[next()]);
+  }
+
+  @Benchmark
+  public List<ProductCatalogIndex.Entry> typeaheadTwoLetters() {
+    return index.typeahead(companyId, WORDS[next() % WORDS.length].substring(0, 2), true, 10);
+  }
+
+  @Benchmark
+  public void applySaveEvent() {
+    index.onProductChanged(ProductCatalogChanged.of(changed, null));
+  }
+
+  private int next() {
+    cursor = (cursor + 1) % products;
+    return cursor;
+  }
+}
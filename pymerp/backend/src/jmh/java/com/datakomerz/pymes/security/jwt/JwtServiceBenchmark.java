@@ -0,0 +1,119 @@
+package com.datakomerz.pymes.security.jwt;
+
+import com.datakomerz.pymes.auth.UserAccount;
+import com.datakomerz.pymes.config.SecurityProperties;
+import com.datakomerz.pymes.security.AppUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of token generation, parsing and validation. The {@code legacy*}
+ * benchmarks reproduce the previous behaviour (key and parser rebuilt per call)
+ * so both variants can be compared in a single run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtServiceBenchmark {
+
+  private static final String SECRET = "benchmark-jwt-secret-with-at-least-32-characters";
+
+  private JwtService jwtService;
+  private AppUserDetails user;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    SecurityProperties properties = new SecurityProperties();
+    properties.getJwt().setSecret(SECRET);
+    jwtService = new JwtService(properties);
+
+    UserAccount account = new UserAccount();
+    account.setId(UUID.randomUUID());
+    account.setCompanyId(UUID.randomUUID());
+    account.setEmail("bench@pymerp.cl");
+    account.setName("Bench");
+    account.setRoles("ROLE_ADMIN,ROLE_ERP_USER");
+    user = new AppUserDetails(account);
+    token = jwtService.generateToken(user);
+  }
+
+  @Benchmark
+  public String generate() {
+    return jwtService.generateToken(user);
+  }
+
+  @Benchmark
+  public Claims parse() {
+    return jwtService.parseClaims(token);
+  }
+
+  @Benchmark
+  public boolean validate() {
+    return jwtService.isTokenValid(token, "bench@pymerp.cl");
+  }
+
+  @Benchmark
+  public String legacyGenerate() {
+    Instant now = Instant.now();
+    Set<String> roles = user.getAuthorities().stream()
+      .map(Object::toString)
+      .collect(Collectors.toSet());
+    return Jwts.builder()
+      .id(UUID.randomUUID().toString())
+      .subject(user.getUsername())
+      .issuedAt(Date.from(now))
+      .expiration(Date.from(now.plusSeconds(3600)))
+      .claims(Map.of(
+        "companyId", user.getCompanyId().toString(),
+        "roles", roles
+      ))
+      .signWith(legacyKey())
+      .compact();
+  }
+
+  @Benchmark
+  public Claims legacyParse() {
+    return Jwts.parser()
+      .verifyWith(legacyKey())
+      .build()
+      .parseSignedClaims(token)
+      .getPayload();
+  }
+
+  @Benchmark
+  public boolean legacyValidate() {
+    Claims claims = legacyParse();
+    return claims.getSubject().equalsIgnoreCase("bench@pymerp.cl")
+      && claims.getExpiration().toInstant().isAfter(Instant.now());
+  }
+
+  private static SecretKey legacyKey() {
+    return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+  }
+}
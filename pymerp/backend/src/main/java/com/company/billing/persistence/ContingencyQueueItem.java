@@ -57,6 +57,16 @@ public class ContingencyQueueItem {
   @Column(name = "error_detail")
   private String errorDetail;
 
+  @Column(name = "next_attempt_at")
+  private OffsetDateTime nextAttemptAt;
+
+  @Size(max = 100)
+  @Column(name = "lease_owner", length = 100)
+  private String leaseOwner;
+
+  @Column(name = "lease_until")
+  private OffsetDateTime leaseUntil;
+
   @Lob
   @Column(name = "encrypted_blob", columnDefinition = "bytea")
   private byte[] encryptedBlob;
@@ -140,6 +150,30 @@ public class ContingencyQueueItem {
     this.errorDetail = errorDetail;
   }
 
+  public OffsetDateTime getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(OffsetDateTime nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  public void setLeaseOwner(String leaseOwner) {
+    this.leaseOwner = leaseOwner;
+  }
+
+  public OffsetDateTime getLeaseUntil() {
+    return leaseUntil;
+  }
+
+  public void setLeaseUntil(OffsetDateTime leaseUntil) {
+    this.leaseUntil = leaseUntil;
+  }
+
   public byte[] getEncryptedBlob() {
     return encryptedBlob;
   }
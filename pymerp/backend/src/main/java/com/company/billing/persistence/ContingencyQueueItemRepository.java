@@ -1,10 +1,19 @@
 package com.company.billing.persistence;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -16,7 +25,98 @@ public interface ContingencyQueueItemRepository extends JpaRepository<Contingenc
 
   Optional<ContingencyQueueItem> findByDocument_CompanyIdAndIdempotencyKey(UUID companyId, String idempotencyKey);
 
-  List<ContingencyQueueItem> findTop20ByStatusInOrderByCreatedAtAsc(Collection<ContingencyQueueStatus> statuses);
-
   long countByStatus(ContingencyQueueStatus status);
+
+  /**
+   * Ids of due items (backoff elapsed, no live lease), taken
+   * round-robin across tenants: each tenant's items are ranked by due time and the
+   * result is filled rank by rank, so a tenant with a large backlog cannot crowd the
+   * others out. Items without a due time (enqueued before it existed) count as due
+   * immediately.
+   */
+  @Query("""
+      select ranked.id from (
+        select q.id as id, q.nextAttemptAt as nextAttemptAt, q.createdAt as createdAt,
+               row_number() over (partition by d.companyId
+                                  order by q.nextAttemptAt asc nulls first, q.createdAt asc) as tenantRank
+        from ContingencyQueueItem q
+        join q.document d
+        where q.status in :statuses
+          and (q.nextAttemptAt is null or q.nextAttemptAt <= :now)
+          and (q.leaseUntil is null or q.leaseUntil < :now)
+      ) ranked
+      order by ranked.tenantRank, ranked.nextAttemptAt asc nulls first, ranked.createdAt asc
+      """)
+  List<UUID> findDueByTenant(@Param("statuses") Collection<ContingencyQueueStatus> statuses,
+                             @Param("now") OffsetDateTime now,
+                             Pageable pageable);
+
+  /**
+   * Locks the given items if they are still claimable, skipping rows already locked
+   * by another worker so concurrent nodes never claim the same item.
+   * A lock timeout of -2 is rendered by Hibernate as {@code SKIP LOCKED}.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("""
+      select q from ContingencyQueueItem q
+      where q.id in :ids
+        and q.status in :statuses
+        and (q.nextAttemptAt is null or q.nextAttemptAt <= :now)
+        and (q.leaseUntil is null or q.leaseUntil < :now)
+      """)
+  List<ContingencyQueueItem> lockClaimable(@Param("ids") Collection<UUID> ids,
+                                           @Param("statuses") Collection<ContingencyQueueStatus> statuses,
+                                           @Param("now") OffsetDateTime now);
+
+  @Query("""
+      select count(q) from ContingencyQueueItem q
+      where q.status in :statuses
+        and (q.nextAttemptAt is null or q.nextAttemptAt <= :now)
+        and (q.leaseUntil is null or q.leaseUntil < :now)
+      """)
+  long countDue(@Param("statuses") Collection<ContingencyQueueStatus> statuses,
+                @Param("now") OffsetDateTime now);
+
+  /**
+   * Locks the item if {@code owner} still holds its lease. Empty once the lease was lost
+   * (it expired and another node claimed the item) or the item is gone, in which case the
+   * caller must not write to it.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select q from ContingencyQueueItem q where q.id = :id and q.leaseOwner = :owner")
+  Optional<ContingencyQueueItem> lockLeased(@Param("id") UUID id, @Param("owner") String owner);
+
+  /** Sync attempts of the item, if {@code owner} still holds its lease. */
+  @Query("select q.syncAttempts from ContingencyQueueItem q where q.id = :id and q.leaseOwner = :owner")
+  Optional<Integer> findLeasedSyncAttempts(@Param("id") UUID id, @Param("owner") String owner);
+
+  /**
+   * Counts an attempt that never reached the provider and releases the lease. Does not
+   * load the item, so it also works when the item itself cannot be read; returns 0 when
+   * {@code owner} no longer holds the lease.
+   */
+  @Modifying
+  @Query("""
+      update ContingencyQueueItem q
+      set q.syncAttempts = q.syncAttempts + 1,
+          q.status = :status,
+          q.errorDetail = :detail,
+          q.lastSyncAt = :now,
+          q.nextAttemptAt = :nextAttemptAt,
+          q.leaseOwner = null,
+          q.leaseUntil = null,
+          q.updatedAt = :now
+      where q.id = :id
+        and q.leaseOwner = :owner
+      """)
+  int recordAbortedAttempt(@Param("id") UUID id,
+                           @Param("owner") String owner,
+                           @Param("status") ContingencyQueueStatus status,
+                           @Param("detail") String detail,
+                           @Param("now") OffsetDateTime now,
+                           @Param("nextAttemptAt") OffsetDateTime nextAttemptAt);
+
+  @Query("select min(q.createdAt) from ContingencyQueueItem q where q.status in :statuses")
+  OffsetDateTime findOldestCreatedAt(@Param("statuses") Collection<ContingencyQueueStatus> statuses);
 }
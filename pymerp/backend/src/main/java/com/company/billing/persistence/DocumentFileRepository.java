@@ -1,5 +1,6 @@
 package com.company.billing.persistence;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,4 +12,6 @@ public interface DocumentFileRepository extends JpaRepository<DocumentFile, UUID
   List<DocumentFile> findByDocumentIdOrderByCreatedAtAsc(UUID documentId);
 
   List<DocumentFile> findByDocumentIdAndVersion(UUID documentId, DocumentFileVersion version);
+
+  List<DocumentFile> findByDocumentIdIn(Collection<UUID> documentIds);
 }
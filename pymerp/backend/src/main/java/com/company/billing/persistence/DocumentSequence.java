@@ -0,0 +1,111 @@
+package com.company.billing.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Next free number of a per-company, per-prefix, per-year document series. Rows are
+ * only ever advanced with an atomic {@code UPDATE ... SET next_value = next_value + n}.
+ */
+@Entity
+@Table(name = "document_sequences")
+@IdClass(DocumentSequence.Key.class)
+public class DocumentSequence {
+
+  @Id
+  @Column(name = "company_id", nullable = false, columnDefinition = "uuid")
+  private UUID companyId;
+
+  @Id
+  @Column(name = "prefix", nullable = false, length = 16)
+  private String prefix;
+
+  @Id
+  @Column(name = "sequence_year", nullable = false)
+  private int year;
+
+  @Column(name = "next_value", nullable = false)
+  private long nextValue;
+
+  @Column(name = "updated_at", nullable = false)
+  private OffsetDateTime updatedAt;
+
+  public UUID getCompanyId() {
+    return companyId;
+  }
+
+  public void setCompanyId(UUID companyId) {
+    this.companyId = companyId;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  public int getYear() {
+    return year;
+  }
+
+  public void setYear(int year) {
+    this.year = year;
+  }
+
+  public long getNextValue() {
+    return nextValue;
+  }
+
+  public void setNextValue(long nextValue) {
+    this.nextValue = nextValue;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(OffsetDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  public static class Key implements Serializable {
+
+    private UUID companyId;
+    private String prefix;
+    private int year;
+
+    public Key() {
+    }
+
+    public Key(UUID companyId, String prefix, int year) {
+      this.companyId = companyId;
+      this.prefix = prefix;
+      this.year = year;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key key)) {
+        return false;
+      }
+      return year == key.year && Objects.equals(companyId, key.companyId) && Objects.equals(prefix, key.prefix);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(companyId, prefix, year);
+    }
+  }
+}
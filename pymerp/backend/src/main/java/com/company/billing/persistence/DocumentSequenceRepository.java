@@ -0,0 +1,51 @@
+package com.company.billing.persistence;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DocumentSequenceRepository extends JpaRepository<DocumentSequence, DocumentSequence.Key> {
+
+  /**
+   * Atomically moves the series forward by {@code count}. The row stays locked until
+   * the surrounding transaction ends, so reading it back yields this caller's numbers.
+   */
+  @Modifying
+  @Query("""
+      update DocumentSequence s
+      set s.nextValue = s.nextValue + :count, s.updatedAt = :now
+      where s.companyId = :companyId and s.prefix = :prefix and s.year = :year
+      """)
+  int advance(@Param("companyId") UUID companyId,
+              @Param("prefix") String prefix,
+              @Param("year") int year,
+              @Param("count") long count,
+              @Param("now") OffsetDateTime now);
+
+  /** No-op when the series exists, including one created by a concurrent transaction. */
+  @Modifying
+  @Query(value = """
+      insert into document_sequences (company_id, prefix, sequence_year, next_value, updated_at)
+      values (:companyId, :prefix, :year, :nextValue, :now)
+      on conflict do nothing
+      """, nativeQuery = true)
+  int insertIfAbsent(@Param("companyId") UUID companyId,
+                     @Param("prefix") String prefix,
+                     @Param("year") int year,
+                     @Param("nextValue") long nextValue,
+                     @Param("now") OffsetDateTime now);
+
+  @Query("""
+      select s.nextValue from DocumentSequence s
+      where s.companyId = :companyId and s.prefix = :prefix and s.year = :year
+      """)
+  Optional<Long> findNextValue(@Param("companyId") UUID companyId,
+                               @Param("prefix") String prefix,
+                               @Param("year") int year);
+}
@@ -109,6 +109,10 @@ public class FiscalDocument extends AuditableEntity {
   @Column(name = "error_detail")
   private String errorDetail;
 
+  @Enumerated(EnumType.STRING)
+  @Column(name = "render_status", length = 24)
+  private RenderStatus renderStatus;
+
   @PrePersist
   void prePersist() {
     if (id == null) {
@@ -287,4 +291,12 @@ public class FiscalDocument extends AuditableEntity {
     this.payloadHash = payloadHash;
   }
 
+  public RenderStatus getRenderStatus() {
+    return renderStatus;
+  }
+
+  public void setRenderStatus(RenderStatus renderStatus) {
+    this.renderStatus = renderStatus;
+  }
+
 }
@@ -1,9 +1,18 @@
 package com.company.billing.persistence;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -22,4 +31,38 @@ public interface FiscalDocumentRepository extends JpaRepository<FiscalDocument,
   Optional<FiscalDocument>
       findTopBySale_CompanyIdAndProvisionalNumberStartingWithOrderByProvisionalNumberDesc(
           UUID companyId, String provisionalPrefix);
+
+  List<FiscalDocument> findByCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+      OffsetDateTime from, OffsetDateTime to, Pageable pageable);
+
+  @Query("select d.renderStatus from FiscalDocument d where d.id = :id")
+  Optional<RenderStatus> findRenderStatus(@Param("id") UUID id);
+
+  @Query("""
+      select d.id from FiscalDocument d
+      where d.renderStatus = :status and d.createdAt < :before
+      order by d.createdAt asc
+      """)
+  List<UUID> findIdsByRenderStatusCreatedBefore(@Param("status") RenderStatus status,
+                                                @Param("before") OffsetDateTime before,
+                                                Pageable pageable);
+
+  /**
+   * Locks the document for its local render, returning empty when it is gone or another
+   * node holds the lock (i.e. is rendering it). The lock lasts until the render's
+   * transaction ends, so only one node checks for and stores the LOCAL file.
+   * A lock timeout of -2 is rendered by Hibernate as {@code SKIP LOCKED}.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("select d from FiscalDocument d where d.id = :id")
+  Optional<FiscalDocument> lockForRender(@Param("id") UUID id);
+
+  /**
+   * Bulk update so render workers leave auditing columns alone and never overwrite
+   * fields that issuance or the sync job may be changing concurrently.
+   */
+  @Modifying
+  @Query("update FiscalDocument d set d.renderStatus = :status where d.id = :id")
+  int updateRenderStatus(@Param("id") UUID id, @Param("status") RenderStatus status);
 }
@@ -0,0 +1,11 @@
+package com.company.billing.persistence;
+
+/**
+ * Lifecycle of the locally rendered PDF of a fiscal document. Rows written before
+ * asynchronous rendering have no value and are treated as {@link #READY}.
+ */
+public enum RenderStatus {
+  RENDER_PENDING,
+  READY,
+  FAILED
+}
@@ -13,10 +13,12 @@ import com.company.billing.persistence.CryptoProperties;
 import com.company.billing.persistence.CryptoConfiguration;
 import com.company.billing.persistence.DefaultCryptoService;
 import com.datakomerz.pymes.billing.config.BillingIdempotencyProperties;
+import com.datakomerz.pymes.billing.config.BillingExportProperties;
 import com.datakomerz.pymes.billing.config.BillingOfflineProperties;
 import com.datakomerz.pymes.billing.config.BillingWebhookProperties;
 import com.datakomerz.pymes.config.AppProperties;
 import com.datakomerz.pymes.config.SecurityProperties;
+import com.datakomerz.pymes.customers.segmentation.CustomerSegmentationProperties;
 
 @SpringBootApplication
 @EntityScan(basePackages = {"com.datakomerz.pymes", "com.company.billing.persistence"})
@@ -30,7 +32,9 @@ import com.datakomerz.pymes.config.SecurityProperties;
     CryptoProperties.class,
     BillingWebhookProperties.class,
     BillingOfflineProperties.class,
-    BillingIdempotencyProperties.class
+    BillingExportProperties.class,
+    BillingIdempotencyProperties.class,
+    CustomerSegmentationProperties.class
 })
 @Import({CryptoConfiguration.class, DefaultCryptoService.class})
 @EnableScheduling
@@ -6,15 +6,12 @@ import java.time.Instant;
 /**
  * Entidad de auditoría para registrar todas las acciones en el sistema.
  * Cumple con requisitos de compliance (ISO 27001, SOC 2, GDPR).
+ * En PostgreSQL la tabla está particionada por mes según timestamp (ver V54).
  */
 @Entity
 @Table(name = "audit_logs", indexes = {
-  @Index(name = "idx_audit_timestamp", columnList = "timestamp DESC"),
-  @Index(name = "idx_audit_username", columnList = "username"),
-  @Index(name = "idx_audit_company", columnList = "company_id"),
-  @Index(name = "idx_audit_action", columnList = "action"),
-  @Index(name = "idx_audit_entity_type", columnList = "entity_type"),
-  @Index(name = "idx_audit_ip", columnList = "ip_address")
+  @Index(name = "idx_audit_logs_company_ts", columnList = "company_id, timestamp DESC"),
+  @Index(name = "idx_audit_logs_username_ts", columnList = "username, timestamp DESC")
 })
 public class AuditLog {
 
@@ -1,6 +1,7 @@
 package com.datakomerz.pymes.audit;
 
 import com.datakomerz.pymes.security.SecurityUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -9,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.time.Instant;
 
 /**
@@ -20,15 +22,21 @@ import java.time.Instant;
 public class AuditLogController {
 
   private final AuditService auditService;
+  private final Duration defaultWindow;
 
-  public AuditLogController(AuditService auditService) {
+  public AuditLogController(
+      AuditService auditService,
+      @Value("${app.audit.query.default-window:30d}") Duration defaultWindow) {
     this.auditService = auditService;
+    this.defaultWindow = defaultWindow;
   }
 
   /**
    * GET /api/v1/audit/logs
    * Obtiene todos los audit logs de la empresa del usuario autenticado.
    *
+   * @param from Inicio del rango (ISO 8601); por defecto {@code to} menos la ventana configurada
+   * @param to Fin del rango (ISO 8601); por defecto ahora
    * @param page Número de página (0-indexed)
    * @param size Tamaño de página
    * @return Página de audit logs
@@ -36,6 +44,8 @@ public class AuditLogController {
   @GetMapping("/logs")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<Page<AuditLog>> getAuditLogs(
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size) {
 
@@ -43,7 +53,8 @@ public class AuditLogController {
         .orElseThrow(() -> new IllegalStateException("Company ID not found in token"));
 
     Pageable pageable = PageRequest.of(page, size);
-    Page<AuditLog> logs = auditService.getAuditLogs(companyId, pageable);
+    Window window = window(from, to);
+    Page<AuditLog> logs = auditService.getAuditLogs(companyId, window.from(), window.to(), pageable);
     return ResponseEntity.ok(logs);
   }
 
@@ -52,6 +63,8 @@ public class AuditLogController {
    * Obtiene audit logs de un usuario específico.
    *
    * @param username Username del usuario
+   * @param from Inicio del rango (ISO 8601); por defecto {@code to} menos la ventana configurada
+   * @param to Fin del rango (ISO 8601); por defecto ahora
    * @param page Número de página
    * @param size Tamaño de página
    * @return Página de audit logs
@@ -60,6 +73,8 @@ public class AuditLogController {
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<Page<AuditLog>> getAuditLogsByUser(
       @PathVariable String username,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size) {
 
@@ -67,7 +82,9 @@ public class AuditLogController {
         .orElseThrow(() -> new IllegalStateException("Company ID not found in token"));
 
     Pageable pageable = PageRequest.of(page, size);
-    Page<AuditLog> logs = auditService.getAuditLogsByUser(username, companyId, pageable);
+    Window window = window(from, to);
+    Page<AuditLog> logs = auditService.getAuditLogsByUser(
+        username, companyId, window.from(), window.to(), pageable);
     return ResponseEntity.ok(logs);
   }
 
@@ -76,6 +93,8 @@ public class AuditLogController {
    * Obtiene audit logs filtrados por acción (ej: ACCESS_DENIED, DELETE).
    *
    * @param action Acción a filtrar (CREATE, READ, UPDATE, DELETE, LOGIN, ACCESS_DENIED, etc.)
+   * @param from Inicio del rango (ISO 8601); por defecto {@code to} menos la ventana configurada
+   * @param to Fin del rango (ISO 8601); por defecto ahora
    * @param page Número de página
    * @param size Tamaño de página
    * @return Página de audit logs
@@ -84,6 +103,8 @@ public class AuditLogController {
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<Page<AuditLog>> getAuditLogsByAction(
       @PathVariable String action,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size) {
 
@@ -91,7 +112,9 @@ public class AuditLogController {
         .orElseThrow(() -> new IllegalStateException("Company ID not found in token"));
 
     Pageable pageable = PageRequest.of(page, size);
-    Page<AuditLog> logs = auditService.getAuditLogsByAction(action, companyId, pageable);
+    Window window = window(from, to);
+    Page<AuditLog> logs = auditService.getAuditLogsByAction(
+        action, companyId, window.from(), window.to(), pageable);
     return ResponseEntity.ok(logs);
   }
 
@@ -99,6 +122,8 @@ public class AuditLogController {
    * GET /api/v1/audit/logs/failed
    * Obtiene audit logs de requests fallidos (status code >= 400).
    *
+   * @param from Inicio del rango (ISO 8601); por defecto {@code to} menos la ventana configurada
+   * @param to Fin del rango (ISO 8601); por defecto ahora
    * @param page Número de página
    * @param size Tamaño de página
    * @return Página de audit logs con errores
@@ -106,6 +131,8 @@ public class AuditLogController {
   @GetMapping("/logs/failed")
   @PreAuthorize("hasRole('ADMIN')")
   public ResponseEntity<Page<AuditLog>> getFailedRequests(
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
       @RequestParam(defaultValue = "0") int page,
       @RequestParam(defaultValue = "20") int size) {
 
@@ -113,7 +140,8 @@ public class AuditLogController {
         .orElseThrow(() -> new IllegalStateException("Company ID not found in token"));
 
     Pageable pageable = PageRequest.of(page, size);
-    Page<AuditLog> logs = auditService.getFailedRequests(companyId, pageable);
+    Window window = window(from, to);
+    Page<AuditLog> logs = auditService.getFailedRequests(companyId, window.from(), window.to(), pageable);
     return ResponseEntity.ok(logs);
   }
 
@@ -157,4 +185,16 @@ public class AuditLogController {
     long count = auditService.countFailedAccessAttempts(username, 24); // últimas 24 horas
     return ResponseEntity.ok(count);
   }
+
+  /**
+   * Rango consultado: acotar timestamp permite a PostgreSQL leer solo las particiones mensuales
+   * de audit_logs que lo cubren.
+   */
+  private Window window(Instant from, Instant to) {
+    Instant end = to != null ? to : Instant.now();
+    Instant start = from != null ? from : end.minus(defaultWindow);
+    return new Window(start, end);
+  }
+
+  private record Window(Instant from, Instant to) {}
 }
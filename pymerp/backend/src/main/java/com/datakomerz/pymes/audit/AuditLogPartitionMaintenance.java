@@ -0,0 +1,315 @@
+package com.datakomerz.pymes.audit;
+
+import com.datakomerz.pymes.common.export.CsvExporter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Mantenimiento de las particiones mensuales de {@code audit_logs} (ver V54).
+ *
+ * <p>Crea por adelantado las particiones de los próximos meses y aplica la retención: las
+ * particiones anteriores a {@code app.audit.retention.months} se archivan opcionalmente como
+ * {@code .csv.gz} mientras siguen adjuntas y, solo si el archivado termina bien, se separan de la
+ * tabla ({@code DETACH PARTITION}) y se eliminan (modo {@code drop}) o quedan como tablas sueltas
+ * (modo {@code detach}). Si el archivado falla la partición sigue adjunta y se reintenta en la
+ * siguiente ejecución.</p>
+ *
+ * <p>Por defecto la retención está desactivada ({@code months: 0}) y el modo es {@code detach}: los
+ * datos de auditoría no se borran salvo configuración explícita, y el modo {@code drop} se rechaza al
+ * arrancar si no hay {@code archive-dir}.</p>
+ *
+ * <p>V54 deja las filas anteriores a la partición en {@code audit_logs_legacy}; {@link #backfillLegacy()}
+ * las traslada a {@code audit_logs} en lotes de {@code app.audit.partitions.backfill-batch-size} filas, cada
+ * uno en su propia transacción, y elimina la tabla al vaciarla. Mientras quede alguna fila la retención
+ * no se aplica, para que ninguna fila antigua acabe en la partición DEFAULT.</p>
+ *
+ * <p>El job corre en todos los nodos: cada ejecución toma antes un {@code pg_try_advisory_lock}
+ * y, si otro nodo ya lo tiene, no hace nada.</p>
+ *
+ * <p>Solo actúa sobre PostgreSQL con {@code audit_logs} particionada; en otras bases no hace nada.</p>
+ */
+@Component
+public class AuditLogPartitionMaintenance {
+
+  private static final Logger logger = LoggerFactory.getLogger(AuditLogPartitionMaintenance.class);
+
+  static final String PARTITION_PREFIX = "audit_logs_p";
+  private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{6})");
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM", Locale.ROOT);
+
+  private static final List<String> ARCHIVE_COLUMNS = List.of(
+      "id", "timestamp", "username", "user_roles", "action", "entity_type", "entity_id", "http_method",
+      "endpoint", "ip_address", "user_agent", "company_id", "status_code", "error_message", "request_body",
+      "response_time_ms");
+
+  // Clave del advisory lock de sesión compartido por todos los nodos ("audit" en ASCII).
+  static final long ADVISORY_LOCK_KEY = 0x6175646974L;
+
+  static final String LEGACY_TABLE = "audit_logs_legacy";
+
+  enum Mode { DROP, DETACH }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final CsvExporter csvExporter;
+  private final Clock clock;
+  private final int retentionMonths;
+  private final int premakeMonths;
+  private final int backfillBatchSize;
+  private final Mode mode;
+  private final Optional<Path> archiveDir;
+
+  @Autowired
+  public AuditLogPartitionMaintenance(DataSource dataSource,
+                                      CsvExporter csvExporter,
+                                      ObjectProvider<Clock> clockProvider,
+                                      @Value("${app.audit.retention.months:0}") int retentionMonths,
+                                      @Value("${app.audit.partitions.premake-months:3}") int premakeMonths,
+                                      @Value("${app.audit.partitions.backfill-batch-size:5000}") int backfillBatchSize,
+                                      @Value("${app.audit.retention.mode:detach}") String mode,
+                                      @Value("${app.audit.retention.archive-dir:}") String archiveDir) {
+    this(streamingJdbcTemplate(dataSource), csvExporter, clockProvider.getIfAvailable(Clock::systemUTC),
+        retentionMonths, premakeMonths, backfillBatchSize, Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)),
+        archiveDir == null || archiveDir.isBlank() ? Optional.empty() : Optional.of(Path.of(archiveDir.trim())));
+  }
+
+  AuditLogPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                               CsvExporter csvExporter,
+                               Clock clock,
+                               int retentionMonths,
+                               int premakeMonths,
+                               int backfillBatchSize,
+                               Mode mode,
+                               Optional<Path> archiveDir) {
+    if (retentionMonths > 0 && mode == Mode.DROP && archiveDir.isEmpty()) {
+      throw new IllegalStateException(
+          "app.audit.retention.mode=drop requiere app.audit.retention.archive-dir: sin archivo se perderían los datos de auditoría");
+    }
+    this.jdbcTemplate = jdbcTemplate;
+    this.csvExporter = csvExporter;
+    this.clock = clock;
+    this.retentionMonths = retentionMonths;
+    this.premakeMonths = Math.max(1, premakeMonths);
+    this.backfillBatchSize = Math.max(1, backfillBatchSize);
+    this.mode = mode;
+    this.archiveDir = archiveDir;
+  }
+
+  @Scheduled(cron = "${app.audit.retention.cron:0 15 2 * * *}")
+  public void run() {
+    withLock(() -> {
+      YearMonth current = YearMonth.from(LocalDate.now(clock));
+      ensurePartitions(current);
+      // Si el traslado falla, la excepción corta la ejecución antes de la retención.
+      moveLegacyRows();
+      if (retentionMonths > 0) {
+        applyRetention(current.minusMonths(retentionMonths));
+      }
+    });
+  }
+
+  /**
+   * Traslada las filas que V54 dejó en {@code audit_logs_legacy}. Una vez eliminada la tabla solo
+   * cuesta una consulta al catálogo.
+   */
+  @Scheduled(fixedDelayString = "${app.audit.partitions.backfill-interval:PT5M}")
+  public void backfillLegacy() {
+    withLock(this::moveLegacyRows);
+  }
+
+  private void withLock(Runnable work) {
+    try {
+      if (!isPartitioned()) {
+        return;
+      }
+      // El lock es de sesión: se toma y se libera en la misma conexión, que queda reservada
+      // mientras el resto del trabajo usa otras del pool.
+      jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+        if (!advisoryLock(connection, "pg_try_advisory_lock")) {
+          logger.info("Otro nodo está manteniendo las particiones de audit_logs; se omite esta ejecución");
+          return null;
+        }
+        try {
+          work.run();
+        } finally {
+          advisoryLock(connection, "pg_advisory_unlock");
+        }
+        return null;
+      });
+    } catch (DataAccessException e) {
+      logger.error("Error en el mantenimiento de particiones de audit_logs: {}", e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Mueve {@code audit_logs_legacy} a {@code audit_logs} lote a lote y la elimina al vaciarla.
+   */
+  void moveLegacyRows() {
+    if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+        "SELECT to_regclass('" + LEGACY_TABLE + "') IS NOT NULL", Boolean.class))) {
+      return;
+    }
+    String columns = String.join(", ", ARCHIVE_COLUMNS);
+    // Sin transacción externa cada sentencia confirma por sí sola: un lote por transacción.
+    String moveBatch = "WITH batch AS (DELETE FROM " + LEGACY_TABLE + " WHERE id IN (SELECT id FROM " + LEGACY_TABLE
+        + " ORDER BY id LIMIT ?) RETURNING " + columns + ") INSERT INTO audit_logs (" + columns + ") SELECT "
+        + columns + " FROM batch";
+    long moved = 0;
+    int rows;
+    do {
+      rows = jdbcTemplate.update(moveBatch, backfillBatchSize);
+      moved += rows;
+    } while (rows > 0);
+    jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+    logger.info("{} filas de {} trasladadas a audit_logs; tabla eliminada", moved, LEGACY_TABLE);
+  }
+
+  /**
+   * Crea las particiones del mes actual y de los {@code premakeMonths} siguientes.
+   */
+  void ensurePartitions(YearMonth current) {
+    for (int i = 0; i <= premakeMonths; i++) {
+      YearMonth month = current.plusMonths(i);
+      try {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month)
+            + " PARTITION OF audit_logs FOR VALUES FROM ('" + month.atDay(1) + "') TO ('"
+            + month.plusMonths(1).atDay(1) + "')");
+      } catch (DataAccessException e) {
+        // Típicamente la partición DEFAULT ya tiene filas de ese mes.
+        logger.warn("No se pudo crear la partición {} de audit_logs: {}", partitionName(month), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Retira las particiones de meses anteriores a {@code oldestKept}.
+   */
+  void applyRetention(YearMonth oldestKept) {
+    List<String> partitions = jdbcTemplate.queryForList("""
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class p ON p.oid = i.inhparent
+        WHERE p.relname = 'audit_logs'
+        """, String.class);
+    for (String partition : expiredPartitions(partitions, oldestKept)) {
+      if (archiveDir.isPresent() && !archive(partition, archiveDir.get())) {
+        continue;
+      }
+      jdbcTemplate.execute("ALTER TABLE audit_logs DETACH PARTITION " + partition);
+      logger.info("Partición {} separada de audit_logs", partition);
+      if (mode == Mode.DROP) {
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        logger.info("Partición {} eliminada", partition);
+      }
+    }
+  }
+
+  private boolean archive(String partition, Path directory) {
+    Path target = directory.resolve(partition + ".csv.gz");
+    Path partial = directory.resolve(partition + ".csv.gz.part");
+    try {
+      Files.createDirectories(directory);
+      long rows;
+      try (OutputStream output = Files.newOutputStream(partial)) {
+        rows = csvExporter.write(output, true, ARCHIVE_COLUMNS,
+            () -> jdbcTemplate.queryForStream(
+                "SELECT " + String.join(", ", ARCHIVE_COLUMNS) + " FROM " + partition + " ORDER BY timestamp, id",
+                (rs, rowNum) -> {
+                  Object[] row = new Object[ARCHIVE_COLUMNS.size()];
+                  for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                  }
+                  return row;
+                }),
+            row -> row);
+      }
+      Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.info("Partición {} archivada en {} ({} filas)", partition, target, rows);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.error("No se pudo archivar la partición {}, se conserva adjunta: {}", partition, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  private static boolean advisoryLock(Connection connection, String function) throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement("SELECT " + function + "(?)")) {
+      statement.setLong(1, ADVISORY_LOCK_KEY);
+      try (ResultSet result = statement.executeQuery()) {
+        return result.next() && result.getBoolean(1);
+      }
+    }
+  }
+
+  private boolean isPartitioned() {
+    String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+        connection.getMetaData().getDatabaseProductName());
+    if (!"PostgreSQL".equalsIgnoreCase(product)) {
+      return false;
+    }
+    Integer count = jdbcTemplate.queryForObject("""
+        SELECT COUNT(*)
+        FROM pg_partitioned_table pt
+        JOIN pg_class c ON c.oid = pt.partrelid
+        WHERE c.relname = 'audit_logs'
+        """, Integer.class);
+    return count != null && count > 0;
+  }
+
+  static String partitionName(YearMonth month) {
+    return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+  }
+
+  /**
+   * Particiones mensuales de {@code partitions} anteriores a {@code oldestKept}, de la más antigua
+   * a la más reciente. La partición DEFAULT y los nombres desconocidos no se tocan.
+   */
+  static List<String> expiredPartitions(List<String> partitions, YearMonth oldestKept) {
+    List<YearMonth> months = new ArrayList<>();
+    for (String partition : partitions) {
+      Matcher matcher = PARTITION_NAME.matcher(partition);
+      if (matcher.matches()) {
+        YearMonth month = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX);
+        if (month.isBefore(oldestKept)) {
+          months.add(month);
+        }
+      }
+    }
+    months.sort(null);
+    return months.stream().map(AuditLogPartitionMaintenance::partitionName).toList();
+  }
+
+  private static JdbcTemplate streamingJdbcTemplate(DataSource dataSource) {
+    JdbcTemplate template = new JdbcTemplate(dataSource);
+    template.setFetchSize(Integer.parseInt(CsvExporter.FETCH_SIZE));
+    return template;
+  }
+}
@@ -17,23 +17,30 @@ import java.util.List;
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
 
+  /*
+   * audit_logs está particionada por mes según timestamp (V54): las consultas de listado acotan
+   * timestamp para que PostgreSQL lea solo las particiones del rango.
+   */
+
   /**
-   * Obtener todos los logs de una empresa ordenados por timestamp descendente.
+   * Obtener los logs de una empresa en un rango, ordenados por timestamp descendente.
    */
-  Page<AuditLog> findByCompanyIdOrderByTimestampDesc(Long companyId, Pageable pageable);
+  Page<AuditLog> findByCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+    Long companyId, Instant from, Instant to, Pageable pageable
+  );
 
   /**
-   * Obtener logs de un usuario específico en una empresa.
+   * Obtener logs de un usuario específico en una empresa, en un rango.
    */
-  Page<AuditLog> findByUsernameAndCompanyIdOrderByTimestampDesc(
-    String username, Long companyId, Pageable pageable
+  Page<AuditLog> findByUsernameAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+    String username, Long companyId, Instant from, Instant to, Pageable pageable
   );
 
   /**
-   * Obtener logs por acción (ej: "ACCESS_DENIED", "DELETE") en una empresa.
+   * Obtener logs por acción (ej: "ACCESS_DENIED", "DELETE") en una empresa, en un rango.
    */
-  Page<AuditLog> findByActionAndCompanyIdOrderByTimestampDesc(
-    String action, Long companyId, Pageable pageable
+  Page<AuditLog> findByActionAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+    String action, Long companyId, Instant from, Instant to, Pageable pageable
   );
 
   /**
@@ -56,13 +63,16 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
   );
 
   /**
-   * Obtener logs con errores (status code 4xx, 5xx) en una empresa.
+   * Obtener logs con errores (status code 4xx, 5xx) en una empresa, en un rango.
    */
   @Query("SELECT a FROM AuditLog a WHERE a.statusCode >= :minStatusCode " +
-         "AND a.companyId = :companyId ORDER BY a.timestamp DESC")
-  Page<AuditLog> findByStatusCodeGreaterThanEqualAndCompanyId(
+         "AND a.companyId = :companyId AND a.timestamp BETWEEN :from AND :to " +
+         "ORDER BY a.timestamp DESC")
+  Page<AuditLog> findFailedBetween(
     @Param("minStatusCode") Integer minStatusCode,
     @Param("companyId") Long companyId,
+    @Param("from") Instant from,
+    @Param("to") Instant to,
     Pageable pageable
   );
 
@@ -0,0 +1,249 @@
+package com.datakomerz.pymes.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Escritor asíncrono de audit logs.
+ *
+ * <p>Los eventos entran a una cola acotada y un único hilo los inserta en lotes JDBC, cuando el
+ * lote se llena o vence el intervalo de flush. Con la cola llena, la política {@code block}
+ * espera hasta {@code block-timeout} antes de descartar el evento; {@code drop} lo descarta de
+ * inmediato. Un lote que falla se reintenta fila por fila para no perder las filas válidas.</p>
+ *
+ * <p>Métricas: {@code audit.writer.queue.depth}, {@code audit.writer.flush} (latencia por lote),
+ * {@code audit.writer.written}, {@code audit.writer.dropped} y {@code audit.writer.failed}.</p>
+ */
+@Component
+public class AuditLogWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+  static final String INSERT_SQL = """
+      INSERT INTO audit_logs (timestamp, username, user_roles, action, entity_type, entity_id, http_method,
+                              endpoint, ip_address, user_agent, company_id, status_code, error_message,
+                              request_body, response_time_ms)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      """;
+
+  enum Overflow { BLOCK, DROP }
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final BlockingQueue<AuditLog> queue;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final Overflow overflow;
+  private final long blockTimeoutNanos;
+  private final Timer flushTimer;
+  private final Counter writtenCounter;
+  private final Counter droppedCounter;
+  private final Counter failedCounter;
+
+  private volatile boolean running;
+  private Thread writerThread;
+
+  @Autowired
+  public AuditLogWriter(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry,
+                        @Value("${app.audit.writer.capacity:10000}") int capacity,
+                        @Value("${app.audit.writer.batch-size:500}") int batchSize,
+                        @Value("${app.audit.writer.flush-interval:1s}") Duration flushInterval,
+                        @Value("${app.audit.writer.overflow:block}") String overflow,
+                        @Value("${app.audit.writer.block-timeout:20ms}") Duration blockTimeout) {
+    this(jdbcTemplate, new TransactionTemplate(transactionManager), meterRegistry, capacity, batchSize,
+        flushInterval, Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT)), blockTimeout);
+  }
+
+  AuditLogWriter(JdbcTemplate jdbcTemplate,
+                 TransactionTemplate transactionTemplate,
+                 MeterRegistry meterRegistry,
+                 int capacity,
+                 int batchSize,
+                 Duration flushInterval,
+                 Overflow overflow,
+                 Duration blockTimeout) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    this.batchSize = Math.max(1, batchSize);
+    this.flushIntervalNanos = Math.max(1L, flushInterval.toNanos());
+    this.overflow = overflow;
+    this.blockTimeoutNanos = Math.max(0L, blockTimeout.toNanos());
+    Gauge.builder("audit.writer.queue.depth", queue, BlockingQueue::size)
+        .description("Audit events waiting to be written")
+        .register(meterRegistry);
+    this.flushTimer = Timer.builder("audit.writer.flush")
+        .description("Latency of one audit batch insert")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(meterRegistry);
+    this.writtenCounter = Counter.builder("audit.writer.written")
+        .description("Audit events written")
+        .register(meterRegistry);
+    this.droppedCounter = Counter.builder("audit.writer.dropped")
+        .description("Audit events discarded because the queue was full")
+        .register(meterRegistry);
+    this.failedCounter = Counter.builder("audit.writer.failed")
+        .description("Audit events lost because their insert failed")
+        .register(meterRegistry);
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::drainLoop);
+  }
+
+  /**
+   * Escribe lo pendiente y detiene el hilo; espera como máximo unos pocos intervalos de flush.
+   */
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    if (writerThread != null) {
+      writerThread.join(Math.max(5_000L, TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) * 3));
+      if (writerThread.isAlive()) {
+        logger.warn("El escritor de auditoría no terminó a tiempo, {} eventos perdidos", queue.size());
+        writerThread.interrupt();
+      }
+    }
+  }
+
+  /**
+   * Encola un evento. Retorna false cuando se descartó por cola llena.
+   */
+  public boolean enqueue(AuditLog auditLog) {
+    boolean accepted;
+    if (overflow == Overflow.BLOCK && blockTimeoutNanos > 0) {
+      try {
+        accepted = queue.offer(auditLog, blockTimeoutNanos, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        accepted = false;
+      }
+    } else {
+      accepted = queue.offer(auditLog);
+    }
+    if (!accepted) {
+      droppedCounter.increment();
+      logger.debug("Cola de auditoría llena, se descarta {}", auditLog);
+    }
+    return accepted;
+  }
+
+  int pending() {
+    return queue.size();
+  }
+
+  private void drainLoop() {
+    List<AuditLog> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        collect(batch);
+        if (!batch.isEmpty()) {
+          flush(batch);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        logger.error("Error en el escritor de auditoría: {}", e.getMessage(), e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Llena {@code batch} hasta {@code batchSize} eventos o hasta que vence el intervalo de flush
+   * contado desde el primer evento.
+   */
+  private void collect(List<AuditLog> batch) throws InterruptedException {
+    AuditLog first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+    if (first == null) {
+      return;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + flushIntervalNanos;
+    while (batch.size() < batchSize) {
+      queue.drainTo(batch, batchSize - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= batchSize || remaining <= 0 || !running) {
+        return;
+      }
+      AuditLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  void flush(List<AuditLog> batch) {
+    long start = System.nanoTime();
+    try {
+      transactionTemplate.executeWithoutResult(status ->
+          jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), AuditLogWriter::bind));
+      writtenCounter.increment(batch.size());
+    } catch (RuntimeException batchError) {
+      logger.warn("Falló el lote de {} audit logs, reintentando fila por fila: {}", batch.size(), batchError.getMessage());
+      for (AuditLog auditLog : batch) {
+        try {
+          jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, auditLog));
+          writtenCounter.increment();
+        } catch (RuntimeException rowError) {
+          failedCounter.increment();
+          logger.error("Error al guardar audit log {}: {}", auditLog, rowError.getMessage());
+        }
+      }
+    } finally {
+      flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static void bind(PreparedStatement ps, AuditLog log) throws SQLException {
+    // UTC wall time, as Hibernate writes it (hibernate.jdbc.time_zone=UTC).
+    Instant timestamp = log.getTimestamp() != null ? log.getTimestamp() : Instant.now();
+    ps.setObject(1, LocalDateTime.ofInstant(timestamp, ZoneOffset.UTC), Types.TIMESTAMP);
+    ps.setString(2, log.getUsername());
+    ps.setString(3, log.getUserRoles());
+    ps.setString(4, log.getAction());
+    ps.setString(5, log.getEntityType());
+    ps.setObject(6, log.getEntityId(), Types.BIGINT);
+    ps.setString(7, log.getHttpMethod());
+    ps.setString(8, log.getEndpoint());
+    ps.setString(9, log.getIpAddress());
+    ps.setString(10, log.getUserAgent());
+    ps.setObject(11, log.getCompanyId(), Types.BIGINT);
+    ps.setObject(12, log.getStatusCode(), Types.INTEGER);
+    ps.setString(13, log.getErrorMessage());
+    ps.setString(14, log.getRequestBody());
+    ps.setObject(15, log.getResponseTimeMs(), Types.BIGINT);
+  }
+}
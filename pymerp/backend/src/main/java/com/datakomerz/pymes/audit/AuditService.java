@@ -4,7 +4,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,50 +20,50 @@ public class AuditService {
   private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
 
   private final AuditLogRepository auditLogRepository;
+  private final AuditLogWriter auditLogWriter;
 
-  public AuditService(AuditLogRepository auditLogRepository) {
+  public AuditService(AuditLogRepository auditLogRepository, AuditLogWriter auditLogWriter) {
     this.auditLogRepository = auditLogRepository;
+    this.auditLogWriter = auditLogWriter;
   }
 
   /**
-   * Guarda un audit log de forma asíncrona.
-   * No bloquea el hilo principal.
+   * Encola un audit log para {@link AuditLogWriter}, que lo guarda en lotes.
+   * No bloquea el hilo principal más allá del timeout de backpressure.
    */
-  @Async
-  @Transactional
   public void logAction(AuditLog auditLog) {
-    try {
-      auditLogRepository.save(auditLog);
-      logger.debug("Audit log guardado: {}", auditLog);
-    } catch (Exception e) {
-      logger.error("Error al guardar audit log: {}", e.getMessage(), e);
+    if (auditLogWriter.enqueue(auditLog)) {
+      logger.debug("Audit log encolado: {}", auditLog);
     }
   }
 
   /**
-   * Obtiene logs de auditoría para una empresa, con paginación.
+   * Obtiene logs de auditoría para una empresa entre {@code from} y {@code to}, con paginación.
    */
   @Transactional(readOnly = true)
-  public Page<AuditLog> getAuditLogs(Long companyId, Pageable pageable) {
-    return auditLogRepository.findByCompanyIdOrderByTimestampDesc(companyId, pageable);
+  public Page<AuditLog> getAuditLogs(Long companyId, Instant from, Instant to, Pageable pageable) {
+    return auditLogRepository.findByCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        companyId, from, to, pageable);
   }
 
   /**
-   * Obtiene logs de un usuario específico en una empresa.
+   * Obtiene logs de un usuario específico en una empresa entre {@code from} y {@code to}.
    */
   @Transactional(readOnly = true)
-  public Page<AuditLog> getAuditLogsByUser(String username, Long companyId, Pageable pageable) {
-    return auditLogRepository.findByUsernameAndCompanyIdOrderByTimestampDesc(
-        username, companyId, pageable);
+  public Page<AuditLog> getAuditLogsByUser(
+      String username, Long companyId, Instant from, Instant to, Pageable pageable) {
+    return auditLogRepository.findByUsernameAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        username, companyId, from, to, pageable);
   }
 
   /**
-   * Obtiene logs por acción (ej: "ACCESS_DENIED", "DELETE").
+   * Obtiene logs por acción (ej: "ACCESS_DENIED", "DELETE") entre {@code from} y {@code to}.
    */
   @Transactional(readOnly = true)
-  public Page<AuditLog> getAuditLogsByAction(String action, Long companyId, Pageable pageable) {
-    return auditLogRepository.findByActionAndCompanyIdOrderByTimestampDesc(
-        action, companyId, pageable);
+  public Page<AuditLog> getAuditLogsByAction(
+      String action, Long companyId, Instant from, Instant to, Pageable pageable) {
+    return auditLogRepository.findByActionAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        action, companyId, from, to, pageable);
   }
 
   /**
@@ -78,12 +77,11 @@ public class AuditService {
   }
 
   /**
-   * Obtiene logs con errores (status code >= 400).
+   * Obtiene logs con errores (status code >= 400) entre {@code from} y {@code to}.
    */
   @Transactional(readOnly = true)
-  public Page<AuditLog> getFailedRequests(Long companyId, Pageable pageable) {
-    return auditLogRepository.findByStatusCodeGreaterThanEqualAndCompanyId(
-        400, companyId, pageable);
+  public Page<AuditLog> getFailedRequests(Long companyId, Instant from, Instant to, Pageable pageable) {
+    return auditLogRepository.findFailedBetween(400, companyId, from, to, pageable);
   }
 
   /**
@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.audit;
 
+import com.datakomerz.pymes.auth.lockout.LoginAttemptService;
 import com.datakomerz.pymes.security.SecurityUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
@@ -18,6 +19,7 @@ import java.util.stream.Collectors;
 /**
  * Listener para eventos de seguridad de Spring Security.
  * Captura LOGIN (success/failure) y ACCESS_DENIED (403).
+ * Los logins fallidos también alimentan los contadores de bloqueo de {@link LoginAttemptService}.
  */
 @Component
 public class SecurityEventListener {
@@ -25,9 +27,11 @@ public class SecurityEventListener {
   private static final Logger logger = LoggerFactory.getLogger(SecurityEventListener.class);
 
   private final AuditService auditService;
+  private final LoginAttemptService loginAttemptService;
 
-  public SecurityEventListener(AuditService auditService) {
+  public SecurityEventListener(AuditService auditService, LoginAttemptService loginAttemptService) {
     this.auditService = auditService;
+    this.loginAttemptService = loginAttemptService;
   }
 
   /**
@@ -55,7 +59,7 @@ public class SecurityEventListener {
     if (request != null) {
       log.setEndpoint(request.getRequestURI());
       log.setHttpMethod(request.getMethod());
-      log.setIpAddress(getClientIp(request));
+      log.setIpAddress(SecurityUtils.getClientIp(request));
       log.setUserAgent(request.getHeader("User-Agent"));
     }
 
@@ -83,7 +87,7 @@ public class SecurityEventListener {
     if (request != null) {
       log.setEndpoint(request.getRequestURI());
       log.setHttpMethod(request.getMethod());
-      log.setIpAddress(getClientIp(request));
+      log.setIpAddress(SecurityUtils.getClientIp(request));
       log.setUserAgent(request.getHeader("User-Agent"));
     }
 
@@ -91,6 +95,7 @@ public class SecurityEventListener {
     log.setStatusCode(401); // Unauthorized
     log.setErrorMessage(event.getException().getMessage());
 
+    loginAttemptService.recordFailure(username, log.getIpAddress());
     auditService.logAction(log);
   }
 
@@ -117,7 +122,7 @@ public class SecurityEventListener {
     if (request != null) {
       log.setEndpoint(request.getRequestURI());
       log.setHttpMethod(request.getMethod());
-      log.setIpAddress(getClientIp(request));
+      log.setIpAddress(SecurityUtils.getClientIp(request));
       log.setUserAgent(request.getHeader("User-Agent"));
       log.setEntityType(extractEntityTypeFromPath(request.getRequestURI()));
     }
@@ -146,17 +151,6 @@ public class SecurityEventListener {
     }
   }
 
-  /**
-   * Obtiene la IP real del cliente, considerando proxies (X-Forwarded-For).
-   */
-  private String getClientIp(HttpServletRequest request) {
-    String xForwardedFor = request.getHeader("X-Forwarded-For");
-    if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-      return xForwardedFor.split(",")[0].trim();
-    }
-    return request.getRemoteAddr();
-  }
-
   /**
    * Extrae el tipo de entidad del path (ej: /api/v1/customers/123 -> "Customer").
    */
@@ -0,0 +1,25 @@
+package com.datakomerz.pymes.auth;
+
+public class LoginLockedException extends RuntimeException {
+
+  private final String errorCode;
+  private final long retryAfterSeconds;
+
+  public LoginLockedException(String message, long retryAfterSeconds) {
+    this("LOGIN_LOCKED", message, retryAfterSeconds);
+  }
+
+  public LoginLockedException(String errorCode, String message, long retryAfterSeconds) {
+    super(message);
+    this.errorCode = errorCode;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public String getErrorCode() {
+    return errorCode;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -0,0 +1,100 @@
+package com.datakomerz.pymes.auth;
+
+import com.datakomerz.pymes.config.SecurityProperties;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Hashes refresh tokens with a keyed HMAC-SHA256. Refresh tokens are 384-bit random
+ * values, so a slow password hash adds CPU cost without adding security. Hashes written
+ * before the switch (bcrypt) are still verified through the {@link PasswordEncoder};
+ * they disappear as tokens are rotated, since every rotation issues an HMAC hash.
+ *
+ * <p>The key is {@code app.security.jwt.refresh-token-secret}, falling back to the JWT
+ * signing secret when unset (production requires the dedicated secret, see
+ * {@code SecretsValidator}). When the effective secret changes at runtime the previous key is
+ * kept for verification, so reloading the JWT secret does not log out every session; tokens
+ * move to the new key as they are rotated.</p>
+ */
+@Component
+public class RefreshTokenHasher {
+
+  static final String HMAC_PREFIX = "hmac-sha256$";
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final SecurityProperties securityProperties;
+  private final PasswordEncoder passwordEncoder;
+  private volatile KeyHolder keyHolder;
+
+  public RefreshTokenHasher(SecurityProperties securityProperties, PasswordEncoder passwordEncoder) {
+    this.securityProperties = securityProperties;
+    this.passwordEncoder = passwordEncoder;
+  }
+
+  public String hash(String rawToken) {
+    return HMAC_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(keys().key(), rawToken));
+  }
+
+  public boolean matches(String rawToken, String storedHash) {
+    if (storedHash == null || rawToken == null) {
+      return false;
+    }
+    if (!storedHash.startsWith(HMAC_PREFIX)) {
+      return passwordEncoder.matches(rawToken, storedHash);
+    }
+    byte[] expected;
+    try {
+      expected = Base64.getUrlDecoder().decode(storedHash.substring(HMAC_PREFIX.length()));
+    } catch (IllegalArgumentException ex) {
+      return false;
+    }
+    KeyHolder keys = keys();
+    if (MessageDigest.isEqual(expected, mac(keys.key(), rawToken))) {
+      return true;
+    }
+    return keys.previousKey() != null && MessageDigest.isEqual(expected, mac(keys.previousKey(), rawToken));
+  }
+
+  public boolean isLegacyHash(String storedHash) {
+    return storedHash != null && !storedHash.startsWith(HMAC_PREFIX);
+  }
+
+  private byte[] mac(SecretKeySpec key, String rawToken) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac.doFinal(rawToken.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException ex) {
+      throw new IllegalStateException("Unable to hash refresh token", ex);
+    }
+  }
+
+  private KeyHolder keys() {
+    SecurityProperties.Jwt jwt = securityProperties.getJwt();
+    String secret = StringUtils.hasText(jwt.getRefreshTokenSecret()) ? jwt.getRefreshTokenSecret() : jwt.getSecret();
+    KeyHolder current = keyHolder;
+    if (current == null || !current.secret().equals(secret)) {
+      if (secret == null || secret.length() < 32) {
+        throw new IllegalStateException("Refresh token secret must be at least 32 characters");
+      }
+      synchronized (this) {
+        current = keyHolder;
+        if (current == null || !current.secret().equals(secret)) {
+          current = new KeyHolder(secret, new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM),
+              current != null ? current.key() : null);
+          keyHolder = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private record KeyHolder(String secret, SecretKeySpec key, SecretKeySpec previousKey) {}
+}
@@ -1,12 +1,20 @@
 package com.datakomerz.pymes.auth;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
   List<RefreshToken> findByUserIdAndRevokedAtIsNull(UUID userId);
   Optional<RefreshToken> findByIdAndUserId(UUID id, UUID userId);
   void deleteByUserId(UUID userId);
+
+  @Modifying(flushAutomatically = true)
+  @Query("update RefreshToken t set t.revokedAt = :revokedAt where t.userId = :userId and t.revokedAt is null")
+  int revokeActiveByUserId(@Param("userId") UUID userId, @Param("revokedAt") OffsetDateTime revokedAt);
 }
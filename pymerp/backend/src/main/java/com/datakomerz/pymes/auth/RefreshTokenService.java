@@ -6,11 +6,9 @@ import io.opentelemetry.api.trace.StatusCode;
 import java.security.SecureRandom;
 import java.time.OffsetDateTime;
 import java.util.Base64;
-import java.util.List;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,16 +21,16 @@ public class RefreshTokenService {
 
   private final RefreshTokenRepository refreshTokenRepository;
   private final UserAccountRepository userAccountRepository;
-  private final PasswordEncoder passwordEncoder;
+  private final RefreshTokenHasher refreshTokenHasher;
   private final SecurityProperties securityProperties;
 
   public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
                              UserAccountRepository userAccountRepository,
-                             PasswordEncoder passwordEncoder,
+                             RefreshTokenHasher refreshTokenHasher,
                              SecurityProperties securityProperties) {
     this.refreshTokenRepository = refreshTokenRepository;
     this.userAccountRepository = userAccountRepository;
-    this.passwordEncoder = passwordEncoder;
+    this.refreshTokenHasher = refreshTokenHasher;
     this.securityProperties = securityProperties;
   }
 
@@ -64,12 +62,16 @@ public class RefreshTokenService {
       throw invalid("Refresh token expired or revoked", span);
     }
 
-    if (!passwordEncoder.matches(parts.raw(), existing.getTokenHash())) {
+    if (!refreshTokenHasher.matches(parts.raw(), existing.getTokenHash())) {
       LOG.warn("Refresh token {} rejected: hash mismatch", existing.getId());
       span.addEvent("refresh_token.mismatch");
       span.setStatus(StatusCode.ERROR, "Refresh token mismatch");
       throw invalid("Refresh token mismatch", span);
     }
+    if (refreshTokenHasher.isLegacyHash(existing.getTokenHash())) {
+      // the replacement issued below is stored as HMAC, migrating this token off bcrypt
+      span.addEvent("refresh_token.legacy_hash_migrated");
+    }
 
     UserAccount user = userAccountRepository.findById(existing.getUserId())
       .orElseThrow(() -> invalid("User not found for refresh token", span));
@@ -96,19 +98,14 @@ public class RefreshTokenService {
 
   @Transactional
   public void revokeAll(UUID userId) {
-    List<RefreshToken> tokens = refreshTokenRepository.findByUserIdAndRevokedAtIsNull(userId);
-    OffsetDateTime now = OffsetDateTime.now();
-    for (RefreshToken token : tokens) {
-      token.setRevokedAt(now);
-    }
-    refreshTokenRepository.saveAll(tokens);
+    refreshTokenRepository.revokeActiveByUserId(userId, OffsetDateTime.now());
   }
 
   private RawRefreshToken createToken(UserAccount user) {
     String rawToken = generateRawToken();
     RefreshToken refresh = new RefreshToken();
     refresh.setUserId(user.getId());
-    refresh.setTokenHash(passwordEncoder.encode(rawToken));
+    refresh.setTokenHash(refreshTokenHasher.hash(rawToken));
     refresh.setExpiresAt(OffsetDateTime.now().plusSeconds(securityProperties.getJwt().getRefreshExpirationSeconds()));
     RefreshToken persisted = refreshTokenRepository.save(refresh);
     return new RawRefreshToken(persisted.getId(), rawToken);
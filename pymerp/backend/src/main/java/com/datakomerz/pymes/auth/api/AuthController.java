@@ -33,8 +33,9 @@ public class AuthController {
   }
 
   @PostMapping("/login")
-  public ResponseEntity<AuthResponse> login(@Valid @RequestBody AuthRequest request) {
-    return ResponseEntity.ok(loginUseCase.handle(request));
+  public ResponseEntity<AuthResponse> login(HttpServletRequest servletRequest,
+                                            @Valid @RequestBody AuthRequest request) {
+    return ResponseEntity.ok(loginUseCase.handle(request, servletRequest));
   }
 
   @PostMapping("/refresh")
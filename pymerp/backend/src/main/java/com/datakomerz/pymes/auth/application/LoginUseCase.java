@@ -3,9 +3,12 @@ package com.datakomerz.pymes.auth.application;
 import com.datakomerz.pymes.auth.RefreshTokenService;
 import com.datakomerz.pymes.auth.dto.AuthRequest;
 import com.datakomerz.pymes.auth.dto.AuthResponse;
+import com.datakomerz.pymes.auth.lockout.LoginAttemptService;
 import com.datakomerz.pymes.config.SecurityProperties;
 import com.datakomerz.pymes.security.AppUserDetails;
+import com.datakomerz.pymes.security.SecurityUtils;
 import com.datakomerz.pymes.security.jwt.JwtService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -19,23 +22,31 @@ public class LoginUseCase {
   private final SecurityProperties securityProperties;
   private final RefreshTokenService refreshTokenService;
   private final AuthResponseFactory authResponseFactory;
+  private final LoginAttemptService loginAttemptService;
 
   public LoginUseCase(AuthenticationManager authenticationManager,
                       JwtService jwtService,
                       SecurityProperties securityProperties,
                       RefreshTokenService refreshTokenService,
-                      AuthResponseFactory authResponseFactory) {
+                      AuthResponseFactory authResponseFactory,
+                      LoginAttemptService loginAttemptService) {
     this.authenticationManager = authenticationManager;
     this.jwtService = jwtService;
     this.securityProperties = securityProperties;
     this.refreshTokenService = refreshTokenService;
     this.authResponseFactory = authResponseFactory;
+    this.loginAttemptService = loginAttemptService;
   }
 
-  public AuthResponse handle(AuthRequest request) {
+  public AuthResponse handle(AuthRequest request, HttpServletRequest servletRequest) {
+    // Failures are counted by SecurityEventListener; checking first keeps locked-out attempts
+    // away from the password hash.
+    loginAttemptService.checkAllowed(request.email(), SecurityUtils.getClientIp(servletRequest));
+
     Authentication authentication = authenticationManager.authenticate(
       new UsernamePasswordAuthenticationToken(request.email(), request.password())
     );
+    loginAttemptService.recordSuccess(request.email());
 
     AppUserDetails principal = (AppUserDetails) authentication.getPrincipal();
     String token = jwtService.generateToken(principal);
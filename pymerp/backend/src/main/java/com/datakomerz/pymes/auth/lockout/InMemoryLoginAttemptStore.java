@@ -0,0 +1,68 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node-local counters, used when Redis is not configured and while it is unreachable. Each key
+ * keeps only its two latest buckets; stale keys are swept once per bucket when the map grows
+ * past {@code sweepThreshold}.
+ */
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+
+  private record Slot(long bucket, long current, long previous) {
+
+    Slot advanceTo(long target) {
+      if (bucket == target) {
+        return this;
+      }
+      return new Slot(target, 0, bucket == target - 1 ? current : 0);
+    }
+  }
+
+  private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+  private final int sweepThreshold;
+  private volatile long lastSweepBucket = Long.MIN_VALUE;
+
+  public InMemoryLoginAttemptStore() {
+    this(100_000);
+  }
+
+  InMemoryLoginAttemptStore(int sweepThreshold) {
+    this.sweepThreshold = sweepThreshold;
+  }
+
+  @Override
+  public void increment(String key, long bucket, Duration ttl) {
+    slots.compute(key, (k, slot) -> {
+      Slot advanced = slot == null ? new Slot(bucket, 0, 0) : slot.advanceTo(bucket);
+      return new Slot(bucket, advanced.current() + 1, advanced.previous());
+    });
+    if (slots.size() > sweepThreshold && lastSweepBucket != bucket) {
+      lastSweepBucket = bucket;
+      slots.values().removeIf(slot -> slot.bucket() < bucket - 1);
+    }
+  }
+
+  @Override
+  public WindowCounts counts(String key, long bucket) {
+    Slot slot = slots.get(key);
+    if (slot == null || slot.bucket() < bucket - 1) {
+      return WindowCounts.EMPTY;
+    }
+    if (slot.bucket() == bucket - 1) {
+      return new WindowCounts(0, slot.current());
+    }
+    return new WindowCounts(slot.current(), slot.previous());
+  }
+
+  @Override
+  public void reset(String key, long bucket) {
+    slots.remove(key);
+  }
+
+  int size() {
+    return slots.size();
+  }
+}
@@ -0,0 +1,16 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+public class LoginAttemptConfiguration {
+
+  @Bean
+  public LoginAttemptStore loginAttemptStore(ObjectProvider<StringRedisTemplate> redisTemplate) {
+    StringRedisTemplate template = redisTemplate.getIfAvailable();
+    return template != null ? new RedisLoginAttemptStore(template) : new InMemoryLoginAttemptStore();
+  }
+}
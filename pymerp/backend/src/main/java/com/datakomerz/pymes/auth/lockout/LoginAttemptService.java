@@ -0,0 +1,125 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import com.datakomerz.pymes.auth.LoginLockedException;
+import com.datakomerz.pymes.auth.lockout.LoginAttemptStore.WindowCounts;
+import com.datakomerz.pymes.config.SecurityProperties;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sliding-window failed-login counters per username and per client IP.
+ *
+ * <p>Failures land in fixed buckets of {@code app.security.lockout.window}; the sliding count is
+ * the current bucket plus the previous one weighted by how much of it still overlaps the window.
+ * Checks therefore read two counters per key instead of scanning {@code audit_logs}.</p>
+ */
+@Component
+public class LoginAttemptService {
+
+  private final LoginAttemptStore store;
+  private final SecurityProperties.Lockout lockout;
+  private final Clock clock;
+
+  @Autowired
+  public LoginAttemptService(LoginAttemptStore store,
+                             SecurityProperties securityProperties,
+                             ObjectProvider<Clock> clockProvider) {
+    this(store, securityProperties, clockProvider.getIfAvailable(Clock::systemUTC));
+  }
+
+  LoginAttemptService(LoginAttemptStore store, SecurityProperties securityProperties, Clock clock) {
+    this.store = store;
+    this.lockout = securityProperties.getLockout();
+    this.clock = clock;
+  }
+
+  /**
+   * Rejects the attempt when the username or the IP already reached its failure limit.
+   */
+  public void checkAllowed(String username, String ipAddress) {
+    if (!lockout.isEnabled()) {
+      return;
+    }
+    long now = clock.millis();
+    long windowMillis = windowMillis();
+    long bucket = now / windowMillis;
+    long elapsed = now % windowMillis;
+    if (username != null && !username.isBlank()) {
+      check(store.counts(userKey(username), bucket), lockout.getMaxFailuresPerUser(), windowMillis, elapsed,
+          "Too many failed login attempts for this account");
+    }
+    if (ipAddress != null && !ipAddress.isBlank()) {
+      check(store.counts(ipKey(ipAddress), bucket), lockout.getMaxFailuresPerIp(), windowMillis, elapsed,
+          "Too many failed login attempts from this address");
+    }
+  }
+
+  public void recordFailure(String username, String ipAddress) {
+    if (!lockout.isEnabled()) {
+      return;
+    }
+    long windowMillis = windowMillis();
+    long bucket = clock.millis() / windowMillis;
+    // Two windows: the bucket is still read as "previous" during the next one.
+    Duration ttl = lockout.getWindow().multipliedBy(2);
+    if (username != null && !username.isBlank()) {
+      store.increment(userKey(username), bucket, ttl);
+    }
+    if (ipAddress != null && !ipAddress.isBlank()) {
+      store.increment(ipKey(ipAddress), bucket, ttl);
+    }
+  }
+
+  /**
+   * Clears the username counter after a successful login; the IP counter keeps counting.
+   */
+  public void recordSuccess(String username) {
+    if (!lockout.isEnabled() || username == null || username.isBlank()) {
+      return;
+    }
+    store.reset(userKey(username), clock.millis() / windowMillis());
+  }
+
+  private static void check(WindowCounts counts, int maxFailures, long windowMillis, long elapsed, String message) {
+    if (maxFailures <= 0) {
+      return;
+    }
+    double overlap = (double) (windowMillis - elapsed) / windowMillis;
+    if (counts.current() + counts.previous() * overlap < maxFailures) {
+      return;
+    }
+    throw new LoginLockedException(message, retryAfterSeconds(counts, maxFailures, windowMillis, elapsed));
+  }
+
+  /**
+   * Time until the sliding count drops below {@code maxFailures}, assuming no further failures.
+   */
+  static long retryAfterSeconds(WindowCounts counts, int maxFailures, long windowMillis, long elapsed) {
+    long waitMillis;
+    if (counts.current() >= maxFailures) {
+      // The current bucket has to roll over and then decay as the previous one.
+      waitMillis = windowMillis - elapsed
+          + (long) Math.ceil(windowMillis * (1 - (double) maxFailures / counts.current()));
+    } else {
+      double overlapAllowed = (double) (maxFailures - counts.current()) / counts.previous();
+      waitMillis = (long) Math.ceil(windowMillis * (1 - overlapAllowed)) - elapsed;
+    }
+    return Math.max(1L, (waitMillis + 999) / 1000);
+  }
+
+  private long windowMillis() {
+    return Math.max(1000L, lockout.getWindow().toMillis());
+  }
+
+  private static String userKey(String username) {
+    return "user:" + username.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static String ipKey(String ipAddress) {
+    return "ip:" + ipAddress.trim();
+  }
+}
@@ -0,0 +1,31 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import java.time.Duration;
+
+/**
+ * Failed-login counters bucketed by fixed windows. {@link LoginAttemptService} combines the current
+ * and previous bucket into a sliding-window estimate, so every operation touches at most two
+ * counters regardless of how many attempts were made.
+ */
+public interface LoginAttemptStore {
+
+  /**
+   * Adds one failure to {@code key} in {@code bucket}; the counter may be discarded after {@code ttl}.
+   */
+  void increment(String key, long bucket, Duration ttl);
+
+  /**
+   * Counters of {@code key} for {@code bucket} and the bucket before it.
+   */
+  WindowCounts counts(String key, long bucket);
+
+  /**
+   * Clears the counters of {@code key} for {@code bucket} and the bucket before it.
+   */
+  void reset(String key, long bucket);
+
+  record WindowCounts(long current, long previous) {
+
+    static final WindowCounts EMPTY = new WindowCounts(0, 0);
+  }
+}
@@ -0,0 +1,104 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import java.time.Duration;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Redis-backed counters shared by every node: one {@code INCR} per failure and one {@code MGET}
+ * per check. When Redis fails the store switches to an in-memory fallback and retries Redis after
+ * {@link #RETRY_INTERVAL}, so an outage neither blocks logins nor disables the lockout.
+ */
+public class RedisLoginAttemptStore implements LoginAttemptStore {
+
+  private static final Logger log = LoggerFactory.getLogger(RedisLoginAttemptStore.class);
+
+  static final String KEY_PREFIX = "auth:login-failures:";
+  static final Duration RETRY_INTERVAL = Duration.ofSeconds(30);
+
+  private final StringRedisTemplate redisTemplate;
+  private final LoginAttemptStore fallback;
+  private volatile long retryRedisAt;
+
+  public RedisLoginAttemptStore(StringRedisTemplate redisTemplate) {
+    this(redisTemplate, new InMemoryLoginAttemptStore());
+  }
+
+  RedisLoginAttemptStore(StringRedisTemplate redisTemplate, LoginAttemptStore fallback) {
+    this.redisTemplate = redisTemplate;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public void increment(String key, long bucket, Duration ttl) {
+    if (redisAvailable()) {
+      try {
+        String redisKey = redisKey(key, bucket);
+        Long count = redisTemplate.opsForValue().increment(redisKey);
+        if (count != null && count == 1L) {
+          redisTemplate.expire(redisKey, ttl);
+        }
+        return;
+      } catch (RuntimeException ex) {
+        redisFailed(ex);
+      }
+    }
+    fallback.increment(key, bucket, ttl);
+  }
+
+  @Override
+  public WindowCounts counts(String key, long bucket) {
+    if (redisAvailable()) {
+      try {
+        List<String> values = redisTemplate.opsForValue()
+            .multiGet(List.of(redisKey(key, bucket), redisKey(key, bucket - 1)));
+        if (values == null) {
+          return WindowCounts.EMPTY;
+        }
+        return new WindowCounts(parse(values.get(0)), parse(values.get(1)));
+      } catch (RuntimeException ex) {
+        redisFailed(ex);
+      }
+    }
+    return fallback.counts(key, bucket);
+  }
+
+  @Override
+  public void reset(String key, long bucket) {
+    fallback.reset(key, bucket);
+    if (redisAvailable()) {
+      try {
+        redisTemplate.delete(List.of(redisKey(key, bucket), redisKey(key, bucket - 1)));
+      } catch (RuntimeException ex) {
+        redisFailed(ex);
+      }
+    }
+  }
+
+  private boolean redisAvailable() {
+    return System.currentTimeMillis() >= retryRedisAt;
+  }
+
+  private void redisFailed(RuntimeException ex) {
+    retryRedisAt = System.currentTimeMillis() + RETRY_INTERVAL.toMillis();
+    log.warn("Redis unavailable for login attempt counters, using local counters for {}s: {}",
+        RETRY_INTERVAL.toSeconds(), ex.getMessage());
+  }
+
+  private static long parse(String value) {
+    if (value == null) {
+      return 0L;
+    }
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      return 0L;
+    }
+  }
+
+  private static String redisKey(String key, long bucket) {
+    return KEY_PREFIX + key + ":" + bucket;
+  }
+}
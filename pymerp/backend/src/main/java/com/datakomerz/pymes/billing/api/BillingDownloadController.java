@@ -3,18 +3,40 @@ package com.datakomerz.pymes.billing.api;
 import com.company.billing.persistence.DocumentFile;
 import com.company.billing.persistence.DocumentFileRepository;
 import com.company.billing.persistence.DocumentFileVersion;
+import com.company.billing.persistence.RenderStatus;
 import com.datakomerz.pymes.billing.dto.DocumentDetailResponse;
 import com.datakomerz.pymes.billing.dto.DocumentLinksResponse;
+import com.datakomerz.pymes.billing.render.BillingPdfProperties;
 import com.datakomerz.pymes.billing.service.BillingDocumentView;
+import com.datakomerz.pymes.billing.service.BillingExportService;
 import com.datakomerz.pymes.billing.service.BillingService;
 import com.datakomerz.pymes.billing.service.BillingStorageService;
+import com.datakomerz.pymes.billing.service.DocumentRenderQueue;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,10 +44,12 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
 @RestController
@@ -36,15 +60,61 @@ public class BillingDownloadController {
   private final DocumentFileRepository documentFileRepository;
   private final BillingStorageService storageService;
   private final BillingResponseMapper responseMapper;
+  private final DocumentRenderQueue renderQueue;
+  private final BillingPdfProperties pdfProperties;
+  private final BillingExportService exportService;
 
   public BillingDownloadController(BillingService billingService,
                                    DocumentFileRepository documentFileRepository,
                                    BillingStorageService storageService,
-                                   BillingResponseMapper responseMapper) {
+                                   BillingResponseMapper responseMapper,
+                                   DocumentRenderQueue renderQueue,
+                                   BillingPdfProperties pdfProperties,
+                                   BillingExportService exportService) {
     this.billingService = billingService;
     this.documentFileRepository = documentFileRepository;
     this.storageService = storageService;
     this.responseMapper = responseMapper;
+    this.renderQueue = renderQueue;
+    this.pdfProperties = pdfProperties;
+    this.exportService = exportService;
+  }
+
+  /**
+   * Streams a ZIP with the stored files of the fiscal documents created between
+   * {@code from} and {@code to} (inclusive days in {@code billing.export.zone}), or of the
+   * given {@code ids}.
+   */
+  @GetMapping("/documents/export")
+  @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'ADMIN')")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(name = "ids", required = false) List<UUID> ids) {
+    boolean byIds = ids != null && !ids.isEmpty();
+    if (!byIds && (from == null || to == null)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either ids or from and to are required");
+    }
+    if (!byIds && to.isBefore(from)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+    }
+    BillingExportService.ExportPlan plan;
+    try {
+      plan = byIds
+          ? exportService.plan(null, null, ids)
+          : exportService.plan(from, to);
+    } catch (IllegalArgumentException ex) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+    String filename = byIds
+        ? "documentos.zip"
+        : "documentos_" + from + "_" + to + ".zip";
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.parseMediaType("application/zip"));
+    headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+    headers.set("X-Document-Count", Integer.toString(plan.documentCount()));
+    StreamingResponseBody body = output -> exportService.write(plan, output);
+    return ResponseEntity.ok().headers(headers).body(body);
   }
 
   @GetMapping("/documents/{id}")
@@ -55,33 +125,197 @@ public class BillingDownloadController {
     return responseMapper.toDetailResponse(view, links);
   }
 
+  /**
+   * Serves a stored file. Responses carry an {@code ETag} built from the stored checksum
+   * and a GMT {@code Last-Modified}, and honour {@code If-None-Match},
+   * {@code If-Modified-Since}, {@code Range} and {@code If-Range}, so interrupted
+   * downloads can resume. Files on local disk are copied to the response with
+   * {@link FileChannel#transferTo}, without staging them on the heap.
+   */
   @GetMapping("/documents/{id}/files/{version}")
   @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'ADMIN')")
   public ResponseEntity<Resource> download(@PathVariable UUID id,
                                            @PathVariable String version,
-                                           @RequestParam(name = "contentType", required = false) String requestedContentType) {
+                                           @RequestParam(name = "contentType", required = false) String requestedContentType,
+                                           @RequestHeader HttpHeaders requestHeaders,
+                                           HttpServletResponse response) {
     DocumentFileVersion targetVersion = parseVersion(version);
     List<DocumentFile> candidates = documentFileRepository.findByDocumentIdAndVersion(id, targetVersion);
+    if (candidates.isEmpty() && targetVersion == DocumentFileVersion.LOCAL) {
+      RenderStatus renderStatus = awaitLocalRender(id);
+      if (renderStatus == RenderStatus.RENDER_PENDING) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(pdfProperties.getRender().getRetryAfterSeconds()))
+            .build();
+      }
+      candidates = documentFileRepository.findByDocumentIdAndVersion(id, targetVersion);
+    }
     if (candidates.isEmpty()) {
       throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No files stored for requested version");
     }
     DocumentFile selected = selectFile(candidates, requestedContentType);
-    Resource resource;
+    String etag = StringUtils.hasText(selected.getChecksum()) ? "\"" + selected.getChecksum() + "\"" : null;
+    // HTTP dates have second precision and are always GMT (RFC 9110 section 5.6.7).
+    Instant lastModified = selected.getCreatedAt() != null
+        ? selected.getCreatedAt().toInstant().truncatedTo(ChronoUnit.SECONDS)
+        : null;
+    if (notModified(requestHeaders, etag, lastModified)) {
+      ResponseEntity.HeadersBuilder<?> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED);
+      if (etag != null) {
+        notModified.eTag(etag);
+      }
+      if (lastModified != null) {
+        notModified.lastModified(lastModified);
+      }
+      return notModified.build();
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(resolveMediaType(selected.getContentType()));
+    headers.setContentDispositionFormData("attachment", buildDownloadFilename(selected));
+    headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+    if (etag != null) {
+      headers.setETag(etag);
+    }
+    if (lastModified != null) {
+      headers.setLastModified(lastModified);
+    }
     try {
-      resource = storageService.loadAsResource(selected.getStorageKey());
+      Optional<Path> localFile = storageService.resolveFile(selected.getStorageKey());
+      if (localFile.isPresent()) {
+        transferFile(localFile.get(), headers, requestHeaders, etag, lastModified, response);
+        return null;
+      }
+      // Remote storage: Spring serves Range requests on Resource bodies itself.
+      Resource resource = storageService.loadAsResource(selected.getStorageKey());
+      return ResponseEntity.ok()
+          .headers(headers)
+          .body(resource);
     } catch (IOException ex) {
       throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
           "Unable to load stored document", ex);
     }
+  }
 
-    String filename = buildDownloadFilename(selected);
-    MediaType mediaType = resolveMediaType(selected.getContentType());
-    HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(mediaType);
-    headers.setContentDispositionFormData("attachment", filename);
-    return ResponseEntity.ok()
-        .headers(headers)
-        .body(resource);
+  /**
+   * Writes the file straight to the servlet response; the {@code null} returned by the
+   * handler then tells Spring MVC the response is complete.
+   */
+  private void transferFile(Path file,
+                            HttpHeaders headers,
+                            HttpHeaders requestHeaders,
+                            String etag,
+                            Instant lastModified,
+                            HttpServletResponse response) throws IOException {
+    long length = Files.size(file);
+    long start = 0;
+    long count = length;
+    int status = HttpStatus.OK.value();
+    HttpRange range = resolveRange(requestHeaders, etag, lastModified);
+    if (range != null) {
+      try {
+        start = range.getRangeStart(length);
+        count = range.getRangeEnd(length) - start + 1;
+        if (start >= length || count <= 0) {
+          throw new IllegalArgumentException("Range outside of file");
+        }
+      } catch (IllegalArgumentException ex) {
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        return;
+      }
+      status = HttpStatus.PARTIAL_CONTENT.value();
+      headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + count - 1) + "/" + length);
+    }
+    response.setStatus(status);
+    headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+    response.setContentLengthLong(count);
+    WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long position = start;
+      long remaining = count;
+      while (remaining > 0) {
+        long sent = channel.transferTo(position, remaining, target);
+        if (sent <= 0) {
+          break;
+        }
+        position += sent;
+        remaining -= sent;
+      }
+    }
+    response.flushBuffer();
+  }
+
+  /**
+   * Whether the client's copy is current. {@code If-Modified-Since} is only considered
+   * when the request has no {@code If-None-Match} (RFC 9110 section 13.1.3).
+   */
+  private boolean notModified(HttpHeaders requestHeaders, String etag, Instant lastModified) {
+    List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+    if (!ifNoneMatch.isEmpty()) {
+      return ifNoneMatch.contains("*") || (etag != null && ifNoneMatch.contains(etag));
+    }
+    long ifModifiedSince = ifModifiedSince(requestHeaders);
+    return lastModified != null && ifModifiedSince >= 0 && lastModified.toEpochMilli() <= ifModifiedSince;
+  }
+
+  private long ifModifiedSince(HttpHeaders requestHeaders) {
+    try {
+      return requestHeaders.getIfModifiedSince();
+    } catch (IllegalArgumentException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Single byte range to serve, or {@code null} for the whole file. Multi-range
+   * requests and ranges whose {@code If-Range} validator (entity tag or HTTP date) no
+   * longer matches are answered with the full content, as RFC 9110 allows.
+   */
+  private HttpRange resolveRange(HttpHeaders requestHeaders, String etag, Instant lastModified) {
+    String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+    if (!StringUtils.hasText(rangeHeader)) {
+      return null;
+    }
+    String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+    if (StringUtils.hasText(ifRange) && !ifRangeMatches(ifRange.trim(), etag, lastModified)) {
+      return null;
+    }
+    List<HttpRange> ranges;
+    try {
+      ranges = HttpRange.parseRanges(rangeHeader);
+    } catch (IllegalArgumentException ex) {
+      return null;
+    }
+    return ranges.size() == 1 ? ranges.get(0) : null;
+  }
+
+  private boolean ifRangeMatches(String ifRange, String etag, Instant lastModified) {
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+      return etag != null && etag.equals(ifRange);
+    }
+    if (lastModified == null) {
+      return false;
+    }
+    try {
+      return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().equals(lastModified);
+    } catch (DateTimeParseException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Waits up to {@code billing.pdf.render.download-wait-ms} while the local PDF is being
+   * rendered. A result of {@link RenderStatus#RENDER_PENDING} is answered with 202 and
+   * {@code Retry-After}, so clients poll the same URL instead of treating a freshly
+   * issued document as missing.
+   */
+  private RenderStatus awaitLocalRender(UUID id) {
+    BillingDocumentView view = billingService.getDocument(id);
+    if (view.renderStatus() == RenderStatus.READY) {
+      return RenderStatus.READY;
+    }
+    return renderQueue.awaitRendered(id, Duration.ofMillis(pdfProperties.getRender().getDownloadWaitMs()));
   }
 
   private DocumentLinksResponse buildDownloadLinks(BillingDocumentView view, UUID id) {
@@ -93,7 +327,7 @@ public class BillingDownloadController {
     .buildAndExpand(id)
     .toUriString();
 
-    String localLink = storageLinks.localPdf() != null
+    String localLink = storageLinks.localPdf() != null || view.renderStatus() != RenderStatus.READY
         ? basePath + "/LOCAL"
         : null;
     String officialPdfLink = storageLinks.officialPdf() != null
@@ -24,6 +24,7 @@ public class BillingResponseMapper {
         view.trackId(),
         view.provider(),
         view.offline(),
+        view.renderStatus(),
         view.createdAt(),
         view.updatedAt(),
         toLinks(view.links()),
@@ -62,6 +63,7 @@ public class BillingResponseMapper {
         view.provider(),
         view.trackId(),
         view.offline(),
+        view.renderStatus(),
         view.createdAt(),
         view.updatedAt(),
         links,
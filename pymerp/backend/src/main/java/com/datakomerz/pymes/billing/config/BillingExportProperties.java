@@ -0,0 +1,49 @@
+package com.datakomerz.pymes.billing.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "billing.export")
+public class BillingExportProperties {
+
+  /** Stored files read (or PDFs re-rendered) in parallel, shared by all running exports. */
+  @Min(1)
+  private int parallelism = 4;
+
+  /** Upper bound of documents per ZIP export. */
+  @Min(1)
+  private int maxDocuments = 5000;
+
+  /** Zone of the calendar days in date-range exports; set it to the company's zone. */
+  @NotNull
+  private ZoneId zone = ZoneOffset.UTC;
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public int getMaxDocuments() {
+    return maxDocuments;
+  }
+
+  public void setMaxDocuments(int maxDocuments) {
+    this.maxDocuments = maxDocuments;
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  public void setZone(ZoneId zone) {
+    this.zone = zone;
+  }
+}
@@ -20,9 +20,10 @@ public class BillingIdempotencyProperties {
   private Duration waitTimeout = Duration.ofSeconds(5);
 
   /**
-   * Polling interval when waiting for a sibling request to complete.
+   * Fallback re-check interval while waiting for a sibling request to complete. Waiters are
+   * woken by a completion signal; this only bounds the delay when a signal is lost.
    */
-  private Duration waitPollInterval = Duration.ofMillis(250);
+  private Duration waitPollInterval = Duration.ofSeconds(1);
 
   public Duration getTtl() {
     return ttl;
@@ -1,6 +1,8 @@
 package com.datakomerz.pymes.billing.config;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -17,6 +19,10 @@ public class BillingOfflineProperties {
   @NotNull
   private Retry retry = new Retry();
 
+  @Valid
+  @NotNull
+  private Workers workers = new Workers();
+
   public boolean isEnabled() {
     return enabled;
   }
@@ -33,6 +39,14 @@ public class BillingOfflineProperties {
     this.retry = retry;
   }
 
+  public Workers getWorkers() {
+    return workers;
+  }
+
+  public void setWorkers(Workers workers) {
+    this.workers = workers;
+  }
+
   public static class Retry {
 
     @Min(1)
@@ -41,6 +55,15 @@ public class BillingOfflineProperties {
     @Positive
     private long backoffMs = 30000;
 
+    /** Upper bound for the exponential backoff. */
+    @Positive
+    private long maxBackoffMs = 3600000;
+
+    /** Share of each backoff delay that is randomized (0 = none, 1 = full jitter). */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double jitterRatio = 0.5;
+
     public int getMaxAttempts() {
       return maxAttempts;
     }
@@ -56,5 +79,83 @@ public class BillingOfflineProperties {
     public void setBackoffMs(long backoffMs) {
       this.backoffMs = backoffMs;
     }
+
+    public long getMaxBackoffMs() {
+      return maxBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+      this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public double getJitterRatio() {
+      return jitterRatio;
+    }
+
+    public void setJitterRatio(double jitterRatio) {
+      this.jitterRatio = jitterRatio;
+    }
+  }
+
+  public static class Workers {
+
+    /** Items synced in parallel by this node. */
+    @Min(1)
+    private int concurrency = 4;
+
+    /** Items claimed per round. */
+    @Min(1)
+    private int batchSize = 20;
+
+    /** Delay between scheduled runs; each run drains every due item. */
+    @Positive
+    private long pollMs = 5000;
+
+    /** How long a claim is held before another node may take the item over. */
+    @Positive
+    private long leaseMs = 120000;
+
+    /** Identifies this node in {@code lease_owner}; defaults to host name plus a random suffix. */
+    private String nodeId;
+
+    public int getConcurrency() {
+      return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+      this.concurrency = concurrency;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public long getPollMs() {
+      return pollMs;
+    }
+
+    public void setPollMs(long pollMs) {
+      this.pollMs = pollMs;
+    }
+
+    public long getLeaseMs() {
+      return leaseMs;
+    }
+
+    public void setLeaseMs(long leaseMs) {
+      this.leaseMs = leaseMs;
+    }
+
+    public String getNodeId() {
+      return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+      this.nodeId = nodeId;
+    }
   }
 }
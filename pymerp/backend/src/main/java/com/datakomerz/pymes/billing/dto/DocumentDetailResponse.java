@@ -1,6 +1,7 @@
 package com.datakomerz.pymes.billing.dto;
 
 import com.company.billing.persistence.FiscalDocumentType;
+import com.company.billing.persistence.RenderStatus;
 import com.company.billing.persistence.NonFiscalDocumentType;
 import com.company.billing.persistence.TaxMode;
 import com.datakomerz.pymes.billing.model.DocumentCategory;
@@ -20,6 +21,7 @@ public record DocumentDetailResponse(
     String provider,
     String trackId,
     boolean offline,
+    RenderStatus renderStatus,
     OffsetDateTime createdAt,
     OffsetDateTime updatedAt,
     DocumentLinksResponse links,
@@ -2,6 +2,7 @@ package com.datakomerz.pymes.billing.dto;
 
 import com.company.billing.persistence.FiscalDocumentStatus;
 import com.company.billing.persistence.FiscalDocumentType;
+import com.company.billing.persistence.RenderStatus;
 import com.company.billing.persistence.TaxMode;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -17,6 +18,7 @@ public record InvoiceResponse(
     String trackId,
     String provider,
     boolean offline,
+    RenderStatus renderStatus,
     OffsetDateTime createdAt,
     OffsetDateTime updatedAt,
     DocumentLinksResponse links,
@@ -9,6 +9,8 @@ import com.company.billing.persistence.FiscalDocumentStatus;
 import com.datakomerz.pymes.billing.config.BillingOfflineProperties;
 import com.datakomerz.pymes.billing.model.InvoicePayload;
 import com.datakomerz.pymes.billing.provider.BillingProvider;
+import com.datakomerz.pymes.billing.provider.BillingProvider.BatchItemResult;
+import com.datakomerz.pymes.billing.provider.BillingProvider.InvoiceRequest;
 import com.datakomerz.pymes.billing.provider.BillingProvider.IssueInvoiceResult;
 import com.datakomerz.pymes.billing.provider.BillingProviderException;
 import com.datakomerz.pymes.billing.provider.BillingProviderTransientException;
@@ -18,20 +20,53 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
 import java.time.Clock;
-import java.time.Instant;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Replays documents issued in contingency against the billing provider.
+ *
+ * <p>Failed attempts are rescheduled through {@code next_attempt_at} (exponential
+ * backoff with jitter), so each round selects only due items, ordered by due time,
+ * and a run keeps draining rounds until nothing is due.</p>
+ *
+ * <p>Each round claims a batch of due items with {@code FOR UPDATE SKIP LOCKED} and
+ * stamps them with a lease, so several nodes can run the job against the same queue
+ * without picking the same item twice; an item whose lease expires (e.g. the node
+ * died mid-sync) becomes claimable again. Candidates are picked round-robin by
+ * tenant in the database, so one tenant's backlog cannot starve the others; claimed
+ * items are grouped into provider envelopes ({@link BillingProvider#issueInvoices})
+ * and submitted by {@code workers.concurrency} virtual threads. Every item uses two
+ * short transactions (mark as syncing, record the outcome) and the provider call runs
+ * between them, outside any transaction.</p>
+ */
 @Component
 public class ContingencySyncJob {
 
@@ -41,14 +76,21 @@ public class ContingencySyncJob {
       ContingencyQueueStatus.SYNCING
   );
   private static final int MAX_ERROR_DETAIL_LENGTH = 255;
+  private static final int CLAIM_WINDOW_FACTOR = 4;
 
   private final BillingOfflineProperties properties;
   private final ContingencyQueueItemRepository queueRepository;
   private final FiscalDocumentRepository fiscalDocumentRepository;
   private final Optional<BillingProvider> billingProvider;
   private final Clock clock;
+  private final TransactionTemplate transactionTemplate;
+  private final ExecutorService workerExecutor;
+  private final String nodeId;
   private final AtomicInteger pendingGauge;
   private final AtomicInteger syncingGauge;
+  private final AtomicInteger dueGauge;
+  private final AtomicInteger waitingGauge;
+  private final AtomicLong oldestAgeGauge;
   private final Counter failureCounter;
   private final DistributionSummary latencySummary;
 
@@ -57,6 +99,7 @@ public class ContingencySyncJob {
                             FiscalDocumentRepository fiscalDocumentRepository,
                             ObjectProvider<BillingProvider> billingProviderProvider,
                             ObjectProvider<Clock> clockProvider,
+                            PlatformTransactionManager transactionManager,
                             MeterRegistry meterRegistry) {
     this.properties = properties;
     this.queueRepository = queueRepository;
@@ -64,8 +107,15 @@ public class ContingencySyncJob {
     this.billingProvider = Optional.ofNullable(billingProviderProvider.getIfAvailable());
     Clock providedClock = clockProvider.getIfAvailable();
     this.clock = providedClock != null ? providedClock : Clock.systemUTC();
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.workerExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("contingency-sync-", 0).factory());
+    this.nodeId = resolveNodeId(properties.getWorkers().getNodeId());
     this.pendingGauge = meterRegistry.gauge("billing.contingency.pending", new AtomicInteger(0));
     this.syncingGauge = meterRegistry.gauge("billing.contingency.syncing", new AtomicInteger(0));
+    this.dueGauge = meterRegistry.gauge("billing.contingency.due", new AtomicInteger(0));
+    this.waitingGauge = meterRegistry.gauge("billing.contingency.waiting", new AtomicInteger(0));
+    this.oldestAgeGauge = meterRegistry.gauge("billing.contingency.oldestAgeSeconds", new AtomicLong(0));
     this.failureCounter = Counter.builder("billing.contingency.failures")
         .description("Total contingency sync failures")
         .register(meterRegistry);
@@ -76,13 +126,12 @@ public class ContingencySyncJob {
   }
 
   @Scheduled(
-      initialDelayString = "${billing.offline.retry.backoffMs:30000}",
-      fixedDelayString = "${billing.offline.retry.backoffMs:30000}")
+      initialDelayString = "${billing.offline.workers.pollMs:5000}",
+      fixedDelayString = "${billing.offline.workers.pollMs:5000}")
   public void run() {
     processQueue();
   }
 
-  @Transactional
   public void processQueue() {
     try {
       if (!properties.isEnabled()) {
@@ -93,75 +142,244 @@ public class ContingencySyncJob {
         log.debug("Skipping contingency sync because billing provider is not configured");
         return;
       }
-      List<ContingencyQueueItem> candidates = queueRepository
-          .findTop20ByStatusInOrderByCreatedAtAsc(CANDIDATE_STATUSES);
-      if (candidates.isEmpty()) {
-        return;
+      List<UUID> claimed;
+      while (properties.isEnabled() && !(claimed = claimBatch()).isEmpty()) {
+        dispatch(claimed, provider);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      log.warn("Contingency sync interrupted");
+    } catch (Exception ex) {
+      log.error("Unexpected error while running contingency sync job", ex);
+    } finally {
+      updateMetrics();
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workerExecutor.shutdownNow();
+  }
+
+  /**
+   * Claims up to {@code batchSize} due items and returns their ids in
+   * dispatch order. Candidates are read without locks, already interleaved by tenant;
+   * only the picked rows are then locked (skipping those another node holds) and leased.
+   */
+  private List<UUID> claimBatch() {
+    List<UUID> claimed = transactionTemplate.execute(status -> {
+      OffsetDateTime now = now();
+      int batchSize = properties.getWorkers().getBatchSize();
+      List<UUID> ordered = queueRepository
+          .findDueByTenant(CANDIDATE_STATUSES, now, PageRequest.of(0, batchSize * CLAIM_WINDOW_FACTOR));
+      if (ordered.isEmpty()) {
+        return List.of();
       }
-      for (ContingencyQueueItem item : candidates) {
-        if (item.getDocument() == null) {
-          log.warn("Skipping contingency item without linked document idempotencyKey={}",
-              item.getIdempotencyKey());
-          continue;
+      OffsetDateTime leaseUntil = now.plusNanos(properties.getWorkers().getLeaseMs() * 1_000_000L);
+      List<UUID> ids = new ArrayList<>(batchSize);
+      int next = 0;
+      while (ids.size() < batchSize && next < ordered.size()) {
+        List<UUID> chunk = ordered.subList(next, Math.min(ordered.size(), next + batchSize - ids.size()));
+        next += chunk.size();
+        Map<UUID, ContingencyQueueItem> locked = new HashMap<>();
+        for (ContingencyQueueItem item : queueRepository.lockClaimable(chunk, CANDIDATE_STATUSES, now)) {
+          locked.put(item.getId(), item);
         }
-        if (isAlreadySynced(item.getDocument())) {
-          continue;
+        for (UUID id : chunk) {
+          ContingencyQueueItem item = locked.get(id);
+          if (item != null) {
+            item.setLeaseOwner(nodeId);
+            item.setLeaseUntil(leaseUntil);
+            ids.add(id);
+          }
         }
-        if (item.getSyncAttempts() >= properties.getRetry().getMaxAttempts()) {
-          markAsFailed(item, item.getDocument(), "Max retry attempts exceeded");
-          continue;
+      }
+      return ids;
+    });
+    return claimed != null ? claimed : List.of();
+  }
+
+  /**
+   * Splits the claimed items into provider envelopes (at most
+   * {@link BillingProvider#maxBatchSize()}, and small enough to keep every worker
+   * busy) and lets the workers submit them concurrently.
+   */
+  private void dispatch(List<UUID> claimed, BillingProvider provider) throws InterruptedException {
+    int concurrency = properties.getWorkers().getConcurrency();
+    int perWorker = (claimed.size() + concurrency - 1) / concurrency;
+    int envelopeSize = Math.max(1, Math.min(provider.maxBatchSize(), perWorker));
+    Queue<List<UUID>> envelopes = new ConcurrentLinkedQueue<>();
+    for (int from = 0; from < claimed.size(); from += envelopeSize) {
+      envelopes.add(claimed.subList(from, Math.min(claimed.size(), from + envelopeSize)));
+    }
+    int workers = Math.min(concurrency, envelopes.size());
+    List<Callable<Void>> tasks = new ArrayList<>(workers);
+    for (int i = 0; i < workers; i++) {
+      tasks.add(() -> {
+        List<UUID> envelope;
+        while ((envelope = envelopes.poll()) != null) {
+          syncEnvelope(envelope, provider);
         }
-        if (!isReadyForRetry(item)) {
-          continue;
+        return null;
+      });
+    }
+    workerExecutor.invokeAll(tasks);
+  }
+
+  private void syncEnvelope(List<UUID> itemIds, BillingProvider provider) {
+    List<SyncAttempt> attempts = new ArrayList<>(itemIds.size());
+    for (UUID itemId : itemIds) {
+      try {
+        SyncAttempt attempt = transactionTemplate.execute(status -> beginAttempt(itemId));
+        if (attempt != null) {
+          attempts.add(attempt);
         }
-        attemptSync(item, provider);
+      } catch (Exception ex) {
+        log.error("Unexpected error while preparing contingency item id={}", itemId, ex);
+        recordAbortedAttempt(itemId, ex);
       }
+    }
+    if (attempts.isEmpty()) {
+      return;
+    }
+    List<BatchItemResult> results;
+    try {
+      results = provider.issueInvoices(attempts.stream()
+          .map(attempt -> new InvoiceRequest(attempt.payload(), attempt.idempotencyKey()))
+          .toList());
     } catch (Exception ex) {
-      log.error("Unexpected error while running contingency sync job", ex);
-    } finally {
-      updateMetrics();
+      // The envelope as a whole failed: every document in it gets the same outcome.
+      BillingProviderException error = ex instanceof BillingProviderException providerEx
+          ? providerEx
+          : new BillingProviderTransientException(ex.getMessage(), ex);
+      results = attempts.stream()
+          .map(attempt -> BatchItemResult.failure(attempt.idempotencyKey(), error))
+          .toList();
+    }
+    for (int i = 0; i < attempts.size(); i++) {
+      SyncAttempt attempt = attempts.get(i);
+      BatchItemResult result = i < results.size() ? results.get(i) : null;
+      if (result == null || !Objects.equals(result.idempotencyKey(), attempt.idempotencyKey())) {
+        result = BatchItemResult.failure(attempt.idempotencyKey(),
+            new BillingProviderTransientException("Provider returned no result for this document"));
+      }
+      try {
+        recordOutcome(attempt, result);
+      } catch (Exception ex) {
+        log.error("Unexpected error while recording contingency outcome idempotencyKey={}",
+            attempt.idempotencyKey(), ex);
+      }
     }
   }
 
-  private void attemptSync(ContingencyQueueItem queueItem, BillingProvider provider) {
+  private SyncAttempt beginAttempt(UUID itemId) {
+    ContingencyQueueItem item = queueRepository.lockLeased(itemId, nodeId).orElse(null);
+    if (item == null) {
+      return null;
+    }
+    FiscalDocument document = item.getDocument();
+    if (document == null) {
+      log.warn("Discarding contingency item without linked document idempotencyKey={}",
+          item.getIdempotencyKey());
+      item.setStatus(ContingencyQueueStatus.FAILED);
+      item.setErrorDetail("Missing linked document");
+      clearLease(item);
+      queueRepository.save(item);
+      return null;
+    }
+    if (isAlreadySynced(document)) {
+      queueRepository.delete(item);
+      return null;
+    }
+    if (item.getSyncAttempts() >= properties.getRetry().getMaxAttempts()) {
+      markAsFailed(item, document, "Max retry attempts exceeded");
+      return null;
+    }
+
     OffsetDateTime attemptTime = now();
-    int attempts = queueItem.getSyncAttempts() + 1;
-    queueItem.setStatus(ContingencyQueueStatus.SYNCING);
-    queueItem.setSyncAttempts(attempts);
-    queueItem.setLastSyncAt(attemptTime);
-    queueItem.setErrorDetail(null);
+    int attempts = item.getSyncAttempts() + 1;
+    item.setStatus(ContingencyQueueStatus.SYNCING);
+    item.setSyncAttempts(attempts);
+    item.setLastSyncAt(attemptTime);
+    item.setErrorDetail(null);
 
-    FiscalDocument document = queueItem.getDocument();
     document.setStatus(FiscalDocumentStatus.SYNCING);
     document.setSyncAttempts(attempts);
     document.setLastSyncAt(attemptTime);
     document.setErrorDetail(null);
     document.setOffline(true);
 
-    UUID documentId = document.getId();
-    String idempotencyKey = queueItem.getIdempotencyKey();
+    return new SyncAttempt(itemId, document.getId(), item.getIdempotencyKey(), attempts, attemptTime,
+        item.getCreatedAt(), buildInvoicePayload(item));
+  }
 
+  /**
+   * Counts an attempt that failed before reaching the provider (e.g. an unreadable
+   * payload) and backs the item off, so it fails after {@code maxAttempts} instead of
+   * being claimed again every time its lease expires.
+   */
+  private void recordAbortedAttempt(UUID itemId, Exception cause) {
     try {
-      InvoicePayload payload = buildInvoicePayload(queueItem);
-      IssueInvoiceResult result = provider.issueInvoice(payload, idempotencyKey);
-      handleSuccess(queueItem, document, result, attemptTime);
+      transactionTemplate.executeWithoutResult(status -> {
+        Integer previous = queueRepository.findLeasedSyncAttempts(itemId, nodeId).orElse(null);
+        if (previous == null) {
+          return;
+        }
+        int attempts = previous + 1;
+        boolean exhausted = attempts >= properties.getRetry().getMaxAttempts();
+        OffsetDateTime attemptTime = now();
+        queueRepository.recordAbortedAttempt(itemId, nodeId,
+            exhausted ? ContingencyQueueStatus.FAILED : ContingencyQueueStatus.OFFLINE_PENDING,
+            truncate(cause.toString()), attemptTime,
+            attemptTime.plusNanos(retryDelayMillis(attempts) * 1_000_000L));
+        if (exhausted) {
+          failureCounter.increment();
+          log.error("Contingency item id={} failed permanently: it could not be prepared in {} attempts",
+              itemId, attempts);
+        }
+      });
+    } catch (Exception ex) {
+      log.error("Unexpected error while recording failed preparation of contingency item id={}", itemId, ex);
+    }
+  }
+
+  private void recordOutcome(SyncAttempt attempt, BatchItemResult outcome) {
+    UUID documentId = attempt.documentId();
+    String idempotencyKey = attempt.idempotencyKey();
+    int attempts = attempt.attempts();
+
+    if (outcome.isSuccess()) {
+      IssueInvoiceResult result = outcome.result();
+      complete(attempt, (queueItem, document) -> handleSuccess(queueItem, document, result, attempt));
       log.info("Contingency sync succeeded for documentId={} idempotencyKey={} attempts={} trackId={}",
           documentId, idempotencyKey, attempts, result.trackId());
-    } catch (BillingProviderTransientException ex) {
-      handleTransientFailure(queueItem, document, ex, attemptTime);
+    } else if (outcome.error() instanceof BillingProviderTransientException ex) {
+      complete(attempt, (queueItem, document) ->
+          handleTransientFailure(queueItem, document, ex, attempt.attemptTime()));
       log.warn("Transient contingency sync failure for documentId={} idempotencyKey={} attempts={}: {}",
           documentId, idempotencyKey, attempts, ex.getMessage(), ex);
-    } catch (BillingProviderException ex) {
-      handlePermanentFailure(queueItem, document, ex, attemptTime);
+    } else {
+      BillingProviderException ex = outcome.error();
+      complete(attempt, (queueItem, document) ->
+          handlePermanentFailure(queueItem, document, ex, attempt.attemptTime()));
       log.error("Permanent contingency sync failure for documentId={} idempotencyKey={} attempts={}: {}",
           documentId, idempotencyKey, attempts, ex.getMessage(), ex);
-    } catch (Exception ex) {
-      handleTransientFailure(queueItem, document, ex, attemptTime);
-      log.warn("Unexpected contingency sync error for documentId={} idempotencyKey={} attempts={}: {}",
-          documentId, idempotencyKey, attempts, ex.getMessage(), ex);
     }
   }
 
+  private void complete(SyncAttempt attempt, Outcome outcome) {
+    transactionTemplate.executeWithoutResult(status -> {
+      // Only the lease owner may write the outcome; the row stays locked until commit.
+      ContingencyQueueItem queueItem = queueRepository.lockLeased(attempt.itemId(), nodeId).orElse(null);
+      if (queueItem == null) {
+        log.warn("Discarding contingency outcome idempotencyKey={}: item gone or leased by another node",
+            attempt.idempotencyKey());
+        return;
+      }
+      outcome.apply(queueItem, queueItem.getDocument());
+    });
+  }
+
   private InvoicePayload buildInvoicePayload(ContingencyQueueItem queueItem) {
     FiscalDocument document = queueItem.getDocument();
     ObjectNode payloadNode = asObjectNode(queueItem.getProviderPayload());
@@ -183,7 +401,8 @@ public class ContingencySyncJob {
   private void handleSuccess(ContingencyQueueItem queueItem,
                              FiscalDocument document,
                              IssueInvoiceResult result,
-                             OffsetDateTime attemptTime) {
+                             SyncAttempt attempt) {
+    OffsetDateTime attemptTime = attempt.attemptTime();
     document.setStatus(FiscalDocumentStatus.SENT);
     document.setOffline(false);
     document.setProvider(result.provider());
@@ -193,7 +412,7 @@ public class ContingencySyncJob {
     document.setErrorDetail(null);
     document.setLastSyncAt(attemptTime);
 
-    OffsetDateTime createdAt = queueItem.getCreatedAt();
+    OffsetDateTime createdAt = attempt.createdAt();
     if (createdAt != null) {
       long latency = attemptTime.toInstant().toEpochMilli() - createdAt.toInstant().toEpochMilli();
       if (latency >= 0) {
@@ -214,6 +433,8 @@ public class ContingencySyncJob {
     queueItem.setStatus(ContingencyQueueStatus.OFFLINE_PENDING);
     queueItem.setErrorDetail(detail);
     queueItem.setLastSyncAt(attemptTime);
+    queueItem.setNextAttemptAt(attemptTime.plusNanos(retryDelayMillis(queueItem.getSyncAttempts()) * 1_000_000L));
+    clearLease(queueItem);
 
     document.setStatus(FiscalDocumentStatus.OFFLINE_PENDING);
     document.setOffline(true);
@@ -234,6 +455,7 @@ public class ContingencySyncJob {
     queueItem.setStatus(ContingencyQueueStatus.FAILED);
     queueItem.setErrorDetail(detail);
     queueItem.setLastSyncAt(attemptTime);
+    clearLease(queueItem);
 
     document.setStatus(FiscalDocumentStatus.FAILED);
     document.setOffline(false);
@@ -253,6 +475,7 @@ public class ContingencySyncJob {
     queueItem.setStatus(ContingencyQueueStatus.FAILED);
     queueItem.setErrorDetail(detail);
     queueItem.setLastSyncAt(now);
+    clearLease(queueItem);
 
     document.setStatus(FiscalDocumentStatus.FAILED);
     document.setOffline(false);
@@ -265,27 +488,25 @@ public class ContingencySyncJob {
         document.getId(), queueItem.getIdempotencyKey());
   }
 
-  private boolean isReadyForRetry(ContingencyQueueItem item) {
-    Instant nowInstant = clock.instant();
-    OffsetDateTime lastSyncAt = item.getLastSyncAt();
-    if (lastSyncAt == null) {
-      return true;
-    }
-    long baseDelay = properties.getRetry().getBackoffMs();
-    if (baseDelay <= 0) {
-      return true;
-    }
-    int attempts = Math.max(item.getSyncAttempts(), 1);
-    int exponent = Math.min(attempts - 1, 20);
-    long multiplier = 1L << Math.max(exponent, 0);
-    long delay;
-    if (baseDelay > Long.MAX_VALUE / multiplier) {
-      delay = Long.MAX_VALUE;
-    } else {
-      delay = baseDelay * multiplier;
-    }
-    Instant nextAttempt = lastSyncAt.toInstant().plusMillis(delay);
-    return !nowInstant.isBefore(nextAttempt);
+  private void clearLease(ContingencyQueueItem queueItem) {
+    queueItem.setLeaseOwner(null);
+    queueItem.setLeaseUntil(null);
+  }
+
+  /**
+   * Exponential backoff ({@code backoffMs * 2^(attempts-1)}, capped at
+   * {@code maxBackoffMs}) minus a random share of up to {@code jitterRatio}, so items
+   * that failed together (e.g. during a provider outage) do not retry in lockstep.
+   */
+  long retryDelayMillis(int attempts) {
+    BillingOfflineProperties.Retry retry = properties.getRetry();
+    long baseDelay = retry.getBackoffMs();
+    int exponent = Math.min(Math.max(attempts, 1) - 1, 20);
+    long multiplier = 1L << exponent;
+    long delay = baseDelay > Long.MAX_VALUE / multiplier ? Long.MAX_VALUE : baseDelay * multiplier;
+    delay = Math.min(delay, Math.max(retry.getMaxBackoffMs(), baseDelay));
+    long jitter = (long) (delay * retry.getJitterRatio() * ThreadLocalRandom.current().nextDouble());
+    return delay - jitter;
   }
 
   private boolean isAlreadySynced(FiscalDocument document) {
@@ -300,6 +521,18 @@ public class ContingencySyncJob {
     if (syncingGauge != null) {
       syncingGauge.set((int) queueRepository.countByStatus(ContingencyQueueStatus.SYNCING));
     }
+    if (dueGauge != null && waitingGauge != null) {
+      int due = (int) queueRepository.countDue(CANDIDATE_STATUSES, now());
+      int queued = (pendingGauge != null ? pendingGauge.get() : 0)
+          + (syncingGauge != null ? syncingGauge.get() : 0);
+      dueGauge.set(due);
+      waitingGauge.set(Math.max(queued - due, 0));
+    }
+    if (oldestAgeGauge != null) {
+      OffsetDateTime oldest = queueRepository.findOldestCreatedAt(CANDIDATE_STATUSES);
+      long ageSeconds = oldest == null ? 0 : Duration.between(oldest.toInstant(), clock.instant()).toSeconds();
+      oldestAgeGauge.set(Math.max(ageSeconds, 0));
+    }
   }
 
   private ObjectNode asObjectNode(JsonNode node) {
@@ -330,4 +563,32 @@ public class ContingencySyncJob {
   private OffsetDateTime now() {
     return OffsetDateTime.now(clock);
   }
+
+  private static String resolveNodeId(String configured) {
+    if (StringUtils.hasText(configured)) {
+      return configured;
+    }
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (Exception ex) {
+      host = "node";
+    }
+    String suffix = UUID.randomUUID().toString().substring(0, 8);
+    String nodeId = host + "-" + suffix;
+    return nodeId.length() > 100 ? nodeId.substring(nodeId.length() - 100) : nodeId;
+  }
+
+  private record SyncAttempt(UUID itemId,
+                             UUID documentId,
+                             String idempotencyKey,
+                             int attempts,
+                             OffsetDateTime attemptTime,
+                             OffsetDateTime createdAt,
+                             InvoicePayload payload) {}
+
+  @FunctionalInterface
+  private interface Outcome {
+    void apply(ContingencyQueueItem queueItem, FiscalDocument document);
+  }
 }
@@ -1,12 +1,46 @@
 package com.datakomerz.pymes.billing.provider;
 
 import com.datakomerz.pymes.billing.model.InvoicePayload;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface BillingProvider {
 
   IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey)
       throws BillingProviderException;
 
+  /**
+   * Issues several documents in one provider round trip. Results are returned in
+   * request order, one per request; a rejected document is reported in its own
+   * result and does not fail the others. An exception means the whole envelope
+   * failed (e.g. provider unreachable) and applies to every document in it.
+   *
+   * <p>The default implementation issues documents one by one, for providers
+   * without an envelope API.</p>
+   */
+  default List<BatchItemResult> issueInvoices(List<InvoiceRequest> requests) throws BillingProviderException {
+    List<BatchItemResult> results = new ArrayList<>(requests.size());
+    for (InvoiceRequest request : requests) {
+      try {
+        results.add(BatchItemResult.success(request.idempotencyKey(),
+            issueInvoice(request.payload(), request.idempotencyKey())));
+      } catch (BillingProviderException ex) {
+        results.add(BatchItemResult.failure(request.idempotencyKey(), ex));
+      } catch (RuntimeException ex) {
+        results.add(BatchItemResult.failure(request.idempotencyKey(),
+            new BillingProviderTransientException(ex.getMessage(), ex)));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Maximum number of documents accepted by {@link #issueInvoices(List)} in a single envelope.
+   */
+  default int maxBatchSize() {
+    return 1;
+  }
+
   ProviderDocument fetchDocument(String providerDocumentId) throws BillingProviderException;
 
   record IssueInvoiceResult(
@@ -17,6 +51,29 @@ public interface BillingProvider {
       OfficialDocument officialDocument) {
   }
 
+  record InvoiceRequest(InvoicePayload payload, String idempotencyKey) {
+  }
+
+  /**
+   * Outcome of one document in a batch: either {@code result} or {@code error} is set.
+   * {@code error} may be a {@link BillingProviderTransientException} when only that
+   * document should be retried.
+   */
+  record BatchItemResult(String idempotencyKey, IssueInvoiceResult result, BillingProviderException error) {
+
+    public static BatchItemResult success(String idempotencyKey, IssueInvoiceResult result) {
+      return new BatchItemResult(idempotencyKey, result, null);
+    }
+
+    public static BatchItemResult failure(String idempotencyKey, BillingProviderException error) {
+      return new BatchItemResult(idempotencyKey, null, error);
+    }
+
+    public boolean isSuccess() {
+      return error == null;
+    }
+  }
+
   record ProviderDocument(
       String provider,
       String providerDocumentId,
@@ -5,6 +5,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 import org.springframework.beans.factory.ObjectProvider;
@@ -15,6 +17,9 @@ public class SiiBillingProvider implements BillingProvider {
 
   private static final DateTimeFormatter FOLIO_FORMATTER =
       DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withLocale(Locale.ROOT);
+  // SII accepts several DTEs per EnvioDTE; keep envelopes small enough to stay well
+  // under the upload size limit with embedded PDFs.
+  private static final int MAX_ENVELOPE_SIZE = 50;
 
   private final Clock clock;
 
@@ -25,15 +30,47 @@ public class SiiBillingProvider implements BillingProvider {
 
   @Override
   public IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey) {
-    String providerDocumentId = UUID.nameUUIDFromBytes(
-        (idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString())
-            .getBytes(StandardCharsets.UTF_8)).toString();
+    String providerDocumentId = providerDocumentId(idempotencyKey);
     String trackId = "SII-" + providerDocumentId.substring(0, 8).toUpperCase(Locale.ROOT);
-    String folio = buildFolio(payload);
+    String folio = buildFolio(payload, Instant.now(clock), -1);
     OfficialDocument officialPdf = buildOfficialPdf(payload, folio, providerDocumentId);
     return new IssueInvoiceResult("SII-STUB", providerDocumentId, trackId, folio, officialPdf);
   }
 
+  /**
+   * Issues the documents as a single envelope: one upload, one track id shared by
+   * every document in it, and per-document acceptance.
+   */
+  @Override
+  public List<BatchItemResult> issueInvoices(List<InvoiceRequest> requests) {
+    if (requests.size() > MAX_ENVELOPE_SIZE) {
+      throw new BillingProviderException("Envelope exceeds " + MAX_ENVELOPE_SIZE + " documents");
+    }
+    Instant envelopeTime = Instant.now(clock);
+    String envelopeId = UUID.randomUUID().toString();
+    String trackId = "SII-" + envelopeId.substring(0, 8).toUpperCase(Locale.ROOT);
+    List<BatchItemResult> results = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      InvoiceRequest request = requests.get(i);
+      if (request.payload() == null) {
+        results.add(BatchItemResult.failure(request.idempotencyKey(),
+            new BillingProviderException("Missing invoice payload")));
+        continue;
+      }
+      String providerDocumentId = providerDocumentId(request.idempotencyKey());
+      String folio = buildFolio(request.payload(), envelopeTime, i);
+      OfficialDocument officialPdf = buildOfficialPdf(request.payload(), folio, providerDocumentId);
+      results.add(BatchItemResult.success(request.idempotencyKey(),
+          new IssueInvoiceResult("SII-STUB", providerDocumentId, trackId, folio, officialPdf)));
+    }
+    return results;
+  }
+
+  @Override
+  public int maxBatchSize() {
+    return MAX_ENVELOPE_SIZE;
+  }
+
   @Override
   public ProviderDocument fetchDocument(String providerDocumentId) {
     String safeId = providerDocumentId != null ? providerDocumentId : UUID.randomUUID().toString();
@@ -57,12 +94,18 @@ public class SiiBillingProvider implements BillingProvider {
     return new OfficialDocument(content, folio + ".pdf", "application/pdf", null);
   }
 
-  private String buildFolio(InvoicePayload payload) {
+  private String providerDocumentId(String idempotencyKey) {
+    return UUID.nameUUIDFromBytes(
+        (idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString())
+            .getBytes(StandardCharsets.UTF_8)).toString();
+  }
+
+  private String buildFolio(InvoicePayload payload, Instant issuedAt, int envelopeIndex) {
     String prefix = "FOLIO";
     if (payload != null && payload.fiscalDocumentType() != null) {
       prefix = payload.fiscalDocumentType().name();
     }
-    String timestamp = FOLIO_FORMATTER.format(Instant.now(clock));
-    return prefix + "-" + timestamp;
+    String timestamp = FOLIO_FORMATTER.withZone(clock.getZone()).format(issuedAt);
+    return envelopeIndex < 0 ? prefix + "-" + timestamp : prefix + "-" + timestamp + "-" + (envelopeIndex + 1);
   }
 }
@@ -9,6 +9,7 @@ public class BillingPdfProperties {
 
   private String documentsBaseUrl = "http://localhost:8080/api/v1";
   private Branding branding = new Branding();
+  private Render render = new Render();
 
   public String getDocumentsBaseUrl() {
     return documentsBaseUrl;
@@ -26,6 +27,77 @@ public class BillingPdfProperties {
     this.branding = branding;
   }
 
+  public Render getRender() {
+    return render;
+  }
+
+  public void setRender(Render render) {
+    this.render = render;
+  }
+
+  /**
+   * Asynchronous rendering of the local fiscal PDF. When the queue is full the
+   * submitting thread renders the document itself, which slows producers down to
+   * the pace of the pool instead of dropping work.
+   */
+  public static class Render {
+
+    private int workers = 2;
+    private int queueCapacity = 200;
+    private long downloadWaitMs = 5000;
+    private long retryAfterSeconds = 2;
+    private long staleAfterMs = 300000;
+    private long recoveryIntervalMs = 60000;
+
+    public int getWorkers() {
+      return workers;
+    }
+
+    public void setWorkers(int workers) {
+      this.workers = workers;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+
+    public long getDownloadWaitMs() {
+      return downloadWaitMs;
+    }
+
+    public void setDownloadWaitMs(long downloadWaitMs) {
+      this.downloadWaitMs = downloadWaitMs;
+    }
+
+    public long getRetryAfterSeconds() {
+      return retryAfterSeconds;
+    }
+
+    public void setRetryAfterSeconds(long retryAfterSeconds) {
+      this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getStaleAfterMs() {
+      return staleAfterMs;
+    }
+
+    public void setStaleAfterMs(long staleAfterMs) {
+      this.staleAfterMs = staleAfterMs;
+    }
+
+    public long getRecoveryIntervalMs() {
+      return recoveryIntervalMs;
+    }
+
+    public void setRecoveryIntervalMs(long recoveryIntervalMs) {
+      this.recoveryIntervalMs = recoveryIntervalMs;
+    }
+  }
+
   public static class Branding {
 
     private String logoPath;
@@ -0,0 +1,103 @@
+package com.datakomerz.pymes.billing.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * HTML template pre-split into alternating literal and {@code ${name}} segments, so a
+ * render is a single pass of appends into one right-sized buffer instead of a scan and
+ * rebuild of the whole document per placeholder.
+ *
+ * <p>Semantics follow the {@code PropertyPlaceholderHelper("${", "}")} setup it
+ * replaces: an unresolved placeholder is written back verbatim. Substituted values are
+ * not scanned again for placeholders.</p>
+ */
+final class CompiledTemplate {
+
+  private static final String PREFIX = "${";
+  private static final String SUFFIX = "}";
+
+  /** {@code literals[i]} precedes {@code names[i]}; the last literal closes the template. */
+  private final String[] literals;
+  private final String[] names;
+  private volatile int expectedLength;
+
+  private CompiledTemplate(List<String> literals, List<String> names) {
+    this.literals = literals.toArray(String[]::new);
+    this.names = names.toArray(String[]::new);
+    int length = 0;
+    for (String literal : this.literals) {
+      length += literal.length();
+    }
+    this.expectedLength = length;
+  }
+
+  static CompiledTemplate compile(String source) {
+    List<String> literals = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    int cursor = 0;
+    while (true) {
+      int start = source.indexOf(PREFIX, cursor);
+      int end = start < 0 ? -1 : source.indexOf(SUFFIX, start + PREFIX.length());
+      if (start < 0 || end < 0) {
+        literals.add(source.substring(cursor));
+        return new CompiledTemplate(literals, names);
+      }
+      literals.add(source.substring(cursor, start));
+      names.add(source.substring(start + PREFIX.length(), end));
+      cursor = end + SUFFIX.length();
+    }
+  }
+
+  /**
+   * Folds values that never change between renders (branding colors, static legends)
+   * into the literal segments, leaving only per-document placeholders.
+   */
+  CompiledTemplate bind(Map<String, String> constants) {
+    List<String> boundLiterals = new ArrayList<>();
+    List<String> boundNames = new ArrayList<>();
+    StringBuilder pending = new StringBuilder(literals[0]);
+    for (int i = 0; i < names.length; i++) {
+      String constant = constants.get(names[i]);
+      if (constant != null) {
+        pending.append(constant);
+      } else {
+        boundLiterals.add(pending.toString());
+        boundNames.add(names[i]);
+        pending.setLength(0);
+      }
+      pending.append(literals[i + 1]);
+    }
+    boundLiterals.add(pending.toString());
+    return new CompiledTemplate(boundLiterals, boundNames);
+  }
+
+  Set<String> placeholders() {
+    Set<String> placeholders = new LinkedHashSet<>();
+    Collections.addAll(placeholders, names);
+    return placeholders;
+  }
+
+  String render(Function<String, String> values) {
+    StringBuilder output = new StringBuilder(expectedLength);
+    output.append(literals[0]);
+    for (int i = 0; i < names.length; i++) {
+      String value = values.apply(names[i]);
+      if (value != null) {
+        output.append(value);
+      } else {
+        output.append(PREFIX).append(names[i]).append(SUFFIX);
+      }
+      output.append(literals[i + 1]);
+    }
+    if (output.length() > expectedLength) {
+      expectedLength = output.length() + (output.length() >> 3);
+    }
+    return output.toString();
+  }
+}
@@ -3,24 +3,18 @@ package com.datakomerz.pymes.billing.render;
 import com.company.billing.persistence.FiscalDocument;
 import com.company.billing.persistence.NonFiscalDocument;
 import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload;
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.company.Company;
 import com.datakomerz.pymes.company.CompanyRepository;
 import com.datakomerz.pymes.customers.Customer;
 import com.datakomerz.pymes.customers.CustomerRepository;
 import com.datakomerz.pymes.products.Product;
 import com.datakomerz.pymes.products.ProductRepository;
+import com.datakomerz.pymes.products.QrCodeService;
 import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.SaleItem;
 import com.datakomerz.pymes.sales.SaleItemRepository;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
-import org.apache.pdfbox.cos.COSName;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -30,13 +24,11 @@ import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
 import java.time.Clock;
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Base64;
-import java.util.Calendar;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -45,7 +37,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.TimeZone;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.springframework.beans.factory.ObjectProvider;
@@ -53,7 +44,6 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Component;
-import org.springframework.util.PropertyPlaceholderHelper;
 import org.springframework.util.StreamUtils;
 
 @Component
@@ -63,10 +53,9 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
   private static final Locale LOCALE = Locale.forLanguageTag("es-CL");
   private static final DateTimeFormatter DATE_FORMATTER =
       DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm").withLocale(LOCALE);
-  private static final DateTimeFormatter PDF_DOC_DATE_FORMAT =
-      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withLocale(LOCALE);
   private static final DateTimeFormatter DATE_ONLY_FORMATTER =
       DateTimeFormatter.ofPattern("dd/MM/yyyy").withLocale(LOCALE);
+  private static final int QR_SIZE = 220;
 
   private final SaleItemRepository saleItemRepository;
   private final ProductRepository productRepository;
@@ -74,16 +63,16 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
   private final CompanyRepository companyRepository;
   private final BillingPdfProperties pdfProperties;
   private final ResourceLoader resourceLoader;
-  private final PropertyPlaceholderHelper placeholderHelper = new PropertyPlaceholderHelper("${", "}");
+  private final QrCodeService qrCodeService;
   private final String offlineLegend;
-  private final String contingencyTemplate;
-  private final String nonFiscalTemplate;
-  private final String quotationTemplate;
-  private final String deliveryTemplate;
-  private final String creditNoteTemplate;
-  private final String purchaseOrderTemplate;
-  private final String receptionTemplate;
+  private final CompiledTemplate contingencyTemplate;
+  private final CompiledTemplate quotationTemplate;
+  private final CompiledTemplate deliveryTemplate;
+  private final CompiledTemplate creditNoteTemplate;
+  private final CompiledTemplate purchaseOrderTemplate;
+  private final CompiledTemplate receptionTemplate;
   private final Clock clock;
+  private final PdfRenderEngine renderEngine;
   private final AtomicBoolean logoLoaded = new AtomicBoolean(false);
   private volatile String cachedLogoDataUrl;
 
@@ -93,6 +82,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
                                  CompanyRepository companyRepository,
                                  BillingPdfProperties pdfProperties,
                                  ResourceLoader resourceLoader,
+                                 QrCodeService qrCodeService,
                                  ObjectProvider<Clock> clockProvider,
                                  @Value("${billing.offline.legend:Documento emitido en contingencia. Sera validado al sincronizarse con el SII.}") String offlineLegend) {
     this.saleItemRepository = saleItemRepository;
@@ -101,19 +91,22 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     this.companyRepository = companyRepository;
     this.pdfProperties = pdfProperties;
     this.resourceLoader = resourceLoader;
+    this.qrCodeService = qrCodeService;
     this.offlineLegend = offlineLegend;
     Clock providedClock = clockProvider.getIfAvailable();
     this.clock = providedClock != null ? providedClock : Clock.systemDefaultZone();
-    this.contingencyTemplate = loadTemplate("classpath:templates/billing/fiscal-contingency.html");
-    this.nonFiscalTemplate = loadTemplate("classpath:templates/billing/non-fiscal.html");
-    this.quotationTemplate = loadTemplate("classpath:templates/billing/quotation.html");
-    this.deliveryTemplate = loadTemplate("classpath:templates/billing/delivery-note.html");
-    this.creditNoteTemplate = loadTemplate("classpath:templates/billing/credit-note.html");
-    this.purchaseOrderTemplate = loadTemplate("classpath:templates/billing/purchase-order.html");
-    this.receptionTemplate = loadTemplate("classpath:templates/billing/reception-guide.html");
+    this.renderEngine = new PdfRenderEngine(clock);
+    Map<String, String> branding = brandingValues();
+    this.contingencyTemplate = compileTemplate("classpath:templates/billing/fiscal-contingency.html", branding);
+    this.quotationTemplate = compileTemplate("classpath:templates/billing/quotation.html", branding);
+    this.deliveryTemplate = compileTemplate("classpath:templates/billing/delivery-note.html", branding);
+    this.creditNoteTemplate = compileTemplate("classpath:templates/billing/credit-note.html", branding);
+    this.purchaseOrderTemplate = compileTemplate("classpath:templates/billing/purchase-order.html", branding);
+    this.receptionTemplate = compileTemplate("classpath:templates/billing/reception-guide.html", branding);
   }
 
   @Override
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "billing.render_pdf"})
   public RenderedInvoice renderContingencyFiscalPdf(FiscalDocument document, Sale sale) {
     Objects.requireNonNull(document, "document is required");
     Objects.requireNonNull(sale, "sale is required");
@@ -141,12 +134,13 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     variables.put("totalsExempt", formatMoney(calculateExemptTotal(sale)));
     variables.put("taxModeLabel", document.getTaxMode() != null ? htmlEscape(document.getTaxMode().name()) : "");
 
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(contingencyTemplate, variables::get));
+    byte[] pdfBytes = renderEngine.render(contingencyTemplate.render(variables::get));
     String filename = "contingencia-" + sanitizeFilename(document.getProvisionalNumber(), document.getId()) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
 
   @Override
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "billing.render_pdf"})
   public RenderedInvoice renderNonFiscalPdf(NonFiscalDocument document, Sale sale) {
     Objects.requireNonNull(document, "document is required");
     Objects.requireNonNull(sale, "sale is required");
@@ -157,6 +151,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
   }
 
   @Override
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "billing.render_pdf"})
   public RenderedInvoice renderQuotationPdf(NonFiscalDocument document, Sale sale) {
     Objects.requireNonNull(document, "document is required");
     Objects.requireNonNull(sale, "sale is required");
@@ -184,12 +179,13 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     variables.put("watermarkText", htmlEscape("SIN VALOR TRIBUTARIO"));
     variables.put("notes", htmlEscape("Cotización sin valor tributario"));
     variables.put("footerText", htmlEscape("Válida por 30 días desde la fecha de emisión"));
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(quotationTemplate, variables::get));
+    byte[] pdfBytes = renderEngine.render(quotationTemplate.render(variables::get));
     String filename = "cotizacion-" + sanitizeFilename(document.getNumber(), document.getId()) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
 
   @Override
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "billing.render_pdf"})
   public RenderedInvoice renderDeliveryNotePdf(NonFiscalDocument document, Sale sale) {
     Objects.requireNonNull(document, "document is required");
     Objects.requireNonNull(sale, "sale is required");
@@ -214,7 +210,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     variables.put("driverName", "");
     variables.put("vehiclePlate", "");
     variables.put("deliveryNotes", htmlEscape("Documento para control de despacho"));
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(deliveryTemplate, variables::get));
+    byte[] pdfBytes = renderEngine.render(deliveryTemplate.render(variables::get));
     String filename = "nota-entrega-" + sanitizeFilename(document.getNumber(), document.getId()) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
@@ -242,7 +238,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     variables.put("offlineLegend", "");
     variables.put("taxMode", document.getTaxMode() != null ? htmlEscape(document.getTaxMode().name()) : "");
     variables.put("creditLegend", htmlEscape("Documento emitido para anular o corregir una operación previa."));
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(creditNoteTemplate, variables::get));
+    byte[] pdfBytes = renderEngine.render(creditNoteTemplate.render(variables::get));
     String filename = "nota-credito-" + sanitizeFilename(folio, document.getId()) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
@@ -275,7 +271,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     values.put("subtotal", formatMoney(payload.subtotal()));
     values.put("tax", formatMoney(payload.tax()));
     values.put("total", formatMoney(payload.total()));
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(purchaseOrderTemplate, values::get));
+    byte[] pdfBytes = renderEngine.render(purchaseOrderTemplate.render(values::get));
     String filename = "orden-compra-" + sanitizeFilename(payload.orderNumber(), null) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
@@ -299,7 +295,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     values.put("itemsRows", buildPurchaseItemsRows(payload.items(), false));
     values.put("receiverName", htmlEscape(Optional.ofNullable(payload.approvedBy()).orElse("")));
     values.put("notes", htmlEscape(Optional.ofNullable(payload.notes()).orElse("")));
-    byte[] pdfBytes = renderPdf(placeholderHelper.replacePlaceholders(receptionTemplate, values::get));
+    byte[] pdfBytes = renderEngine.render(receptionTemplate.render(values::get));
     String filename = "guia-recepcion-" + sanitizeFilename(payload.orderNumber(), null) + ".pdf";
     return new RenderedInvoice(pdfBytes, filename, "application/pdf");
   }
@@ -310,12 +306,7 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
                                                  Customer customer,
                                                  List<LineItem> items,
                                                  String qrUrl) {
-    Map<String, String> values = new LinkedHashMap<>();
-    BillingPdfProperties.Branding branding = pdfProperties.getBranding();
-    values.put("primaryColor", defaultColor(branding.getPrimaryColor(), "#1f2937"));
-    values.put("accentColor", defaultColor(branding.getAccentColor(), "#2563eb"));
-    values.put("textColor", defaultColor(branding.getTextColor(), "#111827"));
-    values.put("tableHeaderColor", defaultColor(branding.getTableHeaderColor(), "#e5e7eb"));
+    Map<String, String> values = new HashMap<>(64);
     values.put("logoHtml", buildLogoHtml(company));
 
     values.put("companyName", htmlEscape(company.getBusinessName()));
@@ -558,6 +549,24 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
     return "image/png";
   }
 
+  /**
+   * Branding is fixed for the lifetime of the renderer, so it is folded into the
+   * compiled templates (mostly their stylesheets) instead of substituted per render.
+   */
+  private Map<String, String> brandingValues() {
+    BillingPdfProperties.Branding branding = pdfProperties.getBranding();
+    Map<String, String> values = new HashMap<>();
+    values.put("primaryColor", defaultColor(branding.getPrimaryColor(), "#1f2937"));
+    values.put("accentColor", defaultColor(branding.getAccentColor(), "#2563eb"));
+    values.put("textColor", defaultColor(branding.getTextColor(), "#111827"));
+    values.put("tableHeaderColor", defaultColor(branding.getTableHeaderColor(), "#e5e7eb"));
+    return values;
+  }
+
+  private CompiledTemplate compileTemplate(String location, Map<String, String> constants) {
+    return CompiledTemplate.compile(loadTemplate(location)).bind(constants);
+  }
+
   private String loadTemplate(String location) {
     Resource resource = resourceLoader.getResource(location);
     if (!resource.exists()) {
@@ -585,69 +594,12 @@ public class PdfLocalInvoiceRenderer implements LocalInvoiceRenderer {
 
   private String buildQrImgTag(String url) {
     try {
-      BitMatrix matrix = new QRCodeWriter().encode(url, BarcodeFormat.QR_CODE, 220, 220);
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      MatrixToImageWriter.writeToStream(matrix, "PNG", outputStream);
-      String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(outputStream.toByteArray());
-      return "<img src=\"" + dataUrl + "\" alt=\"QR\"/>";
-    } catch (WriterException | IOException ex) {
+      return "<img src=\"" + qrCodeService.generate(url, QR_SIZE).dataUrl() + "\" alt=\"QR\"/>";
+    } catch (RuntimeException ex) {
       throw new LocalInvoiceRenderingException("Unable to render QR code", ex);
     }
   }
 
-  private byte[] renderPdf(String html) {
-    try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-      PdfRendererBuilder builder = new PdfRendererBuilder();
-      builder.useFastMode();
-      builder.withHtmlContent(html, null);
-      builder.toStream(outputStream);
-      builder.run();
-      return normalizePdf(outputStream.toByteArray());
-    } catch (Exception ex) {
-      throw new LocalInvoiceRenderingException("Unable to render PDF", ex);
-    }
-  }
-
-  private byte[] normalizePdf(byte[] pdfBytes) {
-    Calendar fixedDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-    fixedDate.setTimeInMillis(clock.instant().toEpochMilli());
-    try (PDDocument document = PDDocument.load(pdfBytes);
-         ByteArrayOutputStream normalized = new ByteArrayOutputStream()) {
-      PDDocumentInformation info = document.getDocumentInformation();
-      info.setCreationDate(fixedDate);
-      info.setModificationDate(fixedDate);
-      info.setProducer("PYMERP Local Renderer");
-      document.setDocumentInformation(info);
-      document.getDocumentCatalog().setMetadata(null);
-      document.getDocumentCatalog().setLanguage("es-CL");
-      document.getDocument().getTrailer().removeItem(COSName.ID);
-      document.save(normalized);
-      byte[] normalizedBytes = normalized.toByteArray();
-      return scrubPdfMetadata(normalizedBytes, fixedDate.getTimeInMillis());
-    } catch (IOException ex) {
-      throw new LocalInvoiceRenderingException("Unable to normalize PDF metadata", ex);
-    }
-  }
-
-  private byte[] scrubPdfMetadata(byte[] pdfBytes, long timestampMillis) {
-    OffsetDateTime fixed = OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneOffset.UTC);
-    String pdfTimestamp = "D:" + fixed.format(PDF_DOC_DATE_FORMAT) + "+00'00'";
-    String xmpTimestamp = fixed.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-    String producer = "PYMERP Local Renderer";
-    String content = new String(pdfBytes, StandardCharsets.ISO_8859_1);
-    content = content.replaceAll("(?s)/CreationDate \\(D:[^)]*\\)", "/CreationDate (" + pdfTimestamp + ")");
-    content = content.replaceAll("(?s)/ModDate \\(D:[^)]*\\)", "/ModDate (" + pdfTimestamp + ")");
-    content = content.replaceAll("(?s)/Producer \\([^)]*\\)", "/Producer (" + producer + ")");
-    content = content.replaceAll("(?s)/ID \\[<[^>]+>\\s*<[^>]+>\\]",
-        "/ID [<00000000000000000000000000000000><00000000000000000000000000000000>]");
-    content = content.replaceAll("(?s)<xmp:CreateDate>[^<]+</xmp:CreateDate>",
-        "<xmp:CreateDate>" + xmpTimestamp + "</xmp:CreateDate>");
-    content = content.replaceAll("(?s)<xmp:ModifyDate>[^<]+</xmp:ModifyDate>",
-        "<xmp:ModifyDate>" + xmpTimestamp + "</xmp:ModifyDate>");
-    content = content.replaceAll("(?s)<pdf:Producer>[^<]+</pdf:Producer>",
-        "<pdf:Producer>" + producer + "</pdf:Producer>");
-    return content.getBytes(StandardCharsets.ISO_8859_1);
-  }
 
   private String formatDate(LocalDate date) {
     return date != null ? DATE_ONLY_FORMATTER.format(date) : "";
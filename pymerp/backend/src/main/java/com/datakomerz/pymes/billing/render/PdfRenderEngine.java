@@ -0,0 +1,134 @@
+package com.datakomerz.pymes.billing.render;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Turns rendered XHTML into normalized PDF bytes, keeping the expensive pieces alive
+ * across renders: font metrics live in one shared openhtmltopdf cache store, XHTML is
+ * parsed with a per-thread {@link DocumentBuilder} (instead of a parser and identity
+ * transformer looked up per document), and metadata is normalized on the in-memory
+ * {@link PDDocument} before its single save rather than by reloading the output.
+ *
+ * <p>Thread-safe; one instance is shared by all renders of a renderer.</p>
+ */
+final class PdfRenderEngine {
+
+  private static final String PRODUCER = "PYMERP Local Renderer";
+  private static final DateTimeFormatter PDF_DOC_DATE_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withLocale(Locale.forLanguageTag("es-CL"));
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final Pattern CREATION_DATE = Pattern.compile("/CreationDate \\(D:[^)]*\\)");
+  private static final Pattern MOD_DATE = Pattern.compile("/ModDate \\(D:[^)]*\\)");
+  private static final Pattern PRODUCER_ENTRY = Pattern.compile("/Producer \\([^)]*\\)");
+  private static final Pattern TRAILER_ID = Pattern.compile("/ID \\[<[^>]+>\\s*<[^>]+>\\]");
+  private static final String ZERO_ID =
+      "/ID [<00000000000000000000000000000000><00000000000000000000000000000000>]";
+
+  private final Clock clock;
+  private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+  private final ThreadLocal<DocumentBuilder> parsers = ThreadLocal.withInitial(PdfRenderEngine::newParser);
+
+  PdfRenderEngine(Clock clock) {
+    this.clock = clock;
+  }
+
+  byte[] render(String html) {
+    Calendar fixedDate = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    fixedDate.setTimeInMillis(clock.instant().toEpochMilli());
+    PdfRendererBuilder builder = new PdfRendererBuilder();
+    builder.useFastMode();
+    builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+    builder.withW3cDocument(parse(html), null);
+    builder.withProducer(PRODUCER);
+    try (PdfBoxRenderer renderer = builder.buildPdfRenderer();
+         ByteArrayOutputStream output = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE)) {
+      renderer.createPDFWithoutClosing();
+      PDDocument document = renderer.getPdfDocument();
+      normalize(document, fixedDate);
+      document.save(output);
+      return scrubPdfMetadata(output.toByteArray(), fixedDate.getTimeInMillis());
+    } catch (IOException | RuntimeException ex) {
+      throw new LocalInvoiceRenderingException("Unable to render PDF", ex);
+    }
+  }
+
+  private Document parse(String html) {
+    DocumentBuilder parser = parsers.get();
+    try {
+      return parser.parse(new InputSource(new StringReader(html)));
+    } catch (SAXException | IOException ex) {
+      throw new LocalInvoiceRenderingException("Rendered template is not well-formed XHTML", ex);
+    } finally {
+      parser.reset();
+    }
+  }
+
+  private void normalize(PDDocument document, Calendar fixedDate) {
+    PDDocumentInformation info = document.getDocumentInformation();
+    info.setCreationDate(fixedDate);
+    info.setModificationDate(fixedDate);
+    info.setProducer(PRODUCER);
+    document.setDocumentInformation(info);
+    document.getDocumentCatalog().setMetadata(null);
+    document.getDocumentCatalog().setLanguage("es-CL");
+    document.getDocument().getTrailer().removeItem(COSName.ID);
+  }
+
+  /**
+   * PDFBox stamps a random trailer ID (and may rewrite dates) on save; pin them so the
+   * same input always yields the same bytes.
+   */
+  private byte[] scrubPdfMetadata(byte[] pdfBytes, long timestampMillis) {
+    OffsetDateTime fixed = OffsetDateTime.ofInstant(Instant.ofEpochMilli(timestampMillis), ZoneOffset.UTC);
+    String pdfTimestamp = "D:" + fixed.format(PDF_DOC_DATE_FORMAT) + "+00'00'";
+    String content = new String(pdfBytes, StandardCharsets.ISO_8859_1);
+    content = CREATION_DATE.matcher(content).replaceAll(
+        Matcher.quoteReplacement("/CreationDate (" + pdfTimestamp + ")"));
+    content = MOD_DATE.matcher(content).replaceAll(Matcher.quoteReplacement("/ModDate (" + pdfTimestamp + ")"));
+    content = PRODUCER_ENTRY.matcher(content).replaceAll(Matcher.quoteReplacement("/Producer (" + PRODUCER + ")"));
+    content = TRAILER_ID.matcher(content).replaceAll(Matcher.quoteReplacement(ZERO_ID));
+    return content.getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  private static DocumentBuilder newParser() {
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setValidating(false);
+      factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", false);
+      factory.setXIncludeAware(false);
+      factory.setExpandEntityReferences(false);
+      return factory.newDocumentBuilder();
+    } catch (ParserConfigurationException ex) {
+      throw new IllegalStateException("Unable to create XHTML parser", ex);
+    }
+  }
+}
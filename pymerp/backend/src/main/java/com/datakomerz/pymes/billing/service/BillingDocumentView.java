@@ -6,6 +6,7 @@ import com.company.billing.persistence.FiscalDocumentStatus;
 import com.company.billing.persistence.FiscalDocumentType;
 import com.company.billing.persistence.NonFiscalDocumentStatus;
 import com.company.billing.persistence.NonFiscalDocumentType;
+import com.company.billing.persistence.RenderStatus;
 import com.company.billing.persistence.TaxMode;
 import com.datakomerz.pymes.billing.model.DocumentCategory;
 import java.time.OffsetDateTime;
@@ -25,6 +26,7 @@ public record BillingDocumentView(
     String provider,
     String trackId,
     boolean offline,
+    RenderStatus renderStatus,
     OffsetDateTime createdAt,
     OffsetDateTime updatedAt,
     DocumentLinks links,
@@ -0,0 +1,307 @@
+package com.datakomerz.pymes.billing.service;
+
+import com.company.billing.persistence.DocumentFile;
+import com.company.billing.persistence.DocumentFileRepository;
+import com.company.billing.persistence.DocumentFileVersion;
+import com.company.billing.persistence.FiscalDocument;
+import com.company.billing.persistence.FiscalDocumentRepository;
+import com.datakomerz.pymes.billing.config.BillingExportProperties;
+import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
+import com.datakomerz.pymes.multitenancy.TenantContext;
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bulk export of fiscal document files as a ZIP stream.
+ *
+ * <p>{@link #plan} runs on the request thread, where the tenant filter limits the
+ * selection to the caller's company, and resolves every ZIP entry up front.
+ * {@link #write} then opens the stored files on a shared pool of
+ * {@code billing.export.parallelism} threads, at most that many ahead for one export, and
+ * copies each into its entry in order as a stream, so no stored file is held in memory.
+ * Documents without a readable local PDF are re-rendered on the fly; the result is not
+ * stored.</p>
+ */
+@Service
+public class BillingExportService {
+
+  private static final Logger log = LoggerFactory.getLogger(BillingExportService.class);
+  private static final int ID_CHUNK_SIZE = 500;
+  static final String ERRORS_ENTRY = "export-errors.txt";
+
+  private final BillingExportProperties properties;
+  private final FiscalDocumentRepository fiscalDocumentRepository;
+  private final DocumentFileRepository documentFileRepository;
+  private final BillingStorageService storageService;
+  private final LocalInvoiceRenderer renderer;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ExecutorService executor;
+
+  public BillingExportService(BillingExportProperties properties,
+                              FiscalDocumentRepository fiscalDocumentRepository,
+                              DocumentFileRepository documentFileRepository,
+                              BillingStorageService storageService,
+                              LocalInvoiceRenderer renderer,
+                              PlatformTransactionManager transactionManager) {
+    this.properties = properties;
+    this.fiscalDocumentRepository = fiscalDocumentRepository;
+    this.documentFileRepository = documentFileRepository;
+    this.storageService = storageService;
+    this.renderer = renderer;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+      Thread thread = new Thread(runnable, "billing-export-" + threadIndex.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Resolves the documents created on the days {@code from} to {@code to} (inclusive), as
+   * calendar days in {@code billing.export.zone}.
+   *
+   * @throws IllegalArgumentException when the selection exceeds {@code billing.export.max-documents}
+   */
+  public ExportPlan plan(LocalDate from, LocalDate to) {
+    ZoneId zone = properties.getZone();
+    return plan(from.atStartOfDay(zone).toOffsetDateTime(), to.plusDays(1).atStartOfDay(zone).toOffsetDateTime(), null);
+  }
+
+  /**
+   * Resolves the documents created in {@code [from, to)} or, when {@code documentIds}
+   * is not empty, exactly those documents.
+   *
+   * @throws IllegalArgumentException when the selection exceeds {@code billing.export.max-documents}
+   */
+  public ExportPlan plan(OffsetDateTime from, OffsetDateTime to, List<UUID> documentIds) {
+    int limit = properties.getMaxDocuments();
+    List<FiscalDocument> documents;
+    if (documentIds != null && !documentIds.isEmpty()) {
+      if (documentIds.size() > limit) {
+        throw new IllegalArgumentException("Export is limited to " + limit + " documents");
+      }
+      documents = new ArrayList<>(fiscalDocumentRepository.findAllById(documentIds));
+      documents.sort(Comparator.comparing(FiscalDocument::getCreatedAt,
+          Comparator.nullsLast(Comparator.naturalOrder())));
+    } else {
+      documents = fiscalDocumentRepository.findByCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+          from, to, PageRequest.of(0, limit + 1));
+      if (documents.size() > limit) {
+        throw new IllegalArgumentException("Export is limited to " + limit + " documents; narrow the date range");
+      }
+    }
+
+    Map<UUID, List<DocumentFile>> filesByDocument = new HashMap<>();
+    List<UUID> ids = documents.stream().map(FiscalDocument::getId).toList();
+    for (int start = 0; start < ids.size(); start += ID_CHUNK_SIZE) {
+      List<UUID> chunk = ids.subList(start, Math.min(ids.size(), start + ID_CHUNK_SIZE));
+      for (DocumentFile file : documentFileRepository.findByDocumentIdIn(chunk)) {
+        filesByDocument.computeIfAbsent(file.getDocumentId(), key -> new ArrayList<>()).add(file);
+      }
+    }
+
+    List<ExportEntry> entries = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+    for (FiscalDocument document : documents) {
+      Map<String, DocumentFile> latest = new LinkedHashMap<>();
+      filesByDocument.getOrDefault(document.getId(), List.of()).stream()
+          .sorted(Comparator.comparing(DocumentFile::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder())))
+          .forEach(file -> latest.put(file.getVersion() + "." + extension(file.getContentType()), file));
+      String baseName = baseName(document);
+      boolean hasLocalPdf = false;
+      for (DocumentFile file : latest.values()) {
+        boolean localPdf = file.getVersion() == DocumentFileVersion.LOCAL
+            && "pdf".equals(extension(file.getContentType()));
+        hasLocalPdf |= localPdf;
+        String name = uniqueName(names, baseName + "_" + file.getVersion().name().toLowerCase(Locale.ROOT),
+            extension(file.getContentType()));
+        entries.add(new ExportEntry(document.getId(), name, file.getStorageKey(), localPdf));
+      }
+      if (!hasLocalPdf && latest.values().stream().noneMatch(file -> file.getVersion() == DocumentFileVersion.OFFICIAL)) {
+        entries.add(new ExportEntry(document.getId(), uniqueName(names, baseName + "_local", "pdf"), null, true));
+      }
+    }
+    return new ExportPlan(documents.size(), entries);
+  }
+
+  /**
+   * Streams the ZIP of {@code plan} to {@code output}. Entries that can neither be read
+   * nor re-rendered are listed in {@value #ERRORS_ENTRY} instead of failing the export.
+   */
+  public void write(ExportPlan plan, OutputStream output) throws IOException {
+    int window = Math.max(1, properties.getParallelism());
+    Deque<PendingEntry> pending = new ArrayDeque<>(window);
+    List<String> errors = new ArrayList<>();
+    int next = 0;
+    try (ZipOutputStream zip = new ZipOutputStream(output, StandardCharsets.UTF_8)) {
+      while (next < plan.entries().size() || !pending.isEmpty()) {
+        while (pending.size() < window && next < plan.entries().size()) {
+          ExportEntry entry = plan.entries().get(next++);
+          pending.add(new PendingEntry(entry, executor.submit(() -> load(entry))));
+        }
+        PendingEntry head = pending.poll();
+        try (InputStream content = await(head, errors)) {
+          if (content == null) {
+            continue;
+          }
+          zip.putNextEntry(new ZipEntry(head.entry().name()));
+          content.transferTo(zip);
+          zip.closeEntry();
+          zip.flush();
+        }
+      }
+      if (!errors.isEmpty()) {
+        zip.putNextEntry(new ZipEntry(ERRORS_ENTRY));
+        zip.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+      }
+    } catch (IOException | RuntimeException ex) {
+      pending.forEach(BillingExportService::discard);
+      throw ex;
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private InputStream await(PendingEntry pending, List<String> errors) throws IOException {
+    try {
+      return pending.content().get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Export interrupted", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+      log.warn("Skipping {} of fiscal document {} in export: {}",
+          pending.entry().name(), pending.entry().documentId(), cause.getMessage());
+      errors.add(pending.entry().name() + ": " + cause.getMessage());
+      return null;
+    }
+  }
+
+  /** Cancels an entry that will not be written, closing its stream if it was already opened. */
+  private static void discard(PendingEntry pending) {
+    if (!pending.content().cancel(true) && pending.content().state() == Future.State.SUCCESS) {
+      try {
+        pending.content().resultNow().close();
+      } catch (IOException ex) {
+        log.debug("Unable to close discarded export entry {}", pending.entry().name(), ex);
+      }
+    }
+  }
+
+  private InputStream load(ExportEntry entry) throws IOException {
+    if (entry.storageKey() != null) {
+      try {
+        return storageService.loadAsResource(entry.storageKey()).getInputStream();
+      } catch (IOException ex) {
+        if (!entry.renderable()) {
+          throw ex;
+        }
+        log.info("Local PDF of fiscal document {} is missing ({}); re-rendering for export",
+            entry.documentId(), ex.getMessage());
+      }
+    }
+    return new ByteArrayInputStream(render(entry.documentId()));
+  }
+
+  private byte[] render(UUID documentId) {
+    UUID previousTenant = TenantContext.getTenantId();
+    try {
+      return readOnlyTransaction.execute(status -> {
+        FiscalDocument document = fiscalDocumentRepository.findById(documentId)
+            .orElseThrow(() -> new IllegalStateException("Fiscal document not found: " + documentId));
+        TenantContext.setTenantId(document.getCompanyId());
+        return renderer.renderContingencyFiscalPdf(document, document.getSale()).content();
+      });
+    } finally {
+      TenantContext.setTenantId(previousTenant);
+    }
+  }
+
+  private static String baseName(FiscalDocument document) {
+    String number = firstNonBlank(document.getFinalFolio(), document.getNumber(),
+        document.getProvisionalNumber(), document.getId().toString());
+    String type = document.getDocumentType() != null
+        ? document.getDocumentType().name().toLowerCase(Locale.ROOT)
+        : "documento";
+    return (type + "_" + number).replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  private static String uniqueName(Set<String> names, String base, String extension) {
+    String candidate = base + "." + extension;
+    for (int suffix = 2; !names.add(candidate); suffix++) {
+      candidate = base + "-" + suffix + "." + extension;
+    }
+    return candidate;
+  }
+
+  private static String extension(String contentType) {
+    String normalized = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+    if (normalized.contains("pdf")) {
+      return "pdf";
+    }
+    if (normalized.contains("xml")) {
+      return "xml";
+    }
+    return "bin";
+  }
+
+  private static String firstNonBlank(String... values) {
+    for (String value : values) {
+      if (value != null && !value.isBlank()) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  public record ExportPlan(int documentCount, List<ExportEntry> entries) {
+  }
+
+  /**
+   * @param storageKey stored file to copy, or {@code null} to render the local PDF
+   * @param renderable whether a missing file may be replaced by a fresh local render
+   */
+  public record ExportEntry(UUID documentId, String name, String storageKey, boolean renderable) {
+  }
+
+  private record PendingEntry(ExportEntry entry, Future<InputStream> content) {
+  }
+}
@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.billing.service;
 
+import com.datakomerz.pymes.billing.config.BillingIdempotencyProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -7,7 +8,7 @@ import org.springframework.context.annotation.Configuration;
 public class BillingIdempotencyConfiguration {
 
   @Bean
-  public BillingIdempotencyStore billingIdempotencyStore() {
-    return new InMemoryBillingIdempotencyStore();
+  public BillingIdempotencyStore billingIdempotencyStore(BillingIdempotencyProperties properties) {
+    return new InMemoryBillingIdempotencyStore(properties.getWaitTimeout());
   }
 }
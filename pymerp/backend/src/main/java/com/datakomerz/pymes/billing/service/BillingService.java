@@ -13,6 +13,7 @@ import com.company.billing.persistence.FiscalDocumentStatus;
 import com.company.billing.persistence.NonFiscalDocument;
 import com.company.billing.persistence.NonFiscalDocumentRepository;
 import com.company.billing.persistence.NonFiscalDocumentStatus;
+import com.company.billing.persistence.RenderStatus;
 import com.company.billing.persistence.SiiDocumentType;
 import com.company.billing.persistence.TaxMode;
 import com.datakomerz.pymes.billing.model.DocumentCategory;
@@ -22,13 +23,16 @@ import com.datakomerz.pymes.billing.provider.BillingProviderException;
 import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
 import com.datakomerz.pymes.billing.service.BillingDocumentView.DocumentFileView;
 import com.datakomerz.pymes.billing.service.BillingDocumentView.DocumentLinks;
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.SaleRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.annotation.Timed;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.time.Year;
 import java.util.ArrayList;
 import java.util.List;
@@ -62,6 +66,8 @@ public class BillingService {
   private final Optional<BillingProvider> billingProvider;
   private final Clock clock;
   private final BillingIdempotencyStore idempotencyStore;
+  private final DocumentRenderQueue renderQueue;
+  private final DocumentNumberAllocator numberAllocator;
 
   public BillingService(ObjectMapper objectMapper,
                         FiscalDocumentRepository fiscalDocumentRepository,
@@ -73,7 +79,9 @@ public class BillingService {
                         LocalInvoiceRenderer localInvoiceRenderer,
                         ObjectProvider<BillingProvider> billingProviderProvider,
                         ObjectProvider<Clock> clockProvider,
-                        BillingIdempotencyStore idempotencyStore) {
+                        BillingIdempotencyStore idempotencyStore,
+                        DocumentRenderQueue renderQueue,
+                        DocumentNumberAllocator numberAllocator) {
     this.objectMapper = objectMapper;
     this.fiscalDocumentRepository = fiscalDocumentRepository;
     this.documentFileRepository = documentFileRepository;
@@ -86,9 +94,16 @@ public class BillingService {
     Clock providedClock = clockProvider.getIfAvailable();
     this.clock = providedClock != null ? providedClock : Clock.systemUTC();
     this.idempotencyStore = idempotencyStore;
+    this.renderQueue = renderQueue;
+    this.numberAllocator = numberAllocator;
   }
 
+  /**
+   * Issues a fiscal document for a sale. The provisional number is reserved in this
+   * transaction, so a failed issuance hands it back to the series.
+   */
   @Transactional
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "billing.issue_invoice"})
   public InvoiceIssuanceResult issueInvoice(boolean forceOffline,
                                             String connectivityHint,
                                             InvoicePayload payload,
@@ -146,12 +161,9 @@ public class BillingService {
       document.setProvisionalNumber(generateProvisionalNumber(sale.getCompanyId()));
       document.setIdempotencyKey(key);
       document.setPayloadHash(payloadHash);
+      document.setRenderStatus(RenderStatus.RENDER_PENDING);
       fiscalDocumentRepository.save(document);
-
-      LocalInvoiceRenderer.RenderedInvoice renderedLocal = localInvoiceRenderer
-          .renderContingencyFiscalPdf(document, sale);
-      DocumentFile localFile = storeLocal(document.getId(),
-          DocumentFileKind.FISCAL, DocumentFileVersion.LOCAL, renderedLocal);
+      renderQueue.submit(document.getId());
 
       boolean offline = shouldGoOffline(forceOffline, connectivityHint);
       if (offline) {
@@ -163,10 +175,11 @@ public class BillingService {
         queueItem.setDocument(document);
         queueItem.setIdempotencyKey(key);
         queueItem.setStatus(ContingencyQueueStatus.OFFLINE_PENDING);
+        queueItem.setNextAttemptAt(OffsetDateTime.now(clock));
         queueItem.setProviderPayload(buildProviderPayload(payload, document));
         contingencyQueueItemRepository.save(queueItem);
 
-        BillingDocumentView view = mapFiscalDocument(document, List.of(localFile));
+        BillingDocumentView view = mapFiscalDocument(document, List.of());
         idempotencyStore.complete(tenantId, key, payloadHash, document.getId());
         entryCompleted = true;
         return new InvoiceIssuanceResult(view, true);
@@ -195,8 +208,7 @@ public class BillingService {
       fiscalDocumentRepository.save(document);
 
       List<DocumentFile> files = new ArrayList<>();
-      files.add(localFile);
-      DocumentFile officialFile = storeOfficialDocumentIfPresent(document, localFile, providerResult);
+      DocumentFile officialFile = storeOfficialDocumentIfPresent(document, providerResult);
       if (officialFile != null) {
         files.add(officialFile);
       }
@@ -358,7 +370,6 @@ public class BillingService {
   }
 
   private DocumentFile storeOfficialDocumentIfPresent(FiscalDocument document,
-                                                      DocumentFile localFile,
                                                       BillingProvider.IssueInvoiceResult providerResult) {
     if (providerResult == null || providerResult.officialDocument() == null) {
       return null;
@@ -368,7 +379,11 @@ public class BillingService {
     officialFile.setDocumentId(document.getId());
     officialFile.setKind(DocumentFileKind.FISCAL);
     officialFile.setVersion(DocumentFileVersion.OFFICIAL);
-    officialFile.setPreviousFile(localFile);
+    // The local PDF is usually still being rendered; DocumentRenderQueue links it once stored.
+    officialFile.setPreviousFile(documentFileRepository
+        .findByDocumentIdAndVersion(document.getId(), DocumentFileVersion.LOCAL).stream()
+        .findFirst()
+        .orElse(null));
     officialFile.setContentType(
         official.contentType() != null ? official.contentType() : "application/pdf");
     if (official.content() != null && official.content().length > 0) {
@@ -447,22 +462,21 @@ public class BillingService {
   private String generateProvisionalNumber(UUID companyId) {
     int year = Year.now(clock).getValue();
     String prefix = "CTG-" + year + "-";
-    Optional<FiscalDocument> last = fiscalDocumentRepository
-        .findTopBySale_CompanyIdAndProvisionalNumberStartingWithOrderByProvisionalNumberDesc(
-            companyId, prefix);
-    int next = last.map(doc -> parseSequence(doc.getProvisionalNumber(), prefix))
-        .orElse(0) + 1;
+    long next = numberAllocator.next(companyId, "CTG", year, () -> fiscalDocumentRepository
+        .findTopBySale_CompanyIdAndProvisionalNumberStartingWithOrderByProvisionalNumberDesc(companyId, prefix)
+        .map(doc -> parseSequence(doc.getProvisionalNumber(), prefix))
+        .orElse(0));
     return prefix + String.format("%05d", next);
   }
 
   private String generateNonFiscalNumber(UUID companyId) {
     int year = Year.now(clock).getValue();
     String prefix = "NF-" + year + "-";
-    Optional<NonFiscalDocument> last = nonFiscalDocumentRepository
-        .findTopBySale_CompanyIdOrderByCreatedAtDesc(companyId);
-    int next = last.map(NonFiscalDocument::getNumber)
+    long next = numberAllocator.next(companyId, "NF", year, () -> nonFiscalDocumentRepository
+        .findTopBySale_CompanyIdOrderByCreatedAtDesc(companyId)
+        .map(NonFiscalDocument::getNumber)
         .map(number -> parseSequence(number, prefix))
-        .orElse(0) + 1;
+        .orElse(0));
     return prefix + String.format("%05d", next);
   }
 
@@ -499,6 +513,7 @@ public class BillingService {
         document.getProvider(),
         document.getTrackId(),
         document.isOffline(),
+        document.getRenderStatus() != null ? document.getRenderStatus() : RenderStatus.READY,
         document.getCreatedAt(),
         document.getUpdatedAt(),
         links,
@@ -527,6 +542,7 @@ public class BillingService {
         null,
         null,
         false,
+        RenderStatus.READY,
         document.getCreatedAt(),
         document.getUpdatedAt(),
         links,
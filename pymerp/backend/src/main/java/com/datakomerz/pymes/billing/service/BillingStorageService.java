@@ -3,6 +3,9 @@ package com.datakomerz.pymes.billing.service;
 import com.company.billing.persistence.DocumentFileKind;
 import com.company.billing.persistence.DocumentFileVersion;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.core.io.Resource;
 
@@ -15,10 +18,31 @@ public interface BillingStorageService {
                    String filename,
                    String contentType) throws IOException;
 
+  /**
+   * Stores {@code content} without requiring it in memory; implementations backed by
+   * a file system compute the checksum while writing. The stream is not closed.
+   */
+  default StoredFile store(UUID documentId,
+                           DocumentFileKind kind,
+                           DocumentFileVersion version,
+                           InputStream content,
+                           String filename,
+                           String contentType) throws IOException {
+    return store(documentId, kind, version, content.readAllBytes(), filename, contentType);
+  }
+
   byte[] read(String storageKey) throws IOException;
 
   Resource loadAsResource(String storageKey) throws IOException;
 
+  /**
+   * Local file holding {@code storageKey}, when there is one, so downloads can be
+   * served with channel transfers instead of heap copies.
+   */
+  default Optional<Path> resolveFile(String storageKey) throws IOException {
+    return Optional.empty();
+  }
+
   record StoredFile(String storageKey, String checksum) {
   }
 }
@@ -0,0 +1,57 @@
+package com.datakomerz.pymes.billing.service;
+
+import com.company.billing.persistence.DocumentSequenceRepository;
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Hands out document numbers from the {@code document_sequences} counter table.
+ *
+ * <p>Each number is taken with one atomic update of the series row inside the issuing
+ * transaction, on its connection. The row stays locked until that transaction ends, so
+ * concurrent issuances of the same series queue up on it, and a rollback returns the number:
+ * series are gapless. Different series never wait on each other.</p>
+ */
+@Component
+public class DocumentNumberAllocator {
+
+  private final DocumentSequenceRepository sequenceRepository;
+  private final Clock clock;
+
+  public DocumentNumberAllocator(DocumentSequenceRepository sequenceRepository,
+                                 ObjectProvider<Clock> clockProvider) {
+    this.sequenceRepository = sequenceRepository;
+    Clock providedClock = clockProvider.getIfAvailable();
+    this.clock = providedClock != null ? providedClock : Clock.systemUTC();
+  }
+
+  /**
+   * Next number of the series, reserved in the caller's transaction.
+   *
+   * @param lastIssued highest number already used by documents of this series; only
+   *                   consulted when the series row does not exist yet
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public long next(UUID companyId, String prefix, int year, LongSupplier lastIssued) {
+    Objects.requireNonNull(companyId, "companyId");
+    if (sequenceRepository.advance(companyId, prefix, year, 1, now()) == 0) {
+      // First number of the series; a concurrent creator makes this insert a no-op.
+      sequenceRepository.insertIfAbsent(companyId, prefix, year, lastIssued.getAsLong() + 1, now());
+      if (sequenceRepository.advance(companyId, prefix, year, 1, now()) == 0) {
+        throw new IllegalStateException("Document sequence " + prefix + "/" + year + " could not be created");
+      }
+    }
+    return sequenceRepository.findNextValue(companyId, prefix, year).orElseThrow() - 1;
+  }
+
+  private OffsetDateTime now() {
+    return OffsetDateTime.now(clock);
+  }
+}
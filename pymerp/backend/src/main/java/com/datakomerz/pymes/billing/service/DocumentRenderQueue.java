@@ -0,0 +1,288 @@
+package com.datakomerz.pymes.billing.service;
+
+import com.company.billing.persistence.DocumentFile;
+import com.company.billing.persistence.DocumentFileKind;
+import com.company.billing.persistence.DocumentFileRepository;
+import com.company.billing.persistence.DocumentFileVersion;
+import com.company.billing.persistence.FiscalDocument;
+import com.company.billing.persistence.FiscalDocumentRepository;
+import com.company.billing.persistence.RenderStatus;
+import com.datakomerz.pymes.billing.render.BillingPdfProperties;
+import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
+import com.datakomerz.pymes.multitenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Renders the local (contingency) PDF of fiscal documents off the request path.
+ *
+ * <p>Issuance persists the document as {@link RenderStatus#RENDER_PENDING} and calls
+ * {@link #submit(UUID)}; the render is handed to a fixed worker pool once the issuing
+ * transaction commits. The pool reads from a bounded queue: when it is full the
+ * submitting thread renders the document itself (caller runs), so a burst slows
+ * issuance down instead of growing memory or losing renders.</p>
+ *
+ * <p>Downloads block on {@link #awaitRendered(UUID, Duration)} for a short while.
+ * Documents left pending by a node that stopped mid-render are picked up again by
+ * {@link #recoverStalled()}, which runs on every node: each render locks its document row
+ * with {@code SKIP LOCKED} first, so when two nodes pick the same document one renders
+ * and the other backs off.</p>
+ */
+@Component
+public class DocumentRenderQueue {
+
+  private static final Logger log = LoggerFactory.getLogger(DocumentRenderQueue.class);
+  private static final int RECOVERY_BATCH_SIZE = 50;
+
+  private final BillingPdfProperties.Render properties;
+  private final LocalInvoiceRenderer renderer;
+  private final FiscalDocumentRepository fiscalDocumentRepository;
+  private final DocumentFileRepository documentFileRepository;
+  private final BillingStorageService storageService;
+  private final Clock clock;
+  private final TransactionTemplate transactionTemplate;
+  private final ThreadPoolExecutor executor;
+  private final Map<UUID, CompletableFuture<RenderStatus>> inFlight = new ConcurrentHashMap<>();
+  private final Timer renderTimer;
+  private final Counter failedCounter;
+  private final Counter callerRunsCounter;
+
+  public DocumentRenderQueue(BillingPdfProperties pdfProperties,
+                             LocalInvoiceRenderer renderer,
+                             FiscalDocumentRepository fiscalDocumentRepository,
+                             DocumentFileRepository documentFileRepository,
+                             BillingStorageService storageService,
+                             ObjectProvider<Clock> clockProvider,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+    this.properties = pdfProperties.getRender();
+    this.renderer = renderer;
+    this.fiscalDocumentRepository = fiscalDocumentRepository;
+    this.documentFileRepository = documentFileRepository;
+    this.storageService = storageService;
+    Clock providedClock = clockProvider.getIfAvailable();
+    this.clock = providedClock != null ? providedClock : Clock.systemUTC();
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    // Renders may start from an afterCommit callback, where the finished transaction is still bound.
+    this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    int workers = Math.max(1, properties.getWorkers());
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+        workers,
+        workers,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+        runnable -> {
+          Thread thread = new Thread(runnable, "pdf-render-" + threadIndex.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        },
+        new ThreadPoolExecutor.AbortPolicy());
+
+    this.renderTimer = Timer.builder("billing.render.duration")
+        .description("Time spent rendering and storing a local fiscal PDF")
+        .register(meterRegistry);
+    this.failedCounter = meterRegistry.counter("billing.render.failed");
+    this.callerRunsCounter = meterRegistry.counter("billing.render.callerRuns");
+    meterRegistry.gauge("billing.render.queue.depth", executor, pool -> pool.getQueue().size());
+    meterRegistry.gauge("billing.render.active", executor, ThreadPoolExecutor::getActiveCount);
+    meterRegistry.gauge("billing.render.inFlight", inFlight, Map::size);
+  }
+
+  /**
+   * Schedules the local PDF of {@code documentId}. Inside a transaction the render is
+   * queued after commit (workers must see the row); otherwise it is queued right away.
+   */
+  public CompletableFuture<RenderStatus> submit(UUID documentId) {
+    CompletableFuture<RenderStatus> created = new CompletableFuture<>();
+    CompletableFuture<RenderStatus> existing = inFlight.putIfAbsent(documentId, created);
+    if (existing != null) {
+      return existing;
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          if (status == STATUS_COMMITTED) {
+            enqueue(documentId);
+          } else {
+            inFlight.remove(documentId, created);
+          }
+        }
+      });
+    } else {
+      enqueue(documentId);
+    }
+    return created;
+  }
+
+  /**
+   * Waits up to {@code timeout} for the local PDF and returns the resulting status;
+   * {@link RenderStatus#RENDER_PENDING} means the caller should retry later. A failed
+   * render is resubmitted so that polling clients eventually get the file.
+   */
+  public RenderStatus awaitRendered(UUID documentId, Duration timeout) {
+    CompletableFuture<RenderStatus> pending = inFlight.get(documentId);
+    if (pending == null) {
+      RenderStatus stored = fiscalDocumentRepository.findRenderStatus(documentId).orElse(RenderStatus.READY);
+      if (stored != RenderStatus.FAILED) {
+        return stored;
+      }
+      pending = submit(documentId);
+    }
+    try {
+      return pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      return RenderStatus.RENDER_PENDING;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return RenderStatus.RENDER_PENDING;
+    } catch (ExecutionException ex) {
+      return RenderStatus.FAILED;
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${billing.pdf.render.recovery-interval-ms:60000}")
+  public void recoverStalled() {
+    OffsetDateTime cutoff = OffsetDateTime.now(clock).minus(Duration.ofMillis(properties.getStaleAfterMs()));
+    List<UUID> stalled = fiscalDocumentRepository.findIdsByRenderStatusCreatedBefore(
+        RenderStatus.RENDER_PENDING, cutoff, PageRequest.of(0, RECOVERY_BATCH_SIZE));
+    for (UUID documentId : stalled) {
+      if (!inFlight.containsKey(documentId)) {
+        log.info("Resubmitting stalled render of fiscal document {}", documentId);
+        submit(documentId);
+      }
+    }
+  }
+
+  int queueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void enqueue(UUID documentId) {
+    try {
+      executor.execute(() -> render(documentId));
+    } catch (RejectedExecutionException ex) {
+      callerRunsCounter.increment();
+      log.debug("Render queue full, rendering fiscal document {} on the caller thread", documentId);
+      render(documentId);
+    }
+  }
+
+  void render(UUID documentId) {
+    RenderStatus outcome;
+    UUID previousTenant = TenantContext.getTenantId();
+    Timer.Sample sample = Timer.start();
+    try {
+      outcome = transactionTemplate.execute(status -> renderAndStore(documentId));
+    } catch (RuntimeException ex) {
+      log.warn("Rendering of fiscal document {} failed: {}", documentId, ex.getMessage(), ex);
+      failedCounter.increment();
+      outcome = RenderStatus.FAILED;
+      try {
+        transactionTemplate.executeWithoutResult(
+            status -> fiscalDocumentRepository.updateRenderStatus(documentId, RenderStatus.FAILED));
+      } catch (RuntimeException statusEx) {
+        log.warn("Unable to flag render failure of fiscal document {}", documentId, statusEx);
+      }
+    } finally {
+      sample.stop(renderTimer);
+      TenantContext.setTenantId(previousTenant);
+    }
+    CompletableFuture<RenderStatus> pending = inFlight.remove(documentId);
+    if (pending != null) {
+      pending.complete(outcome);
+    }
+  }
+
+  private RenderStatus renderAndStore(UUID documentId) {
+    FiscalDocument document = fiscalDocumentRepository.lockForRender(documentId).orElse(null);
+    if (document == null) {
+      if (fiscalDocumentRepository.existsById(documentId)) {
+        log.debug("Fiscal document {} is being rendered by another node", documentId);
+        return RenderStatus.RENDER_PENDING;
+      }
+      log.warn("Fiscal document {} vanished before its PDF was rendered", documentId);
+      return RenderStatus.FAILED;
+    }
+    if (document.getRenderStatus() == RenderStatus.READY
+        || !documentFileRepository.findByDocumentIdAndVersion(documentId, DocumentFileVersion.LOCAL).isEmpty()) {
+      fiscalDocumentRepository.updateRenderStatus(documentId, RenderStatus.READY);
+      return RenderStatus.READY;
+    }
+    TenantContext.setTenantId(document.getCompanyId());
+    LocalInvoiceRenderer.RenderedInvoice rendered = renderer.renderContingencyFiscalPdf(document, document.getSale());
+    BillingStorageService.StoredFile stored;
+    try {
+      stored = storageService.store(
+          documentId,
+          DocumentFileKind.FISCAL,
+          DocumentFileVersion.LOCAL,
+          rendered.content(),
+          rendered.filename(),
+          rendered.contentType());
+    } catch (IOException ex) {
+      throw new IllegalStateException("Unable to store local document version", ex);
+    }
+    DocumentFile file = new DocumentFile();
+    file.setDocumentId(documentId);
+    file.setKind(DocumentFileKind.FISCAL);
+    file.setVersion(DocumentFileVersion.LOCAL);
+    file.setContentType(rendered.contentType());
+    file.setStorageKey(stored.storageKey());
+    file.setChecksum(stored.checksum());
+    documentFileRepository.save(file);
+    // An official version stored while the render was pending still lacks its local predecessor.
+    for (DocumentFile official : documentFileRepository.findByDocumentIdAndVersion(documentId, DocumentFileVersion.OFFICIAL)) {
+      if (official.getPreviousFile() == null) {
+        official.setPreviousFile(file);
+      }
+    }
+    fiscalDocumentRepository.updateRenderStatus(documentId, RenderStatus.READY);
+    return RenderStatus.READY;
+  }
+}
@@ -2,16 +2,23 @@ package com.datakomerz.pymes.billing.service;
 
 import com.company.billing.persistence.DocumentFileKind;
 import com.company.billing.persistence.DocumentFileVersion;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 import java.util.Locale;
+import java.util.Optional;
 import java.util.UUID;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
@@ -36,6 +43,23 @@ public class FileSystemBillingStorageService implements BillingStorageService {
                           byte[] content,
                           String filename,
                           String contentType) throws IOException {
+    if (content == null || content.length == 0) {
+      throw new IllegalArgumentException("content is empty");
+    }
+    return store(documentId, kind, version, new ByteArrayInputStream(content), filename, contentType);
+  }
+
+  /**
+   * Streams {@code content} into a temporary file next to the target, hashing it on
+   * the way, and moves it into place once complete so readers never see a partial file.
+   */
+  @Override
+  public StoredFile store(UUID documentId,
+                          DocumentFileKind kind,
+                          DocumentFileVersion version,
+                          InputStream content,
+                          String filename,
+                          String contentType) throws IOException {
     if (documentId == null) {
       throw new IllegalArgumentException("documentId is required");
     }
@@ -45,7 +69,7 @@ public class FileSystemBillingStorageService implements BillingStorageService {
     if (version == null) {
       throw new IllegalArgumentException("version is required");
     }
-    if (content == null || content.length == 0) {
+    if (content == null) {
       throw new IllegalArgumentException("content is empty");
     }
     String sanitizedFilename = sanitizeFilename(filename, version);
@@ -54,10 +78,22 @@ public class FileSystemBillingStorageService implements BillingStorageService {
         .resolve(documentId.toString());
     Files.createDirectories(targetDirectory);
     Path targetFile = targetDirectory.resolve(sanitizedFilename);
-    Files.write(targetFile, content);
-    String checksum = computeChecksum(content);
-    String storageKey = root.relativize(targetFile).toString().replace('\\', '/');
-    return new StoredFile(storageKey, checksum);
+    Path tempFile = Files.createTempFile(targetDirectory, ".upload-", ".tmp");
+    try {
+      MessageDigest digest = newDigest();
+      long written;
+      try (OutputStream output = Files.newOutputStream(tempFile)) {
+        written = new DigestInputStream(content, digest).transferTo(output);
+      }
+      if (written == 0) {
+        throw new IllegalArgumentException("content is empty");
+      }
+      moveIntoPlace(tempFile, targetFile);
+      String storageKey = root.relativize(targetFile).toString().replace('\\', '/');
+      return new StoredFile(storageKey, HexFormat.of().formatHex(digest.digest()));
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
   }
 
   @Override
@@ -92,6 +128,15 @@ public class FileSystemBillingStorageService implements BillingStorageService {
     }
   }
 
+  @Override
+  public Optional<Path> resolveFile(String storageKey) throws IOException {
+    if (storageKey == null || storageKey.isBlank()
+        || storageKey.startsWith("http://") || storageKey.startsWith("https://")) {
+      return Optional.empty();
+    }
+    return Optional.of(resolveLocalPath(storageKey));
+  }
+
   private Path resolveLocalPath(String storageKey) throws IOException {
     Path path = root.resolve(storageKey).normalize();
     if (!path.startsWith(root)) {
@@ -115,10 +160,17 @@ public class FileSystemBillingStorageService implements BillingStorageService {
     return sanitized;
   }
 
-  private String computeChecksum(byte[] content) {
+  private void moveIntoPlace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private MessageDigest newDigest() {
     try {
-      MessageDigest digest = MessageDigest.getInstance("SHA-256");
-      return HexFormat.of().formatHex(digest.digest(content));
+      return MessageDigest.getInstance("SHA-256");
     } catch (NoSuchAlgorithmException ex) {
       throw new IllegalStateException("SHA-256 digest not available", ex);
     }
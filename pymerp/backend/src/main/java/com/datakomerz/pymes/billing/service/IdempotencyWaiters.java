@@ -0,0 +1,95 @@
+package com.datakomerz.pymes.billing.service;
+
+import com.datakomerz.pymes.billing.service.BillingIdempotencyStore.IdempotencyEntry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Parks requests waiting on an in-flight idempotency key until its owner signals completion.
+ *
+ * <p>All waiters of a key share one future, so a storm of duplicate submits costs one map
+ * entry and one lookup per waiter per signal instead of a poll loop each.</p>
+ */
+final class IdempotencyWaiters {
+
+  private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+  /**
+   * Waits until {@code lookup} reports the key as completed or gone.
+   *
+   * @param recheckInterval upper bound between lookups, as a safety net for lost signals
+   */
+  Optional<IdempotencyEntry> await(String key,
+                                   Duration timeout,
+                                   Duration recheckInterval,
+                                   Supplier<Optional<IdempotencyEntry>> lookup) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    long recheckNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), recheckInterval.toNanos());
+    while (true) {
+      // Register before looking up so a completion in between is not missed.
+      Slot slot = acquire(key);
+      try {
+        Optional<IdempotencyEntry> entry = lookup.get();
+        if (entry.isEmpty() || entry.get().documentId() != null) {
+          return entry;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return Optional.empty();
+        }
+        slot.signal.get(Math.min(remaining, recheckNanos), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException ex) {
+        // Re-check below.
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return Optional.empty();
+      } catch (ExecutionException ex) {
+        return Optional.empty();
+      } finally {
+        release(key, slot);
+      }
+    }
+  }
+
+  /** Wakes every waiter of the key. */
+  void signal(String key) {
+    Slot slot = slots.remove(key);
+    if (slot != null) {
+      slot.signal.complete(null);
+    }
+  }
+
+  int pendingKeys() {
+    return slots.size();
+  }
+
+  private Slot acquire(String key) {
+    return slots.compute(key, (ignored, slot) -> {
+      Slot current = slot != null ? slot : new Slot();
+      current.waiters++;
+      return current;
+    });
+  }
+
+  private void release(String key, Slot slot) {
+    slots.computeIfPresent(key, (ignored, current) -> {
+      if (current != slot) {
+        return current;
+      }
+      return --current.waiters == 0 ? null : current;
+    });
+  }
+
+  private static final class Slot {
+    private final CompletableFuture<Void> signal = new CompletableFuture<>();
+    // Guarded by the map's per-key compute lock.
+    private int waiters;
+  }
+}
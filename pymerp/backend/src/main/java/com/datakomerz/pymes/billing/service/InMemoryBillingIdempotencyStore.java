@@ -13,6 +13,16 @@ public class InMemoryBillingIdempotencyStore implements BillingIdempotencyStore
 
   private final Map<UUID, Map<String, Entry>> store = new ConcurrentHashMap<>();
   private final Duration ttl = Duration.ofMinutes(10);
+  private final IdempotencyWaiters waiters = new IdempotencyWaiters();
+  private final Duration waitTimeout;
+
+  public InMemoryBillingIdempotencyStore() {
+    this(Duration.ofSeconds(5));
+  }
+
+  public InMemoryBillingIdempotencyStore(Duration waitTimeout) {
+    this.waitTimeout = waitTimeout;
+  }
 
   @Override
   public Optional<IdempotencyEntry> findEntry(UUID tenantId, String idempotencyKey) {
@@ -31,13 +41,16 @@ public class InMemoryBillingIdempotencyStore implements BillingIdempotencyStore
 
   @Override
   public Optional<IdempotencyEntry> awaitCompletion(UUID tenantId, String idempotencyKey) {
-    return findEntry(tenantId, idempotencyKey);
+    // Completion is signalled in-process, so the only re-check happens at the deadline.
+    return waiters.await(waiterKey(tenantId, idempotencyKey), waitTimeout, waitTimeout,
+      () -> findEntry(tenantId, idempotencyKey));
   }
 
   @Override
   public void complete(UUID tenantId, String idempotencyKey, String payloadHash, UUID documentId) {
     store.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>())
       .put(idempotencyKey, new Entry(new IdempotencyEntry(documentId, payloadHash), Instant.now().plus(ttl)));
+    waiters.signal(waiterKey(tenantId, idempotencyKey));
   }
 
   @Override
@@ -46,6 +59,15 @@ public class InMemoryBillingIdempotencyStore implements BillingIdempotencyStore
     if (tenantEntries != null) {
       tenantEntries.remove(idempotencyKey);
     }
+    waiters.signal(waiterKey(tenantId, idempotencyKey));
+  }
+
+  int pendingWaiterKeys() {
+    return waiters.pendingKeys();
+  }
+
+  private static String waiterKey(UUID tenantId, String idempotencyKey) {
+    return tenantId + ":" + idempotencyKey;
   }
 
   private void cleanup(UUID tenantId, String key) {
@@ -3,16 +3,26 @@ package com.datakomerz.pymes.billing.service;
 import com.datakomerz.pymes.billing.config.BillingIdempotencyProperties;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.time.Duration;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
 
+/**
+ * Redis-backed idempotency store. Completions are broadcast on {@link #COMPLETION_CHANNEL} so
+ * requests waiting on an in-flight key on any node wake up as soon as the owner finishes.
+ * The subscription is registered on the shared listener container from
+ * {@link com.datakomerz.pymes.config.RedisMessagingConfig}.
+ */
 @Component
 @ConditionalOnBean(StringRedisTemplate.class)
 @Primary
@@ -20,16 +30,43 @@ public class RedisBillingIdempotencyStore implements BillingIdempotencyStore {
 
   private static final Logger log = LoggerFactory.getLogger(RedisBillingIdempotencyStore.class);
 
+  static final String COMPLETION_CHANNEL = "billing:idempotency:completed";
+
   private final StringRedisTemplate redisTemplate;
   private final BillingIdempotencyProperties properties;
   private final ObjectMapper objectMapper;
+  private final IdempotencyWaiters waiters = new IdempotencyWaiters();
+  private final ObjectProvider<RedisMessageListenerContainer> listenerContainer;
 
   public RedisBillingIdempotencyStore(StringRedisTemplate redisTemplate,
                                       BillingIdempotencyProperties properties,
-                                      ObjectMapper objectMapper) {
+                                      ObjectMapper objectMapper,
+                                      ObjectProvider<RedisMessageListenerContainer> listenerContainer) {
     this.redisTemplate = redisTemplate;
     this.properties = properties;
     this.objectMapper = objectMapper;
+    this.listenerContainer = listenerContainer;
+  }
+
+  @PostConstruct
+  void subscribe() {
+    RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+    if (container == null) {
+      // Waiters still re-check at the poll interval; only their wake-up latency suffers.
+      log.warn("No Redis listener container; idempotency waiters fall back to polling");
+      return;
+    }
+    container.addMessageListener((message, pattern) ->
+        onCompletionSignal(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(COMPLETION_CHANNEL));
+  }
+
+  void onCompletionSignal(String key) {
+    waiters.signal(key);
+  }
+
+  int pendingWaiterKeys() {
+    return waiters.pendingKeys();
   }
 
   @Override
@@ -62,26 +99,8 @@ public class RedisBillingIdempotencyStore implements BillingIdempotencyStore {
 
   @Override
   public Optional<IdempotencyEntry> awaitCompletion(UUID tenantId, String idempotencyKey) {
-    Duration timeout = properties.getWaitTimeout();
-    Duration poll = properties.getWaitPollInterval();
-    long deadline = System.nanoTime() + timeout.toNanos();
-    while (System.nanoTime() < deadline) {
-      Optional<IdempotencyEntry> entry = findEntry(tenantId, idempotencyKey);
-      if (entry.isPresent()) {
-        if (entry.get().documentId() != null) {
-          return entry;
-        }
-      } else {
-        return Optional.empty();
-      }
-      try {
-        Thread.sleep(Math.max(1, poll.toMillis()));
-      } catch (InterruptedException ex) {
-        Thread.currentThread().interrupt();
-        return Optional.empty();
-      }
-    }
-    return Optional.empty();
+    return waiters.await(redisKey(tenantId, idempotencyKey), properties.getWaitTimeout(),
+        properties.getWaitPollInterval(), () -> findEntry(tenantId, idempotencyKey));
   }
 
   @Override
@@ -91,11 +110,23 @@ public class RedisBillingIdempotencyStore implements BillingIdempotencyStore {
     if (payload != null) {
       redisTemplate.opsForValue().set(key, payload, properties.getTtl());
     }
+    publishCompletion(key);
   }
 
   @Override
   public void invalidate(UUID tenantId, String idempotencyKey) {
-    redisTemplate.delete(redisKey(tenantId, idempotencyKey));
+    String key = redisKey(tenantId, idempotencyKey);
+    redisTemplate.delete(key);
+    publishCompletion(key);
+  }
+
+  private void publishCompletion(String key) {
+    waiters.signal(key);
+    try {
+      redisTemplate.convertAndSend(COMPLETION_CHANNEL, key);
+    } catch (RuntimeException ex) {
+      log.warn("Unable to publish idempotency completion for key {}: {}", key, ex.getMessage());
+    }
   }
 
   private String redisKey(UUID tenantId, String idempotencyKey) {
@@ -1,6 +1,7 @@
 package com.datakomerz.pymes.common;
 
 import com.datakomerz.pymes.auth.InvalidRefreshTokenException;
+import com.datakomerz.pymes.auth.LoginLockedException;
 import com.datakomerz.pymes.auth.TenantMismatchException;
 import com.datakomerz.pymes.auth.UserDisabledException;
 import com.datakomerz.pymes.billing.provider.BillingProviderException;
@@ -13,8 +14,10 @@ import java.util.List;
 import java.util.Map;
 import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -88,6 +91,13 @@ public class GlobalExceptionHandler {
     return Map.of("error", ex.getErrorCode());
   }
 
+  @ExceptionHandler(LoginLockedException.class)
+  public ResponseEntity<Map<String, String>> handleLoginLocked(LoginLockedException ex) {
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+      .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+      .body(Map.of("error", ex.getErrorCode()));
+  }
+
   @ExceptionHandler(TenantMismatchException.class)
   @ResponseStatus(HttpStatus.FORBIDDEN)
   public Map<String, String> handleTenantMismatch(TenantMismatchException ex) {
@@ -0,0 +1,91 @@
+package com.datakomerz.pymes.common.export;
+
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Streams query results to CSV without materialising them.
+ *
+ * <p>The row supplier is opened inside a read-only transaction that stays open while rows are
+ * written, so repositories can return a {@link Stream} backed by a JDBC cursor. Repository
+ * methods feeding an export select scalar projections (not entities, so the persistence context
+ * stays empty) and carry a fetch-size hint of {@link #FETCH_SIZE}, which makes the PostgreSQL
+ * driver read the result set in chunks instead of all at once.</p>
+ */
+@Component
+public class CsvExporter {
+
+  /** Value for the {@code org.hibernate.fetchSize} hint on streaming export queries. */
+  public static final String FETCH_SIZE = "500";
+
+  private final TransactionTemplate readOnlyTransaction;
+  private final int flushRows;
+
+  public CsvExporter(PlatformTransactionManager transactionManager,
+                     @Value("${app.export.csv.flush-rows:1000}") int flushRows) {
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.flushRows = flushRows;
+  }
+
+  /**
+   * Sets the download headers on {@code response} and streams the rows into its body.
+   * With {@code gzip} the body is a {@code .csv.gz} attachment.
+   *
+   * @return number of data rows written
+   */
+  public <T> long export(HttpServletResponse response,
+                         String filename,
+                         boolean gzip,
+                         List<String> header,
+                         Supplier<Stream<T>> rows,
+                         Function<T, Object[]> columns) throws IOException {
+    response.setContentType(gzip ? "application/gzip" : "text/csv; charset=UTF-8");
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+      ContentDisposition.attachment().filename(gzip ? filename + ".gz" : filename).build().toString());
+    return write(response.getOutputStream(), gzip, header, rows, columns);
+  }
+
+  /**
+   * Streams the rows to {@code output} as CSV and closes it.
+   *
+   * @return number of data rows written
+   */
+  public <T> long write(OutputStream output,
+                        boolean gzip,
+                        List<String> header,
+                        Supplier<Stream<T>> rows,
+                        Function<T, Object[]> columns) throws IOException {
+    try {
+      Long written = readOnlyTransaction.execute(status -> {
+        try (Stream<T> stream = rows.get();
+             CsvStreamWriter csv = new CsvStreamWriter(output, gzip, flushRows)) {
+          csv.header(header);
+          Iterator<T> iterator = stream.iterator();
+          while (iterator.hasNext()) {
+            csv.row(columns.apply(iterator.next()));
+          }
+          return csv.rows();
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      });
+      return written == null ? 0 : written;
+    } catch (UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+}
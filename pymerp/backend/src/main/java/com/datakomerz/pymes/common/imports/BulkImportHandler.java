@@ -0,0 +1,35 @@
+package com.datakomerz.pymes.common.imports;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Entity-specific part of a {@link BulkImporter} run.
+ *
+ * @param <T> entity persisted for each valid row
+ */
+public interface BulkImportHandler<T> {
+
+  /** Field keys by accepted header, headers folded with {@code SearchNormalizer.normalize}. */
+  Map<String, String> columns();
+
+  /** Field keys that must be present in the header. */
+  Set<String> requiredColumns();
+
+  /**
+   * Validates one row and builds the entity to insert. Called concurrently from worker threads,
+   * so it must not touch the database.
+   *
+   * @param fields trimmed cell values by field key; blank cells are absent
+   * @throws IllegalArgumentException with the message reported for the row
+   */
+  T parse(UUID companyId, Map<String, String> fields);
+
+  /** Values that must be unique per tenant, by field key; {@code null} values are skipped. */
+  Map<String, String> uniqueKeys(T entity);
+
+  /** Which of {@code keys} for {@code field} already exist for the tenant. */
+  Set<String> findExisting(UUID companyId, String field, Collection<String> keys);
+}
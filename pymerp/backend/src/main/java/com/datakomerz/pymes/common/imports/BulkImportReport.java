@@ -0,0 +1,23 @@
+package com.datakomerz.pymes.common.imports;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import.
+ *
+ * @param processed data rows read, blank rows excluded
+ * @param imported rows inserted
+ * @param failed rows rejected
+ * @param errors per-row errors, capped at {@code app.import.max-reported-errors}
+ * @param errorsTruncated whether more rows failed than are listed in {@code errors}
+ */
+public record BulkImportReport(int processed,
+                               int imported,
+                               int failed,
+                               List<RowError> errors,
+                               boolean errorsTruncated) {
+
+  /** @param row 1-based row number in the uploaded file, header included */
+  public record RowError(int row, String message) {
+  }
+}
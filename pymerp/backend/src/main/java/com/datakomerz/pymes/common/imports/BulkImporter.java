@@ -0,0 +1,289 @@
+package com.datakomerz.pymes.common.imports;
+
+import com.datakomerz.pymes.common.search.SearchNormalizer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports a CSV or XLSX upload in chunks of {@code app.import.chunk-size} rows.
+ *
+ * <p>Per chunk: rows are validated on {@code app.import.parallelism} worker threads, duplicates
+ * are rejected against the rest of the file and against the database with one {@code IN} query
+ * per unique field, and the remaining entities are persisted in one transaction with JDBC
+ * batching enabled on the session. If the batch fails (e.g. a concurrent insert won a unique
+ * constraint) the chunk is retried row by row so only the offending rows are reported.</p>
+ */
+@Component
+public class BulkImporter {
+
+  private static final Logger log = LoggerFactory.getLogger(BulkImporter.class);
+
+  private final EntityManager entityManager;
+  private final TransactionTemplate transaction;
+  private final ExecutorService executor;
+  private final int chunkSize;
+  private final int parallelism;
+  private final int maxRows;
+  private final int maxReportedErrors;
+
+  public BulkImporter(EntityManager entityManager,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${app.import.chunk-size:1000}") int chunkSize,
+                      @Value("${app.import.parallelism:4}") int parallelism,
+                      @Value("${app.import.max-rows:200000}") int maxRows,
+                      @Value("${app.import.max-reported-errors:1000}") int maxReportedErrors) {
+    this.entityManager = entityManager;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.chunkSize = Math.max(1, chunkSize);
+    this.parallelism = Math.max(1, parallelism);
+    this.maxRows = maxRows;
+    this.maxReportedErrors = maxReportedErrors;
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "bulk-import-" + threadIndex.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  public <T> BulkImportReport run(UUID companyId, ImportRowReader reader, BulkImportHandler<T> handler)
+      throws IOException {
+    long started = System.nanoTime();
+    Outcome outcome = new Outcome();
+    List<String> header = reader.next();
+    if (header == null) {
+      outcome.reject(1, "El archivo está vacío");
+      return outcome.report();
+    }
+    Map<Integer, String> fieldsByColumn = mapHeader(header, handler);
+    Set<String> missing = new TreeSet<>(handler.requiredColumns());
+    missing.removeAll(fieldsByColumn.values());
+    if (!missing.isEmpty()) {
+      outcome.reject(reader.rowNumber(), "Faltan columnas obligatorias: " + String.join(", ", missing));
+      return outcome.report();
+    }
+
+    Map<String, Map<String, Integer>> seen = new HashMap<>();
+    while (true) {
+      List<RawRow> chunk = readChunk(reader, fieldsByColumn);
+      if (chunk.isEmpty()) {
+        break;
+      }
+      if (outcome.processed + chunk.size() > maxRows) {
+        outcome.reject(chunk.get(0).row(), "El archivo supera el máximo de " + maxRows + " filas");
+        break;
+      }
+      outcome.processed += chunk.size();
+      List<Parsed<T>> parsed = validate(companyId, chunk, handler);
+      List<Parsed<T>> accepted = rejectDuplicates(companyId, parsed, handler, seen, outcome);
+      persist(accepted, outcome);
+    }
+    log.info("Bulk import for company {}: {} rows, {} imported, {} failed in {} ms", companyId,
+      outcome.processed, outcome.imported, outcome.failed, (System.nanoTime() - started) / 1_000_000);
+    return outcome.report();
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private Map<Integer, String> mapHeader(List<String> header, BulkImportHandler<?> handler) {
+    Map<Integer, String> fieldsByColumn = new LinkedHashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      String field = handler.columns().get(SearchNormalizer.normalize(header.get(i)));
+      if (field != null && !fieldsByColumn.containsValue(field)) {
+        fieldsByColumn.put(i, field);
+      }
+    }
+    return fieldsByColumn;
+  }
+
+  private List<RawRow> readChunk(ImportRowReader reader, Map<Integer, String> fieldsByColumn) throws IOException {
+    List<RawRow> chunk = new ArrayList<>(chunkSize);
+    List<String> cells;
+    while (chunk.size() < chunkSize && (cells = reader.next()) != null) {
+      Map<String, String> fields = new HashMap<>();
+      for (Map.Entry<Integer, String> column : fieldsByColumn.entrySet()) {
+        if (column.getKey() < cells.size()) {
+          String value = cells.get(column.getKey()).trim();
+          if (!value.isEmpty()) {
+            fields.put(column.getValue(), value);
+          }
+        }
+      }
+      if (!fields.isEmpty()) {
+        chunk.add(new RawRow(reader.rowNumber(), fields));
+      }
+    }
+    return chunk;
+  }
+
+  private <T> List<Parsed<T>> validate(UUID companyId, List<RawRow> chunk, BulkImportHandler<T> handler)
+      throws IOException {
+    int sliceSize = Math.max(1, (chunk.size() + parallelism - 1) / parallelism);
+    List<Future<List<Parsed<T>>>> slices = new ArrayList<>();
+    for (int start = 0; start < chunk.size(); start += sliceSize) {
+      List<RawRow> slice = chunk.subList(start, Math.min(chunk.size(), start + sliceSize));
+      Callable<List<Parsed<T>>> task = () -> slice.stream().map(row -> parse(companyId, row, handler)).toList();
+      slices.add(executor.submit(task));
+    }
+    List<Parsed<T>> parsed = new ArrayList<>(chunk.size());
+    try {
+      for (Future<List<Parsed<T>>> slice : slices) {
+        parsed.addAll(slice.get());
+      }
+    } catch (InterruptedException ex) {
+      slices.forEach(slice -> slice.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IOException("Importación interrumpida", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Row validation failed", ex.getCause());
+    }
+    return parsed;
+  }
+
+  private static <T> Parsed<T> parse(UUID companyId, RawRow row, BulkImportHandler<T> handler) {
+    try {
+      return new Parsed<>(row.row(), handler.parse(companyId, row.fields()), null);
+    } catch (IllegalArgumentException ex) {
+      return new Parsed<>(row.row(), null, ex.getMessage());
+    }
+  }
+
+  private <T> List<Parsed<T>> rejectDuplicates(UUID companyId,
+                                               List<Parsed<T>> parsed,
+                                               BulkImportHandler<T> handler,
+                                               Map<String, Map<String, Integer>> seen,
+                                               Outcome outcome) {
+    List<Parsed<T>> unique = new ArrayList<>(parsed.size());
+    List<Map<String, String>> uniqueKeys = new ArrayList<>(parsed.size());
+    rows:
+    for (Parsed<T> row : parsed) {
+      if (row.error() != null) {
+        outcome.reject(row.row(), row.error());
+        continue;
+      }
+      Map<String, String> keys = handler.uniqueKeys(row.entity());
+      for (Map.Entry<String, String> key : keys.entrySet()) {
+        Integer first = key.getValue() == null ? null : seen.getOrDefault(key.getKey(), Map.of()).get(key.getValue());
+        if (first != null) {
+          outcome.reject(row.row(), key.getKey() + " '" + key.getValue() + "' repetido en la fila " + first);
+          continue rows;
+        }
+      }
+      keys.forEach((field, value) -> {
+        if (value != null) {
+          seen.computeIfAbsent(field, ignored -> new HashMap<>()).put(value, row.row());
+        }
+      });
+      unique.add(row);
+      uniqueKeys.add(keys);
+    }
+
+    Map<String, Set<String>> keysByField = new LinkedHashMap<>();
+    for (Map<String, String> keys : uniqueKeys) {
+      keys.forEach((field, value) -> {
+        if (value != null) {
+          keysByField.computeIfAbsent(field, ignored -> new LinkedHashSet<>()).add(value);
+        }
+      });
+    }
+    Map<String, Set<String>> existing = new HashMap<>();
+    keysByField.forEach((field, values) -> existing.put(field, handler.findExisting(companyId, field, values)));
+
+    List<Parsed<T>> accepted = new ArrayList<>(unique.size());
+    rows:
+    for (int i = 0; i < unique.size(); i++) {
+      for (Map.Entry<String, String> key : uniqueKeys.get(i).entrySet()) {
+        if (key.getValue() != null && existing.getOrDefault(key.getKey(), Set.of()).contains(key.getValue())) {
+          outcome.reject(unique.get(i).row(), key.getKey() + " '" + key.getValue() + "' ya existe");
+          continue rows;
+        }
+      }
+      accepted.add(unique.get(i));
+    }
+    return accepted;
+  }
+
+  private <T> void persist(List<Parsed<T>> rows, Outcome outcome) {
+    if (rows.isEmpty()) {
+      return;
+    }
+    try {
+      transaction.executeWithoutResult(status -> {
+        Session session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(chunkSize);
+        rows.forEach(row -> entityManager.persist(row.entity()));
+        entityManager.flush();
+        entityManager.clear();
+      });
+      outcome.imported += rows.size();
+    } catch (RuntimeException batchFailure) {
+      log.debug("Batch insert failed, retrying {} rows one by one: {}", rows.size(), batchFailure.getMessage());
+      for (Parsed<T> row : rows) {
+        try {
+          transaction.executeWithoutResult(status -> entityManager.persist(row.entity()));
+          outcome.imported++;
+        } catch (RuntimeException ex) {
+          outcome.reject(row.row(), "No se pudo guardar: " + rootMessage(ex));
+        }
+      }
+    }
+  }
+
+  private static String rootMessage(Throwable error) {
+    Throwable root = error;
+    while (root.getCause() != null && root.getCause() != root) {
+      root = root.getCause();
+    }
+    return root.getMessage();
+  }
+
+  private record RawRow(int row, Map<String, String> fields) {
+  }
+
+  private record Parsed<T>(int row, T entity, String error) {
+  }
+
+  private final class Outcome {
+    private final List<BulkImportReport.RowError> errors = new ArrayList<>();
+    private int processed;
+    private int imported;
+    private int failed;
+
+    void reject(int row, String message) {
+      failed++;
+      if (errors.size() < maxReportedErrors) {
+        errors.add(new BulkImportReport.RowError(row, message));
+      }
+    }
+
+    BulkImportReport report() {
+      return new BulkImportReport(processed, imported, failed, List.copyOf(errors), failed > errors.size());
+    }
+  }
+}
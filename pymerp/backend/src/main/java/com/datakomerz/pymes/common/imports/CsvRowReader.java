@@ -0,0 +1,122 @@
+package com.datakomerz.pymes.common.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 reader: quoted fields may contain separators, doubled quotes and line
+ * breaks. The separator is {@code ','} unless the header line has more {@code ';'} (Excel with a
+ * Spanish locale). A leading UTF-8 BOM is skipped.
+ */
+class CsvRowReader implements ImportRowReader {
+
+  private static final int SNIFF_LIMIT = 64 * 1024;
+
+  private final Reader reader;
+  private final char separator;
+  private int rowNumber;
+  private int physicalLine = 1;
+  private boolean eof;
+
+  CsvRowReader(InputStream input) throws IOException {
+    BufferedReader buffered = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+    buffered.mark(SNIFF_LIMIT);
+    int first = buffered.read();
+    if (first != '\uFEFF') {
+      buffered.reset();
+    }
+    buffered.mark(SNIFF_LIMIT);
+    String header = buffered.readLine();
+    buffered.reset();
+    this.separator = header != null && count(header, ';') > count(header, ',') ? ';' : ',';
+    this.reader = buffered;
+  }
+
+  @Override
+  public List<String> next() throws IOException {
+    if (eof) {
+      return null;
+    }
+    List<String> cells = new ArrayList<>();
+    StringBuilder cell = new StringBuilder();
+    boolean quoted = false;
+    boolean any = false;
+    int startLine = physicalLine;
+    while (true) {
+      int c = reader.read();
+      if (c < 0) {
+        eof = true;
+        if (!any) {
+          return null;
+        }
+        cells.add(cell.toString());
+        rowNumber = startLine;
+        return cells;
+      }
+      any = true;
+      if (quoted) {
+        if (c == '"') {
+          reader.mark(1);
+          int following = reader.read();
+          if (following == '"') {
+            cell.append('"');
+          } else {
+            quoted = false;
+            if (following >= 0) {
+              reader.reset();
+            }
+          }
+        } else {
+          if (c == '\n') {
+            physicalLine++;
+          }
+          cell.append((char) c);
+        }
+      } else if (c == '"' && cell.length() == 0) {
+        quoted = true;
+      } else if (c == separator) {
+        cells.add(cell.toString());
+        cell.setLength(0);
+      } else if (c == '\n' || c == '\r') {
+        if (c == '\r') {
+          reader.mark(1);
+          if (reader.read() != '\n') {
+            reader.reset();
+          }
+        }
+        physicalLine++;
+        cells.add(cell.toString());
+        rowNumber = startLine;
+        return cells;
+      } else {
+        cell.append((char) c);
+      }
+    }
+  }
+
+  @Override
+  public int rowNumber() {
+    return rowNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private static int count(String value, char target) {
+    int count = 0;
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) == target) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,29 @@
+package com.datakomerz.pymes.common.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Reads a spreadsheet upload one row at a time. The first row returned is the header.
+ */
+public interface ImportRowReader extends Closeable {
+
+  /** Cells of the next row, or {@code null} at the end of the file. */
+  List<String> next() throws IOException;
+
+  /** 1-based row number of the row last returned by {@link #next()}. */
+  int rowNumber();
+
+  /** Picks the CSV or XLSX reader from the file name or content type. */
+  static ImportRowReader open(MultipartFile file) throws IOException {
+    String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase(Locale.ROOT);
+    String contentType = file.getContentType() == null ? "" : file.getContentType();
+    if (name.endsWith(".xlsx") || contentType.contains("spreadsheetml")) {
+      return XlsxRowReader.open(file);
+    }
+    return new CsvRowReader(file.getInputStream());
+  }
+}
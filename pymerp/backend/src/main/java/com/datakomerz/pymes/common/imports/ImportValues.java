@@ -0,0 +1,57 @@
+package com.datakomerz.pymes.common.imports;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cell conversions shared by {@link BulkImportHandler} implementations. Failures are reported as
+ * {@link IllegalArgumentException} so they end up in the row's error message.
+ */
+public final class ImportValues {
+
+  private ImportValues() {
+  }
+
+  /** "Sí"/"si"/"true"/"1"/"activo" and their negatives; blank yields {@code defaultValue}. */
+  public static boolean bool(String label, String value, boolean defaultValue) {
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    return switch (value.trim().toLowerCase(Locale.ROOT)) {
+      case "sí", "si", "s", "true", "1", "activo", "yes" -> true;
+      case "no", "n", "false", "0", "inactivo" -> false;
+      default -> throw new IllegalArgumentException(label + ": valor no reconocido '" + value + "'");
+    };
+  }
+
+  /** Accepts both "1234.5" and "1234,5"; blank yields {@code null}. */
+  public static BigDecimal decimal(String label, String value) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    String trimmed = value.trim();
+    String normalized = trimmed.indexOf('.') < 0 ? trimmed.replace(',', '.') : trimmed.replace(",", "");
+    try {
+      return new BigDecimal(normalized);
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException(label + ": número inválido '" + value + "'");
+    }
+  }
+
+  /** Runs bean validation and joins the violations as "campo: mensaje; ...". */
+  public static <T> T validate(Validator validator, T request) {
+    Set<ConstraintViolation<T>> violations = validator.validate(request);
+    if (!violations.isEmpty()) {
+      throw new IllegalArgumentException(violations.stream()
+        .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+        .collect(Collectors.joining("; ")));
+    }
+    return request;
+  }
+}
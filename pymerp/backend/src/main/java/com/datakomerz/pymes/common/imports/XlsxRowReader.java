@@ -0,0 +1,261 @@
+package com.datakomerz.pymes.common.imports;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Reads the first worksheet of an XLSX workbook with StAX, one {@code <row>} at a time.
+ *
+ * <p>The upload is spooled to a temporary file so the shared-strings table can be loaded before
+ * the sheet is streamed, whatever the entry order in the archive. Only the string table is kept
+ * in memory. Numeric cells are returned in plain notation ({@code 7801610001196}, not
+ * {@code 7.801610001196E12}).</p>
+ */
+class XlsxRowReader implements ImportRowReader {
+
+  private static final String DEFAULT_SHEET = "xl/worksheets/sheet1.xml";
+  private static final XMLInputFactory XML = createFactory();
+
+  private final Path spool;
+  private final ZipFile zip;
+  private final InputStream sheetStream;
+  private final XMLStreamReader sheet;
+  private final List<String> sharedStrings;
+  private int rowNumber;
+
+  private XlsxRowReader(Path spool) throws IOException {
+    this.spool = spool;
+    this.zip = new ZipFile(spool.toFile());
+    try {
+      this.sharedStrings = readSharedStrings(zip);
+      ZipEntry entry = zip.getEntry(firstSheetPath(zip));
+      if (entry == null) {
+        throw new IOException("El archivo XLSX no contiene hojas");
+      }
+      this.sheetStream = zip.getInputStream(entry);
+      this.sheet = XML.createXMLStreamReader(sheetStream);
+    } catch (XMLStreamException ex) {
+      zip.close();
+      throw new IOException("XLSX inválido: " + ex.getMessage(), ex);
+    } catch (IOException | RuntimeException ex) {
+      zip.close();
+      throw ex;
+    }
+  }
+
+  static XlsxRowReader open(MultipartFile file) throws IOException {
+    Path spool = Files.createTempFile("import-", ".xlsx");
+    try {
+      file.transferTo(spool);
+      return new XlsxRowReader(spool);
+    } catch (IOException | RuntimeException ex) {
+      Files.deleteIfExists(spool);
+      throw ex;
+    }
+  }
+
+  @Override
+  public List<String> next() throws IOException {
+    try {
+      while (sheet.hasNext()) {
+        if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+          String number = sheet.getAttributeValue(null, "r");
+          rowNumber = number != null ? Integer.parseInt(number) : rowNumber + 1;
+          return readRow();
+        }
+      }
+      return null;
+    } catch (XMLStreamException | NumberFormatException ex) {
+      throw new IOException("XLSX inválido: " + ex.getMessage(), ex);
+    }
+  }
+
+  @Override
+  public int rowNumber() {
+    return rowNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      sheet.close();
+    } catch (XMLStreamException ignored) {
+      // The underlying stream is closed below.
+    } finally {
+      sheetStream.close();
+      zip.close();
+      Files.deleteIfExists(spool);
+    }
+  }
+
+  private List<String> readRow() throws XMLStreamException {
+    List<String> cells = new ArrayList<>();
+    String type = null;
+    int column = -1;
+    StringBuilder value = null;
+    while (sheet.hasNext()) {
+      int event = sheet.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        switch (sheet.getLocalName()) {
+          case "c" -> {
+            type = sheet.getAttributeValue(null, "t");
+            String reference = sheet.getAttributeValue(null, "r");
+            column = reference != null ? columnIndex(reference) : cells.size();
+            value = new StringBuilder();
+          }
+          case "v", "t" -> {
+            if (value != null) {
+              value.append(sheet.getElementText());
+            }
+          }
+          default -> {
+          }
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if ("c".equals(sheet.getLocalName()) && value != null) {
+          while (cells.size() < column) {
+            cells.add("");
+          }
+          cells.add(cellValue(type, value.toString()));
+          value = null;
+        } else if ("row".equals(sheet.getLocalName())) {
+          return cells;
+        }
+      }
+    }
+    return cells;
+  }
+
+  private String cellValue(String type, String raw) {
+    if (raw.isEmpty()) {
+      return raw;
+    }
+    if ("s".equals(type)) {
+      int index = Integer.parseInt(raw.trim());
+      return index < sharedStrings.size() ? sharedStrings.get(index) : "";
+    }
+    if ("b".equals(type)) {
+      return "1".equals(raw) ? "true" : "false";
+    }
+    if (type == null || "n".equals(type)) {
+      try {
+        return new BigDecimal(raw.trim()).stripTrailingZeros().toPlainString();
+      } catch (NumberFormatException ex) {
+        return raw;
+      }
+    }
+    return raw;
+  }
+
+  static int columnIndex(String reference) {
+    int index = 0;
+    for (int i = 0; i < reference.length(); i++) {
+      char c = reference.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        break;
+      }
+      index = index * 26 + (c - 'A' + 1);
+    }
+    return index - 1;
+  }
+
+  private static List<String> readSharedStrings(ZipFile zip) throws IOException, XMLStreamException {
+    List<String> strings = new ArrayList<>();
+    ZipEntry entry = zip.getEntry("xl/sharedStrings.xml");
+    if (entry == null) {
+      return strings;
+    }
+    try (InputStream input = zip.getInputStream(entry)) {
+      XMLStreamReader reader = XML.createXMLStreamReader(input);
+      StringBuilder current = null;
+      int phonetic = 0;
+      while (reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          switch (reader.getLocalName()) {
+            case "si" -> current = new StringBuilder();
+            case "rPh" -> phonetic++;
+            case "t" -> {
+              String text = reader.getElementText();
+              if (current != null && phonetic == 0) {
+                current.append(text);
+              }
+            }
+            default -> {
+            }
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if ("si".equals(reader.getLocalName()) && current != null) {
+            strings.add(current.toString());
+            current = null;
+          } else if ("rPh".equals(reader.getLocalName())) {
+            phonetic--;
+          }
+        }
+      }
+      reader.close();
+    }
+    return strings;
+  }
+
+  /** Resolves the first {@code <sheet>} of workbook.xml through its relationship id. */
+  private static String firstSheetPath(ZipFile zip) throws IOException, XMLStreamException {
+    ZipEntry workbook = zip.getEntry("xl/workbook.xml");
+    ZipEntry rels = zip.getEntry("xl/_rels/workbook.xml.rels");
+    if (workbook == null || rels == null) {
+      return DEFAULT_SHEET;
+    }
+    String relationId = null;
+    try (InputStream input = zip.getInputStream(workbook)) {
+      XMLStreamReader reader = XML.createXMLStreamReader(input);
+      while (reader.hasNext() && relationId == null) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if ("id".equals(reader.getAttributeLocalName(i))) {
+              relationId = reader.getAttributeValue(i);
+            }
+          }
+        }
+      }
+      reader.close();
+    }
+    if (relationId == null) {
+      return DEFAULT_SHEET;
+    }
+    try (InputStream input = zip.getInputStream(rels)) {
+      XMLStreamReader reader = XML.createXMLStreamReader(input);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+            && relationId.equals(reader.getAttributeValue(null, "Id"))) {
+          String target = reader.getAttributeValue(null, "Target");
+          reader.close();
+          if (target == null) {
+            return DEFAULT_SHEET;
+          }
+          return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+        }
+      }
+      reader.close();
+    }
+    return DEFAULT_SHEET;
+  }
+
+  private static XMLInputFactory createFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
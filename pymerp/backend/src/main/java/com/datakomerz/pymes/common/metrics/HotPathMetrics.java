@@ -0,0 +1,53 @@
+package com.datakomerz.pymes.common.metrics;
+
+import com.datakomerz.pymes.multitenancy.TenantContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.UUID;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hot-path instrumentation: write paths, PDF rendering and the analytics queries.
+ *
+ * <p>Latency comes from {@code @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", ...})}
+ * on the service methods, recorded by {@link HotPathTimingAspect}.
+ * Row volumes (items written, lots touched, rows returned) go through {@link #recordRows}. Both
+ * carry a {@value #TENANT_TAG} tag whose distinct values are capped by {@link TenantTagLimiter};
+ * histogram and percentile settings live under {@code management.metrics.distribution}.</p>
+ */
+@Component
+public class HotPathMetrics {
+
+  public static final String TIMER = "pymes.hotpath";
+  public static final String ROWS = "pymes.hotpath.rows";
+  public static final String TENANT_TAG = "tenant";
+
+  static final String NO_TENANT = "none";
+
+  private final MeterRegistry meterRegistry;
+
+  public HotPathMetrics(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Records how many rows of {@code kind} one call of {@code operation} read or wrote.
+   */
+  public void recordRows(String operation, String kind, long rows) {
+    DistributionSummary.builder(ROWS)
+        .description("Rows read or written by one hot-path call")
+        .baseUnit("rows")
+        .tags(tenantTags().and("operation", operation, "kind", kind))
+        .register(meterRegistry)
+        .record(rows);
+  }
+
+  /**
+   * Tenant tag for the current request, {@value #NO_TENANT} outside a tenant context.
+   */
+  public static Tags tenantTags() {
+    UUID tenantId = TenantContext.getTenantId();
+    return Tags.of(TENANT_TAG, tenantId != null ? tenantId.toString() : NO_TENANT);
+  }
+}
@@ -0,0 +1,15 @@
+package com.datakomerz.pymes.common.metrics;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HotPathMetricsConfig {
+
+  @Bean
+  public MeterFilter tenantTagLimiter(@Value("${app.metrics.tenant-tag.max-values:50}") int maxValues) {
+    return new TenantTagLimiter(maxValues);
+  }
+}
@@ -0,0 +1,46 @@
+package com.datakomerz.pymes.common.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.config.MeterFilter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caps the distinct values of the {@value HotPathMetrics#TENANT_TAG} tag: the first
+ * {@code maxValues} tenants seen keep their own series, later ones are folded into
+ * {@value #OTHER} so a large tenant base cannot blow up the number of Prometheus series.
+ */
+public class TenantTagLimiter implements MeterFilter {
+
+  static final String OTHER = "other";
+
+  private final int maxValues;
+  private final Set<String> admitted = ConcurrentHashMap.newKeySet();
+
+  public TenantTagLimiter(int maxValues) {
+    this.maxValues = Math.max(0, maxValues);
+  }
+
+  @Override
+  public Meter.Id map(Meter.Id id) {
+    String tenant = id.getTag(HotPathMetrics.TENANT_TAG);
+    if (tenant == null || HotPathMetrics.NO_TENANT.equals(tenant) || admit(tenant)) {
+      return id;
+    }
+    return id.replaceTags(Tags.of(id.getTagsAsIterable()).and(HotPathMetrics.TENANT_TAG, OTHER));
+  }
+
+  private boolean admit(String tenant) {
+    if (admitted.contains(tenant)) {
+      return true;
+    }
+    synchronized (admitted) {
+      if (admitted.size() >= maxValues) {
+        return admitted.contains(tenant);
+      }
+      admitted.add(tenant);
+      return true;
+    }
+  }
+}
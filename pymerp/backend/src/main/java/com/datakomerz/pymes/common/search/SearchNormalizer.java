@@ -0,0 +1,61 @@
+package com.datakomerz.pymes.common.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds the values stored in the {@code search_*} columns and the terms matched against them.
+ *
+ * <p>Both sides go through the same folding (no accents, lower case, punctuation collapsed to
+ * single spaces) so plain {@code LIKE} works on any database; on PostgreSQL the columns carry
+ * trigram indexes (V51). Keep {@link #normalize(String)} in sync with the SQL backfill there.</p>
+ */
+public final class SearchNormalizer {
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+  private SearchNormalizer() {
+  }
+
+  /** "José Pérez-Ñuñez" → "jose perez nunez"; {@code null} when nothing searchable remains. */
+  public static String normalize(String value) {
+    if (value == null) {
+      return null;
+    }
+    String stripped = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+    String folded = NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    return folded.isEmpty() ? null : folded;
+  }
+
+  /** RUT without dots, dash or spaces: "12.345.678-k" → "12345678k". */
+  public static String compactRut(String rut) {
+    if (rut == null) {
+      return null;
+    }
+    String compact = rut.replaceAll("[^0-9kK]", "").toLowerCase(Locale.ROOT);
+    return compact.isEmpty() ? null : compact;
+  }
+
+  /** Digits only, so phones match regardless of spacing or country prefix formatting. */
+  public static String digits(String value) {
+    if (value == null) {
+      return null;
+    }
+    String digits = value.replaceAll("\\D", "");
+    return digits.isEmpty() ? null : digits;
+  }
+
+  /** Space-separated concatenation of the non-empty parts. */
+  public static String join(String... parts) {
+    String joined = Stream.of(parts)
+      .filter(Objects::nonNull)
+      .filter(part -> !part.isEmpty())
+      .collect(Collectors.joining(" "));
+    return joined.isEmpty() ? null : joined;
+  }
+}
@@ -0,0 +1,47 @@
+package com.datakomerz.pymes.common.search;
+
+/**
+ * A user query folded with {@link SearchNormalizer} and expanded into the {@code LIKE} patterns
+ * used for matching and ranking. Folded text only contains {@code [a-z0-9 ]}, so the patterns
+ * need no escaping.
+ *
+ * @param text folded query, e.g. "jose pe"
+ * @param compact folded query without spaces, e.g. "123456785" for "12.345.678-5"
+ */
+public record SearchTerms(String text, String compact) {
+
+  /** {@code null} when the query has nothing searchable. */
+  public static SearchTerms of(String query) {
+    String text = SearchNormalizer.normalize(query);
+    if (text == null) {
+      return null;
+    }
+    return new SearchTerms(text, text.replace(" ", ""));
+  }
+
+  public String contains() {
+    return "%" + text + "%";
+  }
+
+  public String compactContains() {
+    return "%" + compact + "%";
+  }
+
+  public String prefix() {
+    return text + "%";
+  }
+
+  /** Matches the query at the start of any word after the first. */
+  public String wordPrefix() {
+    return "% " + text + "%";
+  }
+
+  /** Case-insensitive {@code LIKE} pattern for columns that are only lower-cased, not folded. */
+  public static String containsIgnoreCase(String query) {
+    String escaped = query.trim().toLowerCase()
+      .replace("\\", "\\\\")
+      .replace("%", "\\%")
+      .replace("_", "\\_");
+    return "%" + escaped + "%";
+  }
+}
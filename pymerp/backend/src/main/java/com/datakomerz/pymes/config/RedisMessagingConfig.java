@@ -0,0 +1,46 @@
+package com.datakomerz.pymes.config;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Shared Redis pub/sub listener container. Components register their channels on this bean
+ * instead of starting containers of their own, so every subscription shares one connection
+ * and one bounded dispatch pool.
+ *
+ * <p>The pool is not exposed as a bean: a second {@code TaskExecutor} in the context would
+ * change which executor {@code @Async} methods run on.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.cache.redis.enabled", havingValue = "true", matchIfMissing = true)
+public class RedisMessagingConfig {
+
+  private final ThreadPoolTaskExecutor listenerExecutor = new ThreadPoolTaskExecutor();
+
+  @Bean
+  public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+    listenerExecutor.setThreadNamePrefix("redis-listener-");
+    listenerExecutor.setCorePoolSize(2);
+    listenerExecutor.setMaxPoolSize(4);
+    // Messages are small signals; past this backlog the subscriber thread dispatches itself.
+    listenerExecutor.setQueueCapacity(500);
+    listenerExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    listenerExecutor.initialize();
+
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.setTaskExecutor(listenerExecutor);
+    return container;
+  }
+
+  @PreDestroy
+  void shutdownListenerExecutor() {
+    listenerExecutor.shutdown();
+  }
+}
@@ -62,6 +62,11 @@ public class SecretsValidator implements ApplicationRunner {
   private void validateJwt(List<String> errors) {
     String secret = securityProperties.getJwt().getSecret();
     checkSecret("JWT_SECRET", secret, 32, errors);
+    String refreshSecret = securityProperties.getJwt().getRefreshTokenSecret();
+    checkSecret("JWT_REFRESH_TOKEN_SECRET", refreshSecret, 32, errors);
+    if (refreshSecret != null && refreshSecret.equals(secret)) {
+      errors.add("Secret JWT_REFRESH_TOKEN_SECRET must differ from JWT_SECRET");
+    }
   }
 
   private void validateBillingWebhook(List<String> errors) {
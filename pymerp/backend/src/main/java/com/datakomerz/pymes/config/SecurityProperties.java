@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.config;
 
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -9,6 +10,7 @@ public class SecurityProperties {
 
   private final Jwt jwt = new Jwt();
   private final Captcha captcha = new Captcha();
+  private final Lockout lockout = new Lockout();
 
   public Jwt getJwt() {
     return jwt;
@@ -18,10 +20,19 @@ public class SecurityProperties {
     return captcha;
   }
 
+  public Lockout getLockout() {
+    return lockout;
+  }
+
   public static class Jwt {
     private String secret;
     private long expirationSeconds = 3600;
     private long refreshExpirationSeconds = 2592000;
+    /**
+     * Key for refresh token HMACs; falls back to {@link #secret} when unset, which ties refresh
+     * tokens to the JWT secret. Required in production.
+     */
+    private String refreshTokenSecret;
     private boolean oidcEnabled = false;
 
     public String getSecret() {
@@ -48,6 +59,14 @@ public class SecurityProperties {
       this.refreshExpirationSeconds = refreshExpirationSeconds;
     }
 
+    public String getRefreshTokenSecret() {
+      return refreshTokenSecret;
+    }
+
+    public void setRefreshTokenSecret(String refreshTokenSecret) {
+      this.refreshTokenSecret = refreshTokenSecret;
+    }
+
     public boolean isOidcEnabled() {
       return oidcEnabled;
     }
@@ -86,4 +105,47 @@ public class SecurityProperties {
       this.maxOperand = maxOperand;
     }
   }
+
+  /**
+   * Brute-force protection for the login endpoint. Failed logins are counted per username and per
+   * client IP over a sliding window; reaching either limit rejects further attempts.
+   */
+  public static class Lockout {
+    private boolean enabled = true;
+    private Duration window = Duration.ofMinutes(15);
+    private int maxFailuresPerUser = 5;
+    private int maxFailuresPerIp = 50;
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+      return window;
+    }
+
+    public void setWindow(Duration window) {
+      this.window = window;
+    }
+
+    public int getMaxFailuresPerUser() {
+      return maxFailuresPerUser;
+    }
+
+    public void setMaxFailuresPerUser(int maxFailuresPerUser) {
+      this.maxFailuresPerUser = maxFailuresPerUser;
+    }
+
+    public int getMaxFailuresPerIp() {
+      return maxFailuresPerIp;
+    }
+
+    public void setMaxFailuresPerIp(int maxFailuresPerIp) {
+      this.maxFailuresPerIp = maxFailuresPerIp;
+    }
+  }
 }
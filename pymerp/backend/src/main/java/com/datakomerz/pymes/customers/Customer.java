@@ -1,11 +1,13 @@
 package com.datakomerz.pymes.customers;
 
 import com.datakomerz.pymes.audit.AuditableEntity;
+import com.datakomerz.pymes.common.search.SearchNormalizer;
 import com.datakomerz.pymes.multitenancy.TenantFiltered;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import java.util.UUID;
@@ -56,6 +58,15 @@ public class Customer extends AuditableEntity {
   @Column(nullable = false)
   private Boolean active = true;
 
+  @Column(name = "search_name", length = 120)
+  private String searchName;
+
+  @Column(name = "rut_normalized", length = 20)
+  private String rutNormalized;
+
+  @Column(name = "search_text", length = 400)
+  private String searchText;
+
   @PrePersist
   public void prePersist() {
     if (id == null) {
@@ -64,6 +75,19 @@ public class Customer extends AuditableEntity {
     if (active == null) {
       active = true;
     }
+    refreshSearchColumns();
+  }
+
+  @PreUpdate
+  public void preUpdate() {
+    refreshSearchColumns();
+  }
+
+  private void refreshSearchColumns() {
+    searchName = SearchNormalizer.normalize(name);
+    rutNormalized = SearchNormalizer.compactRut(rut);
+    searchText = SearchNormalizer.join(searchName, SearchNormalizer.normalize(email),
+      SearchNormalizer.digits(phone), rutNormalized);
   }
 
   public UUID getId() {
@@ -162,4 +186,16 @@ public class Customer extends AuditableEntity {
     this.active = active;
   }
 
+
+  public String getSearchName() {
+    return searchName;
+  }
+
+  public String getRutNormalized() {
+    return rutNormalized;
+  }
+
+  public String getSearchText() {
+    return searchText;
+  }
 }
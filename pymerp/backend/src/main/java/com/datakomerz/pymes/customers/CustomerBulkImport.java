@@ -0,0 +1,131 @@
+package com.datakomerz.pymes.customers;
+
+import com.datakomerz.pymes.common.ValueNormalizer;
+import com.datakomerz.pymes.common.imports.BulkImportHandler;
+import com.datakomerz.pymes.common.imports.BulkImportReport;
+import com.datakomerz.pymes.common.imports.BulkImporter;
+import com.datakomerz.pymes.common.imports.ImportRowReader;
+import com.datakomerz.pymes.common.imports.ImportValues;
+import com.datakomerz.pymes.common.search.SearchNormalizer;
+import com.datakomerz.pymes.customers.dto.CustomerRequest;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Bulk customer import. Accepts the header of the customer CSV export, so an exported file can
+ * be edited and uploaded again; email and RUT must be unique per company.
+ */
+@Component
+public class CustomerBulkImport implements BulkImportHandler<Customer> {
+
+  private static final Map<String, String> COLUMNS = Map.ofEntries(
+    Map.entry("nombre", "name"),
+    Map.entry("name", "name"),
+    Map.entry("razon social", "name"),
+    Map.entry("rut", "rut"),
+    Map.entry("email", "email"),
+    Map.entry("correo", "email"),
+    Map.entry("telefono", "phone"),
+    Map.entry("phone", "phone"),
+    Map.entry("direccion", "address"),
+    Map.entry("address", "address"),
+    Map.entry("segmento", "segment"),
+    Map.entry("segment", "segment"),
+    Map.entry("persona de contacto", "contactPerson"),
+    Map.entry("contacto", "contactPerson"),
+    Map.entry("notas", "notes"),
+    Map.entry("notes", "notes"),
+    Map.entry("activo", "active"),
+    Map.entry("active", "active"),
+    Map.entry("latitud", "lat"),
+    Map.entry("lat", "lat"),
+    Map.entry("longitud", "lng"),
+    Map.entry("lng", "lng"));
+
+  private final BulkImporter importer;
+  private final CustomerRepository repository;
+  private final ValueNormalizer valueNormalizer;
+  private final Validator validator;
+
+  public CustomerBulkImport(BulkImporter importer,
+                            CustomerRepository repository,
+                            ValueNormalizer valueNormalizer,
+                            Validator validator) {
+    this.importer = importer;
+    this.repository = repository;
+    this.valueNormalizer = valueNormalizer;
+    this.validator = validator;
+  }
+
+  @CacheEvict(value = "customers", allEntries = true)
+  public BulkImportReport importFile(UUID companyId, MultipartFile file) throws IOException {
+    try (ImportRowReader reader = ImportRowReader.open(file)) {
+      return importer.run(companyId, reader, this);
+    }
+  }
+
+  @Override
+  public Map<String, String> columns() {
+    return COLUMNS;
+  }
+
+  @Override
+  public Set<String> requiredColumns() {
+    return Set.of("name");
+  }
+
+  @Override
+  public Customer parse(UUID companyId, Map<String, String> fields) {
+    CustomerRequest request = ImportValues.validate(validator, new CustomerRequest(
+      fields.get("name"),
+      fields.get("rut"),
+      fields.get("address"),
+      ImportValues.decimal("lat", fields.get("lat")),
+      ImportValues.decimal("lng", fields.get("lng")),
+      fields.get("phone"),
+      fields.get("email"),
+      fields.get("segment"),
+      fields.get("contactPerson"),
+      fields.get("notes"),
+      ImportValues.bool("active", fields.get("active"), true)));
+    Customer customer = new Customer();
+    customer.setCompanyId(companyId);
+    customer.setName(valueNormalizer.normalize(request.name()));
+    customer.setRut(CustomerService.normalizeRut(request.rut()));
+    customer.setAddress(valueNormalizer.normalize(request.address()));
+    customer.setLat(request.lat());
+    customer.setLng(request.lng());
+    customer.setPhone(valueNormalizer.normalize(request.phone()));
+    customer.setEmail(valueNormalizer.normalizeEmail(request.email()));
+    customer.setSegment(valueNormalizer.normalize(request.segment()));
+    customer.setContactPerson(valueNormalizer.normalize(request.contactPerson()));
+    customer.setNotes(valueNormalizer.normalize(request.notes()));
+    customer.setActive(request.active());
+    return customer;
+  }
+
+  @Override
+  public Map<String, String> uniqueKeys(Customer customer) {
+    Map<String, String> keys = new HashMap<>();
+    keys.put("email", customer.getEmail());
+    keys.put("rut", SearchNormalizer.compactRut(customer.getRut()));
+    return keys;
+  }
+
+  @Override
+  public Set<String> findExisting(UUID companyId, String field, Collection<String> keys) {
+    return switch (field) {
+      case "email" -> repository.findExistingEmails(companyId, keys);
+      case "rut" -> repository.findExistingRuts(companyId, keys);
+      default -> throw new IllegalArgumentException("Unknown unique field: " + field);
+    };
+  }
+}
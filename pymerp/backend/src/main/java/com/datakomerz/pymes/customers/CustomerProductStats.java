@@ -0,0 +1,99 @@
+package com.datakomerz.pymes.customers;
+
+import com.datakomerz.pymes.multitenancy.TenantAwareEntity;
+import com.datakomerz.pymes.multitenancy.TenantFiltered;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Quantity and net revenue of one product bought by one customer, excluding cancelled sales.
+ */
+@Entity
+@Table(name = "customer_product_stats")
+@IdClass(CustomerProductStats.Key.class)
+@TenantFiltered
+public class CustomerProductStats extends TenantAwareEntity {
+
+  @Id
+  @Column(name = "customer_id", columnDefinition = "uuid")
+  private UUID customerId;
+
+  @Id
+  @Column(name = "product_id", columnDefinition = "uuid")
+  private UUID productId;
+
+  @Column(nullable = false, precision = 16, scale = 3)
+  private BigDecimal quantity = BigDecimal.ZERO;
+
+  @Column(nullable = false, precision = 16, scale = 2)
+  private BigDecimal revenue = BigDecimal.ZERO;
+
+  public UUID getCustomerId() {
+    return customerId;
+  }
+
+  public void setCustomerId(UUID customerId) {
+    this.customerId = customerId;
+  }
+
+  public UUID getProductId() {
+    return productId;
+  }
+
+  public void setProductId(UUID productId) {
+    this.productId = productId;
+  }
+
+  public BigDecimal getQuantity() {
+    return quantity;
+  }
+
+  public void setQuantity(BigDecimal quantity) {
+    this.quantity = quantity;
+  }
+
+  public BigDecimal getRevenue() {
+    return revenue;
+  }
+
+  public void setRevenue(BigDecimal revenue) {
+    this.revenue = revenue;
+  }
+
+  public static class Key implements Serializable {
+
+    private UUID customerId;
+    private UUID productId;
+
+    public Key() {
+    }
+
+    public Key(UUID customerId, UUID productId) {
+      this.customerId = customerId;
+      this.productId = productId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key key)) {
+        return false;
+      }
+      return Objects.equals(customerId, key.customerId) && Objects.equals(productId, key.productId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(customerId, productId);
+    }
+  }
+}
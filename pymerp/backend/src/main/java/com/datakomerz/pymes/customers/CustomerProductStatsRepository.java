@@ -0,0 +1,55 @@
+package com.datakomerz.pymes.customers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CustomerProductStatsRepository
+    extends JpaRepository<CustomerProductStats, CustomerProductStats.Key> {
+
+  /** Adds (or, with negative values, removes) quantity and revenue; returns 0 when the row is missing. */
+  @Modifying
+  @Query("""
+      update CustomerProductStats s
+      set s.quantity = s.quantity + :quantity,
+          s.revenue = s.revenue + :revenue
+      where s.customerId = :customerId and s.productId = :productId
+      """)
+  int add(@Param("customerId") UUID customerId,
+          @Param("productId") UUID productId,
+          @Param("quantity") BigDecimal quantity,
+          @Param("revenue") BigDecimal revenue);
+
+  /** No-op when the row exists, including one created by a concurrent transaction. */
+  @Modifying
+  @Query(value = """
+      insert into customer_product_stats (customer_id, product_id, company_id, quantity, revenue)
+      values (:customerId, :productId, :companyId, 0, 0)
+      on conflict do nothing
+      """, nativeQuery = true)
+  int insertEmpty(@Param("customerId") UUID customerId,
+                  @Param("productId") UUID productId,
+                  @Param("companyId") UUID companyId);
+
+  /** Products bought by the customer, by revenue; page size is the N of the top N. */
+  @Query("""
+      select s.productId as productId, p.name as productName, s.quantity as quantity, s.revenue as revenue
+      from CustomerProductStats s
+      left join Product p on p.id = s.productId
+      where s.customerId = :customerId and s.quantity > 0
+      order by s.revenue desc, s.quantity desc
+      """)
+  List<TopProductView> findTopProducts(@Param("customerId") UUID customerId, Pageable pageable);
+
+  interface TopProductView {
+    UUID getProductId();
+    String getProductName();
+    BigDecimal getQuantity();
+    BigDecimal getRevenue();
+  }
+}
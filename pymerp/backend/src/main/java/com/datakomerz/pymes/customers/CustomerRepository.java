@@ -1,69 +1,154 @@
 package com.datakomerz.pymes.customers;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.search.SearchTerms;
+import com.datakomerz.pymes.customers.dto.CustomerExportRow;
+import jakarta.persistence.QueryHint;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface CustomerRepository extends JpaRepository<Customer, UUID> {
 
+  /**
+   * Matches the folded query against {@code search_text} (name, email, phone digits, compact RUT),
+   * trigram-indexed on PostgreSQL. Results are ranked: exact RUT, name prefix, word prefix, rest.
+   */
+  default Page<Customer> searchCustomers(String search, String segment, Boolean active, Pageable pageable) {
+    SearchTerms terms = SearchTerms.of(search);
+    if (terms == null) {
+      return searchCustomersRanked(null, null, null, null, null, segment, active, pageable);
+    }
+    return searchCustomersRanked(terms.contains(), terms.compactContains(), terms.compact(),
+      terms.prefix(), terms.wordPrefix(), segment, active, pageable);
+  }
+
   @Query("""
     SELECT c FROM Customer c
     WHERE (:segment IS NULL OR c.segment = :segment)
       AND (:active IS NULL OR c.active = :active)
       AND (
-        :search IS NULL OR :search = '' OR
-        lower(c.name) LIKE lower(concat('%', :search, '%')) OR
-        lower(c.email) LIKE lower(concat('%', :search, '%')) OR
-        lower(c.phone) LIKE lower(concat('%', :search, '%')) OR
-        lower(c.rut) LIKE lower(concat('%', :search, '%'))
+        :contains IS NULL OR
+        c.searchText LIKE :contains OR
+        c.searchText LIKE :compactContains
       )
-    ORDER BY c.createdAt DESC
+    ORDER BY
+      CASE
+        WHEN c.rutNormalized = :compact THEN 0
+        WHEN c.searchName LIKE :prefix THEN 1
+        WHEN c.searchName LIKE :wordPrefix THEN 2
+        ELSE 3
+      END,
+      c.createdAt DESC
   """)
-  Page<Customer> searchCustomers(
-    @Param("search") String search,
+  Page<Customer> searchCustomersRanked(
+    @Param("contains") String contains,
+    @Param("compactContains") String compactContains,
+    @Param("compact") String compact,
+    @Param("prefix") String prefix,
+    @Param("wordPrefix") String wordPrefix,
     @Param("segment") String segment,
     @Param("active") Boolean active,
     Pageable pageable
   );
 
+  default Page<Customer> searchCustomersIncludingInactive(String search, String segment, UUID companyId,
+                                                          Pageable pageable) {
+    SearchTerms terms = SearchTerms.of(search);
+    if (terms == null) {
+      return searchCustomersIncludingInactiveRanked(null, null, null, null, null, segment, companyId, pageable);
+    }
+    return searchCustomersIncludingInactiveRanked(terms.contains(), terms.compactContains(), terms.compact(),
+      terms.prefix(), terms.wordPrefix(), segment, companyId, pageable);
+  }
+
   @Query(value = """
     SELECT * FROM customers c
     WHERE c.company_id = :companyId
       AND (:segment IS NULL OR c.segment = :segment)
       AND (
-        :search IS NULL OR :search = '' OR
-        lower(c.name) LIKE concat('%', lower(:search), '%') OR
-        lower(c.email) LIKE concat('%', lower(:search), '%') OR
-        lower(c.phone) LIKE concat('%', lower(:search), '%') OR
-        lower(c.rut) LIKE concat('%', lower(:search), '%')
+        :contains IS NULL OR
+        c.search_text LIKE :contains OR
+        c.search_text LIKE :compactContains
       )
-    ORDER BY c.created_at DESC
+    ORDER BY
+      CASE
+        WHEN c.rut_normalized = :compact THEN 0
+        WHEN c.search_name LIKE :prefix THEN 1
+        WHEN c.search_name LIKE :wordPrefix THEN 2
+        ELSE 3
+      END,
+      c.created_at DESC
   """,
   countQuery = """
     SELECT count(*) FROM customers c
     WHERE c.company_id = :companyId
       AND (:segment IS NULL OR c.segment = :segment)
       AND (
-        :search IS NULL OR :search = '' OR
-        lower(c.name) LIKE concat('%', lower(:search), '%') OR
-        lower(c.email) LIKE concat('%', lower(:search), '%') OR
-        lower(c.phone) LIKE concat('%', lower(:search), '%') OR
-        lower(c.rut) LIKE concat('%', lower(:search), '%')
+        :contains IS NULL OR
+        c.search_text LIKE :contains OR
+        c.search_text LIKE :compactContains
       )
   """,
   nativeQuery = true
   )
-  Page<Customer> searchCustomersIncludingInactive(
-    @Param("search") String search,
+  Page<Customer> searchCustomersIncludingInactiveRanked(
+    @Param("contains") String contains,
+    @Param("compactContains") String compactContains,
+    @Param("compact") String compact,
+    @Param("prefix") String prefix,
+    @Param("wordPrefix") String wordPrefix,
     @Param("segment") String segment,
     @Param("companyId") UUID companyId,
     Pageable pageable
   );
 
+  /**
+   * Rows for the CSV export, read through a cursor; must be consumed inside a transaction.
+   * Same filters as {@link #searchCustomers}, ordered by name.
+   */
+  default Stream<CustomerExportRow> streamForExport(String search, String segment, Boolean active, UUID companyId) {
+    SearchTerms terms = SearchTerms.of(search);
+    return streamExportRows(terms == null ? null : terms.contains(), terms == null ? null : terms.compactContains(),
+      segment, active, companyId);
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CsvExporter.FETCH_SIZE))
+  @Query("""
+    SELECT new com.datakomerz.pymes.customers.dto.CustomerExportRow(
+      c.name, c.rut, c.email, c.phone, c.address, c.segment, c.contactPerson, c.notes, c.active,
+      c.createdAt, c.updatedAt)
+    FROM Customer c
+    WHERE c.companyId = :companyId
+      AND (:segment IS NULL OR c.segment = :segment)
+      AND (:active IS NULL OR c.active = :active)
+      AND (
+        :contains IS NULL OR
+        c.searchText LIKE :contains OR
+        c.searchText LIKE :compactContains
+      )
+    ORDER BY c.name, c.id
+  """)
+  Stream<CustomerExportRow> streamExportRows(
+    @Param("contains") String contains,
+    @Param("compactContains") String compactContains,
+    @Param("segment") String segment,
+    @Param("active") Boolean active,
+    @Param("companyId") UUID companyId
+  );
+
   @Query("""
     select c.segment as segment, count(c) as total
     from Customer c
@@ -77,6 +162,28 @@ public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     long getTotal();
   }
 
+  /**
+   * Moves {@code ids} to {@code segment} (automatic segmentation); bypasses entity auditing and
+   * {@link CustomerService}, so the cached customer pages and lookups are evicted here.
+   */
+  @CacheEvict(value = "customers", allEntries = true)
+  @Modifying
+  @Query("""
+    update Customer c
+    set c.segment = :segment,
+        c.updatedAt = :now,
+        c.updatedBy = :updatedBy
+    where c.companyId = :companyId
+      and c.id in :ids
+  """)
+  int assignSegment(
+    @Param("companyId") UUID companyId,
+    @Param("segment") String segment,
+    @Param("ids") Collection<UUID> ids,
+    @Param("now") OffsetDateTime now,
+    @Param("updatedBy") String updatedBy
+  );
+
   @Query("""
     SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END
     FROM Customer c
@@ -89,4 +196,20 @@ public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     @Param("email") String email,
     @Param("excludeId") UUID excludeId
   );
+
+  /** Lower-cased emails among {@code emails} already used by the company (bulk import). */
+  @Query("""
+    SELECT lower(c.email) FROM Customer c
+    WHERE c.companyId = :companyId
+      AND lower(c.email) IN :emails
+  """)
+  Set<String> findExistingEmails(@Param("companyId") UUID companyId, @Param("emails") Collection<String> emails);
+
+  /** Compact RUTs among {@code ruts} already used by the company (bulk import). */
+  @Query("""
+    SELECT c.rutNormalized FROM Customer c
+    WHERE c.companyId = :companyId
+      AND c.rutNormalized IN :ruts
+  """)
+  Set<String> findExistingRuts(@Param("companyId") UUID companyId, @Param("ruts") Collection<String> ruts);
 }
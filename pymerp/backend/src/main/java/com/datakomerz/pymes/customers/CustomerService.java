@@ -2,25 +2,28 @@ package com.datakomerz.pymes.customers;
 
 import com.datakomerz.pymes.common.FieldValidationException;
 import com.datakomerz.pymes.common.ValueNormalizer;
+import com.datakomerz.pymes.common.export.CsvExporter;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
+import com.datakomerz.pymes.customers.dto.CustomerExportRow;
 import com.datakomerz.pymes.customers.dto.CustomerRequest;
 import com.datakomerz.pymes.customers.dto.CustomerSaleHistoryItem;
 import com.datakomerz.pymes.customers.dto.CustomerSegmentSummary;
 import com.datakomerz.pymes.customers.dto.CustomerStatsResponse;
 import com.datakomerz.pymes.multitenancy.ValidateTenant;
 import com.datakomerz.pymes.sales.Sale;
+import com.datakomerz.pymes.sales.SaleItemRepository;
 import com.datakomerz.pymes.sales.SaleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
-import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -33,15 +36,21 @@ public class CustomerService {
   private final CompanyContext companyContext;
   private final SaleRepository saleRepository;
   private final ValueNormalizer valueNormalizer;
+  private final SaleItemRepository saleItemRepository;
+  private final CustomerStatsService statsService;
 
   public CustomerService(CustomerRepository repository,
                          CompanyContext companyContext,
                          SaleRepository saleRepository,
-                         ValueNormalizer valueNormalizer) {
+                         ValueNormalizer valueNormalizer,
+                         SaleItemRepository saleItemRepository,
+                         CustomerStatsService statsService) {
     this.repository = repository;
     this.companyContext = companyContext;
     this.saleRepository = saleRepository;
     this.valueNormalizer = valueNormalizer;
+    this.saleItemRepository = saleItemRepository;
+    this.statsService = statsService;
   }
 
   public static final String UNASSIGNED_SEGMENT_CODE = "__UNASSIGNED__";
@@ -178,25 +187,7 @@ public class CustomerService {
     repository.findById(customerId)
       .orElseThrow(() -> new EntityNotFoundException("Customer not found: " + customerId));
 
-    Integer totalSales = saleRepository.countByCustomerId(customerId);
-    BigDecimal totalRevenue = saleRepository.sumTotalByCustomerId(customerId);
-    
-    // Get last sale date
-    Page<Sale> recentSales = saleRepository.findByCustomerIdOrderByIssuedAtDesc(
-      customerId, 
-      PageRequest.of(0, 1)
-    );
-    LocalDate lastSaleDate = recentSales.hasContent() 
-      ? recentSales.getContent().get(0).getIssuedAt().toLocalDate()
-      : null;
-
-    // For now, return empty top products list (can be enhanced later with SaleItem queries)
-    return new CustomerStatsResponse(
-      totalSales,
-      totalRevenue != null ? totalRevenue : BigDecimal.ZERO,
-      lastSaleDate,
-      List.of()
-    );
+    return statsService.summary(customerId);
   }
 
   @Transactional(Transactional.TxType.SUPPORTS)
@@ -210,32 +201,30 @@ public class CustomerService {
       pageable
     );
 
+    Map<UUID, Long> itemCounts = sales.isEmpty()
+      ? Map.of()
+      : saleItemRepository.countBySaleIds(sales.map(Sale::getId).getContent()).stream()
+        .collect(Collectors.toMap(SaleItemRepository.SaleItemCount::getSaleId,
+          SaleItemRepository.SaleItemCount::getItemCount));
+
     return sales.map(sale -> new CustomerSaleHistoryItem(
       sale.getId().toString(),
       sale.getIssuedAt().toInstant(),
       sale.getDocType(),
       sale.getId().toString(), // Using ID as docNumber since Sale doesn't have docNumber field
       sale.getTotal(),
-      0 // Items count - would need SaleItem relationship
+      itemCounts.getOrDefault(sale.getId(), 0L).intValue()
     ));
   }
 
   /**
-   * Export customers to CSV format with applied filters.
+   * Customers matching the filters as CSV export rows, read through a cursor. Must run inside
+   * the export's transaction (see {@link CsvExporter}).
    */
-  @Transactional(Transactional.TxType.SUPPORTS)
-  public List<Customer> exportToCSV(String query, String segment, Boolean active) {
-    companyContext.require();
-    String normalizedSearch = normalizeSearch(query);
-    String normalizedSegment = normalizeSegment(segment);
-
-    // Get all customers without pagination
-    return repository.searchCustomers(
-      normalizedSearch,
-      normalizedSegment,
-      active,
-      Pageable.unpaged()
-    ).getContent();
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Stream<CustomerExportRow> exportRows(String query, String segment, Boolean active) {
+    UUID companyId = companyContext.require();
+    return repository.streamForExport(normalizeSearch(query), normalizeSegment(segment), active, companyId);
   }
 
   private void ensureUniqueEmail(UUID companyId, String normalizedEmail, UUID excludeId) {
@@ -248,8 +237,8 @@ public class CustomerService {
     }
   }
 
-  private String normalizeRut(String value) {
-    String normalized = valueNormalizer.normalize(value);
+  static String normalizeRut(String value) {
+    String normalized = ValueNormalizer.normalizeOrNull(value);
     if (normalized == null) {
       return null;
     }
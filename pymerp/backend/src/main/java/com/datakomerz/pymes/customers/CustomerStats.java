@@ -0,0 +1,133 @@
+package com.datakomerz.pymes.customers;
+
+import com.datakomerz.pymes.multitenancy.TenantAwareEntity;
+import com.datakomerz.pymes.multitenancy.TenantFiltered;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Lifetime sales rollup of one customer, excluding cancelled sales. Only ever changed with
+ * atomic increments by {@link CustomerStatsService}.
+ */
+@Entity
+@Table(name = "customer_stats")
+@TenantFiltered
+public class CustomerStats extends TenantAwareEntity {
+
+  @Id
+  @Column(name = "customer_id", columnDefinition = "uuid")
+  private UUID customerId;
+
+  @Column(name = "total_sales", nullable = false)
+  private int totalSales;
+
+  @Column(name = "total_revenue", nullable = false, precision = 16, scale = 2)
+  private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+  @Column(name = "first_sale_at")
+  private OffsetDateTime firstSaleAt;
+
+  @Column(name = "last_sale_at")
+  private OffsetDateTime lastSaleAt;
+
+  @Column(name = "updated_at", nullable = false)
+  private OffsetDateTime updatedAt;
+
+  /** RFM scores (1-5) of the last segmentation run that saw this row; null until then. */
+  @Column(name = "rfm_recency")
+  private Integer rfmRecency;
+
+  @Column(name = "rfm_frequency")
+  private Integer rfmFrequency;
+
+  @Column(name = "rfm_monetary")
+  private Integer rfmMonetary;
+
+  @Column(name = "rfm_scored_at")
+  private OffsetDateTime rfmScoredAt;
+
+  public UUID getCustomerId() {
+    return customerId;
+  }
+
+  public void setCustomerId(UUID customerId) {
+    this.customerId = customerId;
+  }
+
+  public int getTotalSales() {
+    return totalSales;
+  }
+
+  public void setTotalSales(int totalSales) {
+    this.totalSales = totalSales;
+  }
+
+  public BigDecimal getTotalRevenue() {
+    return totalRevenue;
+  }
+
+  public void setTotalRevenue(BigDecimal totalRevenue) {
+    this.totalRevenue = totalRevenue;
+  }
+
+  public OffsetDateTime getFirstSaleAt() {
+    return firstSaleAt;
+  }
+
+  public void setFirstSaleAt(OffsetDateTime firstSaleAt) {
+    this.firstSaleAt = firstSaleAt;
+  }
+
+  public OffsetDateTime getLastSaleAt() {
+    return lastSaleAt;
+  }
+
+  public void setLastSaleAt(OffsetDateTime lastSaleAt) {
+    this.lastSaleAt = lastSaleAt;
+  }
+
+  public OffsetDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(OffsetDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+  public Integer getRfmRecency() {
+    return rfmRecency;
+  }
+
+  public void setRfmRecency(Integer rfmRecency) {
+    this.rfmRecency = rfmRecency;
+  }
+
+  public Integer getRfmFrequency() {
+    return rfmFrequency;
+  }
+
+  public void setRfmFrequency(Integer rfmFrequency) {
+    this.rfmFrequency = rfmFrequency;
+  }
+
+  public Integer getRfmMonetary() {
+    return rfmMonetary;
+  }
+
+  public void setRfmMonetary(Integer rfmMonetary) {
+    this.rfmMonetary = rfmMonetary;
+  }
+
+  public OffsetDateTime getRfmScoredAt() {
+    return rfmScoredAt;
+  }
+
+  public void setRfmScoredAt(OffsetDateTime rfmScoredAt) {
+    this.rfmScoredAt = rfmScoredAt;
+  }
+}
@@ -0,0 +1,62 @@
+package com.datakomerz.pymes.customers;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CustomerStatsRepository extends JpaRepository<CustomerStats, UUID> {
+
+  /** Adds one sale to the rollup; returns 0 when the customer has no row yet. */
+  @Modifying
+  @Query("""
+      update CustomerStats s
+      set s.totalSales = s.totalSales + 1,
+          s.totalRevenue = s.totalRevenue + :revenue,
+          s.firstSaleAt = case when s.firstSaleAt is null or s.firstSaleAt > :issuedAt
+                               then :issuedAt else s.firstSaleAt end,
+          s.lastSaleAt = case when s.lastSaleAt is null or s.lastSaleAt < :issuedAt
+                              then :issuedAt else s.lastSaleAt end,
+          s.updatedAt = :now
+      where s.customerId = :customerId
+      """)
+  int addSale(@Param("customerId") UUID customerId,
+              @Param("revenue") BigDecimal revenue,
+              @Param("issuedAt") OffsetDateTime issuedAt,
+              @Param("now") OffsetDateTime now);
+
+  /** Removes one sale; first and last sale dates are recomputed by the caller. */
+  @Modifying
+  @Query("""
+      update CustomerStats s
+      set s.totalSales = s.totalSales - 1,
+          s.totalRevenue = s.totalRevenue - :revenue,
+          s.firstSaleAt = :firstSaleAt,
+          s.lastSaleAt = :lastSaleAt,
+          s.updatedAt = :now
+      where s.customerId = :customerId and s.totalSales > 0
+      """)
+  int removeSale(@Param("customerId") UUID customerId,
+                 @Param("revenue") BigDecimal revenue,
+                 @Param("firstSaleAt") OffsetDateTime firstSaleAt,
+                 @Param("lastSaleAt") OffsetDateTime lastSaleAt,
+                 @Param("now") OffsetDateTime now);
+
+  /** No-op when the row exists, including one created by a concurrent transaction. */
+  @Modifying
+  @Query(value = """
+      insert into customer_stats (customer_id, company_id, total_sales, total_revenue, updated_at)
+      values (:customerId, :companyId, 0, 0, :now)
+      on conflict do nothing
+      """, nativeQuery = true)
+  int insertEmpty(@Param("customerId") UUID customerId,
+                  @Param("companyId") UUID companyId,
+                  @Param("now") OffsetDateTime now);
+
+  @Query("select distinct s.companyId from CustomerStats s")
+  List<UUID> findCompanyIds();
+}
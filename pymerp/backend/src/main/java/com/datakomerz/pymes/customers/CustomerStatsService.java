@@ -0,0 +1,133 @@
+package com.datakomerz.pymes.customers;
+
+import com.datakomerz.pymes.customers.dto.CustomerStatsResponse;
+import com.datakomerz.pymes.sales.SaleEvent;
+import com.datakomerz.pymes.sales.SaleRepository;
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * Maintains the {@code customer_stats} and {@code customer_product_stats} rollups from
+ * {@link SaleEvent}s and serves the customer detail statistics from them.
+ *
+ * <p>Updates are atomic increments in the sale's transaction. A missing row is first created
+ * empty with {@code on conflict do nothing}, also in the sale's transaction, so concurrent first
+ * sales of a customer neither fail on a duplicate key nor need a second connection.</p>
+ */
+@Service
+public class CustomerStatsService {
+
+  private final CustomerStatsRepository statsRepository;
+  private final CustomerProductStatsRepository productStatsRepository;
+  private final SaleRepository saleRepository;
+  private final int topProducts;
+
+  public CustomerStatsService(CustomerStatsRepository statsRepository,
+                              CustomerProductStatsRepository productStatsRepository,
+                              SaleRepository saleRepository,
+                              @Value("${app.customers.stats.top-products:5}") int topProducts) {
+    this.statsRepository = statsRepository;
+    this.productStatsRepository = productStatsRepository;
+    this.saleRepository = saleRepository;
+    this.topProducts = Math.max(1, topProducts);
+  }
+
+  @EventListener
+  @Transactional(Transactional.TxType.MANDATORY)
+  public void onSale(SaleEvent event) {
+    if (event.customerId() == null) {
+      return;
+    }
+    switch (event.type()) {
+      case CREATED -> recordSale(event);
+      case CANCELLED -> removeSale(event);
+    }
+  }
+
+  @Transactional(Transactional.TxType.SUPPORTS)
+  public CustomerStatsResponse summary(UUID customerId) {
+    CustomerStats stats = statsRepository.findById(customerId).orElse(null);
+    List<CustomerStatsResponse.TopProduct> top = productStatsRepository
+      .findTopProducts(customerId, PageRequest.of(0, topProducts)).stream()
+      .map(view -> new CustomerStatsResponse.TopProduct(
+        view.getProductId().toString(),
+        view.getProductName(),
+        view.getQuantity().setScale(0, RoundingMode.HALF_UP).intValue(),
+        view.getRevenue()))
+      .toList();
+    if (stats == null || stats.getTotalSales() == 0) {
+      return new CustomerStatsResponse(0, BigDecimal.ZERO, null, null, null, top);
+    }
+    return new CustomerStatsResponse(
+      stats.getTotalSales(),
+      stats.getTotalRevenue(),
+      stats.getLastSaleAt() != null ? stats.getLastSaleAt().toLocalDate() : null,
+      stats.getFirstSaleAt() != null ? stats.getFirstSaleAt().toLocalDate() : null,
+      averageDaysBetweenSales(stats),
+      top);
+  }
+
+  private void recordSale(SaleEvent event) {
+    OffsetDateTime now = OffsetDateTime.now();
+    BigDecimal total = event.total() != null ? event.total() : BigDecimal.ZERO;
+    OffsetDateTime issuedAt = event.issuedAt() != null ? event.issuedAt() : now;
+    withRow(() -> statsRepository.addSale(event.customerId(), total, issuedAt, now),
+      () -> statsRepository.insertEmpty(event.customerId(), event.companyId(), now));
+    applyLines(event, BigDecimal.ONE);
+  }
+
+  private void removeSale(SaleEvent event) {
+    BigDecimal total = event.total() != null ? event.total() : BigDecimal.ZERO;
+    SaleRepository.SaleDateRange range = saleRepository.findSaleDateRange(event.customerId());
+    statsRepository.removeSale(event.customerId(), total,
+      range != null ? range.getFirstSaleAt() : null,
+      range != null ? range.getLastSaleAt() : null,
+      OffsetDateTime.now());
+    applyLines(event, BigDecimal.ONE.negate());
+  }
+
+  private void applyLines(SaleEvent event, BigDecimal sign) {
+    Map<UUID, BigDecimal[]> byProduct = new LinkedHashMap<>();
+    for (SaleEvent.Line line : event.lines()) {
+      BigDecimal[] sums = byProduct.computeIfAbsent(line.productId(),
+        ignored -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+      sums[0] = sums[0].add(line.qty());
+      sums[1] = sums[1].add(line.amount());
+    }
+    byProduct.forEach((productId, sums) -> withRow(
+      () -> productStatsRepository.add(event.customerId(), productId, sums[0].multiply(sign), sums[1].multiply(sign)),
+      () -> productStatsRepository.insertEmpty(event.customerId(), productId, event.companyId())));
+  }
+
+  /** Runs {@code update}; when it touched no row, creates the row and runs it again. */
+  private void withRow(IntSupplier update, IntSupplier insertEmpty) {
+    if (update.getAsInt() > 0) {
+      return;
+    }
+    insertEmpty.getAsInt();
+    if (update.getAsInt() == 0) {
+      throw new IllegalStateException("Customer stats row could not be created");
+    }
+  }
+
+  private static BigDecimal averageDaysBetweenSales(CustomerStats stats) {
+    if (stats.getTotalSales() < 2 || stats.getFirstSaleAt() == null || stats.getLastSaleAt() == null) {
+      return null;
+    }
+    long hours = Duration.between(stats.getFirstSaleAt(), stats.getLastSaleAt()).toHours();
+    return BigDecimal.valueOf(hours)
+      .divide(BigDecimal.valueOf(24L * (stats.getTotalSales() - 1)), 1, RoundingMode.HALF_UP);
+  }
+}
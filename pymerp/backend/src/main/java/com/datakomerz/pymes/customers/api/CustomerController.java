@@ -1,7 +1,11 @@
 package com.datakomerz.pymes.customers.api;
 
 import com.datakomerz.pymes.common.api.PagedResponse;
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.imports.BulkImportReport;
+import com.datakomerz.pymes.core.tenancy.CompanyContext;
 import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerBulkImport;
 import com.datakomerz.pymes.customers.CustomerService;
 import com.datakomerz.pymes.customers.application.CreateCustomerUseCase;
 import com.datakomerz.pymes.customers.application.CustomerMapper;
@@ -14,10 +18,7 @@ import com.datakomerz.pymes.customers.dto.CustomerStatsResponse;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -47,19 +48,32 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/v1/customers")
 public class CustomerController {
 
+  private static final List<String> EXPORT_HEADER = List.of(
+    "Nombre", "RUT", "Email", "Teléfono", "Dirección", "Segmento", "Persona de Contacto", "Notas",
+    "Activo", "Creado", "Actualizado");
+
   private final ListCustomersUseCase listCustomersUseCase;
   private final CreateCustomerUseCase createCustomerUseCase;
   private final CustomerService service;
   private final CustomerMapper mapper;
+  private final CsvExporter csvExporter;
+  private final CustomerBulkImport bulkImport;
+  private final CompanyContext companyContext;
 
   public CustomerController(ListCustomersUseCase listCustomersUseCase,
                             CreateCustomerUseCase createCustomerUseCase,
                             CustomerService service,
-                            CustomerMapper mapper) {
+                            CustomerMapper mapper,
+                            CsvExporter csvExporter,
+                            CustomerBulkImport bulkImport,
+                            CompanyContext companyContext) {
     this.listCustomersUseCase = listCustomersUseCase;
     this.createCustomerUseCase = createCustomerUseCase;
     this.service = service;
     this.mapper = mapper;
+    this.csvExporter = csvExporter;
+    this.bulkImport = bulkImport;
+    this.companyContext = companyContext;
   }
 
   @GetMapping
@@ -131,49 +145,23 @@ public class CustomerController {
       @RequestParam(required = false) String query,
       @RequestParam(required = false) String segment,
       @RequestParam(required = false) Boolean active,
+      @RequestParam(defaultValue = "false") boolean gzip,
       HttpServletResponse response) throws IOException {
+    csvExporter.export(response, "customers.csv", gzip, EXPORT_HEADER,
+      () -> service.exportRows(query, segment, active),
+      row -> new Object[] {
+        row.name(), row.rut(), row.email(), row.phone(), row.address(), row.segment(),
+        row.contactPerson(), row.notes(), Boolean.TRUE.equals(row.active()), row.createdAt(), row.updatedAt()
+      });
+  }
 
-    List<Customer> customers = service.exportToCSV(query, segment, active);
-
-    response.setContentType("text/csv; charset=UTF-8");
-    response.setHeader("Content-Disposition", "attachment; filename=\"customers.csv\"");
-
-    try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8))) {
-      // UTF-8 BOM para compatibilidad con Excel
-      writer.write('\uFEFF');
-
-      // Headers
-      writer.println("Nombre,RUT,Email,Teléfono,Dirección,Segmento,Persona de Contacto,Notas,Activo,Creado,Actualizado");
-
-      // Formato de fecha
-      DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(java.time.ZoneId.systemDefault());
-
-      // Datos
-      for (Customer customer : customers) {
-        writer.print(escapeCsv(customer.getName()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getRut()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getEmail()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getPhone()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getAddress()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getSegment()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getContactPerson()));
-        writer.print(',');
-        writer.print(escapeCsv(customer.getNotes()));
-        writer.print(',');
-        writer.print(customer.getActive() ? "Sí" : "No");
-        writer.print(',');
-        writer.print(customer.getCreatedAt() != null ? dateFormatter.format(customer.getCreatedAt()) : "");
-        writer.print(',');
-        writer.print(customer.getUpdatedAt() != null ? dateFormatter.format(customer.getUpdatedAt()) : "");
-        writer.println();
-      }
-    }
+  /**
+   * Header-based CSV/XLSX import (accepts the export's columns) with a per-row error report.
+   */
+  @PostMapping(value = "/bulk-import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  @PreAuthorize("hasAnyRole('SETTINGS', 'ADMIN')")
+  public BulkImportReport bulkImport(@RequestParam("file") MultipartFile file) throws IOException {
+    return bulkImport.importFile(companyContext.require(), file);
   }
 
   @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -261,17 +249,6 @@ public class CustomerController {
     return result.toArray(new String[0]);
   }
 
-  private String escapeCsv(String value) {
-    if (value == null) {
-      return "";
-    }
-    // Si contiene coma, comilla doble o salto de línea, escapar
-    if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-      return "\"" + value.replace("\"", "\"\"") + "\"";
-    }
-    return value;
-  }
-
   private boolean currentUserIsAdmin() {
     var authentication = SecurityContextHolder.getContext().getAuthentication();
     if (authentication == null) {
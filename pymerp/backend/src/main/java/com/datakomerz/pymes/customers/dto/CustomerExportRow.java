@@ -0,0 +1,18 @@
+package com.datakomerz.pymes.customers.dto;
+
+import java.time.OffsetDateTime;
+
+/** Scalar projection streamed by the customer CSV export. */
+public record CustomerExportRow(
+  String name,
+  String rut,
+  String email,
+  String phone,
+  String address,
+  String segment,
+  String contactPerson,
+  String notes,
+  Boolean active,
+  OffsetDateTime createdAt,
+  OffsetDateTime updatedAt
+) {}
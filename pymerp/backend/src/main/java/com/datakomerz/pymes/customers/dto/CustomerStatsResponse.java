@@ -8,6 +8,8 @@ public record CustomerStatsResponse(
   Integer totalSales,
   BigDecimal totalRevenue,
   LocalDate lastSaleDate,
+  LocalDate firstSaleDate,
+  BigDecimal averageDaysBetweenSales,
   List<TopProduct> topProducts
 ) {
   public record TopProduct(
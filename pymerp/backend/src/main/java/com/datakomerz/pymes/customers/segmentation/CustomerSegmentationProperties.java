@@ -0,0 +1,219 @@
+package com.datakomerz.pymes.customers.segmentation;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the RFM (recency, frequency, monetary) segmentation job.
+ *
+ * <p>Each dimension is scored 1 to 5 from four ascending thresholds: a value reaching the
+ * {@code n}-th threshold scores {@code n + 1}. Recency thresholds are in days and reversed — a
+ * last sale within the first threshold scores 5.</p>
+ */
+@ConfigurationProperties(prefix = "app.customers.segmentation")
+public class CustomerSegmentationProperties {
+
+  /**
+   * Off unless enabled explicitly; the job overwrites the segment of every customer it manages.
+   */
+  private boolean enabled = false;
+
+  /**
+   * Customers read, classified and written back per transaction.
+   */
+  private int batchSize = 1000;
+
+  /**
+   * How long a node holds a tenant while segmenting it; another node may take over afterwards.
+   */
+  private Duration lease = Duration.ofMinutes(30);
+
+  /**
+   * Overlap subtracted from the previous run's watermark, so sales committed while that run
+   * was scoring are picked up again.
+   */
+  private Duration watermarkOverlap = Duration.ofMinutes(10);
+
+  private List<Integer> recencyDays = new ArrayList<>(List.of(30, 90, 180, 365));
+
+  private List<Integer> frequency = new ArrayList<>(List.of(2, 4, 8, 16));
+
+  private List<BigDecimal> monetary = new ArrayList<>(List.of(
+      new BigDecimal("100000"), new BigDecimal("500000"), new BigDecimal("1000000"), new BigDecimal("5000000")));
+
+  /**
+   * Segment rules, first match wins. Customers whose segment is not one of these codes were
+   * classified by hand and are never changed by the job. Each code needs a
+   * {@code customer_segment} row per tenant; V55 seeds the default ones.
+   */
+  private List<Rule> rules = new ArrayList<>(List.of(
+      new Rule("RFM_CHAMPIONS", 4, 5, 4, 5, 4, 5),
+      new Rule("RFM_LOYAL", 3, 5, 4, 5, 1, 5),
+      new Rule("RFM_NEW", 4, 5, 1, 1, 1, 5),
+      new Rule("RFM_AT_RISK", 1, 2, 3, 5, 1, 5),
+      new Rule("RFM_HIBERNATING", 1, 2, 1, 2, 1, 5),
+      new Rule("RFM_POTENTIAL", 1, 5, 1, 5, 1, 5)));
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Duration getLease() {
+    return lease;
+  }
+
+  public void setLease(Duration lease) {
+    this.lease = lease;
+  }
+
+  public Duration getWatermarkOverlap() {
+    return watermarkOverlap;
+  }
+
+  public void setWatermarkOverlap(Duration watermarkOverlap) {
+    this.watermarkOverlap = watermarkOverlap;
+  }
+
+  public List<Integer> getRecencyDays() {
+    return recencyDays;
+  }
+
+  public void setRecencyDays(List<Integer> recencyDays) {
+    this.recencyDays = recencyDays;
+  }
+
+  public List<Integer> getFrequency() {
+    return frequency;
+  }
+
+  public void setFrequency(List<Integer> frequency) {
+    this.frequency = frequency;
+  }
+
+  public List<BigDecimal> getMonetary() {
+    return monetary;
+  }
+
+  public void setMonetary(List<BigDecimal> monetary) {
+    this.monetary = monetary;
+  }
+
+  public List<Rule> getRules() {
+    return rules;
+  }
+
+  public void setRules(List<Rule> rules) {
+    this.rules = rules;
+  }
+
+  /**
+   * Inclusive score ranges a customer must fall in for the segment {@code code}.
+   */
+  public static class Rule {
+
+    private String code;
+    private int minRecency = 1;
+    private int maxRecency = 5;
+    private int minFrequency = 1;
+    private int maxFrequency = 5;
+    private int minMonetary = 1;
+    private int maxMonetary = 5;
+
+    public Rule() {
+    }
+
+    public Rule(String code, int minRecency, int maxRecency, int minFrequency, int maxFrequency,
+                int minMonetary, int maxMonetary) {
+      this.code = code;
+      this.minRecency = minRecency;
+      this.maxRecency = maxRecency;
+      this.minFrequency = minFrequency;
+      this.maxFrequency = maxFrequency;
+      this.minMonetary = minMonetary;
+      this.maxMonetary = maxMonetary;
+    }
+
+    public boolean matches(int recency, int frequency, int monetary) {
+      return recency >= minRecency && recency <= maxRecency
+          && frequency >= minFrequency && frequency <= maxFrequency
+          && monetary >= minMonetary && monetary <= maxMonetary;
+    }
+
+    public String getCode() {
+      return code;
+    }
+
+    public void setCode(String code) {
+      this.code = code;
+    }
+
+    public int getMinRecency() {
+      return minRecency;
+    }
+
+    public void setMinRecency(int minRecency) {
+      this.minRecency = minRecency;
+    }
+
+    public int getMaxRecency() {
+      return maxRecency;
+    }
+
+    public void setMaxRecency(int maxRecency) {
+      this.maxRecency = maxRecency;
+    }
+
+    public int getMinFrequency() {
+      return minFrequency;
+    }
+
+    public void setMinFrequency(int minFrequency) {
+      this.minFrequency = minFrequency;
+    }
+
+    public int getMaxFrequency() {
+      return maxFrequency;
+    }
+
+    public void setMaxFrequency(int maxFrequency) {
+      this.maxFrequency = maxFrequency;
+    }
+
+    public int getMinMonetary() {
+      return minMonetary;
+    }
+
+    public void setMinMonetary(int minMonetary) {
+      this.minMonetary = minMonetary;
+    }
+
+    public int getMaxMonetary() {
+      return maxMonetary;
+    }
+
+    public void setMaxMonetary(int maxMonetary) {
+      this.maxMonetary = maxMonetary;
+    }
+
+    @Override
+    public String toString() {
+      return code + "[R" + minRecency + "-" + maxRecency + " F" + minFrequency + "-" + maxFrequency
+          + " M" + minMonetary + "-" + maxMonetary + "]";
+    }
+  }
+}
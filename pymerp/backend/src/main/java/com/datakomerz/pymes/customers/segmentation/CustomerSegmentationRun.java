@@ -0,0 +1,108 @@
+package com.datakomerz.pymes.customers.segmentation;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Segmentation state of one tenant: the lease held by the node segmenting it and the watermark
+ * the next run scores from.
+ */
+@Entity
+@Table(name = "customer_segmentation_runs")
+public class CustomerSegmentationRun {
+
+  @Id
+  @Column(name = "company_id", columnDefinition = "uuid")
+  private UUID companyId;
+
+  /** Start of the last completed run; null until the tenant was segmented once. */
+  @Column(name = "watermark")
+  private OffsetDateTime watermark;
+
+  /** Fingerprint of the thresholds and rules of the last completed run. */
+  @Column(name = "config_hash", length = 64)
+  private String configHash;
+
+  @Column(name = "locked_until")
+  private OffsetDateTime lockedUntil;
+
+  @Column(name = "last_started_at")
+  private OffsetDateTime lastStartedAt;
+
+  @Column(name = "last_finished_at")
+  private OffsetDateTime lastFinishedAt;
+
+  @Column(name = "last_scored", nullable = false)
+  private int lastScored;
+
+  @Column(name = "last_changed", nullable = false)
+  private int lastChanged;
+
+  public UUID getCompanyId() {
+    return companyId;
+  }
+
+  public void setCompanyId(UUID companyId) {
+    this.companyId = companyId;
+  }
+
+  public OffsetDateTime getWatermark() {
+    return watermark;
+  }
+
+  public void setWatermark(OffsetDateTime watermark) {
+    this.watermark = watermark;
+  }
+
+  public String getConfigHash() {
+    return configHash;
+  }
+
+  public void setConfigHash(String configHash) {
+    this.configHash = configHash;
+  }
+
+  public OffsetDateTime getLockedUntil() {
+    return lockedUntil;
+  }
+
+  public void setLockedUntil(OffsetDateTime lockedUntil) {
+    this.lockedUntil = lockedUntil;
+  }
+
+  public OffsetDateTime getLastStartedAt() {
+    return lastStartedAt;
+  }
+
+  public void setLastStartedAt(OffsetDateTime lastStartedAt) {
+    this.lastStartedAt = lastStartedAt;
+  }
+
+  public OffsetDateTime getLastFinishedAt() {
+    return lastFinishedAt;
+  }
+
+  public void setLastFinishedAt(OffsetDateTime lastFinishedAt) {
+    this.lastFinishedAt = lastFinishedAt;
+  }
+
+  public int getLastScored() {
+    return lastScored;
+  }
+
+  public void setLastScored(int lastScored) {
+    this.lastScored = lastScored;
+  }
+
+  public int getLastChanged() {
+    return lastChanged;
+  }
+
+  public void setLastChanged(int lastChanged) {
+    this.lastChanged = lastChanged;
+  }
+}
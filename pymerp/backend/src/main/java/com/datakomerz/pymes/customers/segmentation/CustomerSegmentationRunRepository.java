@@ -0,0 +1,56 @@
+package com.datakomerz.pymes.customers.segmentation;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CustomerSegmentationRunRepository extends JpaRepository<CustomerSegmentationRun, UUID> {
+
+  /** Takes the tenant's lease; returns 0 when another node holds it or the row does not exist. */
+  @Modifying
+  @Query("""
+      update CustomerSegmentationRun r
+      set r.lockedUntil = :lockedUntil,
+          r.lastStartedAt = :now
+      where r.companyId = :companyId
+        and (r.lockedUntil is null or r.lockedUntil < :now)
+      """)
+  int claim(@Param("companyId") UUID companyId,
+            @Param("now") OffsetDateTime now,
+            @Param("lockedUntil") OffsetDateTime lockedUntil);
+
+  /** Fails with a constraint violation when another node created the row first. */
+  @Modifying
+  @Query(value = """
+      insert into customer_segmentation_runs (company_id, locked_until, last_started_at, last_scored, last_changed)
+      values (:companyId, :lockedUntil, :now, 0, 0)
+      """, nativeQuery = true)
+  int insertClaimed(@Param("companyId") UUID companyId,
+                    @Param("now") OffsetDateTime now,
+                    @Param("lockedUntil") OffsetDateTime lockedUntil);
+
+  @Modifying
+  @Query("""
+      update CustomerSegmentationRun r
+      set r.watermark = :watermark,
+          r.configHash = :configHash,
+          r.lockedUntil = null,
+          r.lastFinishedAt = :now,
+          r.lastScored = :scored,
+          r.lastChanged = :changed
+      where r.companyId = :companyId
+      """)
+  int complete(@Param("companyId") UUID companyId,
+               @Param("watermark") OffsetDateTime watermark,
+               @Param("configHash") String configHash,
+               @Param("now") OffsetDateTime now,
+               @Param("scored") int scored,
+               @Param("changed") int changed);
+
+  @Modifying
+  @Query("update CustomerSegmentationRun r set r.lockedUntil = null where r.companyId = :companyId")
+  int release(@Param("companyId") UUID companyId);
+}
@@ -0,0 +1,327 @@
+package com.datakomerz.pymes.customers.segmentation;
+
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.customers.CustomerStatsRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Assigns {@code Customer.segment} from RFM scores computed over the {@code customer_stats}
+ * rollup.
+ *
+ * <p>Per tenant, one set-based {@code UPDATE} scores the customers whose rollup changed since
+ * the last run's watermark, plus those whose last sale crossed a recency threshold since then
+ * (recency decays without any new sale). The rescored customers are then read back in keyset
+ * pages, classified with the configured rules and moved in one bulk update per segment and page.
+ * The first run of a tenant, and any run after the thresholds or rules changed, scores
+ * everyone.</p>
+ *
+ * <p>A tenant is leased to one node at a time through {@code customer_segmentation_runs}; the
+ * watermark only advances when a run completes.</p>
+ */
+@Component
+public class RfmSegmentationJob {
+
+  private static final Logger log = LoggerFactory.getLogger(RfmSegmentationJob.class);
+
+  static final String UPDATED_BY = "rfm-segmentation";
+  private static final int THRESHOLDS = 4;
+
+  private final CustomerSegmentationProperties properties;
+  private final CustomerStatsRepository statsRepository;
+  private final CustomerRepository customerRepository;
+  private final CustomerSegmentationRunRepository runRepository;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final Clock clock;
+  private final List<CustomerSegmentationProperties.Rule> rules;
+  private final Set<String> managedSegments;
+  private final String configHash;
+
+  @Autowired
+  public RfmSegmentationJob(CustomerSegmentationProperties properties,
+                            CustomerStatsRepository statsRepository,
+                            CustomerRepository customerRepository,
+                            CustomerSegmentationRunRepository runRepository,
+                            EntityManager entityManager,
+                            PlatformTransactionManager transactionManager,
+                            ObjectProvider<Clock> clockProvider) {
+    this(properties, statsRepository, customerRepository, runRepository, entityManager, transactionManager,
+        clockProvider.getIfAvailable(Clock::systemUTC));
+  }
+
+  RfmSegmentationJob(CustomerSegmentationProperties properties,
+                     CustomerStatsRepository statsRepository,
+                     CustomerRepository customerRepository,
+                     CustomerSegmentationRunRepository runRepository,
+                     EntityManager entityManager,
+                     PlatformTransactionManager transactionManager,
+                     Clock clock) {
+    this.properties = properties;
+    this.statsRepository = statsRepository;
+    this.customerRepository = customerRepository;
+    this.runRepository = runRepository;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.clock = clock;
+    requireAscending("recency-days", properties.getRecencyDays());
+    requireAscending("frequency", properties.getFrequency());
+    requireAscending("monetary", properties.getMonetary());
+    this.rules = List.copyOf(properties.getRules());
+    this.managedSegments = new HashSet<>();
+    for (CustomerSegmentationProperties.Rule rule : rules) {
+      if (rule.getCode() == null || rule.getCode().isBlank()) {
+        throw new IllegalStateException("app.customers.segmentation.rules: every rule needs a code");
+      }
+      managedSegments.add(rule.getCode());
+    }
+    this.configHash = fingerprint();
+  }
+
+  @Scheduled(cron = "${app.customers.segmentation.cron:0 30 3 * * *}")
+  public void run() {
+    if (!properties.isEnabled()) {
+      return;
+    }
+    for (UUID companyId : statsRepository.findCompanyIds()) {
+      try {
+        segment(companyId);
+      } catch (RuntimeException ex) {
+        log.error("RFM segmentation failed for company {}", companyId, ex);
+      }
+    }
+  }
+
+  /**
+   * Segments one tenant. Returns null when another node currently holds it.
+   */
+  public Result segment(UUID companyId) {
+    OffsetDateTime runAt = now();
+    CustomerSegmentationRun state = claim(companyId, runAt);
+    if (state == null) {
+      log.debug("Skipping RFM segmentation of company {}: held by another node", companyId);
+      return null;
+    }
+    try {
+      OffsetDateTime since = state.getWatermark() != null && configHash.equals(state.getConfigHash())
+          ? state.getWatermark().minus(properties.getWatermarkOverlap())
+          : null;
+      int scored = Objects.requireNonNull(transactionTemplate.execute(status -> score(companyId, runAt, since)));
+      int changed = scored > 0 ? assignSegments(companyId, runAt) : 0;
+      transactionTemplate.executeWithoutResult(status ->
+          runRepository.complete(companyId, runAt, configHash, now(), scored, changed));
+      log.info("RFM segmentation of company {}: {} customers scored ({}), {} moved in {} ms",
+          companyId, scored, since == null ? "full" : "incremental", changed,
+          Duration.between(runAt, now()).toMillis());
+      return new Result(scored, changed, since == null);
+    } catch (RuntimeException ex) {
+      transactionTemplate.executeWithoutResult(status -> runRepository.release(companyId));
+      throw ex;
+    }
+  }
+
+  private CustomerSegmentationRun claim(UUID companyId, OffsetDateTime now) {
+    OffsetDateTime lockedUntil = now.plus(properties.getLease());
+    try {
+      return transactionTemplate.execute(status -> {
+        if (runRepository.claim(companyId, now, lockedUntil) == 0) {
+          if (runRepository.existsById(companyId)) {
+            return null;
+          }
+          runRepository.insertClaimed(companyId, now, lockedUntil);
+        }
+        return runRepository.findById(companyId).orElse(null);
+      });
+    } catch (DataIntegrityViolationException ex) {
+      // Another node created the row, and holds the lease, first.
+      return null;
+    }
+  }
+
+  /**
+   * Scores the tenant's customers that may have changed since {@code since} (all of them when
+   * null) and stamps them with {@code runAt}.
+   */
+  private int score(UUID companyId, OffsetDateTime runAt, OffsetDateTime since) {
+    StringBuilder sql = new StringBuilder("""
+        update customer_stats set
+          rfm_recency = case when last_sale_at >= :r1 then 5 when last_sale_at >= :r2 then 4
+                             when last_sale_at >= :r3 then 3 when last_sale_at >= :r4 then 2 else 1 end,
+          rfm_frequency = case when total_sales >= :f4 then 5 when total_sales >= :f3 then 4
+                               when total_sales >= :f2 then 3 when total_sales >= :f1 then 2 else 1 end,
+          rfm_monetary = case when total_revenue >= :m4 then 5 when total_revenue >= :m3 then 4
+                              when total_revenue >= :m2 then 3 when total_revenue >= :m1 then 2 else 1 end,
+          rfm_scored_at = :runAt
+        where company_id = :companyId
+        """);
+    if (since != null) {
+      sql.append("  and (updated_at > :since or rfm_scored_at is null");
+      for (int i = 1; i <= THRESHOLDS; i++) {
+        sql.append("\n       or (last_sale_at >= :s").append(i).append(" and last_sale_at < :r").append(i).append(')');
+      }
+      sql.append(')');
+    }
+    Query update = entityManager.createNativeQuery(sql.toString())
+        .setParameter("companyId", companyId)
+        .setParameter("runAt", runAt);
+    for (int i = 1; i <= THRESHOLDS; i++) {
+      long days = properties.getRecencyDays().get(i - 1);
+      update.setParameter("r" + i, runAt.minusDays(days));
+      update.setParameter("f" + i, properties.getFrequency().get(i - 1));
+      update.setParameter("m" + i, properties.getMonetary().get(i - 1));
+      if (since != null) {
+        update.setParameter("s" + i, since.minusDays(days));
+      }
+    }
+    if (since != null) {
+      update.setParameter("since", since);
+    }
+    return update.executeUpdate();
+  }
+
+  /** Classifies the customers scored at {@code runAt}, one page per transaction. */
+  private int assignSegments(UUID companyId, OffsetDateTime runAt) {
+    int changed = 0;
+    UUID after = null;
+    while (true) {
+      UUID cursor = after;
+      List<ScoredCustomer> page = transactionTemplate.execute(status -> scoredPage(companyId, runAt, cursor));
+      if (page == null || page.isEmpty()) {
+        return changed;
+      }
+      changed += Objects.requireNonNull(transactionTemplate.execute(status -> moveChanged(companyId, page)));
+      if (page.size() < properties.getBatchSize()) {
+        return changed;
+      }
+      after = page.get(page.size() - 1).customerId();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<ScoredCustomer> scoredPage(UUID companyId, OffsetDateTime runAt, UUID after) {
+    String sql = """
+        select s.customer_id as customer_id, s.rfm_recency as recency, s.rfm_frequency as frequency,
+               s.rfm_monetary as monetary, c.segment as segment
+        from customer_stats s
+        join customers c on c.id = s.customer_id
+        where s.company_id = :companyId
+          and s.rfm_scored_at = :runAt
+        """ + (after != null ? "  and s.customer_id > :after\n" : "") + "order by s.customer_id";
+    NativeQuery<Object[]> query = entityManager.createNativeQuery(sql)
+        .unwrap(NativeQuery.class)
+        .addScalar("customer_id", UUID.class)
+        .addScalar("recency", Integer.class)
+        .addScalar("frequency", Integer.class)
+        .addScalar("monetary", Integer.class)
+        .addScalar("segment", String.class);
+    query.setParameter("companyId", companyId);
+    query.setParameter("runAt", runAt);
+    if (after != null) {
+      query.setParameter("after", after);
+    }
+    List<Object[]> rows = query.setMaxResults(properties.getBatchSize()).getResultList();
+    List<ScoredCustomer> page = new ArrayList<>(rows.size());
+    for (Object[] row : rows) {
+      page.add(new ScoredCustomer((UUID) row[0], (Integer) row[1], (Integer) row[2], (Integer) row[3],
+          (String) row[4]));
+    }
+    return page;
+  }
+
+  private int moveChanged(UUID companyId, List<ScoredCustomer> page) {
+    Map<String, List<UUID>> moves = new LinkedHashMap<>();
+    for (ScoredCustomer customer : page) {
+      if (customer.segment() != null && !managedSegments.contains(customer.segment())) {
+        continue;
+      }
+      String target = classify(customer.recency(), customer.frequency(), customer.monetary());
+      if (target != null && !target.equals(customer.segment())) {
+        moves.computeIfAbsent(target, ignored -> new ArrayList<>()).add(customer.customerId());
+      }
+    }
+    OffsetDateTime now = now();
+    int moved = 0;
+    for (Map.Entry<String, List<UUID>> move : moves.entrySet()) {
+      moved += customerRepository.assignSegment(companyId, move.getKey(), move.getValue(), now, UPDATED_BY);
+    }
+    return moved;
+  }
+
+  String classify(int recency, int frequency, int monetary) {
+    for (CustomerSegmentationProperties.Rule rule : rules) {
+      if (rule.matches(recency, frequency, monetary)) {
+        return rule.getCode();
+      }
+    }
+    return null;
+  }
+
+  private OffsetDateTime now() {
+    // Stored timestamps keep microseconds; the run stamp is compared for equality.
+    return OffsetDateTime.now(clock).truncatedTo(ChronoUnit.MILLIS);
+  }
+
+  private String fingerprint() {
+    StringBuilder config = new StringBuilder()
+        .append(properties.getRecencyDays()).append('|')
+        .append(properties.getFrequency()).append('|');
+    for (BigDecimal threshold : properties.getMonetary()) {
+      config.append(threshold.stripTrailingZeros().toPlainString()).append(',');
+    }
+    config.append('|').append(rules);
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(config.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 not available", ex);
+    }
+  }
+
+  private static <T extends Comparable<T>> void requireAscending(String name, List<T> thresholds) {
+    if (thresholds == null || thresholds.size() != THRESHOLDS) {
+      throw new IllegalStateException("app.customers.segmentation." + name + " needs " + THRESHOLDS + " thresholds");
+    }
+    for (int i = 1; i < THRESHOLDS; i++) {
+      if (thresholds.get(i).compareTo(thresholds.get(i - 1)) <= 0) {
+        throw new IllegalStateException("app.customers.segmentation." + name + " must be strictly ascending");
+      }
+    }
+  }
+
+  private record ScoredCustomer(UUID customerId, int recency, int frequency, int monetary, String segment) {
+  }
+
+  /**
+   * Outcome of one tenant run: customers rescored, customers moved to another segment, and
+   * whether every customer was rescored.
+   */
+  public record Result(int scored, int changed, boolean full) {
+  }
+}
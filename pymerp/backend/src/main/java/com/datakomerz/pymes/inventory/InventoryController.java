@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.inventory;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
 import com.datakomerz.pymes.inventory.dto.InventoryAdjustmentRequest;
 import com.datakomerz.pymes.inventory.dto.InventoryAdjustmentResponse;
 import com.datakomerz.pymes.inventory.dto.InventoryAlert;
@@ -14,7 +15,9 @@ import com.datakomerz.pymes.inventory.dto.InventorySummary;
 import com.datakomerz.pymes.inventory.dto.ProductABCClassification;
 import com.datakomerz.pymes.inventory.dto.StockByLocationResponse;
 import com.datakomerz.pymes.inventory.dto.StockMovementStats;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
@@ -45,13 +48,20 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/v1/inventory")
 public class InventoryController {
 
+  private static final List<String> MOVEMENTS_EXPORT_HEADER = List.of(
+    "Fecha", "Tipo", "SKU", "Producto", "Lote", "Cantidad", "Cantidad Anterior", "Cantidad Nueva",
+    "Tipo Referencia", "Referencia", "Motivo", "Nota", "Usuario");
+
   private final InventoryService inventoryService;
   private final InventoryLocationService inventoryLocationService;
+  private final CsvExporter csvExporter;
 
   public InventoryController(InventoryService inventoryService,
-                             InventoryLocationService inventoryLocationService) {
+                             InventoryLocationService inventoryLocationService,
+                             CsvExporter csvExporter) {
     this.inventoryService = inventoryService;
     this.inventoryLocationService = inventoryLocationService;
+    this.csvExporter = csvExporter;
   }
 
   @GetMapping("/alerts")
@@ -100,6 +110,26 @@ public class InventoryController {
     return inventoryService.listMovements(productId, lotId, type, locationId, dateFrom, dateTo, PageRequest.of(page, size, sortSpec));
   }
 
+  @GetMapping("/movements/export")
+  @PreAuthorize("hasAnyRole('ERP_USER', 'SETTINGS', 'ADMIN')")
+  public void exportMovements(
+      @RequestParam(required = false) UUID productId,
+      @RequestParam(required = false) UUID lotId,
+      @RequestParam(required = false) String type,
+      @RequestParam(required = false) UUID locationId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateFrom,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime dateTo,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletResponse response) throws IOException {
+    csvExporter.export(response, "movimientos_inventario.csv", gzip, MOVEMENTS_EXPORT_HEADER,
+      () -> inventoryService.exportMovementRows(productId, lotId, type, locationId, dateFrom, dateTo),
+      movement -> new Object[] {
+        movement.createdAt(), movement.type(), movement.productSku(), movement.productName(), movement.batchName(),
+        movement.qty(), movement.previousQty(), movement.newQty(), movement.refType(), movement.refId(),
+        movement.reasonCode(), movement.note(), movement.createdBy()
+      });
+  }
+
   @GetMapping("/lots")
   @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'SETTINGS', 'ADMIN')")
   public Page<LotDetailDTO> listLots(
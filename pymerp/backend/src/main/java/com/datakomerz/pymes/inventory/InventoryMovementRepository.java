@@ -1,13 +1,19 @@
 package com.datakomerz.pymes.inventory;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.inventory.dto.InventoryMovementExportRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, UUID> {
   List<InventoryMovement> findByCompanyIdOrderByCreatedAtDesc(UUID companyId);
@@ -34,4 +40,35 @@ public interface InventoryMovementRepository extends JpaRepository<InventoryMove
     @Param("dateTo") OffsetDateTime dateTo,
     Pageable pageable
   );
+
+  /**
+   * Rows for the CSV export with the filters of {@link #findMovementsWithFilters}, newest first,
+   * read through a cursor; must be consumed inside a transaction.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CsvExporter.FETCH_SIZE))
+  @Query("""
+    SELECT new com.datakomerz.pymes.inventory.dto.InventoryMovementExportRow(
+      m.createdAt, m.type, p.sku, p.name, lot.batchName, m.qty, m.previousQty, m.newQty,
+      m.refType, m.refId, m.reasonCode, m.note, m.createdBy)
+    FROM InventoryMovement m
+    LEFT JOIN Product p ON p.id = m.productId
+    LEFT JOIN InventoryLot lot ON lot.id = m.lotId
+    WHERE m.companyId = :companyId
+      AND (:productId IS NULL OR m.productId = :productId)
+      AND (:lotId IS NULL OR m.lotId = :lotId)
+      AND (:type IS NULL OR m.type = :type)
+      AND (:locationId IS NULL OR lot.locationId = :locationId)
+      AND (:dateFrom IS NULL OR m.createdAt >= :dateFrom)
+      AND (:dateTo IS NULL OR m.createdAt <= :dateTo)
+    ORDER BY m.createdAt DESC, m.id
+  """)
+  Stream<InventoryMovementExportRow> streamForExport(
+    @Param("companyId") UUID companyId,
+    @Param("productId") UUID productId,
+    @Param("lotId") UUID lotId,
+    @Param("type") String type,
+    @Param("locationId") UUID locationId,
+    @Param("dateFrom") OffsetDateTime dateFrom,
+    @Param("dateTo") OffsetDateTime dateTo
+  );
 }
@@ -1,11 +1,14 @@
 package com.datakomerz.pymes.inventory;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
 import com.datakomerz.pymes.inventory.dto.InventoryAdjustmentRequest;
 import com.datakomerz.pymes.inventory.dto.InventoryAdjustmentResponse;
 import com.datakomerz.pymes.inventory.dto.InventoryAlert;
 import com.datakomerz.pymes.inventory.dto.InventoryKPIs;
 import com.datakomerz.pymes.inventory.dto.LotDetailDTO;
+import com.datakomerz.pymes.inventory.dto.InventoryMovementExportRow;
 import com.datakomerz.pymes.inventory.dto.InventoryMovementHistoryEntry;
 import com.datakomerz.pymes.inventory.dto.InventoryMovementSummary;
 import com.datakomerz.pymes.inventory.dto.InventorySettingsResponse;
@@ -27,6 +30,7 @@ import com.datakomerz.pymes.sales.SaleLotAllocation;
 import com.datakomerz.pymes.sales.SaleLotAllocationRepository;
 import com.datakomerz.pymes.suppliers.Supplier;
 import com.datakomerz.pymes.suppliers.SupplierRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
@@ -52,6 +56,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -71,6 +76,7 @@ public class InventoryService {
   private final TenantFilterEnabler tenantFilterEnabler;
   private final CompanyContext companyContext;
   private final AuditContextService auditContext;
+  private final HotPathMetrics hotPathMetrics;
 
   public InventoryService(InventoryLotRepository lots,
                           InventoryMovementRepository movements,
@@ -83,7 +89,8 @@ public class InventoryService {
                           EntityManager entityManager,
                           TenantFilterEnabler tenantFilterEnabler,
                           CompanyContext companyContext,
-                          AuditContextService auditContext) {
+                          AuditContextService auditContext,
+                          HotPathMetrics hotPathMetrics) {
     this.lots = lots;
     this.movements = movements;
     this.allocations = allocations;
@@ -96,6 +103,7 @@ public class InventoryService {
     this.tenantFilterEnabler = tenantFilterEnabler;
     this.companyContext = companyContext;
     this.auditContext = auditContext;
+    this.hotPathMetrics = hotPathMetrics;
   }
 
   @Transactional
@@ -104,6 +112,7 @@ public class InventoryService {
   }
 
   @Transactional
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "inventory.consume_fifo"})
   public void consumeFIFO(UUID saleId, UUID productId, BigDecimal qty, UUID locationId, UUID lotId) {
     UUID companyId = companyContext.require();
     var remaining = qty;
@@ -128,6 +137,7 @@ public class InventoryService {
           companyId, productId, BigDecimal.ZERO);
     }
 
+    int lotsTouched = 0;
     for (var lot : candidates) {
       if (remaining.compareTo(BigDecimal.ZERO) <= 0) {
         break;
@@ -163,7 +173,9 @@ public class InventoryService {
       allocations.save(allocation);
 
       remaining = remaining.subtract(take);
+      lotsTouched++;
     }
+    hotPathMetrics.recordRows("inventory.consume_fifo", "lots", lotsTouched);
 
     if (remaining.compareTo(BigDecimal.ZERO) > 0) {
       throw new IllegalStateException("Insufficient stock for product " + productId + " (missing " + remaining + ")");
@@ -778,6 +790,7 @@ public class InventoryService {
    * Obtiene KPIs ejecutivos consolidados del inventario
    */
   @Transactional(readOnly = true)
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "inventory.kpis"})
   public InventoryKPIs getKPIs() {
     UUID companyId = companyContext.require();
     OffsetDateTime now = OffsetDateTime.now();
@@ -852,6 +865,7 @@ public class InventoryService {
    * Obtiene estadísticas de movimientos de stock (últimos 30 días)
    */
   @Transactional(readOnly = true)
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "inventory.movement_stats"})
   public StockMovementStats getMovementStats() {
     UUID companyId = companyContext.require();
     OffsetDateTime thirtyDaysAgo = OffsetDateTime.now().minusDays(30);
@@ -967,6 +981,7 @@ public class InventoryService {
    * 
    * Basado en valor de inventario actual (qty disponible * costo)
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "inventory.abc_analysis"})
   public List<ProductABCClassification> getABCAnalysis() {
     // Obtener todos los productos activos
     List<Product> allProducts = productRepository.findAll().stream()
@@ -1114,6 +1129,7 @@ public class InventoryService {
    * @param forecastDays Número de días a pronosticar (default: 30)
    * @return Lista de pronósticos ordenados por prioridad (Clase A primero)
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "inventory.forecast"})
   public List<com.datakomerz.pymes.inventory.dto.InventoryForecast> getForecastAnalysis(Long productId, Integer forecastDays) {
     UUID companyId = companyContext.require();
     
@@ -1269,6 +1285,23 @@ public class InventoryService {
     return forecasts;
   }
   
+  /**
+   * Movements matching the {@link #listMovements} filters as CSV export rows, read through a
+   * cursor. Must run inside the export's transaction (see {@link CsvExporter}).
+   */
+  @ValidateTenant(entityClass = InventoryLot.class, entityParam = "lotId")
+  @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+  public Stream<InventoryMovementExportRow> exportMovementRows(
+      UUID productId,
+      UUID lotId,
+      String type,
+      UUID locationId,
+      OffsetDateTime dateFrom,
+      OffsetDateTime dateTo) {
+    UUID companyId = companyContext.require();
+    return movements.streamForExport(companyId, productId, lotId, type, locationId, dateFrom, dateTo);
+  }
+
   @ValidateTenant(entityClass = InventoryLot.class, entityParam = "lotId")
   public Page<InventoryMovementHistoryEntry> listMovements(
       UUID productId,
@@ -0,0 +1,22 @@
+package com.datakomerz.pymes.inventory.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/** Scalar projection streamed by the inventory movements CSV export. */
+public record InventoryMovementExportRow(
+  OffsetDateTime createdAt,
+  String type,
+  String productSku,
+  String productName,
+  String batchName,
+  BigDecimal qty,
+  BigDecimal previousQty,
+  BigDecimal newQty,
+  String refType,
+  UUID refId,
+  String reasonCode,
+  String note,
+  String createdBy
+) {}
@@ -26,10 +26,12 @@ public class TenantAwareJpaRepository<T, ID> extends SimpleJpaRepository<T, ID>
   private static final Logger logger = LoggerFactory.getLogger(TenantAwareJpaRepository.class);
 
   private final JpaEntityInformation<T, ?> entityInformation;
+  private final boolean tenantFiltered;
 
   public TenantAwareJpaRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
     super(entityInformation, entityManager);
     this.entityInformation = entityInformation;
+    this.tenantFiltered = entityInformation.getJavaType().isAnnotationPresent(TenantFiltered.class);
   }
 
   @Override
@@ -167,6 +169,6 @@ public class TenantAwareJpaRepository<T, ID> extends SimpleJpaRepository<T, ID>
   }
 
   private boolean isTenantFilteredEntity() {
-    return entityInformation.getJavaType().isAnnotationPresent(TenantFiltered.class);
+    return tenantFiltered;
   }
 }
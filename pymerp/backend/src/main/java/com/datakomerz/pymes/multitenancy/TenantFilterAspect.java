@@ -22,6 +22,10 @@ import org.springframework.stereotype.Component;
  *   <li>Transparente - Los repositories no necesitan cambios</li>
  * </ul>
  * 
+ * <p>El filtro se habilita una sola vez por transacción (ver
+ * {@link TenantFilterEnabler#ensureTenantFilter(EntityManager)}); las llamadas posteriores
+ * dentro de la misma transacción solo verifican la marca.</p>
+ *
  * <p><strong>Limitaciones:</strong></p>
  * <ul>
  *   <li>Solo funciona con entidades marcadas con @TenantFiltered</li>
@@ -54,7 +58,7 @@ public class TenantFilterAspect {
   @Before("execution(* org.springframework.data.jpa.repository.JpaRepository+.*(..))")
   public void enableTenantFilter() {
     if (TenantContext.isPresent()) {
-      filterEnabler.enableTenantFilter(entityManager);
+      filterEnabler.ensureTenantFilter(entityManager);
     } else {
       logger.trace("No tenant context present, skipping filter");
     }
@@ -5,6 +5,8 @@ import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.UUID;
 
@@ -25,6 +27,12 @@ import java.util.UUID;
  *   <li>Se establece el parámetro tenantId desde TenantContext</li>
  *   <li>Todas las queries a entidades @TenantFiltered incluyen automáticamente WHERE company_id = :tenantId</li>
  * </ol>
+ *
+ * <p><strong>Una vez por transacción:</strong> al habilitar el filtro dentro de una transacción
+ * se guarda una marca (tenant habilitado) en un ThreadLocal.
+ * {@link #ensureTenantFilter(EntityManager)} consulta esa marca y evita el unwrap/enableFilter
+ * en las llamadas siguientes de la misma sesión. Una {@link TransactionSynchronization} la
+ * retira al suspender o completar la transacción.</p>
  * 
  * @see TenantContext
  * @see TenantFiltered
@@ -45,6 +53,36 @@ public class TenantFilterEnabler {
    */
   public static final String TENANT_PARAMETER_NAME = "tenantId";
 
+  /**
+   * Tenant con el que se habilitó el filtro en la transacción activa del thread.
+   */
+  private static final ThreadLocal<FilterMarker> filterMarker = new ThreadLocal<>();
+
+  /**
+   * Habilita el filtro de tenant solo si aún no está habilitado para el tenant actual en la
+   * sesión de la transacción en curso.
+   *
+   * <p>Tras la primera llamada de una transacción el costo es la lectura de dos ThreadLocal;
+   * fuera de una transacción se comporta igual que
+   * {@link #enableTenantFilter(EntityManager)}.</p>
+   *
+   * @param entityManager EntityManager de JPA
+   * @return true si el filtro queda habilitado, false si no hay tenant context
+   */
+  public boolean ensureTenantFilter(EntityManager entityManager) {
+    UUID tenantId = TenantContext.getTenantId();
+    if (tenantId == null) {
+      logger.trace("No tenant context available, filter not enabled");
+      return false;
+    }
+    FilterMarker marker = filterMarker.get();
+    if (marker != null && tenantId.equals(marker.tenantId)
+        && TransactionSynchronizationManager.isActualTransactionActive()) {
+      return true;
+    }
+    return enableTenantFilter(entityManager);
+  }
+
   /**
    * Habilita el filtro de tenant en la sesión actual del EntityManager.
    * 
@@ -66,7 +104,8 @@ public class TenantFilterEnabler {
       Session session = entityManager.unwrap(Session.class);
       session.enableFilter(TENANT_FILTER_NAME)
              .setParameter(TENANT_PARAMETER_NAME, tenantId);
-      
+      markEnabled(tenantId);
+
       logger.debug("Tenant filter enabled for tenant: {}", tenantId);
       return true;
     } catch (Exception e) {
@@ -84,9 +123,55 @@ public class TenantFilterEnabler {
     try {
       Session session = entityManager.unwrap(Session.class);
       session.disableFilter(TENANT_FILTER_NAME);
+      clearMarker();
       logger.debug("Tenant filter disabled");
     } catch (Exception e) {
       logger.warn("Failed to disable tenant filter: {}", e.getMessage());
     }
   }
+
+  private void markEnabled(UUID tenantId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    FilterMarker marker = filterMarker.get();
+    if (marker == null) {
+      marker = new FilterMarker();
+      filterMarker.set(marker);
+      TransactionSynchronizationManager.registerSynchronization(marker);
+    }
+    marker.tenantId = tenantId;
+  }
+
+  private static void clearMarker() {
+    FilterMarker marker = filterMarker.get();
+    if (marker != null) {
+      marker.tenantId = null;
+    }
+  }
+
+  /**
+   * Marca ligada solo a la transacción que habilitó el filtro: se retira del thread al
+   * suspenderla (p.ej. REQUIRES_NEW abre otra sesión sin filtro), se restaura al reanudarla
+   * y se elimina al completarla.
+   */
+  private static final class FilterMarker implements TransactionSynchronization {
+
+    private UUID tenantId;
+
+    @Override
+    public void suspend() {
+      filterMarker.remove();
+    }
+
+    @Override
+    public void resume() {
+      filterMarker.set(this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      filterMarker.remove();
+    }
+  }
 }
@@ -1,11 +1,14 @@
 package com.datakomerz.pymes.multitenancy;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,12 +16,24 @@ import org.slf4j.LoggerFactory;
  * Utility that extracts the tenant identifier from managed entities. Supports
  * standard getters such as {@code getTenantId()} or {@code getCompanyId()} and
  * falls back to direct field access if necessary.
+ *
+ * <p>Entities extending {@link TenantAwareEntity} take a direct
+ * {@code getCompanyId()} call. Other types get an accessor generated once per
+ * class: getters are bound through {@link LambdaMetafactory} (as fast as a
+ * direct call once inlined) and fields through a {@link MethodHandle}.</p>
  */
 final class TenantIntrospector {
 
   private static final Logger logger = LoggerFactory.getLogger(TenantIntrospector.class);
-  private static final Map<Class<?>, Optional<Accessor>> ACCESSOR_CACHE = new ConcurrentHashMap<>();
   private static final String[] CANDIDATE_NAMES = {"tenantId", "companyId"};
+  private static final Function<Object, Object> NO_ACCESSOR = target -> null;
+
+  private static final ClassValue<Function<Object, Object>> ACCESSORS = new ClassValue<>() {
+    @Override
+    protected Function<Object, Object> computeValue(Class<?> type) {
+      return locateAccessor(type);
+    }
+  };
 
   private TenantIntrospector() {
   }
@@ -27,13 +42,15 @@ final class TenantIntrospector {
     if (entity == null) {
       return null;
     }
-    Optional<Accessor> accessorOptional =
-        ACCESSOR_CACHE.computeIfAbsent(entity.getClass(), TenantIntrospector::locateAccessor);
-    if (accessorOptional.isEmpty()) {
+    if (entity instanceof TenantAwareEntity tenantAware) {
+      return tenantAware.getCompanyId();
+    }
+    Function<Object, Object> accessor = ACCESSORS.get(entity.getClass());
+    if (accessor == NO_ACCESSOR) {
       return null;
     }
     try {
-      Object value = accessorOptional.get().read(entity);
+      Object value = accessor.apply(entity);
       if (value == null) {
         return null;
       }
@@ -44,21 +61,20 @@ final class TenantIntrospector {
         return UUID.fromString(str);
       }
       logger.warn("Unsupported tenant identifier type {} on {}", value.getClass(), entity.getClass().getName());
-    } catch (Exception ex) {
+    } catch (RuntimeException ex) {
       logger.warn("Failed to read tenant identifier from {}", entity.getClass().getName(), ex);
     }
     return null;
   }
 
-  private static Optional<Accessor> locateAccessor(Class<?> type) {
+  private static Function<Object, Object> locateAccessor(Class<?> type) {
     for (String candidate : CANDIDATE_NAMES) {
       // Try getter method first
       String getterName = "get" + Character.toUpperCase(candidate.charAt(0)) + candidate.substring(1);
       try {
         Method method = type.getMethod(getterName);
-        if (method.getParameterCount() == 0) {
-          method.setAccessible(true);
-          return Optional.of(new MethodAccessor(method));
+        if (method.getParameterCount() == 0 && !method.getReturnType().isPrimitive()) {
+          return getterAccessor(method);
         }
       } catch (NoSuchMethodException ignored) {
         // continue searching
@@ -66,31 +82,61 @@ final class TenantIntrospector {
       // Try public field access
       try {
         Field field = type.getDeclaredField(candidate);
-        field.setAccessible(true);
-        return Optional.of(new FieldAccessor(field));
+        return fieldAccessor(field);
       } catch (NoSuchFieldException ignored) {
         // continue searching
       }
     }
     logger.debug("No tenant accessor found for {}", type.getName());
-    return Optional.empty();
+    return NO_ACCESSOR;
   }
 
-  private interface Accessor {
-    Object read(Object target) throws Exception;
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> getterAccessor(Method method) {
+    Class<?> owner = method.getDeclaringClass();
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+      MethodHandle getter = lookup.unreflect(method);
+      CallSite site = LambdaMetafactory.metafactory(
+          lookup,
+          "apply",
+          MethodType.methodType(Function.class),
+          MethodType.methodType(Object.class, Object.class),
+          getter,
+          MethodType.methodType(method.getReturnType(), owner));
+      return (Function<Object, Object>) site.getTarget().invokeExact();
+    } catch (Throwable ex) {
+      logger.debug("Falling back to method handle for {}: {}", method, ex.getMessage());
+      try {
+        method.setAccessible(true);
+        return handleAccessor(MethodHandles.lookup().unreflect(method));
+      } catch (IllegalAccessException | RuntimeException fallbackEx) {
+        logger.warn("Cannot access tenant getter {}", method, fallbackEx);
+        return NO_ACCESSOR;
+      }
+    }
   }
 
-  private record MethodAccessor(Method method) implements Accessor {
-    @Override
-    public Object read(Object target) throws Exception {
-      return method.invoke(target);
+  private static Function<Object, Object> fieldAccessor(Field field) {
+    try {
+      field.setAccessible(true);
+      return handleAccessor(MethodHandles.lookup().unreflectGetter(field));
+    } catch (IllegalAccessException | RuntimeException ex) {
+      logger.warn("Cannot access tenant field {}", field, ex);
+      return NO_ACCESSOR;
     }
   }
 
-  private record FieldAccessor(Field field) implements Accessor {
-    @Override
-    public Object read(Object target) throws IllegalAccessException {
-      return field.get(target);
-    }
+  private static Function<Object, Object> handleAccessor(MethodHandle handle) {
+    MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+    return target -> {
+      try {
+        return generic.invokeExact(target);
+      } catch (RuntimeException | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new IllegalStateException(ex);
+      }
+    };
   }
 }
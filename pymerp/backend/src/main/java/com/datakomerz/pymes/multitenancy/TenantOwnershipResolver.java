@@ -0,0 +1,138 @@
+package com.datakomerz.pymes.multitenancy;
+
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resolves the owning tenant of an entity row with a scalar
+ * {@code SELECT company_id FROM <table> WHERE id = ?} instead of loading the
+ * entity into the persistence context.
+ *
+ * <p>The statement is native SQL on purpose: Hibernate filters do not apply to
+ * native queries, so a single round trip tells apart "missing" from "owned by
+ * another tenant" without toggling the tenant filter. Table and column names
+ * come from the Hibernate mapping and are cached per entity class.</p>
+ *
+ * <p>Native SQL also skips the entity's {@link SQLRestriction}, which {@code find}
+ * applies, so the restriction is appended to the statement; soft-deleted rows
+ * ({@code deletedAt} set) are treated as missing as well.</p>
+ */
+@Component
+class TenantOwnershipResolver {
+
+  private static final Logger logger = LoggerFactory.getLogger(TenantOwnershipResolver.class);
+  private static final String[] CANDIDATE_NAMES = {"tenantId", "companyId"};
+  private static final String OWNER_ALIAS = "owner_tenant_id";
+  private static final String DELETED_AT = "deletedAt";
+
+  private final EntityManager entityManager;
+  private final Map<Class<?>, Optional<String>> ownershipSqlCache = new ConcurrentHashMap<>();
+
+  TenantOwnershipResolver(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  /**
+   * Whether ownership of {@code entityClass} can be resolved through a projection.
+   * When false callers must fall back to loading the entity.
+   */
+  boolean supports(Class<?> entityClass) {
+    return ownershipSql(entityClass).isPresent();
+  }
+
+  /**
+   * Returns the tenant owning the given row, or empty when the row does not exist.
+   */
+  @SuppressWarnings("unchecked")
+  Optional<UUID> resolveOwner(Class<?> entityClass, Object entityId) {
+    String sql = ownershipSql(entityClass)
+        .orElseThrow(() -> new IllegalStateException("No ownership projection for " + entityClass.getName()));
+    List<UUID> rows = entityManager.createNativeQuery(sql)
+        .unwrap(NativeQuery.class)
+        .addScalar(OWNER_ALIAS, UUID.class)
+        .setParameter(1, entityId)
+        .setMaxResults(1)
+        .getResultList();
+    if (rows.isEmpty()) {
+      return Optional.empty();
+    }
+    UUID owner = rows.get(0);
+    if (owner == null) {
+      throw new IllegalStateException("Entity " + entityClass.getSimpleName() + " has no tenant identifier");
+    }
+    return Optional.of(owner);
+  }
+
+  private Optional<String> ownershipSql(Class<?> entityClass) {
+    return ownershipSqlCache.computeIfAbsent(entityClass, this::buildOwnershipSql);
+  }
+
+  private Optional<String> buildOwnershipSql(Class<?> entityClass) {
+    try {
+      EntityPersister persister = entityManager.getEntityManagerFactory()
+          .unwrap(SessionFactoryImplementor.class)
+          .getMappingMetamodel()
+          .getEntityDescriptor(entityClass);
+      if (!(persister instanceof AbstractEntityPersister mapped)) {
+        return Optional.empty();
+      }
+      String[] idColumns = mapped.getIdentifierColumnNames();
+      if (idColumns.length != 1) {
+        return Optional.empty();
+      }
+      for (String candidate : CANDIDATE_NAMES) {
+        if (!hasProperty(mapped, candidate)) {
+          continue;
+        }
+        String[] tenantColumns = mapped.getPropertyColumnNames(candidate);
+        if (tenantColumns.length == 1) {
+          return Optional.of("select " + tenantColumns[0] + " as " + OWNER_ALIAS
+              + " from " + mapped.getTableName() + " where " + idColumns[0] + " = ?1"
+              + visibilityPredicate(entityClass, mapped));
+        }
+      }
+    } catch (RuntimeException ex) {
+      logger.debug("Ownership projection unavailable for {}: {}", entityClass.getName(), ex.getMessage());
+    }
+    return Optional.empty();
+  }
+
+  private static String visibilityPredicate(Class<?> entityClass, AbstractEntityPersister mapped) {
+    StringBuilder predicate = new StringBuilder();
+    if (hasProperty(mapped, DELETED_AT)) {
+      String[] deletedAtColumns = mapped.getPropertyColumnNames(DELETED_AT);
+      if (deletedAtColumns.length == 1) {
+        predicate.append(" and ").append(deletedAtColumns[0]).append(" is null");
+      }
+    }
+    for (Class<?> type = entityClass; type != null && type != Object.class; type = type.getSuperclass()) {
+      SQLRestriction restriction = type.getAnnotation(SQLRestriction.class);
+      if (restriction != null) {
+        predicate.append(" and (").append(restriction.value()).append(")");
+        break;
+      }
+    }
+    return predicate.toString();
+  }
+
+  private static boolean hasProperty(AbstractEntityPersister persister, String property) {
+    for (String name : persister.getPropertyNames()) {
+      if (name.equals(property)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -3,7 +3,10 @@ package com.datakomerz.pymes.multitenancy;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.metamodel.EntityType;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
@@ -12,6 +15,8 @@ import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * Aspect that validates cross-tenant access before executing sensitive methods.
@@ -21,19 +26,29 @@ import org.springframework.stereotype.Component;
  * belongs to the tenant stored in {@link TenantContext}. If the entity exists
  * but belongs to another tenant, a {@link CrossTenantAccessException} is
  * raised.</p>
+ *
+ * <p>Ownership is resolved with a {@code company_id} projection (see
+ * {@link TenantOwnershipResolver}) so nothing is loaded into the persistence
+ * context. Successful checks are memoized per HTTP request, so a controller
+ * and the services it calls validate the same {@code (class, id)} only once.</p>
  */
 @Aspect
 @Component
 public class TenantValidationAspect {
 
   private static final Logger logger = LoggerFactory.getLogger(TenantValidationAspect.class);
+  private static final String VALIDATED_ATTRIBUTE = TenantValidationAspect.class.getName() + ".VALIDATED";
 
   private final EntityManager entityManager;
   private final TenantFilterEnabler filterEnabler;
+  private final TenantOwnershipResolver ownershipResolver;
 
-  public TenantValidationAspect(EntityManager entityManager, TenantFilterEnabler filterEnabler) {
+  public TenantValidationAspect(EntityManager entityManager,
+                                TenantFilterEnabler filterEnabler,
+                                TenantOwnershipResolver ownershipResolver) {
     this.entityManager = entityManager;
     this.filterEnabler = filterEnabler;
+    this.ownershipResolver = ownershipResolver;
   }
 
   @Before("@annotation(validateTenant)")
@@ -57,6 +72,30 @@ public class TenantValidationAspect {
 
     Object entityId = convertIdentifier(rawId, metadata.entityClass());
 
+    Set<ValidatedEntity> validated = validatedInCurrentRequest();
+    ValidatedEntity key = new ValidatedEntity(metadata.entityClass(), entityId, currentTenant);
+    if (validated != null && validated.contains(key)) {
+      return;
+    }
+
+    if (ownershipResolver.supports(metadata.entityClass())) {
+      Optional<UUID> owner = ownershipResolver.resolveOwner(metadata.entityClass(), entityId);
+      if (owner.isEmpty()) {
+        throw new EntityNotFoundException(metadata.entityClass().getSimpleName() + " not found");
+      }
+      if (!Objects.equals(currentTenant, owner.get())) {
+        throw crossTenant(metadata.entityClass(), entityId, owner.get());
+      }
+    } else {
+      validateByLoading(metadata, entityId, currentTenant);
+    }
+
+    if (validated != null) {
+      validated.add(key);
+    }
+  }
+
+  private void validateByLoading(ValidateTenant metadata, Object entityId, UUID currentTenant) {
     // With filter enabled we should only see entities for the current tenant.
     filterEnabler.enableTenantFilter(entityManager);
     Object entity = entityManager.find(metadata.entityClass(), entityId);
@@ -96,10 +135,29 @@ public class TenantValidationAspect {
     }
 
     if (!Objects.equals(currentTenant, entityTenant)) {
-      throw new CrossTenantAccessException(
-          "Access denied: " + entityClass.getSimpleName() + "#" + entityId
-              + " belongs to tenant " + entityTenant);
+      throw crossTenant(entityClass, entityId, entityTenant);
+    }
+  }
+
+  private CrossTenantAccessException crossTenant(Class<?> entityClass, Object entityId, UUID entityTenant) {
+    return new CrossTenantAccessException(
+        "Access denied: " + entityClass.getSimpleName() + "#" + entityId
+            + " belongs to tenant " + entityTenant);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<ValidatedEntity> validatedInCurrentRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes == null) {
+      return null;
+    }
+    Object existing = attributes.getAttribute(VALIDATED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    if (existing instanceof Set<?> set) {
+      return (Set<ValidatedEntity>) set;
     }
+    Set<ValidatedEntity> created = new HashSet<>();
+    attributes.setAttribute(VALIDATED_ATTRIBUTE, created, RequestAttributes.SCOPE_REQUEST);
+    return created;
   }
 
   private Object resolveEntityId(JoinPoint joinPoint, ValidateTenant metadata) {
@@ -176,4 +234,7 @@ public class TenantValidationAspect {
     EntityType<?> entityType = entityManager.getMetamodel().entity(entityClass);
     return entityType.getIdType().getJavaType();
   }
+
+  private record ValidatedEntity(Class<?> entityClass, Object id, UUID tenantId) {
+  }
 }
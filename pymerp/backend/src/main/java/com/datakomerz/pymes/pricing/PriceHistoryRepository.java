@@ -1,12 +1,23 @@
 package com.datakomerz.pymes.pricing;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PriceHistoryRepository extends JpaRepository<PriceHistory, UUID> {
   Page<PriceHistory> findByProductIdOrderByValidFromDesc(UUID productId, Pageable pageable);
   Optional<PriceHistory> findFirstByProductIdOrderByValidFromDesc(UUID productId);
-}
+
+  /** Latest price of every product (not deleted) of a company, as {@code [productId, price]} rows. */
+  @Query("""
+    select ph.productId, ph.price from PriceHistory ph
+    where ph.productId in (select p.id from Product p where p.companyId = :companyId and p.deletedAt is null)
+      and ph.validFrom = (select max(h.validFrom) from PriceHistory h where h.productId = ph.productId)
+    """)
+  List<Object[]> findLatestPrices(@Param("companyId") UUID companyId);
+}
@@ -4,6 +4,7 @@ import com.datakomerz.pymes.core.tenancy.CompanyContext;
 import com.datakomerz.pymes.multitenancy.ValidateTenant;
 import com.datakomerz.pymes.pricing.dto.PriceChangeRequest;
 import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductCatalogChanged;
 import com.datakomerz.pymes.products.ProductRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
@@ -12,6 +13,7 @@ import java.math.RoundingMode;
 import java.time.OffsetDateTime;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -23,13 +25,16 @@ public class PricingService {
   private final PriceHistoryRepository priceHistoryRepository;
   private final ProductRepository productRepository;
   private final CompanyContext companyContext;
+  private final ApplicationEventPublisher eventPublisher;
 
   public PricingService(PriceHistoryRepository priceHistoryRepository,
                         ProductRepository productRepository,
-                        CompanyContext companyContext) {
+                        CompanyContext companyContext,
+                        ApplicationEventPublisher eventPublisher) {
     this.priceHistoryRepository = priceHistoryRepository;
     this.productRepository = productRepository;
     this.companyContext = companyContext;
+    this.eventPublisher = eventPublisher;
   }
 
   @Transactional(Transactional.TxType.SUPPORTS)
@@ -46,7 +51,10 @@ public class PricingService {
     entry.setProductId(product.getId());
     entry.setPrice(request.price().setScale(4, RoundingMode.HALF_UP));
     entry.setValidFrom(request.validFrom() != null ? request.validFrom() : OffsetDateTime.now());
-    return priceHistoryRepository.save(entry);
+    PriceHistory saved = priceHistoryRepository.save(entry);
+    // A back-dated price may not be the latest one; the POS catalogue carries whichever is.
+    eventPublisher.publishEvent(ProductCatalogChanged.of(product, latestPrice(product.getId()).orElse(null)));
+    return saved;
   }
 
   @Transactional(Transactional.TxType.SUPPORTS)
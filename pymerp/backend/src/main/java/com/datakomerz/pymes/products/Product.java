@@ -1,6 +1,7 @@
 package com.datakomerz.pymes.products;
 
 import com.datakomerz.pymes.audit.AuditableEntity;
+import com.datakomerz.pymes.common.search.SearchNormalizer;
 import com.datakomerz.pymes.multitenancy.TenantFiltered;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
@@ -45,6 +46,9 @@ public class Product extends AuditableEntity {
 
   private Integer version;
 
+  @Column(name = "search_name", length = 120)
+  private String searchName;
+
   @PrePersist
   public void prePersist() {
     if (id == null) {
@@ -59,6 +63,7 @@ public class Product extends AuditableEntity {
     if (criticalStock == null) {
       criticalStock = BigDecimal.ZERO;
     }
+    searchName = SearchNormalizer.normalize(name);
   }
 
   @PreUpdate
@@ -70,6 +75,7 @@ public class Product extends AuditableEntity {
     if (criticalStock == null) {
       criticalStock = BigDecimal.ZERO;
     }
+    searchName = SearchNormalizer.normalize(name);
   }
 
   public UUID getId() {
@@ -167,4 +173,8 @@ public class Product extends AuditableEntity {
   public void setVersion(Integer version) {
     this.version = version;
   }
+
+  public String getSearchName() {
+    return searchName;
+  }
 }
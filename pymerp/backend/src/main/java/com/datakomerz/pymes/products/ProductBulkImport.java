@@ -0,0 +1,126 @@
+package com.datakomerz.pymes.products;
+
+import com.datakomerz.pymes.common.ValueNormalizer;
+import com.datakomerz.pymes.common.imports.BulkImportHandler;
+import com.datakomerz.pymes.common.imports.BulkImportReport;
+import com.datakomerz.pymes.common.imports.BulkImporter;
+import com.datakomerz.pymes.common.imports.ImportRowReader;
+import com.datakomerz.pymes.common.imports.ImportValues;
+import com.datakomerz.pymes.products.dto.ProductReq;
+import jakarta.validation.Validator;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Bulk product import. Accepts the header of the product CSV export. SKUs must be unique per
+ * company (deleted products included, as the database constraint does) and barcodes among
+ * non-deleted products. QR codes are not generated here; {@code POST /api/v1/products/qr/regenerate}
+ * fills them in afterwards.
+ */
+@Component
+public class ProductBulkImport implements BulkImportHandler<Product> {
+
+  private static final Map<String, String> COLUMNS = Map.ofEntries(
+    Map.entry("sku", "sku"),
+    Map.entry("codigo", "sku"),
+    Map.entry("nombre", "name"),
+    Map.entry("name", "name"),
+    Map.entry("descripcion", "description"),
+    Map.entry("description", "description"),
+    Map.entry("categoria", "category"),
+    Map.entry("category", "category"),
+    Map.entry("codigo de barras", "barcode"),
+    Map.entry("barcode", "barcode"),
+    Map.entry("ean", "barcode"),
+    Map.entry("stock critico", "criticalStock"),
+    Map.entry("critical stock", "criticalStock"),
+    Map.entry("activo", "active"),
+    Map.entry("active", "active"));
+
+  private final BulkImporter importer;
+  private final ProductRepository repository;
+  private final ProductCatalogIndex catalogIndex;
+  private final ValueNormalizer valueNormalizer;
+  private final Validator validator;
+
+  public ProductBulkImport(BulkImporter importer,
+                           ProductRepository repository,
+                           ProductCatalogIndex catalogIndex,
+                           ValueNormalizer valueNormalizer,
+                           Validator validator) {
+    this.importer = importer;
+    this.repository = repository;
+    this.catalogIndex = catalogIndex;
+    this.valueNormalizer = valueNormalizer;
+    this.validator = validator;
+  }
+
+  @CacheEvict(value = "products", allEntries = true)
+  public BulkImportReport importFile(UUID companyId, MultipartFile file) throws IOException {
+    try (ImportRowReader reader = ImportRowReader.open(file)) {
+      return importer.run(companyId, reader, this);
+    } finally {
+      catalogIndex.invalidate(companyId);
+    }
+  }
+
+  @Override
+  public Map<String, String> columns() {
+    return COLUMNS;
+  }
+
+  @Override
+  public Set<String> requiredColumns() {
+    return Set.of("sku", "name");
+  }
+
+  @Override
+  public Product parse(UUID companyId, Map<String, String> fields) {
+    ProductReq request = ImportValues.validate(validator, new ProductReq(
+      fields.get("sku"),
+      fields.get("name"),
+      fields.get("description"),
+      fields.get("category"),
+      fields.get("barcode"),
+      null));
+    BigDecimal criticalStock = ImportValues.decimal("criticalStock", fields.get("criticalStock"));
+    if (criticalStock != null && criticalStock.signum() < 0) {
+      throw new IllegalArgumentException("criticalStock: no puede ser negativo");
+    }
+    Product product = new Product();
+    product.setCompanyId(companyId);
+    product.setSku(request.sku().trim());
+    product.setName(request.name().trim());
+    product.setDescription(valueNormalizer.normalize(request.description()));
+    product.setCategory(valueNormalizer.normalize(request.category()));
+    product.setBarcode(valueNormalizer.normalize(request.barcode()));
+    product.setCriticalStock(criticalStock != null ? criticalStock : BigDecimal.ZERO);
+    product.setActive(ImportValues.bool("active", fields.get("active"), true));
+    return product;
+  }
+
+  @Override
+  public Map<String, String> uniqueKeys(Product product) {
+    Map<String, String> keys = new HashMap<>();
+    keys.put("sku", product.getSku());
+    keys.put("barcode", product.getBarcode());
+    return keys;
+  }
+
+  @Override
+  public Set<String> findExisting(UUID companyId, String field, Collection<String> keys) {
+    return switch (field) {
+      case "sku" -> repository.findExistingSkus(companyId, keys);
+      case "barcode" -> repository.findExistingBarcodes(companyId, keys);
+      default -> throw new IllegalArgumentException("Unknown unique field: " + field);
+    };
+  }
+}
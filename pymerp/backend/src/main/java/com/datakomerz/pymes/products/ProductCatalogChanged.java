@@ -0,0 +1,26 @@
+package com.datakomerz.pymes.products;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Published by {@link ProductService} when a product is saved or deleted, and by the pricing
+ * service when a new price is registered.
+ *
+ * @param productId changed product, or {@code null} when the whole tenant must be reloaded
+ * @param entry snapshot after the change, or {@code null} when the product was deleted
+ */
+public record ProductCatalogChanged(UUID companyId, UUID productId, ProductCatalogIndex.Entry entry) {
+
+  /** @param price latest price of the product, or {@code null} when it has none */
+  public static ProductCatalogChanged of(Product product, BigDecimal price) {
+    ProductCatalogIndex.Entry entry = product.getDeletedAt() == null
+      ? ProductCatalogIndex.Entry.of(product, price)
+      : null;
+    return new ProductCatalogChanged(product.getCompanyId(), product.getId(), entry);
+  }
+
+  static ProductCatalogChanged invalidated(UUID companyId) {
+    return new ProductCatalogChanged(companyId, null, null);
+  }
+}
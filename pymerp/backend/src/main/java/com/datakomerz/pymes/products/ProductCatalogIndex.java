@@ -0,0 +1,481 @@
+package com.datakomerz.pymes.products;
+
+import com.datakomerz.pymes.common.search.SearchNormalizer;
+import com.datakomerz.pymes.pricing.PriceHistoryRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory per-tenant product catalogue for POS lookups: hash maps by barcode and SKU and a
+ * sorted word index for name typeahead.
+ *
+ * <p>A tenant is loaded on first access and then kept in step by {@link ProductCatalogChanged}
+ * events published by {@link ProductService} (and by the pricing service when a price is
+ * registered), applied once the saving transaction commits.
+ * Snapshots are immutable: a change builds the next snapshot without any lock and swaps it in
+ * with a compare-and-set, so lookups and writers never block each other. Local changes are
+ * forwarded to the other nodes through {@link #publishTo}; a snapshot older than
+ * {@code max-age} is reloaded in case such a message was lost. Whole tenants are evicted
+ * least-recently-used when {@code max-tenants} or {@code max-products} is exceeded; a tenant
+ * larger than {@code max-products} on its own is served from the database instead.</p>
+ */
+@Component
+public class ProductCatalogIndex {
+
+  private static final int MAX_TYPEAHEAD_LIMIT = 50;
+
+  private final Function<UUID, List<Entry>> loader;
+  private final int maxTenants;
+  private final int maxProducts;
+  private final Duration maxAge;
+  private final Clock clock;
+  private final ConcurrentHashMap<UUID, Slot> tenants = new ConcurrentHashMap<>();
+  private final Map<UUID, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final AtomicLong indexedProducts = new AtomicLong();
+  private final AtomicLong accesses = new AtomicLong();
+  private final Object evictionLock = new Object();
+  private volatile Consumer<ProductCatalogChanged> peers = change -> { };
+
+  @Autowired
+  public ProductCatalogIndex(ProductRepository repository,
+                             PriceHistoryRepository priceRepository,
+                             @Value("${app.products.catalog-index.max-tenants:200}") int maxTenants,
+                             @Value("${app.products.catalog-index.max-products:500000}") int maxProducts,
+                             @Value("${app.products.catalog-index.max-age:PT2M}") Duration maxAge,
+                             ObjectProvider<Clock> clockProvider) {
+    this(companyId -> load(repository, priceRepository, companyId),
+      maxTenants, maxProducts, maxAge, clockProvider.getIfAvailable(Clock::systemUTC));
+  }
+
+  ProductCatalogIndex(Function<UUID, List<Entry>> loader, int maxTenants, int maxProducts) {
+    this(loader, maxTenants, maxProducts, Duration.ofMinutes(2), Clock.systemUTC());
+  }
+
+  ProductCatalogIndex(Function<UUID, List<Entry>> loader, int maxTenants, int maxProducts,
+                      Duration maxAge, Clock clock) {
+    this.loader = loader;
+    this.maxTenants = Math.max(1, maxTenants);
+    this.maxProducts = Math.max(1, maxProducts);
+    this.maxAge = maxAge;
+    this.clock = clock;
+  }
+
+  /** Products (not deleted) with this exact barcode. */
+  public List<Entry> findByBarcode(UUID companyId, String barcode) {
+    if (barcode == null || barcode.isBlank()) {
+      return List.of();
+    }
+    return catalog(companyId).byBarcode.getOrDefault(barcode.trim(), List.of());
+  }
+
+  /** Product (not deleted) with this SKU, ignoring case. */
+  public Optional<Entry> findBySku(UUID companyId, String sku) {
+    if (sku == null || sku.isBlank()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(catalog(companyId).bySku.get(skuKey(sku)));
+  }
+
+  /**
+   * Products whose name, or any word of it, starts with {@code prefix} (accents and case
+   * ignored). Whole-name matches come first, then alphabetical.
+   */
+  public List<Entry> typeahead(UUID companyId, String prefix, boolean activeOnly, int limit) {
+    String folded = SearchNormalizer.normalize(prefix);
+    if (folded == null) {
+      return List.of();
+    }
+    return catalog(companyId).typeahead(folded, activeOnly, Math.min(Math.max(1, limit), MAX_TYPEAHEAD_LIMIT));
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onProductChanged(ProductCatalogChanged event) {
+    if (event.companyId() == null) {
+      return;
+    }
+    apply(event);
+    peers.accept(event);
+  }
+
+  /** Drops a tenant so it is reloaded on next access, here and on the other nodes. */
+  public void invalidate(UUID companyId) {
+    ProductCatalogChanged event = ProductCatalogChanged.invalidated(companyId);
+    apply(event);
+    peers.accept(event);
+  }
+
+  /** Where local changes are forwarded so the other nodes can apply them too. */
+  void publishTo(Consumer<ProductCatalogChanged> peers) {
+    this.peers = peers;
+  }
+
+  /** Applies a change made on another node; it is not forwarded again. */
+  void applyFromPeer(ProductCatalogChanged event) {
+    if (event.companyId() != null) {
+      apply(event);
+    }
+  }
+
+  int cachedTenants() {
+    return tenants.size();
+  }
+
+  long indexedProducts() {
+    return indexedProducts.get();
+  }
+
+  private void apply(ProductCatalogChanged event) {
+    UUID companyId = event.companyId();
+    generation(companyId).incrementAndGet();
+    if (event.productId() == null) {
+      Slot removed = tenants.remove(companyId);
+      if (removed != null) {
+        indexedProducts.addAndGet(-removed.catalog.size());
+      }
+      return;
+    }
+    while (true) {
+      Slot current = tenants.get(companyId);
+      if (current == null) {
+        return;
+      }
+      TenantCatalog updated = event.entry() == null
+        ? current.catalog.without(event.productId())
+        : current.catalog.with(event.entry());
+      if (tenants.replace(companyId, current, current.replacedBy(updated))) {
+        indexedProducts.addAndGet(updated.size() - current.catalog.size());
+        evictOverBudget(companyId);
+        return;
+      }
+      // Another change replaced the snapshot while this one was built; rebuild on top of it.
+    }
+  }
+
+  private TenantCatalog catalog(UUID companyId) {
+    Slot cached = tenants.get(companyId);
+    if (cached != null && !expired(cached)) {
+      cached.lastUsed = accesses.incrementAndGet();
+      return cached.catalog;
+    }
+    // Loaded without any lock; a change that lands meanwhile makes this snapshot stale, so it
+    // is served once but not cached.
+    long generation = generation(companyId).get();
+    TenantCatalog loaded = TenantCatalog.of(loader.apply(companyId));
+    if (loaded.size() > maxProducts) {
+      return loaded;
+    }
+    Slot fresh = new Slot(loaded, clock.millis(), accesses.incrementAndGet());
+    Slot installed = tenants.compute(companyId, (id, existing) -> {
+      if (existing != cached || generation(id).get() != generation) {
+        return existing;
+      }
+      indexedProducts.addAndGet(loaded.size() - (existing == null ? 0 : existing.catalog.size()));
+      return fresh;
+    });
+    if (installed != fresh) {
+      return installed != null && !expired(installed) ? installed.catalog : loaded;
+    }
+    // A change may have bumped the generation after the check above but before the swap
+    // became visible to it; drop the snapshot rather than keep it stale.
+    if (generation(companyId).get() != generation && tenants.remove(companyId, fresh)) {
+      indexedProducts.addAndGet(-loaded.size());
+      return loaded;
+    }
+    evictOverBudget(companyId);
+    return loaded;
+  }
+
+  private boolean expired(Slot slot) {
+    return clock.millis() - slot.loadedAt >= maxAge.toMillis();
+  }
+
+  private void evictOverBudget(UUID keep) {
+    if (tenants.size() <= maxTenants && indexedProducts.get() <= maxProducts) {
+      return;
+    }
+    // Only evictions serialise, and only once the budget is exceeded.
+    synchronized (evictionLock) {
+      List<Candidate> candidates = new ArrayList<>();
+      tenants.forEach((companyId, slot) -> candidates.add(new Candidate(companyId, slot, slot.lastUsed)));
+      candidates.sort(Comparator.comparingLong(Candidate::lastUsed));
+      for (Candidate candidate : candidates) {
+        if (tenants.size() <= maxTenants && indexedProducts.get() <= maxProducts) {
+          return;
+        }
+        if (!candidate.companyId().equals(keep) && tenants.remove(candidate.companyId(), candidate.slot())) {
+          indexedProducts.addAndGet(-candidate.slot().catalog.size());
+        }
+      }
+    }
+  }
+
+  /** Products of a tenant with their latest prices, read in two queries rather than one per product. */
+  private static List<Entry> load(ProductRepository repository, PriceHistoryRepository priceRepository,
+                                  UUID companyId) {
+    Map<UUID, BigDecimal> prices = new HashMap<>();
+    for (Object[] row : priceRepository.findLatestPrices(companyId)) {
+      prices.put((UUID) row[0], (BigDecimal) row[1]);
+    }
+    return repository.findByCompanyIdAndDeletedAtIsNull(companyId).stream()
+      .map(product -> Entry.of(product, prices.get(product.getId())))
+      .toList();
+  }
+
+  private AtomicLong generation(UUID companyId) {
+    return generations.computeIfAbsent(companyId, ignored -> new AtomicLong());
+  }
+
+  private static String skuKey(String sku) {
+    return sku.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /** Current snapshot of a tenant plus the bookkeeping for max-age and LRU eviction. */
+  private static final class Slot {
+
+    private final TenantCatalog catalog;
+    private final long loadedAt;
+    private volatile long lastUsed;
+
+    private Slot(TenantCatalog catalog, long loadedAt, long lastUsed) {
+      this.catalog = catalog;
+      this.loadedAt = loadedAt;
+      this.lastUsed = lastUsed;
+    }
+
+    Slot replacedBy(TenantCatalog updated) {
+      return new Slot(updated, loadedAt, lastUsed);
+    }
+  }
+
+  private record Candidate(UUID companyId, Slot slot, long lastUsed) {
+  }
+
+  /** Immutable copy of the product fields the POS needs, with its latest price. */
+  public record Entry(UUID id,
+                      String sku,
+                      String name,
+                      String description,
+                      String category,
+                      String barcode,
+                      String imageUrl,
+                      String qrUrl,
+                      BigDecimal criticalStock,
+                      BigDecimal price,
+                      boolean active,
+                      String searchName) {
+
+    /** @param price latest {@code price_history} value, or {@code null} when it has none */
+    public static Entry of(Product product, BigDecimal price) {
+      return new Entry(product.getId(), product.getSku(), product.getName(), product.getDescription(),
+        product.getCategory(), product.getBarcode(), product.getImageUrl(), product.getQrUrl(),
+        product.getCriticalStock(), price, Boolean.TRUE.equals(product.getActive()),
+        SearchNormalizer.normalize(product.getName()));
+    }
+  }
+
+  private static final class TenantCatalog {
+
+    private final Map<UUID, Entry> byId;
+    private final Map<String, List<Entry>> byBarcode;
+    private final Map<String, Entry> bySku;
+    // Every word suffix of every folded name, sorted, with the owning entry at the same index.
+    private final String[] nameKeys;
+    private final Entry[] nameEntries;
+
+    private TenantCatalog(Map<UUID, Entry> byId,
+                          Map<String, List<Entry>> byBarcode,
+                          Map<String, Entry> bySku,
+                          String[] nameKeys,
+                          Entry[] nameEntries) {
+      this.byId = byId;
+      this.byBarcode = byBarcode;
+      this.bySku = bySku;
+      this.nameKeys = nameKeys;
+      this.nameEntries = nameEntries;
+    }
+
+    static TenantCatalog of(Collection<Entry> entries) {
+      Map<UUID, Entry> byId = new HashMap<>();
+      Map<String, List<Entry>> barcodes = new HashMap<>();
+      Map<String, Entry> skus = new HashMap<>();
+      List<NameKey> keys = new ArrayList<>();
+      for (Entry entry : entries) {
+        byId.put(entry.id(), entry);
+        String barcode = barcodeKey(entry);
+        if (barcode != null) {
+          barcodes.computeIfAbsent(barcode, ignored -> new ArrayList<>()).add(entry);
+        }
+        if (entry.sku() != null) {
+          skus.put(skuKey(entry.sku()), entry);
+        }
+        keys.addAll(nameKeys(entry));
+      }
+      barcodes.replaceAll((barcode, matches) -> List.copyOf(matches));
+      keys.sort(Comparator.comparing(NameKey::key));
+      return new TenantCatalog(byId, barcodes, skus,
+        keys.stream().map(NameKey::key).toArray(String[]::new),
+        keys.stream().map(NameKey::entry).toArray(Entry[]::new));
+    }
+
+    int size() {
+      return byId.size();
+    }
+
+    /** Copy with {@code entry} added or replaced; linear in the catalogue size, no re-sort. */
+    TenantCatalog with(Entry entry) {
+      Entry previous = byId.get(entry.id());
+      Map<UUID, Entry> ids = new HashMap<>(byId);
+      ids.put(entry.id(), entry);
+      Map<String, List<Entry>> barcodes = new HashMap<>(byBarcode);
+      Map<String, Entry> skus = new HashMap<>(bySku);
+      if (previous != null) {
+        removeFrom(barcodes, skus, previous);
+      }
+      String barcode = barcodeKey(entry);
+      if (barcode != null) {
+        List<Entry> matches = new ArrayList<>(barcodes.getOrDefault(barcode, List.of()));
+        matches.add(entry);
+        barcodes.put(barcode, List.copyOf(matches));
+      }
+      if (entry.sku() != null) {
+        skus.put(skuKey(entry.sku()), entry);
+      }
+      List<NameKey> added = new ArrayList<>(nameKeys(entry));
+      added.sort(Comparator.comparing(NameKey::key));
+      return mergeNames(ids, barcodes, skus, previous == null ? null : previous.id(), added);
+    }
+
+    TenantCatalog without(UUID productId) {
+      Entry previous = byId.get(productId);
+      if (previous == null) {
+        return this;
+      }
+      Map<UUID, Entry> ids = new HashMap<>(byId);
+      ids.remove(productId);
+      Map<String, List<Entry>> barcodes = new HashMap<>(byBarcode);
+      Map<String, Entry> skus = new HashMap<>(bySku);
+      removeFrom(barcodes, skus, previous);
+      return mergeNames(ids, barcodes, skus, productId, List.of());
+    }
+
+    List<Entry> typeahead(String prefix, boolean activeOnly, int limit) {
+      int index = Arrays.binarySearch(nameKeys, prefix);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      Set<Entry> wholeName = new LinkedHashSet<>();
+      Set<Entry> anyWord = new LinkedHashSet<>();
+      for (int i = index; i < nameKeys.length && nameKeys[i].startsWith(prefix); i++) {
+        Entry entry = nameEntries[i];
+        if (activeOnly && !entry.active()) {
+          continue;
+        }
+        if (entry.searchName().startsWith(prefix)) {
+          wholeName.add(entry);
+          if (wholeName.size() >= limit) {
+            break;
+          }
+        } else if (anyWord.size() < limit) {
+          anyWord.add(entry);
+        }
+      }
+      List<Entry> result = new ArrayList<>(wholeName);
+      for (Entry entry : anyWord) {
+        if (result.size() >= limit) {
+          break;
+        }
+        if (!wholeName.contains(entry)) {
+          result.add(entry);
+        }
+      }
+      return List.copyOf(result);
+    }
+
+    private TenantCatalog mergeNames(Map<UUID, Entry> ids,
+                                     Map<String, List<Entry>> barcodes,
+                                     Map<String, Entry> skus,
+                                     UUID removedId,
+                                     List<NameKey> added) {
+      int capacity = nameKeys.length + added.size();
+      String[] keys = new String[capacity];
+      Entry[] entries = new Entry[capacity];
+      int size = 0;
+      int next = 0;
+      for (int i = 0; i < nameKeys.length; i++) {
+        if (removedId != null && nameEntries[i].id().equals(removedId)) {
+          continue;
+        }
+        while (next < added.size() && added.get(next).key().compareTo(nameKeys[i]) < 0) {
+          keys[size] = added.get(next).key();
+          entries[size++] = added.get(next++).entry();
+        }
+        keys[size] = nameKeys[i];
+        entries[size++] = nameEntries[i];
+      }
+      while (next < added.size()) {
+        keys[size] = added.get(next).key();
+        entries[size++] = added.get(next++).entry();
+      }
+      return new TenantCatalog(ids, barcodes, skus, Arrays.copyOf(keys, size), Arrays.copyOf(entries, size));
+    }
+
+    private static void removeFrom(Map<String, List<Entry>> barcodes, Map<String, Entry> skus, Entry previous) {
+      String barcode = barcodeKey(previous);
+      if (barcode != null) {
+        List<Entry> remaining = barcodes.getOrDefault(barcode, List.of()).stream()
+          .filter(match -> !match.id().equals(previous.id()))
+          .toList();
+        if (remaining.isEmpty()) {
+          barcodes.remove(barcode);
+        } else {
+          barcodes.put(barcode, remaining);
+        }
+      }
+      if (previous.sku() != null) {
+        skus.remove(skuKey(previous.sku()), previous);
+      }
+    }
+
+    private static String barcodeKey(Entry entry) {
+      return entry.barcode() == null || entry.barcode().isBlank() ? null : entry.barcode().trim();
+    }
+
+    private static List<NameKey> nameKeys(Entry entry) {
+      String name = entry.searchName();
+      if (name == null) {
+        return List.of();
+      }
+      List<NameKey> keys = new ArrayList<>();
+      keys.add(new NameKey(name, entry));
+      for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+        keys.add(new NameKey(name.substring(i + 1), entry));
+      }
+      return keys;
+    }
+
+    private record NameKey(String key, Entry entry) {
+    }
+  }
+}
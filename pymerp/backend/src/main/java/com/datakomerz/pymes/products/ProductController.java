@@ -1,5 +1,8 @@
 package com.datakomerz.pymes.products;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.imports.BulkImportReport;
+import com.datakomerz.pymes.common.search.SearchTerms;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
 import com.datakomerz.pymes.inventory.InventoryLot;
 import com.datakomerz.pymes.inventory.InventoryService;
@@ -12,6 +15,7 @@ import com.datakomerz.pymes.products.dto.ProductRes;
 import com.datakomerz.pymes.products.dto.ProductStatusRequest;
 import com.datakomerz.pymes.products.dto.ProductStockLot;
 import com.datakomerz.pymes.products.dto.ProductStockResponse;
+import com.datakomerz.pymes.products.dto.ProductSuggestion;
 import com.datakomerz.pymes.products.dto.LowStockProduct;
 import com.datakomerz.pymes.multitenancy.ValidateTenant;
 import com.datakomerz.pymes.purchases.Purchase;
@@ -19,18 +23,22 @@ import com.datakomerz.pymes.purchases.PurchaseRepository;
 import com.datakomerz.pymes.storage.StorageService;
 import com.datakomerz.pymes.storage.StorageService.StoredFile;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -66,8 +74,15 @@ public class ProductController {
   private final ProductService productService;
   private final LocationRepository locationRepository;
   private final PurchaseRepository purchaseRepository;
+  private final ProductCatalogIndex catalogIndex;
+  private final CsvExporter csvExporter;
+  private final ProductBulkImport bulkImport;
 
   private static final long MAX_IMAGE_BYTES = 1_048_576; // 1 MB
+  private static final int QR_REGENERATION_BATCH_SIZE = 200;
+  private static final List<String> EXPORT_HEADER = List.of(
+    "SKU", "Nombre", "Descripción", "Categoría", "Código de Barras", "Stock Crítico", "Activo", "Creado",
+    "Actualizado");
   private static final List<String> ALLOWED_IMAGE_TYPES = List.of(
     MediaType.IMAGE_PNG_VALUE,
     MediaType.IMAGE_JPEG_VALUE,
@@ -82,7 +97,10 @@ public class ProductController {
                            InventoryService inventoryService,
                            ProductService productService,
                            LocationRepository locationRepository,
-                           PurchaseRepository purchaseRepository) {
+                           PurchaseRepository purchaseRepository,
+                           ProductCatalogIndex catalogIndex,
+                           CsvExporter csvExporter,
+                           ProductBulkImport bulkImport) {
     this.repo = repo;
     this.companyContext = companyContext;
     this.pricingService = pricingService;
@@ -92,6 +110,9 @@ public class ProductController {
     this.productService = productService;
     this.locationRepository = locationRepository;
     this.purchaseRepository = purchaseRepository;
+    this.catalogIndex = catalogIndex;
+    this.csvExporter = csvExporter;
+    this.bulkImport = bulkImport;
   }
 
   @GetMapping
@@ -110,7 +131,7 @@ public class ProductController {
     } else if (query.isEmpty()) {
       products = findByName("", pageable, activeFilter);
     } else if (query.matches("^\\d+$")) {
-      products = findByBarcode(query, pageable, activeFilter);
+      return findByBarcode(companyId, query, pageable, activeFilter);
     } else if (query.toUpperCase().startsWith("SKU-")) {
       products = findBySku(query, pageable, activeFilter);
     } else {
@@ -119,6 +140,48 @@ public class ProductController {
     return products.map(this::toResponse);
   }
 
+  /** POS scan: exact barcode, then exact SKU, served from the in-memory catalogue. */
+  @GetMapping("/lookup")
+  @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'SETTINGS', 'ADMIN') or hasAuthority('SCOPE_products:read')")
+  public ResponseEntity<ProductRes> lookup(@RequestParam String code) {
+    UUID companyId = companyContext.require();
+    Optional<ProductCatalogIndex.Entry> match = catalogIndex.findByBarcode(companyId, code).stream()
+      .filter(ProductCatalogIndex.Entry::active)
+      .findFirst()
+      .or(() -> catalogIndex.findBySku(companyId, code).filter(ProductCatalogIndex.Entry::active));
+    return match.map(entry -> ResponseEntity.ok(toResponse(entry)))
+      .orElseGet(() -> ResponseEntity.notFound().build());
+  }
+
+  @GetMapping("/typeahead")
+  @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'SETTINGS', 'ADMIN') or hasAuthority('SCOPE_products:read')")
+  public List<ProductSuggestion> typeahead(@RequestParam String q,
+                                           @RequestParam(defaultValue = "10") int limit,
+                                           @RequestParam(defaultValue = "active") String status) {
+    UUID companyId = companyContext.require();
+    boolean activeOnly = Boolean.TRUE.equals(resolveActiveFilter(status));
+    return catalogIndex.typeahead(companyId, q, activeOnly, limit).stream()
+      .map(entry -> new ProductSuggestion(entry.id(), entry.sku(), entry.name(), entry.barcode(),
+        entry.imageUrl(), entry.active()))
+      .toList();
+  }
+
+  @GetMapping("/export")
+  @PreAuthorize("hasAnyRole('ERP_USER', 'SETTINGS', 'ADMIN')")
+  public void exportToCSV(@RequestParam(required = false) String q,
+                          @RequestParam(defaultValue = "all") String status,
+                          @RequestParam(defaultValue = "false") boolean gzip,
+                          HttpServletResponse response) throws IOException {
+    UUID companyId = companyContext.require();
+    Boolean activeFilter = resolveActiveFilter(status);
+    csvExporter.export(response, "productos.csv", gzip, EXPORT_HEADER,
+      () -> productService.exportRows(companyId, activeFilter, q),
+      product -> new Object[] {
+        product.sku(), product.name(), product.description(), product.category(), product.barcode(),
+        product.criticalStock(), Boolean.TRUE.equals(product.active()), product.createdAt(), product.updatedAt()
+      });
+  }
+
   @GetMapping("/low-stock")
   @PreAuthorize("hasAnyRole('ERP_USER', 'READONLY', 'SETTINGS', 'ADMIN')")
   public List<LowStockProduct> lowStock() {
@@ -145,6 +208,16 @@ public class ProductController {
     return toResponse(persisted);
   }
 
+  /**
+   * Header-based CSV/XLSX import (accepts the export's columns) with a per-row error report.
+   * QR codes are generated afterwards through {@code /qr/regenerate}.
+   */
+  @PostMapping(value = "/bulk-import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  @PreAuthorize("hasAnyRole('SETTINGS', 'ADMIN')")
+  public BulkImportReport bulkImport(@RequestParam("file") MultipartFile file) throws IOException {
+    return bulkImport.importFile(companyContext.require(), file);
+  }
+
   @PutMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
   @PreAuthorize("hasAnyRole('SETTINGS', 'ADMIN')")
   @ValidateTenant(entityClass = Product.class, entityParamIndex = 0)
@@ -189,6 +262,38 @@ public class ProductController {
     return toResponse(saved);
   }
 
+  @PostMapping("/qr/regenerate")
+  @PreAuthorize("hasAnyRole('SETTINGS', 'ADMIN')")
+  public Map<String, Integer> regenerateQrCodes() throws IOException {
+    UUID companyId = companyContext.require();
+    int regenerated = 0;
+    Pageable pageable = PageRequest.of(0, QR_REGENERATION_BATCH_SIZE, Sort.by("id"));
+    Page<Product> page;
+    try {
+      do {
+        page = repo.findByDeletedAtIsNullAndActiveIsTrue(pageable);
+        Map<String, QrCodeService.GeneratedQr> codes = qrCodeService.generateAll(
+          page.getContent().stream().map(Product::getSku).toList());
+        List<Product> updated = new ArrayList<>();
+        for (Product product : page.getContent()) {
+          QrCodeService.GeneratedQr qr = product.getSku() != null ? codes.get(product.getSku()) : null;
+          if (qr == null) {
+            continue;
+          }
+          product.setQrUrl(storageService.storeProductQr(companyId, product.getId(), qr.content(), qr.extension()));
+          updated.add(product);
+        }
+        productService.saveBatch(updated);
+        regenerated += updated.size();
+        pageable = page.nextPageable();
+      } while (page.hasNext());
+    } finally {
+      // One reload instead of a snapshot rebuild per product.
+      catalogIndex.invalidate(companyId);
+    }
+    return Map.of("regenerated", regenerated);
+  }
+
   @GetMapping("/{id}/qr")
   @ValidateTenant(entityClass = Product.class, entityParamIndex = 0)
   public ResponseEntity<Resource> getQr(@PathVariable UUID id,
@@ -303,24 +408,28 @@ public class ProductController {
   }
 
   private Page<Product> findByName(String query, Pageable pageable, Boolean activeFilter) {
-    if (activeFilter == null) {
-      return repo.findByDeletedAtIsNullAndNameContainingIgnoreCase(query, pageable);
+    SearchTerms terms = SearchTerms.of(query);
+    if (terms == null) {
+      if (activeFilter == null) {
+        return repo.findByDeletedAtIsNullAndNameContainingIgnoreCase(query, pageable);
+      }
+      return repo.findByDeletedAtIsNullAndActiveIsAndNameContainingIgnoreCase(activeFilter, query, pageable);
     }
-    return repo.findByDeletedAtIsNullAndActiveIsAndNameContainingIgnoreCase(activeFilter, query, pageable);
+    return repo.searchByName(activeFilter, terms.contains(), terms.prefix(), terms.wordPrefix(), pageable);
   }
 
   private Page<Product> findBySku(String query, Pageable pageable, Boolean activeFilter) {
-    if (activeFilter == null) {
-      return repo.findByDeletedAtIsNullAndSkuContainingIgnoreCase(query, pageable);
-    }
-    return repo.findByDeletedAtIsNullAndActiveIsAndSkuContainingIgnoreCase(activeFilter, query, pageable);
+    return repo.searchBySku(activeFilter, SearchTerms.containsIgnoreCase(query), query.trim().toLowerCase(), pageable);
   }
 
-  private Page<Product> findByBarcode(String query, Pageable pageable, Boolean activeFilter) {
-    if (activeFilter == null) {
-      return repo.findByDeletedAtIsNullAndBarcode(query, pageable);
-    }
-    return repo.findByDeletedAtIsNullAndActiveIsAndBarcode(activeFilter, query, pageable);
+  private Page<ProductRes> findByBarcode(UUID companyId, String query, Pageable pageable, Boolean activeFilter) {
+    List<ProductCatalogIndex.Entry> matches = catalogIndex.findByBarcode(companyId, query).stream()
+      .filter(entry -> activeFilter == null || entry.active() == activeFilter)
+      .sorted(Comparator.comparing(ProductCatalogIndex.Entry::name))
+      .toList();
+    int from = (int) Math.min(pageable.getOffset(), matches.size());
+    int to = Math.min(from + pageable.getPageSize(), matches.size());
+    return new PageImpl<>(matches.subList(from, to), pageable, matches.size()).map(this::toResponse);
   }
 
   private Boolean resolveActiveFilter(String status) {
@@ -347,6 +456,22 @@ public class ProductController {
     }
   }
 
+  private ProductRes toResponse(ProductCatalogIndex.Entry entry) {
+    return new ProductRes(
+      entry.id(),
+      entry.sku(),
+      entry.name(),
+      entry.description(),
+      entry.category(),
+      entry.barcode(),
+      entry.imageUrl(),
+      entry.qrUrl(),
+      entry.criticalStock() != null ? entry.criticalStock() : BigDecimal.ZERO,
+      entry.price(),
+      entry.active()
+    );
+  }
+
   private ProductRes toResponse(Product entity) {
     BigDecimal price = pricingService.latestPrice(entity.getId()).orElse(null);
     boolean active = Boolean.TRUE.equals(entity.getActive());
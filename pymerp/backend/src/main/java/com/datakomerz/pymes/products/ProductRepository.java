@@ -1,11 +1,21 @@
 package com.datakomerz.pymes.products;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.search.SearchTerms;
+import com.datakomerz.pymes.products.dto.ProductExportRow;
+import jakarta.persistence.QueryHint;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface ProductRepository extends JpaRepository<Product, UUID> {
   Page<Product> findByDeletedAtIsNullAndActiveIsTrue(Pageable pageable);
@@ -18,4 +28,83 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
   long countByDeletedAtIsNullAndActiveTrue();
   long countByDeletedAtIsNullAndActiveFalse();
   List<Product> findByIdIn(Collection<UUID> ids);
+  List<Product> findByCompanyIdAndDeletedAtIsNull(UUID companyId);
+
+  /** SKUs among {@code skus} already taken by the company, deleted products included (bulk import). */
+  @Query("SELECT p.sku FROM Product p WHERE p.companyId = :companyId AND p.sku IN :skus")
+  Set<String> findExistingSkus(@Param("companyId") UUID companyId, @Param("skus") Collection<String> skus);
+
+  /** Barcodes among {@code barcodes} used by the company's non-deleted products (bulk import). */
+  @Query("""
+      SELECT p.barcode FROM Product p
+      WHERE p.companyId = :companyId AND p.deletedAt IS NULL AND p.barcode IN :barcodes
+      """)
+  Set<String> findExistingBarcodes(@Param("companyId") UUID companyId,
+                                   @Param("barcodes") Collection<String> barcodes);
+
+  /**
+   * Name search over the folded {@code search_name} column (trigram-indexed on PostgreSQL),
+   * ranked by name prefix, then word prefix, then the pageable's sort.
+   */
+  @Query("""
+      SELECT p FROM Product p
+      WHERE p.deletedAt IS NULL
+        AND (:active IS NULL OR p.active = :active)
+        AND p.searchName LIKE :contains
+      ORDER BY
+        CASE
+          WHEN p.searchName LIKE :prefix THEN 0
+          WHEN p.searchName LIKE :wordPrefix THEN 1
+          ELSE 2
+        END
+      """)
+  Page<Product> searchByName(@Param("active") Boolean active,
+                             @Param("contains") String contains,
+                             @Param("prefix") String prefix,
+                             @Param("wordPrefix") String wordPrefix,
+                             Pageable pageable);
+
+  /** SKU search on {@code lower(sku)} (trigram-indexed on PostgreSQL), exact match first. */
+  @Query("""
+      SELECT p FROM Product p
+      WHERE p.deletedAt IS NULL
+        AND (:active IS NULL OR p.active = :active)
+        AND lower(p.sku) LIKE :contains ESCAPE '\\'
+      ORDER BY CASE WHEN lower(p.sku) = :exact THEN 0 ELSE 1 END
+      """)
+  Page<Product> searchBySku(@Param("active") Boolean active,
+                            @Param("contains") String contains,
+                            @Param("exact") String exact,
+                            Pageable pageable);
+
+  /**
+   * Rows for the CSV export, read through a cursor; must be consumed inside a transaction.
+   * {@code search} matches the folded name or the SKU.
+   */
+  default Stream<ProductExportRow> streamForExport(UUID companyId, Boolean active, String search) {
+    SearchTerms terms = SearchTerms.of(search);
+    return streamExportRows(companyId, active, terms == null ? null : terms.contains(),
+      terms == null ? null : SearchTerms.containsIgnoreCase(search));
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CsvExporter.FETCH_SIZE))
+  @Query("""
+      SELECT new com.datakomerz.pymes.products.dto.ProductExportRow(
+        p.sku, p.name, p.description, p.category, p.barcode, p.criticalStock, p.active,
+        p.createdAt, p.updatedAt)
+      FROM Product p
+      WHERE p.companyId = :companyId
+        AND p.deletedAt IS NULL
+        AND (:active IS NULL OR p.active = :active)
+        AND (
+          :contains IS NULL
+          OR p.searchName LIKE :contains
+          OR lower(p.sku) LIKE :skuContains ESCAPE '\\'
+        )
+      ORDER BY p.name, p.id
+      """)
+  Stream<ProductExportRow> streamExportRows(@Param("companyId") UUID companyId,
+                                            @Param("active") Boolean active,
+                                            @Param("contains") String contains,
+                                            @Param("skuContains") String skuContains);
 }
@@ -1,7 +1,11 @@
 package com.datakomerz.pymes.products;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
 import com.datakomerz.pymes.inventory.InventoryService;
+import com.datakomerz.pymes.pricing.PriceHistory;
+import com.datakomerz.pymes.pricing.PriceHistoryRepository;
 import com.datakomerz.pymes.products.dto.LowStockProduct;
+import com.datakomerz.pymes.products.dto.ProductExportRow;
 import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -9,9 +13,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -22,10 +28,17 @@ public class ProductService {
 
   private final ProductRepository repository;
   private final InventoryService inventoryService;
+  private final PriceHistoryRepository priceHistoryRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public ProductService(ProductRepository repository, InventoryService inventoryService) {
+  public ProductService(ProductRepository repository,
+                        InventoryService inventoryService,
+                        PriceHistoryRepository priceHistoryRepository,
+                        ApplicationEventPublisher eventPublisher) {
     this.repository = repository;
     this.inventoryService = inventoryService;
+    this.priceHistoryRepository = priceHistoryRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   @Cacheable(value = "products", key = "#companyId + ':' + #id")
@@ -40,9 +53,32 @@ public class ProductService {
     return repository.findByDeletedAtIsNullAndActiveIsTrue(pageable);
   }
 
+  /**
+   * Products of {@code companyId} as CSV export rows, read through a cursor. Must run inside the
+   * export's transaction (see {@link CsvExporter}).
+   */
+  @Transactional(Transactional.TxType.MANDATORY)
+  public Stream<ProductExportRow> exportRows(UUID companyId, Boolean active, String query) {
+    return repository.streamForExport(companyId, active, query);
+  }
+
   @CacheEvict(value = "products", allEntries = true)
   public Product save(Product product) {
-    return repository.save(product);
+    Product saved = repository.save(product);
+    BigDecimal price = priceHistoryRepository.findFirstByProductIdOrderByValidFromDesc(saved.getId())
+      .map(PriceHistory::getPrice)
+      .orElse(null);
+    eventPublisher.publishEvent(ProductCatalogChanged.of(saved, price));
+    return saved;
+  }
+
+  /**
+   * Saves a batch without publishing {@link ProductCatalogChanged} per product; the caller
+   * invalidates the tenant's {@link ProductCatalogIndex} once the whole run is done.
+   */
+  @CacheEvict(value = "products", allEntries = true)
+  public List<Product> saveBatch(List<Product> products) {
+    return repository.saveAll(products);
   }
 
   @Caching(evict = {
@@ -53,7 +89,8 @@ public class ProductService {
     Product entity = repository.findById(id)
       .orElseThrow(() -> new IllegalArgumentException("Product not found: " + id));
     entity.setDeletedAt(OffsetDateTime.now());
-    repository.save(entity);
+    Product saved = repository.save(entity);
+    eventPublisher.publishEvent(ProductCatalogChanged.of(saved, null));
   }
 
   @Transactional(Transactional.TxType.SUPPORTS)
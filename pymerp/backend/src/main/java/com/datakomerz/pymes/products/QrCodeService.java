@@ -2,32 +2,108 @@ package com.datakomerz.pymes.products;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * QR codes for product labels and local PDFs.
+ *
+ * <p>The {@link BitMatrix} is written straight into a 1-bit grayscale PNG (or an SVG path)
+ * without going through a {@code BufferedImage}. Results are kept in an LRU cache keyed by
+ * format, content and size; cached byte arrays are shared and must be treated as read-only.</p>
+ */
 @Service
 public class QrCodeService {
   private static final int DEFAULT_SIZE = 256;
+  private static final int MAX_SIZE = 2048;
+  private static final QRCodeWriter WRITER = new QRCodeWriter();
+
+  private final Map<CacheKey, GeneratedQr> cache;
+
+  public QrCodeService(@Value("${app.qr.cache-size:1024}") int cacheSize) {
+    int capacity = Math.max(1, cacheSize);
+    this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CacheKey, GeneratedQr> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
 
   public GeneratedQr generate(String value) {
-    if (value == null || value.isBlank()) {
+    return generate(value, DEFAULT_SIZE);
+  }
+
+  public GeneratedQr generate(String value, int size) {
+    return cached(new CacheKey(Format.PNG, value, size));
+  }
+
+  public GeneratedQr generateSvg(String value, int size) {
+    return cached(new CacheKey(Format.SVG, value, size));
+  }
+
+  /**
+   * Generates the default-size PNG of every distinct value in parallel, e.g. to
+   * regenerate the labels of a whole catalogue. Blank values are skipped.
+   */
+  public Map<String, GeneratedQr> generateAll(Collection<String> values) {
+    return values.parallelStream()
+      .filter(Objects::nonNull)
+      .filter(value -> !value.isBlank())
+      .distinct()
+      .collect(Collectors.toConcurrentMap(Function.identity(), this::generate));
+  }
+
+  int cachedEntries() {
+    return cache.size();
+  }
+
+  private GeneratedQr cached(CacheKey key) {
+    if (key.value() == null || key.value().isBlank()) {
       throw new IllegalArgumentException("Value required to generate QR code");
     }
+    if (key.size() <= 0 || key.size() > MAX_SIZE) {
+      throw new IllegalArgumentException("QR size must be between 1 and " + MAX_SIZE);
+    }
+    GeneratedQr qr = cache.get(key);
+    if (qr == null) {
+      // Encoded outside the cache lock so parallel batches do not serialize on it.
+      qr = encode(key);
+      cache.put(key, qr);
+    }
+    return qr;
+  }
+
+  private GeneratedQr encode(CacheKey key) {
     try {
-      QRCodeWriter writer = new QRCodeWriter();
-      BitMatrix matrix = writer.encode(value, BarcodeFormat.QR_CODE, DEFAULT_SIZE, DEFAULT_SIZE);
-      try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-        MatrixToImageWriter.writeToStream(matrix, "PNG", output);
-        return new GeneratedQr(output.toByteArray(), "png", "image/png");
+      if (key.format() == Format.SVG) {
+        BitMatrix modules = WRITER.encode(key.value(), BarcodeFormat.QR_CODE, 0, 0);
+        return new GeneratedQr(QrImageEncoder.svg(modules, key.size()), "svg", "image/svg+xml");
       }
-    } catch (WriterException | IOException e) {
+      BitMatrix matrix = WRITER.encode(key.value(), BarcodeFormat.QR_CODE, key.size(), key.size());
+      return new GeneratedQr(QrImageEncoder.png(matrix), "png", "image/png");
+    } catch (WriterException e) {
       throw new IllegalStateException("Failed to generate QR code", e);
     }
   }
 
-  public record GeneratedQr(byte[] content, String extension, String contentType) {}
+  private enum Format { PNG, SVG }
+
+  private record CacheKey(Format format, String value, int size) {}
+
+  public record GeneratedQr(byte[] content, String extension, String contentType) {
+    public String dataUrl() {
+      return "data:" + contentType + ";base64," + Base64.getEncoder().encodeToString(content);
+    }
+  }
 }
@@ -0,0 +1,114 @@
+package com.datakomerz.pymes.products;
+
+import com.google.zxing.common.BitMatrix;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Serializes a {@link BitMatrix} without an intermediate raster: PNG output is a
+ * 1-bit grayscale image (one bit per pixel, one deflate stream), SVG output is a
+ * single path with one sub-path per horizontal run of dark modules.
+ */
+final class QrImageEncoder {
+
+  private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int BIT_DEPTH = 1;
+  private static final int COLOR_TYPE_GRAYSCALE = 0;
+
+  private QrImageEncoder() {
+  }
+
+  static byte[] png(BitMatrix matrix) {
+    int width = matrix.getWidth();
+    int height = matrix.getHeight();
+    int rowBytes = (width + 7) / 8;
+    try {
+      ByteArrayOutputStream pixels = new ByteArrayOutputStream(rowBytes * height / 8 + 64);
+      Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+      try (DeflaterOutputStream zlib = new DeflaterOutputStream(pixels, deflater)) {
+        byte[] row = new byte[rowBytes + 1];
+        for (int y = 0; y < height; y++) {
+          // Filter type 0 (None); gray bit 1 is white, so start light and clear dark modules.
+          row[0] = 0;
+          Arrays.fill(row, 1, row.length, (byte) 0xFF);
+          for (int x = 0; x < width; x++) {
+            if (matrix.get(x, y)) {
+              row[1 + (x >> 3)] &= (byte) ~(0x80 >>> (x & 7));
+            }
+          }
+          zlib.write(row);
+        }
+      } finally {
+        deflater.end();
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream(pixels.size() + 64);
+      output.write(PNG_SIGNATURE);
+      ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+      DataOutputStream headerData = new DataOutputStream(header);
+      headerData.writeInt(width);
+      headerData.writeInt(height);
+      headerData.writeByte(BIT_DEPTH);
+      headerData.writeByte(COLOR_TYPE_GRAYSCALE);
+      headerData.writeByte(0); // deflate
+      headerData.writeByte(0); // adaptive filtering
+      headerData.writeByte(0); // no interlace
+      writeChunk(output, "IHDR", header.toByteArray());
+      writeChunk(output, "IDAT", pixels.toByteArray());
+      writeChunk(output, "IEND", new byte[0]);
+      return output.toByteArray();
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * @param modules matrix at one bit per module (quiet zone included)
+   * @param size rendered width and height in CSS pixels
+   */
+  static byte[] svg(BitMatrix modules, int size) {
+    int width = modules.getWidth();
+    int height = modules.getHeight();
+    StringBuilder path = new StringBuilder(width * height);
+    for (int y = 0; y < height; y++) {
+      int x = 0;
+      while (x < width) {
+        if (!modules.get(x, y)) {
+          x++;
+          continue;
+        }
+        int start = x;
+        while (x < width && modules.get(x, y)) {
+          x++;
+        }
+        int run = x - start;
+        path.append('M').append(start).append(' ').append(y)
+          .append('h').append(run).append("v1h-").append(run).append('z');
+      }
+    }
+    String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size + "\" height=\"" + size
+      + "\" viewBox=\"0 0 " + width + " " + height + "\" shape-rendering=\"crispEdges\">"
+      + "<rect width=\"" + width + "\" height=\"" + height + "\" fill=\"#fff\"/>"
+      + "<path fill=\"#000\" d=\"" + path + "\"/></svg>";
+    return svg.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void writeChunk(ByteArrayOutputStream output, String type, byte[] data) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data);
+    DataOutputStream chunk = new DataOutputStream(output);
+    chunk.writeInt(data.length);
+    chunk.write(typeBytes);
+    chunk.write(data);
+    chunk.writeInt((int) crc.getValue());
+  }
+}
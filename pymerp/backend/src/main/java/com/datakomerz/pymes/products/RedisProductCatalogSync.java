@@ -0,0 +1,76 @@
+package com.datakomerz.pymes.products;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link ProductCatalogIndex} of every node in step: local changes are published on
+ * {@link #CHANNEL} and changes published by other nodes are applied here. Delivery is best
+ * effort; the index's {@code max-age} bounds how long a lost message can leave a node stale.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cache.redis.enabled", havingValue = "true", matchIfMissing = true)
+public class RedisProductCatalogSync {
+
+  private static final Logger log = LoggerFactory.getLogger(RedisProductCatalogSync.class);
+
+  static final String CHANNEL = "products:catalog:changed";
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ProductCatalogIndex catalogIndex;
+  private final StringRedisTemplate redisTemplate;
+  private final RedisMessageListenerContainer listenerContainer;
+  private final ObjectMapper objectMapper;
+
+  public RedisProductCatalogSync(ProductCatalogIndex catalogIndex,
+                                 StringRedisTemplate redisTemplate,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 ObjectMapper objectMapper) {
+    this.catalogIndex = catalogIndex;
+    this.redisTemplate = redisTemplate;
+    this.listenerContainer = listenerContainer;
+    this.objectMapper = objectMapper;
+  }
+
+  @PostConstruct
+  void subscribe() {
+    listenerContainer.addMessageListener((message, pattern) ->
+        onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+        new ChannelTopic(CHANNEL));
+    catalogIndex.publishTo(this::publish);
+  }
+
+  void publish(ProductCatalogChanged change) {
+    try {
+      redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(new PeerChange(nodeId, change)));
+    } catch (JsonProcessingException | RuntimeException ex) {
+      log.warn("Unable to publish catalogue change for company {}: {}", change.companyId(), ex.getMessage());
+    }
+  }
+
+  void onMessage(String payload) {
+    PeerChange peerChange;
+    try {
+      peerChange = objectMapper.readValue(payload, PeerChange.class);
+    } catch (JsonProcessingException ex) {
+      log.warn("Ignoring unreadable catalogue change: {}", ex.getMessage());
+      return;
+    }
+    if (!nodeId.equals(peerChange.origin()) && peerChange.change() != null) {
+      catalogIndex.applyFromPeer(peerChange.change());
+    }
+  }
+
+  record PeerChange(String origin, ProductCatalogChanged change) {
+  }
+}
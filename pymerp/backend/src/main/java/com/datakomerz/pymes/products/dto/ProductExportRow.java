@@ -0,0 +1,17 @@
+package com.datakomerz.pymes.products.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/** Scalar projection streamed by the product CSV export. */
+public record ProductExportRow(
+  String sku,
+  String name,
+  String description,
+  String category,
+  String barcode,
+  BigDecimal criticalStock,
+  Boolean active,
+  OffsetDateTime createdAt,
+  OffsetDateTime updatedAt
+) {}
@@ -0,0 +1,12 @@
+package com.datakomerz.pymes.products.dto;
+
+import java.util.UUID;
+
+public record ProductSuggestion(
+  UUID id,
+  String sku,
+  String name,
+  String barcode,
+  String imageUrl,
+  boolean active
+) {}
@@ -2,6 +2,7 @@ package com.datakomerz.pymes.purchases;
 
 import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload;
 import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
+import com.datakomerz.pymes.common.export.CsvExporter;
 import com.datakomerz.pymes.multitenancy.ValidateTenant;
 import com.datakomerz.pymes.purchases.dto.PurchaseCreationResult;
 import com.datakomerz.pymes.purchases.dto.PurchaseDailyPoint;
@@ -13,8 +14,7 @@ import jakarta.validation.Valid;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
@@ -48,12 +48,19 @@ import org.springframework.web.multipart.MultipartFile;
 @RestController
 @RequestMapping("/api/v1/purchases")
 public class PurchaseController {
+  private static final List<String> EXPORT_HEADER = List.of(
+    "ID", "Tipo Documento", "Número", "Proveedor", "Estado", "Neto", "IVA", "Total", "Fecha Emisión");
+
   private final PurchaseService service;
   private final LocalInvoiceRenderer localInvoiceRenderer;
+  private final CsvExporter csvExporter;
 
-  public PurchaseController(PurchaseService service, LocalInvoiceRenderer localInvoiceRenderer) {
+  public PurchaseController(PurchaseService service,
+                            LocalInvoiceRenderer localInvoiceRenderer,
+                            CsvExporter csvExporter) {
     this.service = service;
     this.localInvoiceRenderer = localInvoiceRenderer;
+    this.csvExporter = csvExporter;
   }
 
   @PostMapping
@@ -179,51 +186,18 @@ public class PurchaseController {
       @RequestParam(required = false) String search,
       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+      @RequestParam(defaultValue = "false") boolean gzip,
       HttpServletResponse response) throws IOException {
-
-    Page<PurchaseSummary> purchasesPage = service.list(status, docType, search, from, to, PageRequest.of(0, 10000));
-    List<PurchaseSummary> purchases = purchasesPage.getContent();
-
-    response.setContentType("text/csv; charset=UTF-8");
-    response.setHeader("Content-Disposition", "attachment; filename=\"compras.csv\"");
-
-    try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8))) {
-      writer.write('\uFEFF');
-      writer.println("ID,Tipo Documento,Número,Proveedor,Estado,Neto,IVA,Total,Fecha Emisión");
-
-      DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-      for (PurchaseSummary purchase : purchases) {
-        writer.print(escapeCsv(purchase.id().toString()));
-        writer.print(',');
-        writer.print(escapeCsv(purchase.docType() != null ? purchase.docType() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(purchase.docNumber() != null ? purchase.docNumber() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(purchase.supplierName() != null ? purchase.supplierName() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(purchase.status() != null ? purchase.status() : ""));
-        writer.print(',');
-        writer.print(purchase.net() != null ? purchase.net().toString() : "0");
-        writer.print(',');
-        writer.print(purchase.vat() != null ? purchase.vat().toString() : "0");
-        writer.print(',');
-        writer.print(purchase.total() != null ? purchase.total().toString() : "0");
-        writer.print(',');
-        writer.print(purchase.issuedAt() != null ? dateFormatter.format(purchase.issuedAt()) : "");
-        writer.println();
-      }
-    }
+    csvExporter.export(response, "compras.csv", gzip, EXPORT_HEADER,
+      () -> service.exportRows(status, docType, search, from, to),
+      purchase -> new Object[] {
+        purchase.id(), purchase.docType(), purchase.docNumber(), purchase.supplierName(), purchase.status(),
+        zeroIfNull(purchase.net()), zeroIfNull(purchase.vat()), zeroIfNull(purchase.total()), purchase.issuedAt()
+      });
   }
 
-  private String escapeCsv(String value) {
-    if (value == null || value.isEmpty()) {
-      return "";
-    }
-    if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-      return "\"" + value.replace("\"", "\"\"") + "\"";
-    }
-    return value;
+  private static BigDecimal zeroIfNull(BigDecimal value) {
+    return value != null ? value : BigDecimal.ZERO;
   }
 
   @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
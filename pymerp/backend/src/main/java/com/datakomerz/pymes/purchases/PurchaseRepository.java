@@ -1,12 +1,18 @@
 package com.datakomerz.pymes.purchases;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.purchases.dto.PurchaseExportRow;
+import jakarta.persistence.QueryHint;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
@@ -32,6 +38,35 @@ public interface PurchaseRepository extends JpaRepository<Purchase, UUID> {
                         @Param("to") OffsetDateTime to,
                         Pageable pageable);
 
+  /**
+   * Rows for the CSV export with the filters of {@link #search}, read through a cursor; must be
+   * consumed inside a transaction.
+   */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CsvExporter.FETCH_SIZE))
+  @Query("""
+      SELECT new com.datakomerz.pymes.purchases.dto.PurchaseExportRow(
+        p.id, p.docType, p.docNumber, s.name, p.status, p.net, p.vat, p.total, p.issuedAt)
+      FROM Purchase p
+      LEFT JOIN Supplier s ON s.id = p.supplierId
+      WHERE p.companyId = :companyId
+        AND (:status IS NULL OR lower(p.status) = lower(:status))
+        AND (:docType IS NULL OR lower(p.docType) = lower(:docType))
+        AND (:from IS NULL OR p.issuedAt >= :from)
+        AND (:to IS NULL OR p.issuedAt <= :to)
+        AND (
+          :search IS NULL
+          OR lower(coalesce(p.docNumber, '')) LIKE lower(concat('%', :search, '%'))
+          OR lower(coalesce(s.name, '')) LIKE lower(concat('%', :search, '%'))
+        )
+      ORDER BY p.issuedAt DESC, p.id
+    """)
+  Stream<PurchaseExportRow> streamForExport(@Param("companyId") UUID companyId,
+                                            @Param("status") String status,
+                                            @Param("docType") String docType,
+                                            @Param("search") String search,
+                                            @Param("from") OffsetDateTime from,
+                                            @Param("to") OffsetDateTime to);
+
   Page<Purchase> findAllByOrderByIssuedAtDesc(Pageable pageable);
 
   List<Purchase> findByIssuedAtGreaterThanEqualOrderByIssuedAtAsc(OffsetDateTime issuedAt);
@@ -4,6 +4,8 @@ import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload;
 import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload.CompanyInfo;
 import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload.PurchaseOrderItem;
 import com.datakomerz.pymes.billing.dto.PurchaseOrderPayload.SupplierInfo;
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.company.Company;
 import com.datakomerz.pymes.company.CompanyRepository;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
@@ -13,6 +15,7 @@ import com.datakomerz.pymes.inventory.InventoryMovement;
 import com.datakomerz.pymes.inventory.InventoryMovementRepository;
 import com.datakomerz.pymes.purchases.dto.PurchaseCreationResult;
 import com.datakomerz.pymes.purchases.dto.PurchaseDailyPoint;
+import com.datakomerz.pymes.purchases.dto.PurchaseExportRow;
 import com.datakomerz.pymes.purchases.dto.PurchaseItemReq;
 import com.datakomerz.pymes.purchases.dto.PurchaseReq;
 import com.datakomerz.pymes.purchases.dto.PurchaseSummary;
@@ -25,6 +28,7 @@ import com.datakomerz.pymes.products.ProductRepository;
 import com.datakomerz.pymes.inventory.AuditContextService;
 import com.datakomerz.pymes.inventory.InventoryLocation;
 import com.datakomerz.pymes.inventory.InventoryLocationRepository;
+import io.micrometer.core.annotation.Timed;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -39,6 +43,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import jakarta.persistence.EntityNotFoundException;
 import com.datakomerz.pymes.services.ServiceRepository;
 import org.springframework.dao.DataIntegrityViolationException;
@@ -47,6 +52,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -67,6 +73,7 @@ public class PurchaseService {
   private final ProductRepository productRepository;
   private final InventoryLocationRepository inventoryLocationRepository;
   private final AuditContextService auditContext;
+  private final HotPathMetrics hotPathMetrics;
 
   public PurchaseService(PurchaseRepository purchases,
                          PurchaseItemRepository items,
@@ -79,7 +86,8 @@ public class PurchaseService {
                          ProductRepository productRepository,
                          InventoryLocationRepository inventoryLocationRepository,
                          AuditContextService auditContext,
-                         ServiceRepository serviceRepository) {
+                         ServiceRepository serviceRepository,
+                         HotPathMetrics hotPathMetrics) {
     this.purchases = purchases;
     this.items = items;
     this.lots = lots;
@@ -92,9 +100,11 @@ public class PurchaseService {
     this.inventoryLocationRepository = inventoryLocationRepository;
     this.auditContext = auditContext;
     this.serviceRepository = serviceRepository;
+    this.hotPathMetrics = hotPathMetrics;
   }
 
   @Transactional
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "purchases.create"})
   public PurchaseCreationResult create(PurchaseReq req) {
     UUID companyId = companyContext.require();
     List<PurchaseItemReq> itemRequests = requireItems(req.items());
@@ -107,6 +117,7 @@ public class PurchaseService {
   }
 
   @Transactional
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "purchases.create"})
   public PurchaseCreationResult createWithFile(PurchaseReq req, MultipartFile file) {
     UUID companyId = companyContext.require();
     List<PurchaseItemReq> itemRequests = requireItems(req.items());
@@ -177,6 +188,8 @@ public class PurchaseService {
         lotsCreated++;
       }
     }
+    hotPathMetrics.recordRows("purchases.create", "items", itemsCreated);
+    hotPathMetrics.recordRows("purchases.create", "lots", lotsCreated);
     return new PurchaseProcessingResult(itemsCreated, lotsCreated);
   }
 
@@ -334,6 +347,21 @@ public class PurchaseService {
     return page.map(purchase -> mapToSummary(purchase, supplierNames.get(purchase.getSupplierId())));
   }
 
+  /**
+   * Purchases matching the {@link #list} filters as CSV export rows, read through a cursor. Must
+   * run inside the export's transaction (see {@link CsvExporter}).
+   */
+  @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+  public Stream<PurchaseExportRow> exportRows(String status,
+                                              String docType,
+                                              String search,
+                                              OffsetDateTime from,
+                                              OffsetDateTime to) {
+    UUID companyId = companyContext.require();
+    return purchases.streamForExport(companyId, emptyToNull(status), emptyToNull(docType), emptyToNull(search),
+      from, to);
+  }
+
   @Transactional
   public PurchaseSummary update(UUID id, PurchaseUpdateRequest req) {
     Purchase purchase = purchases.findById(id)
@@ -468,6 +496,7 @@ public class PurchaseService {
    * @param endDate Fecha fin del período
    * @return PurchaseKPIs con métricas del período
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "purchases.kpis"})
   public com.datakomerz.pymes.purchases.dto.PurchaseKPIs getPurchaseKPIs(LocalDate startDate, LocalDate endDate) {
     // Obtener todas las compras del período
     List<Purchase> periodPurchases = purchases.findAll().stream()
@@ -612,6 +641,7 @@ public class PurchaseService {
    * Análisis ABC de proveedores basado en Pareto (80-15-5)
    * Clasifica proveedores en A (80% del gasto), B (15% del gasto), C (5% del gasto)
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "purchases.abc_analysis"})
   public List<com.datakomerz.pymes.purchases.dto.PurchaseABCClassification> getPurchaseABCAnalysis(LocalDate startDate, LocalDate endDate) {
     OffsetDateTime start = startDate.atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
     OffsetDateTime end = endDate.plusDays(1).atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
@@ -757,6 +787,7 @@ public class PurchaseService {
    * Pronóstico de demanda de compras usando media móvil y análisis de tendencia.
    * Analiza los últimos 90 días y proyecta el próximo mes.
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "purchases.forecast"})
   public List<com.datakomerz.pymes.purchases.dto.PurchaseForecast> getPurchaseForecast(LocalDate startDate, LocalDate endDate, int horizonDays) {
     OffsetDateTime start = startDate.atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
     OffsetDateTime end = endDate.plusDays(1).atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
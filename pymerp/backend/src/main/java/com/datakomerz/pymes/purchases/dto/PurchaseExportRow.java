@@ -0,0 +1,18 @@
+package com.datakomerz.pymes.purchases.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/** Scalar projection streamed by the purchases CSV export. */
+public record PurchaseExportRow(
+  UUID id,
+  String docType,
+  String docNumber,
+  String supplierName,
+  String status,
+  BigDecimal net,
+  BigDecimal vat,
+  BigDecimal total,
+  OffsetDateTime issuedAt
+) {}
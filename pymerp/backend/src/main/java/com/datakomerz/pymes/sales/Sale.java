@@ -1,6 +1,7 @@
 package com.datakomerz.pymes.sales;
 
 import com.datakomerz.pymes.audit.AuditableEntity;
+import com.datakomerz.pymes.common.search.SearchNormalizer;
 import com.datakomerz.pymes.multitenancy.TenantFiltered;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
@@ -25,8 +26,16 @@ public class Sale extends AuditableEntity {
   @Column(name="issued_at") private OffsetDateTime issuedAt;
   private String docType;
   private String pdfUrl;
+  // Document type, payment method and id; customer names are matched through customers.search_text.
+  @Column(name="search_text", length=256) private String searchText;
 
-  @PrePersist public void pre(){ if(id==null) id=UUID.randomUUID(); if(issuedAt==null) issuedAt=OffsetDateTime.now(); }
+  @PrePersist public void pre(){ if(id==null) id=UUID.randomUUID(); if(issuedAt==null) issuedAt=OffsetDateTime.now(); refreshSearchText(); }
+  @PreUpdate public void preUpdate(){ refreshSearchText(); }
+
+  private void refreshSearchText() {
+    searchText = SearchNormalizer.join(SearchNormalizer.normalize(docType),
+      SearchNormalizer.normalize(paymentMethod), SearchNormalizer.normalize(id == null ? null : id.toString()));
+  }
 
   // Getters & Setters
   public UUID getId() { return id; }
@@ -51,6 +60,7 @@ public class Sale extends AuditableEntity {
   public void setDocType(String docType) { this.docType = docType; }
   public String getPdfUrl() { return pdfUrl; }
   public void setPdfUrl(String pdfUrl) { this.pdfUrl = pdfUrl; }
+  public String getSearchText() { return searchText; }
 
   public OffsetDateTime getDueDate() {
     return issuedAt == null ? null : issuedAt.plusDays(paymentTermDays);
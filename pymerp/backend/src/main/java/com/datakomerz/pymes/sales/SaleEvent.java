@@ -0,0 +1,39 @@
+package com.datakomerz.pymes.sales;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published by {@link SalesService} inside the sale's transaction when a sale is created or
+ * cancelled. Listeners run synchronously, so whatever they write commits or rolls back with the
+ * sale.
+ *
+ * @param lines one entry per sale item; {@code amount} is the net line amount
+ */
+public record SaleEvent(Type type,
+                        UUID companyId,
+                        UUID saleId,
+                        UUID customerId,
+                        OffsetDateTime issuedAt,
+                        BigDecimal total,
+                        List<Line> lines) {
+
+  public enum Type {
+    CREATED,
+    CANCELLED
+  }
+
+  public record Line(UUID productId, BigDecimal qty, BigDecimal amount) {
+  }
+
+  static SaleEvent of(Type type, Sale sale, List<SaleItem> items) {
+    List<Line> lines = items.stream()
+      .map(item -> new Line(item.getProductId(), item.getQty(),
+        item.getQty().multiply(item.getUnitPrice().subtract(item.getDiscount()))))
+      .toList();
+    return new SaleEvent(type, sale.getCompanyId(), sale.getId(), sale.getCustomerId(), sale.getIssuedAt(),
+      sale.getTotal(), lines);
+  }
+}
@@ -1,9 +1,26 @@
 package com.datakomerz.pymes.sales;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface SaleItemRepository extends JpaRepository<SaleItem, UUID> {
   List<SaleItem> findBySaleId(UUID saleId);
+
+  /** Number of items of each sale, in one grouped query; sales without items are absent. */
+  @Query("""
+      select i.saleId as saleId, count(i) as itemCount
+      from SaleItem i
+      where i.saleId in :saleIds
+      group by i.saleId
+      """)
+  List<SaleItemCount> countBySaleIds(@Param("saleIds") Collection<UUID> saleIds);
+
+  interface SaleItemCount {
+    UUID getSaleId();
+    long getItemCount();
+  }
 }
@@ -1,40 +1,103 @@
 package com.datakomerz.pymes.sales;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.search.SearchTerms;
+import com.datakomerz.pymes.sales.dto.SaleExportRow;
+import jakarta.persistence.QueryHint;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 public interface SaleRepository extends JpaRepository<Sale, UUID> {
+  /**
+   * Free-text search over the sale's {@code search_text} (document type, payment method, id) and
+   * the customer's {@code search_text}; both are trigram-indexed on PostgreSQL.
+   */
+  default Page<Sale> search(String status,
+                            String docType,
+                            String paymentMethod,
+                            String search,
+                            OffsetDateTime from,
+                            OffsetDateTime to,
+                            Pageable pageable) {
+    SearchTerms terms = SearchTerms.of(search);
+    return searchMatching(status, docType, paymentMethod, terms == null ? null : terms.contains(),
+      from, to, pageable);
+  }
+
   @Query("""
       SELECT s
       FROM Sale s
-      LEFT JOIN Customer c ON c.id = s.customerId
       WHERE (:status IS NULL OR lower(s.status) = lower(:status))
         AND (:docType IS NULL OR lower(s.docType) = lower(:docType))
         AND (:paymentMethod IS NULL OR lower(s.paymentMethod) = lower(:paymentMethod))
         AND (:from IS NULL OR s.issuedAt >= :from)
         AND (:to IS NULL OR s.issuedAt <= :to)
         AND (
-          :search IS NULL
-          OR lower(coalesce(s.docType, '')) LIKE lower(concat('%', :search, '%'))
-          OR lower(coalesce(s.paymentMethod, '')) LIKE lower(concat('%', :search, '%'))
-          OR lower(coalesce(c.name, '')) LIKE lower(concat('%', :search, '%'))
-          OR cast(s.id as string) LIKE concat('%', :search, '%')
+          :contains IS NULL
+          OR s.searchText LIKE :contains
+          OR s.customerId IN (SELECT c.id FROM Customer c WHERE c.searchText LIKE :contains)
         )
       ORDER BY s.issuedAt DESC
     """)
-  Page<Sale> search(@Param("status") String status,
-                    @Param("docType") String docType,
-                    @Param("paymentMethod") String paymentMethod,
-                    @Param("search") String search,
-                    @Param("from") OffsetDateTime from,
-                    @Param("to") OffsetDateTime to,
-                    Pageable pageable);
+  Page<Sale> searchMatching(@Param("status") String status,
+                            @Param("docType") String docType,
+                            @Param("paymentMethod") String paymentMethod,
+                            @Param("contains") String contains,
+                            @Param("from") OffsetDateTime from,
+                            @Param("to") OffsetDateTime to,
+                            Pageable pageable);
+
+  /**
+   * Rows for the CSV export with the filters of {@link #search}, read through a cursor; must be
+   * consumed inside a transaction.
+   */
+  default Stream<SaleExportRow> streamForExport(UUID companyId,
+                                                String status,
+                                                String docType,
+                                                String paymentMethod,
+                                                String search,
+                                                OffsetDateTime from,
+                                                OffsetDateTime to) {
+    SearchTerms terms = SearchTerms.of(search);
+    return streamExportRows(companyId, status, docType, paymentMethod, terms == null ? null : terms.contains(),
+      from, to);
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = CsvExporter.FETCH_SIZE))
+  @Query("""
+      SELECT new com.datakomerz.pymes.sales.dto.SaleExportRow(
+        s.id, s.docType, c.name, s.paymentMethod, s.status, s.net, s.vat, s.total, s.issuedAt)
+      FROM Sale s
+      LEFT JOIN Customer c ON c.id = s.customerId
+      WHERE s.companyId = :companyId
+        AND (:status IS NULL OR lower(s.status) = lower(:status))
+        AND (:docType IS NULL OR lower(s.docType) = lower(:docType))
+        AND (:paymentMethod IS NULL OR lower(s.paymentMethod) = lower(:paymentMethod))
+        AND (:from IS NULL OR s.issuedAt >= :from)
+        AND (:to IS NULL OR s.issuedAt <= :to)
+        AND (
+          :contains IS NULL
+          OR s.searchText LIKE :contains
+          OR c.searchText LIKE :contains
+        )
+      ORDER BY s.issuedAt DESC, s.id
+    """)
+  Stream<SaleExportRow> streamExportRows(@Param("companyId") UUID companyId,
+                                         @Param("status") String status,
+                                         @Param("docType") String docType,
+                                         @Param("paymentMethod") String paymentMethod,
+                                         @Param("contains") String contains,
+                                         @Param("from") OffsetDateTime from,
+                                         @Param("to") OffsetDateTime to);
 
   List<Sale> findByIssuedAtGreaterThanEqualOrderByIssuedAtAsc(OffsetDateTime issuedAt);
 
@@ -45,17 +108,17 @@ public interface SaleRepository extends JpaRepository<Sale, UUID> {
   // Customer-specific queries
   Page<Sale> findByCustomerIdOrderByIssuedAtDesc(UUID customerId, Pageable pageable);
 
+  /** First and last issue date of the customer's non-cancelled sales (both null when none). */
   @Query("""
-      SELECT COUNT(s)
+      SELECT MIN(s.issuedAt) AS firstSaleAt, MAX(s.issuedAt) AS lastSaleAt
       FROM Sale s
       WHERE s.customerId = :customerId
+        AND s.status <> 'cancelled'
     """)
-  Integer countByCustomerId(@Param("customerId") UUID customerId);
+  SaleDateRange findSaleDateRange(@Param("customerId") UUID customerId);
 
-  @Query("""
-      SELECT COALESCE(SUM(s.total), 0)
-      FROM Sale s
-      WHERE s.customerId = :customerId
-    """)
-  java.math.BigDecimal sumTotalByCustomerId(@Param("customerId") UUID customerId);
+  interface SaleDateRange {
+    OffsetDateTime getFirstSaleAt();
+    OffsetDateTime getLastSaleAt();
+  }
 }
@@ -1,5 +1,7 @@
 package com.datakomerz.pymes.sales;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.common.payments.PaymentTerm;
 import com.datakomerz.pymes.company.CompanyRepository;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
@@ -12,11 +14,13 @@ import com.datakomerz.pymes.products.ProductRepository;
 import com.datakomerz.pymes.sales.dto.SaleDetail;
 import com.datakomerz.pymes.sales.dto.SaleDetailCustomer;
 import com.datakomerz.pymes.sales.dto.SaleDetailLine;
+import com.datakomerz.pymes.sales.dto.SaleExportRow;
 import com.datakomerz.pymes.sales.dto.SaleReq;
 import com.datakomerz.pymes.sales.dto.SaleRes;
 import com.datakomerz.pymes.sales.dto.SaleSummary;
 import com.datakomerz.pymes.sales.dto.SaleUpdateRequest;
 import com.datakomerz.pymes.sales.dto.SalesDailyPoint;
+import io.micrometer.core.annotation.Timed;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
@@ -36,14 +40,17 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -65,6 +72,8 @@ public class SalesService {
   private final CompanyRepository companies;
   private final PricingService pricingService;
   private final Environment environment;
+  private final ApplicationEventPublisher eventPublisher;
+  private final HotPathMetrics hotPathMetrics;
 
   public SalesService(SaleRepository sales,
                       SaleItemRepository items,
@@ -74,7 +83,9 @@ public class SalesService {
                       ProductRepository products,
                       CompanyRepository companies,
                       PricingService pricingService,
-                      Environment environment) {
+                      Environment environment,
+                      ApplicationEventPublisher eventPublisher,
+                      HotPathMetrics hotPathMetrics) {
     this.sales = sales;
     this.items = items;
     this.inventory = inventory;
@@ -84,9 +95,12 @@ public class SalesService {
     this.companies = companies;
     this.pricingService = pricingService;
     this.environment = environment;
+    this.eventPublisher = eventPublisher;
+    this.hotPathMetrics = hotPathMetrics;
   }
 
   @Transactional
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.create"})
   public SaleRes create(SaleReq req) {
     UUID companyId = companyContext.require();
     BigDecimal net = BigDecimal.ZERO;
@@ -110,6 +124,7 @@ public class SalesService {
     sale.setDocType(SaleDocumentType.from(req.docType()).label());
     sales.save(sale);
 
+    List<SaleItem> savedItems = new ArrayList<>();
     for (var item : req.items()) {
       var saleItem = new SaleItem();
       saleItem.setSaleId(sale.getId());
@@ -117,16 +132,34 @@ public class SalesService {
       saleItem.setQty(item.qty());
       saleItem.setUnitPrice(item.unitPrice());
       saleItem.setDiscount(safeDiscount(item.discount()));
-      items.save(saleItem);
+      savedItems.add(items.save(saleItem));
 
       // Consumir inventario con FIFO: usa lotId específico si está disponible, sino locationId, sino FIFO automático
       inventory.consumeFIFO(sale.getId(), item.productId(), item.qty(), item.locationId(), item.lotId());
     }
+    hotPathMetrics.recordRows("sales.create", "items", savedItems.size());
+    eventPublisher.publishEvent(SaleEvent.of(SaleEvent.Type.CREATED, sale, savedItems));
 
     String customerName = resolveCustomerName(sale.getCustomerId());
     return mapToRes(sale, customerName);
   }
 
+  /**
+   * Sales matching the {@link #list} filters as CSV export rows, read through a cursor. Must run
+   * inside the export's transaction (see {@link CsvExporter}).
+   */
+  @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+  public Stream<SaleExportRow> exportRows(String status,
+                                          String docType,
+                                          String paymentMethod,
+                                          String search,
+                                          OffsetDateTime from,
+                                          OffsetDateTime to) {
+    UUID companyId = companyContext.require();
+    return sales.streamForExport(companyId, emptyToNull(status), emptyToNull(docType), emptyToNull(paymentMethod),
+      emptyToNull(search), from, to);
+  }
+
   @Transactional(readOnly = true)
   public Page<SaleSummary> list(String status,
                                 String docType,
@@ -234,6 +267,7 @@ public class SalesService {
     inventory.restockSale(sale.getId());
     sale.setStatus("cancelled");
     sales.save(sale);
+    eventPublisher.publishEvent(SaleEvent.of(SaleEvent.Type.CANCELLED, sale, items.findBySaleId(sale.getId())));
     String customerName = resolveCustomerName(sale.getCustomerId());
     return mapToRes(sale, customerName);
   }
@@ -430,6 +464,7 @@ public class SalesService {
         saleItems.add(saleItem);
       }
       items.saveAll(saleItems);
+      eventPublisher.publishEvent(SaleEvent.of(SaleEvent.Type.CREATED, sale, saleItems));
 
       created++;
       log.info("Venta seed creada: {} items, cliente {}, fecha {}", lines.size(), customer.getName(), sale.getIssuedAt());
@@ -527,6 +562,7 @@ public class SalesService {
    * @param endDate Fecha fin del período
    * @return SalesKPIs con métricas del período
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.kpis"})
   public com.datakomerz.pymes.sales.dto.SalesKPIs getSalesKPIs(LocalDate startDate, LocalDate endDate) {
     UUID companyId = companyContext.require();
     log.info("Calculando KPIs para período: {} a {} (tenant={})", startDate, endDate, companyId);
@@ -715,6 +751,7 @@ public class SalesService {
    * Análisis ABC de productos basado en Pareto (80-15-5)
    * Clasifica productos en A (80% de ingresos), B (15%), C (5%)
    */
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.abc_analysis"})
   public List<com.datakomerz.pymes.sales.dto.SaleABCClassification> getSalesABCAnalysis(LocalDate startDate, LocalDate endDate) {
     OffsetDateTime start = startDate.atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
     OffsetDateTime end = endDate.plusDays(1).atStartOfDay(java.time.ZoneOffset.UTC).toOffsetDateTime();
@@ -867,6 +904,7 @@ public class SalesService {
     }
   }
 
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.forecast"})
   public List<com.datakomerz.pymes.sales.dto.SaleForecast> getSalesForecast(LocalDate startDate, LocalDate endDate, int horizonDays) {
     // Filtrar ventas emitidas en el período (usando el mismo patrón que getSalesKPIs)
     List<Sale> allSales = sales.findAll().stream()
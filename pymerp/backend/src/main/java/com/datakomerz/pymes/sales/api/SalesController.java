@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.sales.api;
 
+import com.datakomerz.pymes.common.export.CsvExporter;
 import com.datakomerz.pymes.multitenancy.ValidateTenant;
 import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.application.CancelSaleUseCase;
@@ -20,12 +21,9 @@ import com.datakomerz.pymes.sales.dto.SalesWindowMetrics;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -48,6 +46,9 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/v1/sales")
 public class SalesController {
 
+  private static final List<String> EXPORT_HEADER = List.of(
+    "ID", "Documento", "Cliente", "Método de Pago", "Estado", "Neto", "IVA", "Total", "Fecha Emisión");
+
   private final CreateSaleUseCase createSaleUseCase;
   private final UpdateSaleUseCase updateSaleUseCase;
   private final CancelSaleUseCase cancelSaleUseCase;
@@ -57,6 +58,7 @@ public class SalesController {
   private final DailySalesMetricsByRangeUseCase dailySalesMetricsByRangeUseCase;
   private final SalesWindowMetricsUseCase salesWindowMetricsUseCase;
   private final com.datakomerz.pymes.sales.SalesService salesService;
+  private final CsvExporter csvExporter;
 
   public SalesController(CreateSaleUseCase createSaleUseCase,
                          UpdateSaleUseCase updateSaleUseCase,
@@ -66,7 +68,8 @@ public class SalesController {
                          DailySalesMetricsUseCase dailySalesMetricsUseCase,
                          DailySalesMetricsByRangeUseCase dailySalesMetricsByRangeUseCase,
                          SalesWindowMetricsUseCase salesWindowMetricsUseCase,
-                         com.datakomerz.pymes.sales.SalesService salesService) {
+                         com.datakomerz.pymes.sales.SalesService salesService,
+                         CsvExporter csvExporter) {
     this.createSaleUseCase = createSaleUseCase;
     this.updateSaleUseCase = updateSaleUseCase;
     this.cancelSaleUseCase = cancelSaleUseCase;
@@ -76,6 +79,7 @@ public class SalesController {
     this.dailySalesMetricsByRangeUseCase = dailySalesMetricsByRangeUseCase;
     this.salesWindowMetricsUseCase = salesWindowMetricsUseCase;
     this.salesService = salesService;
+    this.csvExporter = csvExporter;
   }
 
   @PostMapping
@@ -204,56 +208,17 @@ public class SalesController {
       @RequestParam(required = false) String search,
       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+      @RequestParam(defaultValue = "false") boolean gzip,
       HttpServletResponse response) throws IOException {
-
-    // Obtener todas las ventas sin paginación (límite de 10000)
-    Page<SaleSummary> salesPage = listSalesUseCase.handle(status, docType, paymentMethod, search, from, to, 0, 10000);
-    List<SaleSummary> sales = salesPage.getContent();
-
-    response.setContentType("text/csv; charset=UTF-8");
-    response.setHeader("Content-Disposition", "attachment; filename=\"ventas.csv\"");
-
-    try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8))) {
-      // UTF-8 BOM para compatibilidad con Excel
-      writer.write('\uFEFF');
-
-      // Headers
-      writer.println("ID,Documento,Cliente,Método de Pago,Estado,Neto,IVA,Total,Fecha Emisión");
-
-      // Formato de fecha
-      DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-      // Datos
-      for (SaleSummary sale : sales) {
-        writer.print(escapeCsv(sale.id().toString()));
-        writer.print(',');
-        writer.print(escapeCsv(sale.docType() != null ? sale.docType() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(sale.customerName() != null ? sale.customerName() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(sale.paymentMethod() != null ? sale.paymentMethod() : ""));
-        writer.print(',');
-        writer.print(escapeCsv(sale.status() != null ? sale.status() : ""));
-        writer.print(',');
-        writer.print(sale.net() != null ? sale.net().toString() : "0");
-        writer.print(',');
-        writer.print(sale.vat() != null ? sale.vat().toString() : "0");
-        writer.print(',');
-        writer.print(sale.total() != null ? sale.total().toString() : "0");
-        writer.print(',');
-        writer.print(sale.issuedAt() != null ? dateFormatter.format(sale.issuedAt()) : "");
-        writer.println();
-      }
-    }
+    csvExporter.export(response, "ventas.csv", gzip, EXPORT_HEADER,
+      () -> salesService.exportRows(status, docType, paymentMethod, search, from, to),
+      sale -> new Object[] {
+        sale.id(), sale.docType(), sale.customerName(), sale.paymentMethod(), sale.status(),
+        zeroIfNull(sale.net()), zeroIfNull(sale.vat()), zeroIfNull(sale.total()), sale.issuedAt()
+      });
   }
 
-  private String escapeCsv(String value) {
-    if (value == null || value.isEmpty()) {
-      return "";
-    }
-    if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
-      return "\"" + value.replace("\"", "\"\"") + "\"";
-    }
-    return value;
+  private static BigDecimal zeroIfNull(BigDecimal value) {
+    return value != null ? value : BigDecimal.ZERO;
   }
 }
@@ -0,0 +1,18 @@
+package com.datakomerz.pymes.sales.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/** Scalar projection streamed by the sales CSV export. */
+public record SaleExportRow(
+  UUID id,
+  String docType,
+  String customerName,
+  String paymentMethod,
+  String status,
+  BigDecimal net,
+  BigDecimal vat,
+  BigDecimal total,
+  OffsetDateTime issuedAt
+) {}
@@ -1,8 +1,10 @@
 package com.datakomerz.pymes.sales.reports;
 
+import com.datakomerz.pymes.common.metrics.HotPathMetrics;
 import com.datakomerz.pymes.core.tenancy.CompanyContext;
 import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.SaleRepository;
+import io.micrometer.core.annotation.Timed;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Clock;
@@ -33,6 +35,7 @@ public class SalesReportService {
     this.companyContext = companyContext;
   }
 
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.report_summary"})
   public SalesSummaryReport getSummary(int days) {
     SeriesResult result = buildSeries(days);
     BigDecimal total = result.total();
@@ -42,6 +45,7 @@ public class SalesReportService {
     return new SalesSummaryReport(total, average);
   }
 
+  @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sales.report_timeseries"})
   public List<SalesTimeseriesPoint> getDailySeries(int days) {
     return buildSeries(days).points();
   }
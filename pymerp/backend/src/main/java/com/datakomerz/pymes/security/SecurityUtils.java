@@ -1,5 +1,6 @@
 package com.datakomerz.pymes.security;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -82,4 +83,14 @@ public class SecurityUtils {
 
     return Optional.empty();
   }
+
+  /**
+   * Obtiene la IP del cliente. {@code X-Forwarded-For} ya lo resuelve el contenedor
+   * ({@code server.forward-headers-strategy}) aceptándolo solo desde los proxies de confianza de
+   * {@code server.tomcat.remoteip.internal-proxies}; leer la cabecera aquí permitiría que el
+   * cliente eligiera su propia IP y esquivara el bloqueo de login por IP.
+   */
+  public static String getClientIp(HttpServletRequest request) {
+    return request.getRemoteAddr();
+  }
 }
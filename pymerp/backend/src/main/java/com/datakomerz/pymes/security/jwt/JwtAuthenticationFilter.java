@@ -43,7 +43,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
       String username = claims.getSubject();
       if (StringUtils.hasText(username) && SecurityContextHolder.getContext().getAuthentication() == null) {
         var userDetails = (AppUserDetails) userDetailsService.loadUserByUsername(username);
-        if (jwtService.isTokenValid(token, userDetails.getUsername())) {
+        if (jwtService.isTokenValid(claims, userDetails.getUsername())) {
           var authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
           authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
           SecurityContextHolder.getContext().setAuthentication(authentication);
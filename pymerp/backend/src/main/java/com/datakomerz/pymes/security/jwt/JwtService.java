@@ -3,6 +3,7 @@ package com.datakomerz.pymes.security.jwt;
 import com.datakomerz.pymes.config.SecurityProperties;
 import com.datakomerz.pymes.security.AppUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import java.nio.charset.StandardCharsets;
@@ -20,6 +21,13 @@ public class JwtService {
 
   private final SecurityProperties securityProperties;
 
+  /**
+   * Key and parser derived from the current secret. Rebuilt only when
+   * {@link SecurityProperties} is rebound with a different secret, so the hot path
+   * never re-derives the HMAC key nor rebuilds the (immutable, thread-safe) parser.
+   */
+  private volatile SigningMaterial signingMaterial;
+
   public JwtService(SecurityProperties securityProperties) {
     this.securityProperties = securityProperties;
   }
@@ -41,30 +49,59 @@ public class JwtService {
         "companyId", user.getCompanyId().toString(),
         "roles", roles
       ))
-      .signWith(signingKey())
+      .signWith(signingMaterial().key())
       .compact();
   }
 
   public boolean isTokenValid(String token, String username) {
-    Claims claims = parseClaims(token);
+    return isTokenValid(parseClaims(token), username);
+  }
+
+  /**
+   * Validates already parsed claims, letting callers that parsed the token once
+   * (e.g. the authentication filter) skip a second signature verification.
+   */
+  public boolean isTokenValid(Claims claims, String username) {
     String subject = claims.getSubject();
     Instant expiration = claims.getExpiration().toInstant();
     return subject.equalsIgnoreCase(username) && expiration.isAfter(Instant.now());
   }
 
   public Claims parseClaims(String token) {
-    return Jwts.parser()
-      .verifyWith(signingKey())
-      .build()
+    return signingMaterial().parser()
       .parseSignedClaims(token)
       .getPayload();
   }
 
-  private SecretKey signingKey() {
+  private SigningMaterial signingMaterial() {
     String secret = securityProperties.getJwt().getSecret();
-    if (secret == null || secret.length() < 32) {
-      throw new IllegalStateException("JWT secret must be at least 32 characters");
+    SigningMaterial current = signingMaterial;
+    if (current != null && current.matches(secret)) {
+      return current;
+    }
+    synchronized (this) {
+      current = signingMaterial;
+      if (current == null || !current.matches(secret)) {
+        current = SigningMaterial.from(secret);
+        signingMaterial = current;
+      }
+      return current;
+    }
+  }
+
+  private record SigningMaterial(String secret, SecretKey key, JwtParser parser) {
+
+    static SigningMaterial from(String secret) {
+      if (secret == null || secret.length() < 32) {
+        throw new IllegalStateException("JWT secret must be at least 32 characters");
+      }
+      SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+      return new SigningMaterial(secret, key, Jwts.parser().verifyWith(key).build());
+    }
+
+    boolean matches(String candidate) {
+      // Identity check first: the bound String instance only changes on rebind.
+      return secret == candidate || secret.equals(candidate);
     }
-    return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
   }
 }
@@ -0,0 +1,11 @@
+-- Contingency queue: claim leases for the parallel sync workers.
+-- A worker claims rows with SELECT ... FOR UPDATE SKIP LOCKED and stamps them with
+-- its node id and a lease deadline; rows whose lease expired (crashed node) become
+-- claimable again.
+
+ALTER TABLE contingency_queue_items
+  ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(100),
+  ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP WITH TIME ZONE;
+
+CREATE INDEX IF NOT EXISTS idx_contingency_queue_claim
+  ON contingency_queue_items(status, lease_until, created_at);
@@ -0,0 +1,16 @@
+-- Contingency queue: due-time scheduling.
+-- next_attempt_at holds the (jittered, exponential) backoff deadline so the sync job
+-- can select only due items, ordered by due time, straight from the index instead
+-- of reading the oldest rows and skipping those still backing off.
+
+ALTER TABLE contingency_queue_items
+  ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP WITH TIME ZONE;
+
+UPDATE contingency_queue_items
+  SET next_attempt_at = COALESCE(last_sync_at, created_at)
+  WHERE next_attempt_at IS NULL;
+
+DROP INDEX IF EXISTS idx_contingency_queue_claim;
+
+CREATE INDEX IF NOT EXISTS idx_contingency_queue_due
+  ON contingency_queue_items(status, next_attempt_at);
@@ -0,0 +1,11 @@
+-- Fiscal documents: asynchronous local PDF rendering.
+-- Issuance persists the document as RENDER_PENDING and returns; a worker pool renders
+-- the contingency PDF after commit and flips the flag to READY (or FAILED). Existing
+-- rows keep NULL, which the application reads as READY.
+
+ALTER TABLE fiscal_documents
+  ADD COLUMN IF NOT EXISTS render_status VARCHAR(24);
+
+CREATE INDEX IF NOT EXISTS idx_fiscal_documents_render_pending
+  ON fiscal_documents(render_status, created_at)
+  WHERE render_status = 'RENDER_PENDING';
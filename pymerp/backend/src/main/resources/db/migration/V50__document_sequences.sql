@@ -0,0 +1,36 @@
+-- Document numbering: per-company, per-prefix, per-year counters.
+-- Provisional (CTG-YYYY-NNNNN) and non-fiscal (NF-YYYY-NNNNN) numbers used to be derived
+-- from the last issued document, which raced into duplicates under concurrency. Nodes now
+-- reserve blocks of numbers by atomically advancing next_value.
+
+CREATE TABLE IF NOT EXISTS document_sequences (
+  company_id    UUID        NOT NULL,
+  prefix        VARCHAR(16) NOT NULL,
+  sequence_year INTEGER     NOT NULL,
+  next_value    BIGINT      NOT NULL,
+  updated_at    TIMESTAMPTZ NOT NULL DEFAULT now(),
+  PRIMARY KEY (company_id, prefix, sequence_year)
+);
+
+-- Continue existing series after the highest number already issued.
+INSERT INTO document_sequences (company_id, prefix, sequence_year, next_value)
+SELECT s.company_id,
+       'CTG',
+       CAST(substring(fd.provisional_number FROM 5 FOR 4) AS INTEGER),
+       MAX(CAST(substring(fd.provisional_number FROM 10) AS BIGINT)) + 1
+FROM fiscal_documents fd
+JOIN sales s ON s.id = fd.sale_id
+WHERE fd.provisional_number ~ '^CTG-[0-9]{4}-[0-9]{1,18}$'
+GROUP BY s.company_id, CAST(substring(fd.provisional_number FROM 5 FOR 4) AS INTEGER)
+ON CONFLICT DO NOTHING;
+
+INSERT INTO document_sequences (company_id, prefix, sequence_year, next_value)
+SELECT s.company_id,
+       'NF',
+       CAST(substring(nfd.number FROM 4 FOR 4) AS INTEGER),
+       MAX(CAST(substring(nfd.number FROM 9) AS BIGINT)) + 1
+FROM non_fiscal_documents nfd
+JOIN sales s ON s.id = nfd.sale_id
+WHERE nfd.number ~ '^NF-[0-9]{4}-[0-9]{1,18}$'
+GROUP BY s.company_id, CAST(substring(nfd.number FROM 4 FOR 4) AS INTEGER)
+ON CONFLICT DO NOTHING;
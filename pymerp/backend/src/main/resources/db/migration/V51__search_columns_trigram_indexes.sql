@@ -0,0 +1,59 @@
+-- Indexed search for customers, products and sales.
+-- The application folds text with SearchNormalizer (no accents, lower case, punctuation
+-- collapsed to single spaces) into search_* columns and matches them with LIKE '%q%',
+-- which pg_trgm GIN indexes can serve. The backfill below mirrors that folding.
+
+-- Precondition: pg_trgm and unaccent must be installable by the migration user. Both are
+-- trusted extensions (PostgreSQL 13+), so CREATE privilege on the database is enough;
+-- on older servers, or where the user lacks it, a superuser must run these two statements
+-- once beforehand (see docs/RUNBOOK.md, "Flyway Migration Failed"). IF NOT EXISTS then
+-- makes them no-ops here.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- Customers: name, email, phone digits and RUT without punctuation
+ALTER TABLE customers
+  ADD COLUMN IF NOT EXISTS search_name VARCHAR(120),
+  ADD COLUMN IF NOT EXISTS rut_normalized VARCHAR(20),
+  ADD COLUMN IF NOT EXISTS search_text VARCHAR(400);
+
+UPDATE customers
+SET search_name = NULLIF(btrim(regexp_replace(lower(unaccent(name)), '[^a-z0-9]+', ' ', 'g')), ''),
+    rut_normalized = NULLIF(lower(regexp_replace(coalesce(rut, ''), '[^0-9kK]', '', 'g')), '');
+
+UPDATE customers
+SET search_text = NULLIF(concat_ws(' ',
+      search_name,
+      NULLIF(btrim(regexp_replace(lower(unaccent(coalesce(email, ''))), '[^a-z0-9]+', ' ', 'g')), ''),
+      NULLIF(regexp_replace(coalesce(phone, ''), '[^0-9]', '', 'g'), ''),
+      rut_normalized), '');
+
+CREATE INDEX IF NOT EXISTS idx_customers_search_text_trgm
+  ON customers USING gin (search_text gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_customers_company_rut_normalized
+  ON customers(company_id, rut_normalized);
+
+-- Products: folded name and lower-cased SKU
+ALTER TABLE products
+  ADD COLUMN IF NOT EXISTS search_name VARCHAR(120);
+
+UPDATE products
+SET search_name = NULLIF(btrim(regexp_replace(lower(unaccent(name)), '[^a-z0-9]+', ' ', 'g')), '');
+
+CREATE INDEX IF NOT EXISTS idx_products_search_name_trgm
+  ON products USING gin (search_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_sku_lower_trgm
+  ON products USING gin (lower(sku) gin_trgm_ops);
+
+-- Sales: document type, payment method and id (customer names match through customers)
+ALTER TABLE sales
+  ADD COLUMN IF NOT EXISTS search_text VARCHAR(256);
+
+UPDATE sales
+SET search_text = NULLIF(concat_ws(' ',
+      NULLIF(btrim(regexp_replace(lower(unaccent(coalesce(doc_type, ''))), '[^a-z0-9]+', ' ', 'g')), ''),
+      NULLIF(btrim(regexp_replace(lower(unaccent(coalesce(payment_method, ''))), '[^a-z0-9]+', ' ', 'g')), ''),
+      replace(id::text, '-', ' ')), '');
+
+CREATE INDEX IF NOT EXISTS idx_sales_search_text_trgm
+  ON sales USING gin (search_text gin_trgm_ops);
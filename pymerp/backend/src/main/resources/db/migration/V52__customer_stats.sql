@@ -0,0 +1,48 @@
+-- Per-customer sales rollup, maintained incrementally when sales are created or cancelled
+-- (see CustomerStatsService). Cancelled sales are excluded.
+
+CREATE TABLE IF NOT EXISTS customer_stats (
+  customer_id   UUID          PRIMARY KEY,
+  company_id    UUID          NOT NULL,
+  total_sales   INTEGER       NOT NULL DEFAULT 0,
+  total_revenue NUMERIC(16,2) NOT NULL DEFAULT 0,
+  first_sale_at TIMESTAMPTZ,
+  last_sale_at  TIMESTAMPTZ,
+  updated_at    TIMESTAMPTZ   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_customer_stats_company ON customer_stats(company_id);
+
+CREATE TABLE IF NOT EXISTS customer_product_stats (
+  customer_id UUID          NOT NULL,
+  product_id  UUID          NOT NULL,
+  company_id  UUID          NOT NULL,
+  quantity    NUMERIC(16,3) NOT NULL DEFAULT 0,
+  revenue     NUMERIC(16,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (customer_id, product_id)
+);
+
+-- Top-N products per customer.
+CREATE INDEX IF NOT EXISTS idx_customer_product_stats_top
+  ON customer_product_stats(customer_id, revenue DESC);
+
+-- Customer sale history, and first/last sale recomputation when a sale is cancelled.
+CREATE INDEX IF NOT EXISTS idx_sales_customer_issued ON sales(customer_id, issued_at DESC);
+
+INSERT INTO customer_stats (customer_id, company_id, total_sales, total_revenue, first_sale_at, last_sale_at)
+SELECT s.customer_id, s.company_id, COUNT(*), COALESCE(SUM(s.total), 0), MIN(s.issued_at), MAX(s.issued_at)
+FROM sales s
+WHERE s.customer_id IS NOT NULL
+  AND s.status <> 'cancelled'
+GROUP BY s.customer_id, s.company_id
+ON CONFLICT DO NOTHING;
+
+INSERT INTO customer_product_stats (customer_id, product_id, company_id, quantity, revenue)
+SELECT s.customer_id, i.product_id, s.company_id,
+       SUM(i.qty), SUM(i.qty * (i.unit_price - i.discount))
+FROM sales s
+JOIN sale_items i ON i.sale_id = s.id
+WHERE s.customer_id IS NOT NULL
+  AND s.status <> 'cancelled'
+GROUP BY s.customer_id, i.product_id, s.company_id
+ON CONFLICT DO NOTHING;
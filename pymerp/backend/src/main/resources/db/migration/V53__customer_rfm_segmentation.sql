@@ -0,0 +1,26 @@
+-- RFM scores on the customer rollup and per-tenant state of the segmentation job
+-- (see RfmSegmentationJob).
+
+ALTER TABLE customer_stats ADD COLUMN IF NOT EXISTS rfm_recency   INTEGER;
+ALTER TABLE customer_stats ADD COLUMN IF NOT EXISTS rfm_frequency INTEGER;
+ALTER TABLE customer_stats ADD COLUMN IF NOT EXISTS rfm_monetary  INTEGER;
+ALTER TABLE customer_stats ADD COLUMN IF NOT EXISTS rfm_scored_at TIMESTAMPTZ;
+
+-- Incremental runs: rollups changed since the watermark, and last sales crossing a recency threshold.
+CREATE INDEX IF NOT EXISTS idx_customer_stats_company_updated ON customer_stats(company_id, updated_at);
+CREATE INDEX IF NOT EXISTS idx_customer_stats_company_last_sale ON customer_stats(company_id, last_sale_at);
+
+-- Keyset pages over the customers rescored by a run.
+CREATE INDEX IF NOT EXISTS idx_customer_stats_rfm_scored
+  ON customer_stats(company_id, rfm_scored_at, customer_id);
+
+CREATE TABLE IF NOT EXISTS customer_segmentation_runs (
+  company_id       UUID        PRIMARY KEY,
+  watermark        TIMESTAMPTZ,
+  config_hash      VARCHAR(64),
+  locked_until     TIMESTAMPTZ,
+  last_started_at  TIMESTAMPTZ,
+  last_finished_at TIMESTAMPTZ,
+  last_scored      INTEGER     NOT NULL DEFAULT 0,
+  last_changed     INTEGER     NOT NULL DEFAULT 0
+);
@@ -0,0 +1,56 @@
+-- V54: audit_logs particionada por mes según timestamp.
+-- Reemplaza los seis índices de una columna por índices compuestos (company_id / username, timestamp DESC),
+-- que PostgreSQL crea en cada partición. Las particiones futuras y la retención las maneja
+-- AuditLogPartitionMaintenance; la partición DEFAULT recibe filas fuera de los meses creados.
+-- La migración solo intercambia las tablas (el lock exclusivo dura lo que un RENAME): las filas
+-- existentes quedan en audit_logs_legacy y AuditLogPartitionMaintenance las traslada por lotes,
+-- cada uno en su propia transacción, y elimina audit_logs_legacy al vaciarla.
+
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+
+CREATE TABLE audit_logs (
+  id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+  timestamp TIMESTAMP NOT NULL DEFAULT NOW(),
+  username VARCHAR(100) NOT NULL,
+  user_roles VARCHAR(200),
+  action VARCHAR(50) NOT NULL,
+  entity_type VARCHAR(100),
+  entity_id BIGINT,
+  http_method VARCHAR(10),
+  endpoint VARCHAR(500),
+  ip_address VARCHAR(45),
+  user_agent VARCHAR(500),
+  company_id BIGINT,
+  status_code INTEGER,
+  error_message VARCHAR(1000),
+  request_body VARCHAR(4000),
+  response_time_ms BIGINT,
+  PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- La secuencia pasa a la nueva tabla para que no se elimine junto con la antigua.
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+-- Un mes por partición, desde el registro más antiguo hasta tres meses por delante.
+DO $$
+DECLARE
+  month_start DATE;
+  last_month DATE;
+BEGIN
+  SELECT date_trunc('month', COALESCE(MIN(timestamp), NOW()))::date INTO month_start FROM audit_logs_legacy;
+  last_month := (date_trunc('month', NOW()) + INTERVAL '3 months')::date;
+  WHILE month_start <= last_month LOOP
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+                   'audit_logs_p' || to_char(month_start, 'YYYYMM'),
+                   month_start,
+                   (month_start + INTERVAL '1 month')::date);
+    month_start := (month_start + INTERVAL '1 month')::date;
+  END LOOP;
+END $$;
+
+CREATE INDEX idx_audit_logs_company_ts ON audit_logs (company_id, timestamp DESC);
+CREATE INDEX idx_audit_logs_username_ts ON audit_logs (username, timestamp DESC);
+
+COMMENT ON TABLE audit_logs IS 'Registro de auditoría para compliance (ISO 27001, SOC 2, GDPR), particionado por mes';
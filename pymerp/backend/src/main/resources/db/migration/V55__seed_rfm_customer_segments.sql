@@ -0,0 +1,17 @@
+-- Segments written by RfmSegmentationJob with its default rules
+-- (see CustomerSegmentationProperties), for every existing company.
+
+INSERT INTO customer_segment (company_id, code, name, description, color)
+SELECT c.id, s.code, s.name, s.description, s.color
+FROM companies c
+CROSS JOIN (VALUES
+    ('RFM_CHAMPIONS', 'Campeones', 'Compran seguido, hace poco y con montos altos (RFM)', '#10B981'),
+    ('RFM_LOYAL', 'Leales', 'Compran con frecuencia y recientemente (RFM)', '#3B82F6'),
+    ('RFM_NEW', 'Nuevos', 'Primera compra reciente (RFM)', '#06B6D4'),
+    ('RFM_AT_RISK', 'En riesgo', 'Compraban con frecuencia pero no recientemente (RFM)', '#F97316'),
+    ('RFM_HIBERNATING', 'Hibernando', 'Pocas compras y ninguna reciente (RFM)', '#6B7280'),
+    ('RFM_POTENTIAL', 'Potenciales', 'Resto de clientes con compras (RFM)', '#A855F7')
+) AS s(code, name, description, color)
+WHERE NOT EXISTS (
+    SELECT 1 FROM customer_segment cs WHERE cs.company_id = c.id AND cs.code = s.code
+);
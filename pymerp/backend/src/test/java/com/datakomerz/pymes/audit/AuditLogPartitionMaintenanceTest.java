@@ -0,0 +1,188 @@
+package com.datakomerz.pymes.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datakomerz.pymes.common.export.CsvExporter;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+class AuditLogPartitionMaintenanceTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+  @Test
+  void partitionNameUsesYearAndMonth() {
+    assertThat(AuditLogPartitionMaintenance.partitionName(YearMonth.of(2025, 3))).isEqualTo("audit_logs_p202503");
+  }
+
+  @Test
+  void expiredPartitionsSkipsDefaultAndUnknownTablesAndSortsOldestFirst() {
+    List<String> expired = AuditLogPartitionMaintenance.expiredPartitions(List.of(
+        "audit_logs_p202402", "audit_logs_default", "audit_logs_p202312", "audit_logs_p202403",
+        "audit_logs_archive"), YearMonth.of(2024, 3));
+
+    assertThat(expired).containsExactly("audit_logs_p202312", "audit_logs_p202402");
+  }
+
+  @Test
+  void ensurePartitionsCreatesCurrentAndUpcomingMonths() {
+    ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+    doThrow(new DataIntegrityViolationException("default partition contains rows"))
+        .when(jdbcTemplate).execute(eq("CREATE TABLE IF NOT EXISTS audit_logs_p202512 PARTITION OF audit_logs"
+            + " FOR VALUES FROM ('2025-12-01') TO ('2026-01-01')"));
+
+    maintenance(AuditLogPartitionMaintenance.Mode.DETACH).ensurePartitions(YearMonth.of(2025, 11));
+
+    verify(jdbcTemplate, times(4)).execute(sql.capture());
+    assertThat(sql.getAllValues()).containsExactly(
+        "CREATE TABLE IF NOT EXISTS audit_logs_p202511 PARTITION OF audit_logs"
+            + " FOR VALUES FROM ('2025-11-01') TO ('2025-12-01')",
+        "CREATE TABLE IF NOT EXISTS audit_logs_p202512 PARTITION OF audit_logs"
+            + " FOR VALUES FROM ('2025-12-01') TO ('2026-01-01')",
+        "CREATE TABLE IF NOT EXISTS audit_logs_p202601 PARTITION OF audit_logs"
+            + " FOR VALUES FROM ('2026-01-01') TO ('2026-02-01')",
+        "CREATE TABLE IF NOT EXISTS audit_logs_p202602 PARTITION OF audit_logs"
+            + " FOR VALUES FROM ('2026-02-01') TO ('2026-03-01')");
+  }
+
+  @Test
+  void dropModeWithoutArchiveDirIsRefused() {
+    assertThatThrownBy(() -> maintenance(AuditLogPartitionMaintenance.Mode.DROP))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("archive-dir");
+  }
+
+  @Test
+  void dropModeDetachesThenDropsExpiredPartitions(@TempDir Path archiveDir) {
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+        .thenReturn(List.of("audit_logs_p202401", "audit_logs_p202402", "audit_logs_default"));
+
+    new AuditLogPartitionMaintenance(jdbcTemplate, mock(CsvExporter.class), Clock.systemUTC(), 12, 3, 500,
+        AuditLogPartitionMaintenance.Mode.DROP, Optional.of(archiveDir)).applyRetention(YearMonth.of(2024, 2));
+
+    InOrder order = inOrder(jdbcTemplate);
+    order.verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_p202401");
+    order.verify(jdbcTemplate).execute("DROP TABLE audit_logs_p202401");
+    verify(jdbcTemplate, never()).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_p202402");
+    verify(jdbcTemplate, never()).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_default");
+  }
+
+  @Test
+  void detachModeKeepsDetachedTables() {
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+        .thenReturn(List.of("audit_logs_p202312", "audit_logs_p202401"));
+
+    maintenance(AuditLogPartitionMaintenance.Mode.DETACH).applyRetention(YearMonth.of(2024, 6));
+
+    verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_p202312");
+    verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_p202401");
+    verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+  }
+
+  @Test
+  void archivesWhileAttachedAndDetachesOnlyAfterwards(@TempDir Path archiveDir) throws Exception {
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("audit_logs_p202401"));
+    CsvExporter csvExporter = mock(CsvExporter.class);
+
+    new AuditLogPartitionMaintenance(jdbcTemplate, csvExporter, Clock.systemUTC(), 12, 3, 500,
+        AuditLogPartitionMaintenance.Mode.DROP, Optional.of(archiveDir)).applyRetention(YearMonth.of(2024, 2));
+
+    InOrder order = inOrder(csvExporter, jdbcTemplate);
+    order.verify(csvExporter).write(any(), eq(true), anyList(), any(), any());
+    order.verify(jdbcTemplate).execute("ALTER TABLE audit_logs DETACH PARTITION audit_logs_p202401");
+    order.verify(jdbcTemplate).execute("DROP TABLE audit_logs_p202401");
+    assertThat(archiveDir.resolve("audit_logs_p202401.csv.gz")).exists();
+  }
+
+  @Test
+  void failedArchiveLeavesPartitionAttached(@TempDir Path archiveDir) throws Exception {
+    when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("audit_logs_p202401"));
+    CsvExporter csvExporter = mock(CsvExporter.class);
+    when(csvExporter.write(any(), eq(true), anyList(), any(), any())).thenThrow(new IllegalStateException("disk full"));
+
+    new AuditLogPartitionMaintenance(jdbcTemplate, csvExporter, Clock.systemUTC(), 12, 3, 500,
+        AuditLogPartitionMaintenance.Mode.DROP, Optional.of(archiveDir)).applyRetention(YearMonth.of(2024, 2));
+
+    verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+    verify(jdbcTemplate, never()).execute(startsWith("DROP TABLE"));
+  }
+
+  @Test
+  void movesLegacyRowsInBatchesAndDropsTheEmptyTable() {
+    when(jdbcTemplate.queryForObject("SELECT to_regclass('audit_logs_legacy') IS NOT NULL", Boolean.class))
+        .thenReturn(true);
+    when(jdbcTemplate.update(startsWith("WITH batch AS (DELETE FROM audit_logs_legacy"), eq(500)))
+        .thenReturn(500, 120, 0);
+
+    maintenance(AuditLogPartitionMaintenance.Mode.DETACH).moveLegacyRows();
+
+    InOrder order = inOrder(jdbcTemplate);
+    order.verify(jdbcTemplate, times(3)).update(startsWith("WITH batch AS"), eq(500));
+    order.verify(jdbcTemplate).execute("DROP TABLE audit_logs_legacy");
+  }
+
+  @Test
+  void skipsBackfillOnceTheLegacyTableIsGone() {
+    when(jdbcTemplate.queryForObject("SELECT to_regclass('audit_logs_legacy') IS NOT NULL", Boolean.class))
+        .thenReturn(false);
+
+    maintenance(AuditLogPartitionMaintenance.Mode.DETACH).moveLegacyRows();
+
+    verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    verify(jdbcTemplate, never()).execute(anyString());
+  }
+
+  @Test
+  void skipsRunWhileAnotherNodeHoldsTheLock() throws Exception {
+    Connection connection = mock(Connection.class, RETURNS_DEEP_STUBS);
+    when(connection.getMetaData().getDatabaseProductName()).thenReturn("PostgreSQL");
+    PreparedStatement statement = mock(PreparedStatement.class);
+    ResultSet result = mock(ResultSet.class);
+    when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(statement);
+    when(statement.executeQuery()).thenReturn(result);
+    when(result.next()).thenReturn(true);
+    when(result.getBoolean(1)).thenReturn(false);
+    when(jdbcTemplate.execute(ArgumentMatchers.<ConnectionCallback<Object>>any())).thenAnswer(invocation ->
+        invocation.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+    when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(1);
+
+    maintenance(AuditLogPartitionMaintenance.Mode.DETACH).run();
+
+    verify(statement).setLong(1, AuditLogPartitionMaintenance.ADVISORY_LOCK_KEY);
+    verify(jdbcTemplate, never()).execute(anyString());
+    verify(connection, never()).prepareStatement("SELECT pg_advisory_unlock(?)");
+  }
+
+  private AuditLogPartitionMaintenance maintenance(AuditLogPartitionMaintenance.Mode mode) {
+    return new AuditLogPartitionMaintenance(jdbcTemplate, mock(CsvExporter.class), Clock.systemUTC(), 12, 3, 500, mode,
+        Optional.empty());
+  }
+}
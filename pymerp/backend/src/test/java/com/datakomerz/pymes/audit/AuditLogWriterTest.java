@@ -0,0 +1,126 @@
+package com.datakomerz.pymes.audit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class AuditLogWriterTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private AuditLogWriter writer;
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    if (writer != null) {
+      writer.stop();
+    }
+  }
+
+  @Test
+  void dropPolicyDiscardsWhenQueueIsFull() {
+    writer = writer(2, 10, AuditLogWriter.Overflow.DROP);
+
+    assertThat(writer.enqueue(log("a"))).isTrue();
+    assertThat(writer.enqueue(log("b"))).isTrue();
+    assertThat(writer.enqueue(log("c"))).isFalse();
+
+    assertThat(meterRegistry.get("audit.writer.dropped").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("audit.writer.queue.depth").gauge().value()).isEqualTo(2.0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void writesQueuedEventsInBatches() {
+    writer = writer(100, 3, AuditLogWriter.Overflow.BLOCK);
+    List<List<String>> batches = new CopyOnWriteArrayList<>();
+    when(jdbcTemplate.batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class)))
+        .thenAnswer(invocation -> {
+          Collection<AuditLog> batch = invocation.getArgument(1);
+          batches.add(batch.stream().map(AuditLog::getUsername).toList());
+          return new int[0][];
+        });
+    for (int i = 0; i < 7; i++) {
+      writer.enqueue(log("user" + i));
+    }
+    writer.start();
+
+    verify(jdbcTemplate, timeout(2000).times(3)).batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(),
+        anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    assertThat(batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(3));
+    assertThat(batches.stream().flatMap(List::stream))
+        .containsExactly("user0", "user1", "user2", "user3", "user4", "user5", "user6");
+    assertThat(meterRegistry.get("audit.writer.written").counter().count()).isEqualTo(7.0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void failedBatchIsRetriedRowByRow() {
+    writer = writer(100, 10, AuditLogWriter.Overflow.BLOCK);
+    when(jdbcTemplate.batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class)))
+        .thenThrow(new DataIntegrityViolationException("value too long"));
+    when(jdbcTemplate.update(eq(AuditLogWriter.INSERT_SQL), any(PreparedStatementSetter.class)))
+        .thenReturn(1)
+        .thenThrow(new DataIntegrityViolationException("value too long"))
+        .thenReturn(1);
+
+    writer.flush(List.of(log("a"), log("b"), log("c")));
+
+    verify(jdbcTemplate, times(3)).update(eq(AuditLogWriter.INSERT_SQL), any(PreparedStatementSetter.class));
+    assertThat(meterRegistry.get("audit.writer.written").counter().count()).isEqualTo(2.0);
+    assertThat(meterRegistry.get("audit.writer.failed").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void stopWritesPendingEvents() throws InterruptedException {
+    writer = writer(100, 50, AuditLogWriter.Overflow.BLOCK);
+    writer.start();
+    writer.enqueue(log("last"));
+
+    writer.stop();
+
+    verify(jdbcTemplate).batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), anyInt(),
+        any(ParameterizedPreparedStatementSetter.class));
+    verify(jdbcTemplate, never()).update(eq(AuditLogWriter.INSERT_SQL), any(PreparedStatementSetter.class));
+    assertThat(writer.pending()).isZero();
+  }
+
+  private AuditLogWriter writer(int capacity, int batchSize, AuditLogWriter.Overflow overflow) {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    return new AuditLogWriter(jdbcTemplate, transactionTemplate, meterRegistry, capacity, batchSize,
+        Duration.ofMillis(50), overflow, Duration.ofMillis(5));
+  }
+
+  private static AuditLog log(String username) {
+    AuditLog log = new AuditLog();
+    log.setUsername(username);
+    log.setAction("READ");
+    return log;
+  }
+}
@@ -25,11 +25,16 @@ class AuditServiceTest {
   @Mock
   private AuditLogRepository auditLogRepository;
 
+  @Mock
+  private AuditLogWriter auditLogWriter;
+
   @InjectMocks
   private AuditService auditService;
 
   private AuditLog sampleLog;
   private Long companyId = 1L;
+  private Instant to = Instant.parse("2025-03-31T00:00:00Z");
+  private Instant from = to.minus(30, ChronoUnit.DAYS);
 
   @BeforeEach
   void setUp() {
@@ -44,12 +49,13 @@ class AuditServiceTest {
   }
 
   @Test
-  void logAction_ShouldSaveAuditLog() {
+  void logAction_ShouldEnqueueAuditLog() {
     // When
     auditService.logAction(sampleLog);
 
     // Then
-    verify(auditLogRepository, timeout(1000)).save(sampleLog);
+    verify(auditLogWriter).enqueue(sampleLog);
+    verifyNoInteractions(auditLogRepository);
   }
 
   @Test
@@ -57,16 +63,16 @@ class AuditServiceTest {
     // Given
     Pageable pageable = PageRequest.of(0, 20);
     Page<AuditLog> expectedPage = new PageImpl<>(List.of(sampleLog));
-    when(auditLogRepository.findByCompanyIdOrderByTimestampDesc(companyId, pageable))
+    when(auditLogRepository.findByCompanyIdAndTimestampBetweenOrderByTimestampDesc(companyId, from, to, pageable))
         .thenReturn(expectedPage);
 
     // When
-    Page<AuditLog> result = auditService.getAuditLogs(companyId, pageable);
+    Page<AuditLog> result = auditService.getAuditLogs(companyId, from, to, pageable);
 
     // Then
     assertThat(result.getContent()).hasSize(1);
     assertThat(result.getContent().get(0).getUsername()).isEqualTo("admin");
-    verify(auditLogRepository).findByCompanyIdOrderByTimestampDesc(companyId, pageable);
+    verify(auditLogRepository).findByCompanyIdAndTimestampBetweenOrderByTimestampDesc(companyId, from, to, pageable);
   }
 
   @Test
@@ -75,16 +81,18 @@ class AuditServiceTest {
     String username = "admin";
     Pageable pageable = PageRequest.of(0, 20);
     Page<AuditLog> expectedPage = new PageImpl<>(List.of(sampleLog));
-    when(auditLogRepository.findByUsernameAndCompanyIdOrderByTimestampDesc(username, companyId, pageable))
+    when(auditLogRepository.findByUsernameAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        username, companyId, from, to, pageable))
         .thenReturn(expectedPage);
 
     // When
-    Page<AuditLog> result = auditService.getAuditLogsByUser(username, companyId, pageable);
+    Page<AuditLog> result = auditService.getAuditLogsByUser(username, companyId, from, to, pageable);
 
     // Then
     assertThat(result.getContent()).hasSize(1);
     assertThat(result.getContent().get(0).getUsername()).isEqualTo(username);
-    verify(auditLogRepository).findByUsernameAndCompanyIdOrderByTimestampDesc(username, companyId, pageable);
+    verify(auditLogRepository).findByUsernameAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        username, companyId, from, to, pageable);
   }
 
   @Test
@@ -93,16 +101,18 @@ class AuditServiceTest {
     String action = "DELETE";
     Pageable pageable = PageRequest.of(0, 20);
     Page<AuditLog> expectedPage = new PageImpl<>(List.of(sampleLog));
-    when(auditLogRepository.findByActionAndCompanyIdOrderByTimestampDesc(action, companyId, pageable))
+    when(auditLogRepository.findByActionAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        action, companyId, from, to, pageable))
         .thenReturn(expectedPage);
 
     // When
-    Page<AuditLog> result = auditService.getAuditLogsByAction(action, companyId, pageable);
+    Page<AuditLog> result = auditService.getAuditLogsByAction(action, companyId, from, to, pageable);
 
     // Then
     assertThat(result.getContent()).hasSize(1);
     assertThat(result.getContent().get(0).getAction()).isEqualTo(action);
-    verify(auditLogRepository).findByActionAndCompanyIdOrderByTimestampDesc(action, companyId, pageable);
+    verify(auditLogRepository).findByActionAndCompanyIdAndTimestampBetweenOrderByTimestampDesc(
+        action, companyId, from, to, pageable);
   }
 
   @Test
@@ -111,16 +121,16 @@ class AuditServiceTest {
     sampleLog.setStatusCode(403);
     Pageable pageable = PageRequest.of(0, 20);
     Page<AuditLog> expectedPage = new PageImpl<>(List.of(sampleLog));
-    when(auditLogRepository.findByStatusCodeGreaterThanEqualAndCompanyId(400, companyId, pageable))
+    when(auditLogRepository.findFailedBetween(400, companyId, from, to, pageable))
         .thenReturn(expectedPage);
 
     // When
-    Page<AuditLog> result = auditService.getFailedRequests(companyId, pageable);
+    Page<AuditLog> result = auditService.getFailedRequests(companyId, from, to, pageable);
 
     // Then
     assertThat(result.getContent()).hasSize(1);
     assertThat(result.getContent().get(0).getStatusCode()).isGreaterThanOrEqualTo(400);
-    verify(auditLogRepository).findByStatusCodeGreaterThanEqualAndCompanyId(400, companyId, pageable);
+    verify(auditLogRepository).findFailedBetween(400, companyId, from, to, pageable);
   }
 
   @Test
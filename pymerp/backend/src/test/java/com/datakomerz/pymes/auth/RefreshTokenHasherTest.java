@@ -0,0 +1,74 @@
+package com.datakomerz.pymes.auth;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.config.SecurityProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+class RefreshTokenHasherTest {
+
+  private final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+  private SecurityProperties properties;
+  private RefreshTokenHasher hasher;
+
+  @BeforeEach
+  void setUp() {
+    properties = new SecurityProperties();
+    properties.getJwt().setSecret("unit-test-jwt-secret-with-at-least-32-characters");
+    hasher = new RefreshTokenHasher(properties, bcrypt);
+  }
+
+  @Test
+  void hmacHashMatchesOnlyTheOriginalToken() {
+    String hash = hasher.hash("raw-token");
+
+    assertThat(hash).startsWith(RefreshTokenHasher.HMAC_PREFIX);
+    assertThat(hasher.isLegacyHash(hash)).isFalse();
+    assertThat(hasher.matches("raw-token", hash)).isTrue();
+    assertThat(hasher.matches("raw-token2", hash)).isFalse();
+  }
+
+  @Test
+  void legacyBcryptHashesAreStillAccepted() {
+    String legacy = bcrypt.encode("raw-token");
+
+    assertThat(hasher.isLegacyHash(legacy)).isTrue();
+    assertThat(hasher.matches("raw-token", legacy)).isTrue();
+    assertThat(hasher.matches("other", legacy)).isFalse();
+  }
+
+  @Test
+  void dedicatedRefreshSecretIsIndependentOfJwtSecretRotation() {
+    String jwtKeyed = hasher.hash("raw-token");
+    properties.getJwt().setRefreshTokenSecret("dedicated-refresh-secret-with-32-characters!");
+    String hash = hasher.hash("raw-token");
+
+    properties.getJwt().setSecret("rotated-jwt-secret-with-at-least-32-characters");
+    properties.getJwt().setSecret("rotated-again-jwt-secret-with-32-characters!!");
+
+    assertThat(hash).isNotEqualTo(jwtKeyed);
+    assertThat(hasher.matches("raw-token", hash)).isTrue();
+    assertThat(hasher.matches("raw-token", hasher.hash("raw-token"))).isTrue();
+  }
+
+  @Test
+  void previousKeyStillVerifiesAfterTheSecretChanges() {
+    String beforeReload = hasher.hash("raw-token");
+
+    properties.getJwt().setSecret("reloaded-jwt-secret-with-at-least-32-characters");
+    String afterReload = hasher.hash("raw-token");
+
+    assertThat(afterReload).isNotEqualTo(beforeReload);
+    assertThat(hasher.matches("raw-token", beforeReload)).isTrue();
+    assertThat(hasher.matches("raw-token", afterReload)).isTrue();
+    assertThat(hasher.matches("other", beforeReload)).isFalse();
+  }
+
+  @Test
+  void malformedHmacHashIsRejected() {
+    assertThat(hasher.matches("raw-token", RefreshTokenHasher.HMAC_PREFIX + "%%%")).isFalse();
+    assertThat(hasher.matches("raw-token", null)).isFalse();
+  }
+}
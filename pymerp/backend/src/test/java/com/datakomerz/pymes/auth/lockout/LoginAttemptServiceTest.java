@@ -0,0 +1,194 @@
+package com.datakomerz.pymes.auth.lockout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datakomerz.pymes.auth.LoginLockedException;
+import com.datakomerz.pymes.auth.lockout.LoginAttemptStore.WindowCounts;
+import com.datakomerz.pymes.config.SecurityProperties;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+class LoginAttemptServiceTest {
+
+  private final MutableClock clock = new MutableClock();
+  private SecurityProperties properties;
+
+  @BeforeEach
+  void setUp() {
+    properties = new SecurityProperties();
+    properties.getLockout().setWindow(Duration.ofMinutes(10));
+    properties.getLockout().setMaxFailuresPerUser(3);
+    properties.getLockout().setMaxFailuresPerIp(5);
+  }
+
+  @Test
+  void locksUsernameAfterMaxFailuresRegardlessOfCase() {
+    LoginAttemptService service = service(new InMemoryLoginAttemptStore());
+
+    service.recordFailure("Admin@Example.com", "10.0.0.1");
+    service.recordFailure("admin@example.com", "10.0.0.2");
+    assertThatCode(() -> service.checkAllowed("admin@example.com", "10.0.0.3")).doesNotThrowAnyException();
+    service.recordFailure("admin@example.com ", "10.0.0.3");
+
+    assertThatThrownBy(() -> service.checkAllowed("ADMIN@example.com", "10.0.0.4"))
+        .isInstanceOf(LoginLockedException.class)
+        .satisfies(ex -> assertThat(((LoginLockedException) ex).getRetryAfterSeconds()).isPositive());
+    assertThatCode(() -> service.checkAllowed("other@example.com", "10.0.0.4")).doesNotThrowAnyException();
+  }
+
+  @Test
+  void locksIpAcrossUsernames() {
+    LoginAttemptService service = service(new InMemoryLoginAttemptStore());
+
+    for (int i = 0; i < 5; i++) {
+      service.recordFailure("user" + i + "@example.com", "203.0.113.7");
+    }
+
+    assertThatThrownBy(() -> service.checkAllowed("fresh@example.com", "203.0.113.7"))
+        .isInstanceOf(LoginLockedException.class);
+    assertThatCode(() -> service.checkAllowed("fresh@example.com", "203.0.113.8")).doesNotThrowAnyException();
+  }
+
+  @Test
+  void previousWindowDecaysAsTheWindowSlides() {
+    LoginAttemptService service = service(new InMemoryLoginAttemptStore());
+    for (int i = 0; i < 3; i++) {
+      service.recordFailure("admin@example.com", null);
+    }
+
+    // Next bucket, 10% in: 3 * 0.9 = 2.7 < 3.
+    clock.advance(Duration.ofMinutes(11));
+    assertThatCode(() -> service.checkAllowed("admin@example.com", null)).doesNotThrowAnyException();
+    service.recordFailure("admin@example.com", null);
+    assertThatThrownBy(() -> service.checkAllowed("admin@example.com", null))
+        .isInstanceOf(LoginLockedException.class);
+
+    clock.advance(Duration.ofMinutes(20));
+    assertThatCode(() -> service.checkAllowed("admin@example.com", null)).doesNotThrowAnyException();
+  }
+
+  @Test
+  void successfulLoginClearsUsernameCounter() {
+    LoginAttemptService service = service(new InMemoryLoginAttemptStore());
+    for (int i = 0; i < 3; i++) {
+      service.recordFailure("admin@example.com", "10.0.0.1");
+    }
+
+    service.recordSuccess("admin@example.com");
+
+    assertThatCode(() -> service.checkAllowed("admin@example.com", "10.0.0.1")).doesNotThrowAnyException();
+  }
+
+  @Test
+  void disabledLockoutNeverTouchesTheStore() {
+    properties.getLockout().setEnabled(false);
+    LoginAttemptStore store = mock(LoginAttemptStore.class);
+    LoginAttemptService service = service(store);
+
+    service.recordFailure("admin@example.com", "10.0.0.1");
+    service.checkAllowed("admin@example.com", "10.0.0.1");
+
+    verify(store, never()).increment(anyString(), anyLong(), any());
+    verify(store, never()).counts(anyString(), anyLong());
+  }
+
+  @Test
+  void retryAfterCoversRolloverAndDecay() {
+    // 4 failures now with limit 3: wait out the bucket (6 min) plus 25% of the next window.
+    assertThat(LoginAttemptService.retryAfterSeconds(new WindowCounts(4, 0), 3, 600_000, 240_000))
+        .isEqualTo(360 + 150);
+    // 1 now, 4 before, limit 3: the previous bucket must weigh less than 2 -> 50% overlap.
+    assertThat(LoginAttemptService.retryAfterSeconds(new WindowCounts(1, 4), 3, 600_000, 60_000))
+        .isEqualTo(240);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void redisStoreSharesCountersAndFallsBackWhenUnavailable() {
+    Map<String, String> keyspace = new ConcurrentHashMap<>();
+    StringRedisTemplate template = mock(StringRedisTemplate.class);
+    ValueOperations<String, String> values = mock(ValueOperations.class);
+    when(template.opsForValue()).thenReturn(values);
+    when(values.increment(anyString())).thenAnswer(invocation -> Long.parseLong(
+        keyspace.merge(invocation.getArgument(0), "1", (a, b) -> String.valueOf(Long.parseLong(a) + 1))));
+    when(values.multiGet(anyList())).thenAnswer(invocation -> {
+      List<String> result = new ArrayList<>();
+      for (String key : invocation.<List<String>>getArgument(0)) {
+        result.add(keyspace.get(key));
+      }
+      return result;
+    });
+    LoginAttemptService nodeA = service(new RedisLoginAttemptStore(template));
+    LoginAttemptService nodeB = service(new RedisLoginAttemptStore(template));
+
+    nodeA.recordFailure("admin@example.com", null);
+    nodeB.recordFailure("admin@example.com", null);
+    nodeA.recordFailure("admin@example.com", null);
+
+    assertThatThrownBy(() -> nodeB.checkAllowed("admin@example.com", null))
+        .isInstanceOf(LoginLockedException.class);
+    verify(template).expire(startsWith(RedisLoginAttemptStore.KEY_PREFIX + "user:"),
+        eq(Duration.ofMinutes(20)));
+
+    when(values.increment(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+    InMemoryLoginAttemptStore local = new InMemoryLoginAttemptStore();
+    LoginAttemptService degraded = service(new RedisLoginAttemptStore(template, local));
+    for (int i = 0; i < 5; i++) {
+      degraded.recordFailure(null, "10.0.0.1");
+    }
+
+    assertThat(local.size()).isEqualTo(1);
+    assertThatThrownBy(() -> degraded.checkAllowed(null, "10.0.0.1")).isInstanceOf(LoginLockedException.class);
+  }
+
+  private LoginAttemptService service(LoginAttemptStore store) {
+    return new LoginAttemptService(store, properties, clock);
+  }
+
+  static class MutableClock extends Clock {
+
+    private Instant current = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneId.of("UTC");
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return current;
+    }
+
+    void advance(Duration duration) {
+      current = current.plus(duration);
+    }
+  }
+}
@@ -15,6 +15,7 @@ import com.company.billing.persistence.FiscalDocumentStatus;
 import com.company.billing.persistence.FiscalDocumentType;
 import com.company.billing.persistence.NonFiscalDocumentStatus;
 import com.company.billing.persistence.NonFiscalDocumentType;
+import com.company.billing.persistence.RenderStatus;
 import com.company.billing.persistence.SiiDocumentType;
 import com.company.billing.persistence.TaxMode;
 import com.datakomerz.pymes.billing.dto.IssueInvoiceRequest;
@@ -100,6 +101,7 @@ class BillingControllerTest {
         null,
         null,
         true,
+        RenderStatus.READY,
         OffsetDateTime.now(ZoneOffset.UTC),
         OffsetDateTime.now(ZoneOffset.UTC),
         new DocumentLinks("billing/fiscal/local.pdf", null, null),
@@ -173,6 +175,7 @@ class BillingControllerTest {
         null,
         null,
         false,
+        RenderStatus.READY,
         OffsetDateTime.now(ZoneOffset.UTC),
         OffsetDateTime.now(ZoneOffset.UTC),
         new DocumentLinks("billing/non-fiscal/local.pdf", null, null),
@@ -15,7 +15,15 @@ import com.datakomerz.pymes.auth.dto.AuthRequest;
 import com.datakomerz.pymes.auth.dto.AuthResponse;
 import com.datakomerz.pymes.config.TestJwtDecoderConfig;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 import java.util.UUID;
+import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
@@ -25,6 +33,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -184,4 +193,101 @@ class BillingDownloadControllerTest {
           assertThat(result.getResponse().getContentAsString()).contains("<root/>");
         });
   }
+
+  @Test
+  void downloadLocalFile_servesRangesAndConditionalRequests() throws Exception {
+    DocumentFile file = new DocumentFile();
+    file.setDocumentId(documentId);
+    file.setKind(DocumentFileKind.FISCAL);
+    file.setVersion(DocumentFileVersion.OFFICIAL);
+    file.setContentType(MediaType.APPLICATION_PDF_VALUE);
+    file.setStorageKey("fiscal/oficial.pdf");
+    file.setChecksum("abc123");
+    documentFileRepository.save(file);
+
+    Path stored = Files.createTempFile("billing-download", ".pdf");
+    Files.write(stored, "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+    BDDMockito.given(storageService.resolveFile("fiscal/oficial.pdf")).willReturn(Optional.of(stored));
+    String url = "/api/v1/billing/documents/" + documentId + "/files/OFFICIAL";
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString()))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+        .andExpect(MockMvcResultMatchers.content().string("0123456789"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.RANGE, "bytes=2-5")
+            .header(HttpHeaders.IF_RANGE, "\"abc123\""))
+        .andExpect(MockMvcResultMatchers.status().isPartialContent())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"abc123\""))
+        .andExpect(MockMvcResultMatchers.content().string("2345"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"abc123\""))
+        .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.RANGE, "bytes=20-30"))
+        .andExpect(MockMvcResultMatchers.status().isRequestedRangeNotSatisfiable())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    Files.deleteIfExists(stored);
+  }
+
+  @Test
+  void downloadFile_sendsLastModifiedInGmtAndHonoursDateValidators() throws Exception {
+    DocumentFile file = new DocumentFile();
+    file.setDocumentId(documentId);
+    file.setKind(DocumentFileKind.FISCAL);
+    file.setVersion(DocumentFileVersion.OFFICIAL);
+    file.setContentType(MediaType.APPLICATION_PDF_VALUE);
+    file.setStorageKey("fiscal/fechado.pdf");
+    DocumentFile saved = documentFileRepository.save(file);
+
+    Path stored = Files.createTempFile("billing-download", ".pdf");
+    Files.write(stored, "0123456789".getBytes(StandardCharsets.ISO_8859_1));
+    BDDMockito.given(storageService.resolveFile("fiscal/fechado.pdf")).willReturn(Optional.of(stored));
+    String url = "/api/v1/billing/documents/" + documentId + "/files/OFFICIAL";
+    ZonedDateTime modified = saved.getCreatedAt().atZoneSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+    String httpDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(modified);
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString()))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LAST_MODIFIED, Matchers.endsWith(" GMT")))
+        .andExpect(MockMvcResultMatchers.header().dateValue(HttpHeaders.LAST_MODIFIED,
+            modified.toInstant().toEpochMilli()));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.IF_MODIFIED_SINCE, httpDate))
+        .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.RANGE, "bytes=2-5")
+            .header(HttpHeaders.IF_RANGE, httpDate))
+        .andExpect(MockMvcResultMatchers.status().isPartialContent())
+        .andExpect(MockMvcResultMatchers.content().string("2345"));
+
+    mockMvc.perform(MockMvcRequestBuilders.get(url)
+            .header("Authorization", "Bearer " + accessToken)
+            .header("X-Company-Id", companyId.toString())
+            .header(HttpHeaders.RANGE, "bytes=2-5")
+            .header(HttpHeaders.IF_RANGE, DateTimeFormatter.RFC_1123_DATE_TIME.format(modified.minusDays(1))))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.content().string("0123456789"));
+    Files.deleteIfExists(stored);
+  }
 }
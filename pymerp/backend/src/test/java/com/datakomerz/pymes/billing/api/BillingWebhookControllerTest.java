@@ -89,7 +89,7 @@ class BillingWebhookControllerTest {
     saleRepository.deleteAll();
     eventListener.reset();
 
-    BDDMockito.given(storageService.store(any(), any(), any(), any(), any(), any()))
+    BDDMockito.given(storageService.store(any(), any(), any(), any(byte[].class), any(), any()))
         .willAnswer(invocation -> {
           String filename = invocation.getArgument(4);
           return new BillingStorageService.StoredFile(
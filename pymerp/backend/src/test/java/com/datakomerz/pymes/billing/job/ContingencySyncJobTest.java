@@ -1,6 +1,10 @@
 package com.datakomerz.pymes.billing.job;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 
 import com.company.billing.persistence.ContingencyQueueItem;
 import com.company.billing.persistence.ContingencyQueueItemRepository;
@@ -16,6 +20,7 @@ import com.datakomerz.pymes.billing.provider.BillingProvider;
 import com.datakomerz.pymes.billing.provider.BillingProvider.IssueInvoiceResult;
 import com.datakomerz.pymes.billing.provider.BillingProviderException;
 import com.datakomerz.pymes.billing.provider.BillingProviderTransientException;
+import com.datakomerz.pymes.billing.provider.StubBillingProvider;
 import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.SaleRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,26 +34,51 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 @DataJpaTest
 @Import({ContingencySyncJob.class, ContingencySyncJobTest.TestBeans.class})
 @TestPropertySource(properties = {
     "billing.offline.enabled=true",
     "billing.offline.retry.maxAttempts=3",
-    "billing.offline.retry.backoffMs=1000"
+    "billing.offline.retry.backoffMs=1000",
+    // Tests drive processQueue() directly; keep the scheduled run out of the way.
+    "billing.offline.workers.pollMs=3600000"
 })
+// The job commits per item on worker threads, so test data must be committed too.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
 class ContingencySyncJobTest {
 
   private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -77,6 +107,15 @@ class ContingencySyncJobTest {
   @Autowired
   private JdbcTemplate jdbcTemplate;
 
+  @Autowired
+  private BillingOfflineProperties offlineProperties;
+
+  @Autowired
+  private ObjectProvider<Clock> clockProvider;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   private Sale sale;
 
   @BeforeEach
@@ -93,6 +132,8 @@ class ContingencySyncJobTest {
           last_sync_at TIMESTAMP,
           error_detail VARCHAR(255),
           encrypted_blob BLOB,
+          lease_owner VARCHAR(100),
+          lease_until TIMESTAMP,
           created_at TIMESTAMP NOT NULL,
           updated_at TIMESTAMP NOT NULL
         )
@@ -113,6 +154,13 @@ class ContingencySyncJobTest {
     saleRepository.saveAndFlush(sale);
   }
 
+  @AfterEach
+  void tearDown() {
+    queueRepository.deleteAll();
+    fiscalDocumentRepository.deleteAll();
+    saleRepository.deleteAll();
+  }
+
   @Test
   void shouldSyncPendingItemSuccessfully() {
     FiscalDocument document = newFiscalDocument();
@@ -201,14 +249,257 @@ class ContingencySyncJobTest {
     assertThat(failures.count()).isEqualTo(1);
   }
 
+  @Test
+  void concurrentNodesSyncEachItemExactlyOnce() throws Exception {
+    UUID busyTenant = UUID.randomUUID();
+    UUID quietTenant = UUID.randomUUID();
+    List<String> quietKeys = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      newQueueItem(newFiscalDocument(busyTenant), "busy-" + i);
+    }
+    for (int i = 0; i < 2; i++) {
+      quietKeys.add(newQueueItem(newFiscalDocument(quietTenant), "quiet-" + i).getIdempotencyKey());
+    }
+
+    CountingBillingProvider provider = new CountingBillingProvider();
+    ContingencySyncJob nodeA = newNode("node-a", provider);
+    ContingencySyncJob nodeB = newNode("node-b", provider);
+    ExecutorService scheduler = Executors.newFixedThreadPool(2);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> runs = new ArrayList<>();
+      for (ContingencySyncJob node : List.of(nodeA, nodeB)) {
+        runs.add(scheduler.submit(() -> {
+          start.await();
+          node.processQueue();
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> run : runs) {
+        run.get();
+      }
+    } finally {
+      scheduler.shutdownNow();
+      nodeA.shutdown();
+      nodeB.shutdown();
+    }
+
+    // Both nodes drain the queue in rounds of 8 without ever claiming the same item.
+    assertThat(provider.callsByKey.values()).allMatch(calls -> calls.get() == 1);
+    assertThat(provider.callsByKey).hasSize(32);
+    assertThat(queueRepository.count()).isZero();
+    // The quiet tenant is interleaved with the busy one instead of waiting behind it.
+    assertThat(provider.callOrder.subList(0, 16)).containsAll(quietKeys);
+    assertThat(provider.maxInFlight.get()).isGreaterThan(1);
+  }
+
+  @Test
+  void backlogOfOneTenantDoesNotCrowdOthersOutOfTheClaimWindow() {
+    UUID busyTenant = UUID.randomUUID();
+    UUID quietTenant = UUID.randomUUID();
+    // Far more than the claim window (batch 8 x 4), all due before the quiet tenant's items.
+    for (int i = 0; i < 60; i++) {
+      newQueueItem(newFiscalDocument(busyTenant), "backlog-" + i);
+    }
+    List<String> quietKeys = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      quietKeys.add(newQueueItem(newFiscalDocument(quietTenant), "late-" + i).getIdempotencyKey());
+    }
+
+    CountingBillingProvider provider = new CountingBillingProvider();
+    ContingencySyncJob node = newNode("node-fair", provider, 8, 1);
+    try {
+      node.processQueue();
+    } finally {
+      node.shutdown();
+    }
+
+    assertThat(provider.callsByKey).hasSize(62);
+    assertThat(provider.callOrder.subList(0, 8)).containsAll(quietKeys);
+  }
+
+  @Test
+  void itemThatCannotBePreparedCountsAttemptsUntilItFails() {
+    ContingencyQueueItem poison = newQueueItem(newFiscalDocument(), "poison");
+    ContingencyQueueItem healthy = newQueueItem(newFiscalDocument(), "healthy");
+    ContingencyQueueItemRepository failingRepository =
+        mock(ContingencyQueueItemRepository.class, AdditionalAnswers.delegatesTo(queueRepository));
+    doThrow(new IllegalStateException("Unreadable provider payload"))
+        .when(failingRepository).lockLeased(eq(poison.getId()), anyString());
+    CountingBillingProvider provider = new CountingBillingProvider();
+    ContingencySyncJob node = newNode("node-poison", provider, failingRepository);
+    try {
+      node.processQueue();
+
+      assertThat(provider.callsByKey).containsOnlyKeys(healthy.getIdempotencyKey());
+      ContingencyQueueItem backedOff = queueRepository.findById(poison.getId()).orElseThrow();
+      assertThat(backedOff.getSyncAttempts()).isEqualTo(1);
+      assertThat(backedOff.getStatus()).isEqualTo(ContingencyQueueStatus.OFFLINE_PENDING);
+      assertThat(backedOff.getLeaseOwner()).isNull();
+      assertThat(backedOff.getNextAttemptAt()).isAfter(OffsetDateTime.now(clock));
+      assertThat(backedOff.getErrorDetail()).contains("Unreadable provider payload");
+
+      for (int run = 0; run < 2; run++) {
+        clock.advance(Duration.ofMinutes(1));
+        node.processQueue();
+      }
+    } finally {
+      node.shutdown();
+    }
+
+    ContingencyQueueItem failed = queueRepository.findById(poison.getId()).orElseThrow();
+    assertThat(failed.getSyncAttempts()).isEqualTo(3);
+    assertThat(failed.getStatus()).isEqualTo(ContingencyQueueStatus.FAILED);
+  }
+
+  @Test
+  void outcomeIsDiscardedOnceTheLeasePassedToAnotherNode() {
+    ContingencyQueueItem item = newQueueItem(newFiscalDocument(), "lease-lost");
+    CountingBillingProvider provider = new CountingBillingProvider() {
+      @Override
+      public IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey) {
+        // The lease expires mid-call and another node claims the item.
+        jdbcTemplate.update("update contingency_queue_items set lease_owner = 'node-b' where id = ?", item.getId());
+        return super.issueInvoice(payload, idempotencyKey);
+      }
+    };
+    ContingencySyncJob node = newNode("node-a", provider);
+    try {
+      node.processQueue();
+    } finally {
+      node.shutdown();
+    }
+
+    ContingencyQueueItem untouched = queueRepository.findById(item.getId()).orElseThrow();
+    assertThat(provider.callsByKey).containsOnlyKeys(item.getIdempotencyKey());
+    assertThat(untouched.getLeaseOwner()).isEqualTo("node-b");
+    assertThat(untouched.getStatus()).isEqualTo(ContingencyQueueStatus.SYNCING);
+    assertThat(fiscalDocumentRepository.findById(item.getDocument().getId()).orElseThrow().getStatus())
+        .isEqualTo(FiscalDocumentStatus.SYNCING);
+  }
+
+  @Test
+  void dueItemsAreNotBlockedByItemsStillBackingOff() {
+    for (int i = 0; i < 3; i++) {
+      ContingencyQueueItem waiting = newQueueItem(newFiscalDocument(), "waiting-" + i);
+      waiting.setSyncAttempts(1);
+      waiting.setNextAttemptAt(OffsetDateTime.now(clock).plusMinutes(10));
+      queueRepository.saveAndFlush(waiting);
+    }
+    ContingencyQueueItem due = newQueueItem(newFiscalDocument(), "due");
+    billingProvider.setNextResult(new IssueInvoiceResult("demo-provider", "doc-1", "track-1", "F001-1", null));
+
+    job.processQueue();
+
+    assertThat(queueRepository.findById(due.getId())).isEmpty();
+    assertThat(queueRepository.count()).isEqualTo(3);
+    assertThat(meterRegistry.find("billing.contingency.waiting").gauge().value()).isEqualTo(3);
+    assertThat(meterRegistry.find("billing.contingency.due").gauge().value()).isZero();
+  }
+
+  @Test
+  void retryDelayGrowsExponentiallyWithBoundedJitter() {
+    // backoffMs=1000, jitterRatio=0.5
+    for (int attempt = 1; attempt <= 4; attempt++) {
+      long full = 1000L << (attempt - 1);
+      for (int i = 0; i < 50; i++) {
+        assertThat(job.retryDelayMillis(attempt)).isBetween(full / 2, full);
+      }
+    }
+  }
+
+  @Test
+  void envelopesCutRoundTripsAndMapResultsPerDocument() {
+    List<ContingencyQueueItem> items = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      items.add(newQueueItem(newFiscalDocument(), "bulk-" + i));
+    }
+    StubBillingProvider single = new StubBillingProvider(Duration.ofMillis(30), 1);
+    StubBillingProvider enveloped = new StubBillingProvider(Duration.ofMillis(30), 10);
+    for (StubBillingProvider provider : List.of(single, enveloped)) {
+      provider.failFor("idem-bulk-3", new BillingProviderException("Folio rejected"));
+      provider.failFor("idem-bulk-7", new BillingProviderTransientException("Envelope timeout"));
+    }
+
+    long singleMillis = timedRun(newNode("single", single, 20, 2));
+    assertThat(single.roundTrips()).isEqualTo(20);
+
+    // Reset the queue and replay the same backlog through 10-document envelopes.
+    queueRepository.deleteAll();
+    fiscalDocumentRepository.deleteAll();
+    items.clear();
+    for (int i = 0; i < 20; i++) {
+      items.add(newQueueItem(newFiscalDocument(), "bulk-" + i));
+    }
+    long envelopedMillis = timedRun(newNode("enveloped", enveloped, 20, 2));
+
+    assertThat(enveloped.roundTrips()).isEqualTo(2);
+    assertThat(enveloped.issuedCount()).isEqualTo(18);
+    assertThat(envelopedMillis).isLessThan(singleMillis);
+
+    ContingencyQueueItem rejected = queueRepository.findById(items.get(3).getId()).orElseThrow();
+    assertThat(rejected.getStatus()).isEqualTo(ContingencyQueueStatus.FAILED);
+    assertThat(rejected.getErrorDetail()).contains("Folio rejected");
+    ContingencyQueueItem retried = queueRepository.findById(items.get(7).getId()).orElseThrow();
+    assertThat(retried.getStatus()).isEqualTo(ContingencyQueueStatus.OFFLINE_PENDING);
+    assertThat(retried.getNextAttemptAt()).isAfter(OffsetDateTime.now(clock));
+    assertThat(queueRepository.count()).isEqualTo(2);
+    FiscalDocument sent = fiscalDocumentRepository.findById(items.get(0).getDocument().getId()).orElseThrow();
+    assertThat(sent.getStatus()).isEqualTo(FiscalDocumentStatus.SENT);
+  }
+
+  private long timedRun(ContingencySyncJob node) {
+    long start = System.nanoTime();
+    try {
+      node.processQueue();
+    } finally {
+      node.shutdown();
+    }
+    return Duration.ofNanos(System.nanoTime() - start).toMillis();
+  }
+
+  private ContingencySyncJob newNode(String nodeId, BillingProvider provider) {
+    return newNode(nodeId, provider, 8, 4);
+  }
+
+  private ContingencySyncJob newNode(String nodeId, BillingProvider provider,
+                                     ContingencyQueueItemRepository repository) {
+    return newNode(nodeId, provider, 8, 4, repository);
+  }
+
+  private ContingencySyncJob newNode(String nodeId, BillingProvider provider, int batchSize, int concurrency) {
+    return newNode(nodeId, provider, batchSize, concurrency, queueRepository);
+  }
+
+  private ContingencySyncJob newNode(String nodeId, BillingProvider provider, int batchSize, int concurrency,
+                                     ContingencyQueueItemRepository repository) {
+    BillingOfflineProperties nodeProperties = new BillingOfflineProperties();
+    nodeProperties.setRetry(offlineProperties.getRetry());
+    nodeProperties.getWorkers().setNodeId(nodeId);
+    nodeProperties.getWorkers().setBatchSize(batchSize);
+    nodeProperties.getWorkers().setConcurrency(concurrency);
+    StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("provider", provider));
+    return new ContingencySyncJob(nodeProperties, repository, fiscalDocumentRepository,
+        beans.getBeanProvider(BillingProvider.class), clockProvider, transactionManager,
+        new SimpleMeterRegistry());
+  }
+
   private FiscalDocument newFiscalDocument() {
+    return newFiscalDocument(null);
+  }
+
+  private FiscalDocument newFiscalDocument(UUID companyId) {
     FiscalDocument document = new FiscalDocument();
     document.setSale(sale);
+    if (companyId != null) {
+      document.setCompanyId(companyId);
+    }
     document.setDocumentType(FiscalDocumentType.FACTURA);
     document.setTaxMode(TaxMode.AFECTA);
     document.setStatus(FiscalDocumentStatus.OFFLINE_PENDING);
     document.setOffline(true);
-    document.setProvisionalNumber("CTG-2025-00001");
+    document.setProvisionalNumber("CTG-" + UUID.randomUUID().toString().substring(0, 12));
     document.setIdempotencyKey(UUID.randomUUID().toString());
     fiscalDocumentRepository.saveAndFlush(document);
     return document;
@@ -238,8 +529,19 @@ class ContingencySyncJobTest {
 
   @TestConfiguration
   @EnableConfigurationProperties(BillingOfflineProperties.class)
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
   static class TestBeans {
 
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("contingency-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+
     @Bean
     MutableClock testClock() {
       return new MutableClock();
@@ -298,6 +600,35 @@ class ContingencySyncJobTest {
     }
   }
 
+  static class CountingBillingProvider implements BillingProvider {
+
+    private final Map<String, AtomicInteger> callsByKey = new ConcurrentHashMap<>();
+    private final List<String> callOrder = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Override
+    public IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey) {
+      callsByKey.computeIfAbsent(idempotencyKey, key -> new AtomicInteger()).incrementAndGet();
+      callOrder.add(idempotencyKey);
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } finally {
+        inFlight.decrementAndGet();
+      }
+      return new IssueInvoiceResult("demo-provider", "doc-" + idempotencyKey, "track-" + idempotencyKey,
+          "F-" + idempotencyKey, null);
+    }
+
+    @Override
+    public ProviderDocument fetchDocument(String providerDocumentId) {
+      throw new UnsupportedOperationException("Not needed for tests");
+    }
+  }
+
   static class MutableClock extends Clock {
 
     private Instant current = Instant.parse("2025-01-01T00:00:00Z");
@@ -0,0 +1,90 @@
+package com.datakomerz.pymes.billing.provider;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.billing.persistence.FiscalDocumentType;
+import com.company.billing.persistence.TaxMode;
+import com.datakomerz.pymes.billing.model.InvoicePayload;
+import com.datakomerz.pymes.billing.provider.BillingProvider.BatchItemResult;
+import com.datakomerz.pymes.billing.provider.BillingProvider.InvoiceRequest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class SiiBillingProviderTest {
+
+  private final SiiBillingProvider provider = new SiiBillingProvider(
+      new StaticListableBeanFactory(Map.of(
+          "clock", Clock.fixed(Instant.parse("2025-01-01T12:00:00Z"), ZoneOffset.UTC)))
+          .getBeanProvider(Clock.class));
+
+  @Test
+  void envelopeSharesTrackIdAndReportsDocumentsIndividually() {
+    List<InvoiceRequest> requests = List.of(
+        new InvoiceRequest(payload(), "key-1"),
+        new InvoiceRequest(null, "key-2"),
+        new InvoiceRequest(payload(), "key-3"));
+
+    List<BatchItemResult> results = provider.issueInvoices(requests);
+
+    assertThat(results).extracting(BatchItemResult::idempotencyKey).containsExactly("key-1", "key-2", "key-3");
+    assertThat(results.get(0).isSuccess()).isTrue();
+    assertThat(results.get(1).isSuccess()).isFalse();
+    assertThat(results.get(1).error()).hasMessageContaining("Missing invoice payload");
+    assertThat(results.get(2).result().trackId()).isEqualTo(results.get(0).result().trackId());
+    assertThat(results.get(2).result().number()).isNotEqualTo(results.get(0).result().number());
+    assertThat(results.get(0).result().providerDocumentId())
+        .isEqualTo(provider.issueInvoice(payload(), "key-1").providerDocumentId());
+  }
+
+  @Test
+  void rejectsEnvelopesLargerThanTheProviderLimit() {
+    List<InvoiceRequest> requests = new ArrayList<>();
+    for (int i = 0; i <= provider.maxBatchSize(); i++) {
+      requests.add(new InvoiceRequest(payload(), "key-" + i));
+    }
+
+    assertThatThrownBy(() -> provider.issueInvoices(requests)).isInstanceOf(BillingProviderException.class);
+  }
+
+  @Test
+  void defaultBatchIssuesOneByOneAndMapsFailuresPerDocument() {
+    BillingProvider legacy = new BillingProvider() {
+      @Override
+      public IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey) {
+        return switch (idempotencyKey) {
+          case "rejected" -> throw new BillingProviderException("Rejected");
+          case "broken" -> throw new IllegalStateException("Socket closed");
+          default -> new IssueInvoiceResult("legacy", idempotencyKey, "track", "F-1", null);
+        };
+      }
+
+      @Override
+      public ProviderDocument fetchDocument(String providerDocumentId) {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    List<BatchItemResult> results = legacy.issueInvoices(List.of(
+        new InvoiceRequest(payload(), "ok"),
+        new InvoiceRequest(payload(), "rejected"),
+        new InvoiceRequest(payload(), "broken")));
+
+    assertThat(legacy.maxBatchSize()).isEqualTo(1);
+    assertThat(results.get(0).isSuccess()).isTrue();
+    assertThat(results.get(1).error()).isNotInstanceOf(BillingProviderTransientException.class);
+    assertThat(results.get(2).error()).isInstanceOf(BillingProviderTransientException.class);
+  }
+
+  private InvoicePayload payload() {
+    return new InvoicePayload(UUID.randomUUID(), FiscalDocumentType.FACTURA, null, TaxMode.AFECTA,
+        null, "dev-1", "POS-1", null);
+  }
+}
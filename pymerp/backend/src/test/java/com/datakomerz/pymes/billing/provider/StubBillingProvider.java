@@ -0,0 +1,116 @@
+package com.datakomerz.pymes.billing.provider;
+
+import com.datakomerz.pymes.billing.model.InvoicePayload;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process test double for {@link BillingProvider}. Every call costs one simulated round
+ * trip of {@code latency}, whether it carries one document or a full envelope, and
+ * individual documents can be made to fail by idempotency key.
+ */
+public class StubBillingProvider implements BillingProvider {
+
+  private final Duration latency;
+  private final int maxBatchSize;
+  private final Map<String, BillingProviderException> failures = new ConcurrentHashMap<>();
+  private final AtomicInteger roundTrips = new AtomicInteger();
+  private final AtomicInteger issued = new AtomicInteger();
+
+  public StubBillingProvider() {
+    this(Duration.ZERO, 50);
+  }
+
+  public StubBillingProvider(Duration latency, int maxBatchSize) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    }
+    this.latency = latency;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Makes every issuance of the given key fail with {@code error} (transient or permanent).
+   */
+  public void failFor(String idempotencyKey, BillingProviderException error) {
+    failures.put(idempotencyKey, error);
+  }
+
+  public void clearFailures() {
+    failures.clear();
+  }
+
+  public int roundTrips() {
+    return roundTrips.get();
+  }
+
+  public int issuedCount() {
+    return issued.get();
+  }
+
+  @Override
+  public IssueInvoiceResult issueInvoice(InvoicePayload payload, String idempotencyKey) {
+    roundTrip();
+    BillingProviderException failure = failures.get(idempotencyKey);
+    if (failure != null) {
+      throw failure;
+    }
+    return issue(idempotencyKey, "STUB-" + shortId(idempotencyKey));
+  }
+
+  @Override
+  public List<BatchItemResult> issueInvoices(List<InvoiceRequest> requests) {
+    if (requests.size() > maxBatchSize) {
+      throw new BillingProviderException("Envelope exceeds " + maxBatchSize + " documents");
+    }
+    roundTrip();
+    String trackId = "STUB-" + shortId(UUID.randomUUID().toString());
+    List<BatchItemResult> results = new ArrayList<>(requests.size());
+    for (InvoiceRequest request : requests) {
+      BillingProviderException failure = failures.get(request.idempotencyKey());
+      results.add(failure != null
+          ? BatchItemResult.failure(request.idempotencyKey(), failure)
+          : BatchItemResult.success(request.idempotencyKey(), issue(request.idempotencyKey(), trackId)));
+    }
+    return results;
+  }
+
+  @Override
+  public int maxBatchSize() {
+    return maxBatchSize;
+  }
+
+  @Override
+  public ProviderDocument fetchDocument(String providerDocumentId) {
+    return new ProviderDocument("STUB", providerDocumentId, null, null, null);
+  }
+
+  private IssueInvoiceResult issue(String idempotencyKey, String trackId) {
+    int number = issued.incrementAndGet();
+    return new IssueInvoiceResult("STUB", "stub-" + idempotencyKey, trackId, "F-" + number, null);
+  }
+
+  private void roundTrip() {
+    roundTrips.incrementAndGet();
+    if (latency.isZero() || latency.isNegative()) {
+      return;
+    }
+    try {
+      Thread.sleep(latency);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new BillingProviderTransientException("Interrupted while waiting for provider");
+    }
+  }
+
+  private static String shortId(String value) {
+    String id = value != null ? value : UUID.randomUUID().toString();
+    return id.substring(0, Math.min(8, id.length())).toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,44 @@
+package com.datakomerz.pymes.billing.render;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+class CompiledTemplateTest {
+
+  private static final String SOURCE = """
+      <style>h1 { color: ${primaryColor}; }</style>
+      <h1>${title}</h1><p>${missing}</p><p>${body}</p>${tail""";
+
+  @Test
+  void rendersLikeThePlaceholderHelperItReplaces() {
+    Map<String, String> values = Map.of(
+        "primaryColor", "#111",
+        "title", "Factura",
+        "body", "Total: $1.000");
+
+    String compiled = CompiledTemplate.compile(SOURCE).render(values::get);
+    String legacy = new PropertyPlaceholderHelper("${", "}").replacePlaceholders(SOURCE, values::get);
+
+    assertThat(compiled).isEqualTo(legacy);
+    assertThat(compiled).contains("${missing}").endsWith("${tail");
+  }
+
+  @Test
+  void bindFoldsConstantsIntoLiterals() {
+    CompiledTemplate template = CompiledTemplate.compile(SOURCE).bind(Map.of("primaryColor", "#222"));
+
+    assertThat(template.placeholders()).containsExactly("title", "missing", "body");
+    assertThat(template.render(name -> "x")).startsWith("<style>h1 { color: #222; }</style>");
+  }
+
+  @Test
+  void substitutedValuesAreNotExpandedAgain() {
+    String rendered = CompiledTemplate.compile("<p>${name}</p>")
+        .render(name -> "${injected}");
+
+    assertThat(rendered).isEqualTo("<p>${injected}</p>");
+  }
+}
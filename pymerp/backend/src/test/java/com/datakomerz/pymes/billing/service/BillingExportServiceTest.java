@@ -0,0 +1,168 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.company.billing.persistence.DocumentFile;
+import com.company.billing.persistence.DocumentFileKind;
+import com.company.billing.persistence.DocumentFileRepository;
+import com.company.billing.persistence.DocumentFileVersion;
+import com.company.billing.persistence.FiscalDocument;
+import com.company.billing.persistence.FiscalDocumentRepository;
+import com.company.billing.persistence.FiscalDocumentType;
+import com.datakomerz.pymes.billing.config.BillingExportProperties;
+import com.datakomerz.pymes.billing.render.StubLocalInvoiceRenderer;
+import com.datakomerz.pymes.sales.Sale;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class BillingExportServiceTest {
+
+  private final FiscalDocumentRepository fiscalDocumentRepository = mock(FiscalDocumentRepository.class);
+  private final DocumentFileRepository documentFileRepository = mock(DocumentFileRepository.class);
+  private final BillingStorageService storageService = mock(BillingStorageService.class);
+  private final BillingExportProperties properties = new BillingExportProperties();
+  private BillingExportService service;
+
+  @AfterEach
+  void tearDown() {
+    if (service != null) {
+      service.shutdown();
+    }
+  }
+
+  @Test
+  void streamsStoredFilesAndRendersMissingLocalPdfs() throws Exception {
+    properties.setParallelism(2);
+    service = newService();
+    FiscalDocument official = document("F-100");
+    FiscalDocument offline = document(null);
+    FiscalDocument lost = document(null);
+    DocumentFile officialPdf = file(official, DocumentFileVersion.OFFICIAL, "application/pdf", "official.pdf");
+    DocumentFile officialXml = file(official, DocumentFileVersion.OFFICIAL, "application/xml", "official.xml");
+    DocumentFile lostLocal = file(lost, DocumentFileVersion.LOCAL, "application/pdf", "gone.pdf");
+    when(fiscalDocumentRepository.findAllById(any())).thenReturn(List.of(official, offline, lost));
+    when(documentFileRepository.findByDocumentIdIn(anyCollection()))
+        .thenReturn(List.of(officialPdf, officialXml, lostLocal));
+    when(storageService.loadAsResource("official.pdf"))
+        .thenReturn(new ByteArrayResource("official pdf".getBytes(StandardCharsets.UTF_8)));
+    when(storageService.loadAsResource("official.xml")).thenThrow(new IOException("bucket unavailable"));
+    when(storageService.loadAsResource("gone.pdf")).thenThrow(new IOException("Stored file not found"));
+
+    BillingExportService.ExportPlan plan = service.plan(null, null,
+        List.of(official.getId(), offline.getId(), lost.getId()));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    service.write(plan, output);
+
+    Map<String, String> entries = unzip(output.toByteArray());
+    assertThat(plan.documentCount()).isEqualTo(3);
+    assertThat(entries.keySet()).containsExactly(
+        "factura_F-100_official.pdf",
+        "factura_" + offline.getProvisionalNumber() + "_local.pdf",
+        "factura_" + lost.getProvisionalNumber() + "_local.pdf",
+        BillingExportService.ERRORS_ENTRY);
+    assertThat(entries.get("factura_F-100_official.pdf")).isEqualTo("official pdf");
+    assertThat(entries.get("factura_" + offline.getProvisionalNumber() + "_local.pdf"))
+        .isEqualTo("PDF placeholder for fiscal " + offline.getProvisionalNumber());
+    assertThat(entries.get("factura_" + lost.getProvisionalNumber() + "_local.pdf"))
+        .startsWith("PDF placeholder for fiscal");
+    assertThat(entries.get(BillingExportService.ERRORS_ENTRY))
+        .isEqualTo("factura_F-100_official.xml: bucket unavailable");
+  }
+
+  @Test
+  void rejectsSelectionsAboveTheLimit() {
+    properties.setMaxDocuments(2);
+    service = newService();
+    List<FiscalDocument> createdInRange = List.of(document("1"), document("2"), document("3"));
+    when(fiscalDocumentRepository.findByCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+        any(), any(), any())).thenReturn(createdInRange);
+
+    assertThatThrownBy(() -> service.plan(null, null, List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID())))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> service.plan(OffsetDateTime.now(), OffsetDateTime.now(), null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void dateRangeCoversWholeDaysInTheConfiguredZone() {
+    properties.setZone(ZoneId.of("America/Santiago"));
+    service = newService();
+    when(fiscalDocumentRepository.findByCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+        any(), any(), any())).thenReturn(List.of());
+
+    service.plan(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+    verify(fiscalDocumentRepository).findByCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+        eq(OffsetDateTime.parse("2025-01-01T00:00-03:00")),
+        eq(OffsetDateTime.parse("2025-02-01T00:00-03:00")),
+        any());
+  }
+
+  private BillingExportService newService() {
+    return new BillingExportService(
+        properties,
+        fiscalDocumentRepository,
+        documentFileRepository,
+        storageService,
+        new StubLocalInvoiceRenderer(),
+        mock(PlatformTransactionManager.class));
+  }
+
+  private FiscalDocument document(String folio) {
+    Sale sale = new Sale();
+    sale.setCompanyId(UUID.randomUUID());
+    FiscalDocument document = new FiscalDocument();
+    document.setId(UUID.randomUUID());
+    document.setSale(sale);
+    document.setDocumentType(FiscalDocumentType.FACTURA);
+    document.setFinalFolio(folio);
+    document.setProvisionalNumber("CTG-" + document.getId().toString().substring(0, 8));
+    when(fiscalDocumentRepository.findById(document.getId())).thenReturn(Optional.of(document));
+    return document;
+  }
+
+  private DocumentFile file(FiscalDocument document, DocumentFileVersion version, String contentType, String key) {
+    DocumentFile file = new DocumentFile();
+    file.setId(UUID.randomUUID());
+    file.setDocumentId(document.getId());
+    file.setKind(DocumentFileKind.FISCAL);
+    file.setVersion(version);
+    file.setContentType(contentType);
+    file.setStorageKey(key);
+    return file;
+  }
+
+  private Map<String, String> unzip(byte[] zip) throws IOException {
+    Map<String, String> entries = new LinkedHashMap<>();
+    try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip), StandardCharsets.UTF_8)) {
+      ZipEntry entry;
+      while ((entry = input.getNextEntry()) != null) {
+        entries.put(entry.getName(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+      }
+    }
+    return entries;
+  }
+}
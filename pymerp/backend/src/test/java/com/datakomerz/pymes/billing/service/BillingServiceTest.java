@@ -10,11 +10,13 @@ import com.company.billing.persistence.FiscalDocument;
 import com.company.billing.persistence.FiscalDocumentRepository;
 import com.company.billing.persistence.FiscalDocumentStatus;
 import com.company.billing.persistence.NonFiscalDocumentType;
+import com.company.billing.persistence.RenderStatus;
 import com.datakomerz.pymes.billing.model.InvoicePayload;
 import com.datakomerz.pymes.billing.provider.BillingProvider;
 import com.datakomerz.pymes.billing.provider.BillingProviderException;
 import com.datakomerz.pymes.billing.provider.BillingProvider.OfficialDocument;
 import com.datakomerz.pymes.billing.provider.BillingProvider.IssueInvoiceResult;
+import com.datakomerz.pymes.billing.render.BillingPdfProperties;
 import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
 import com.datakomerz.pymes.billing.render.StubLocalInvoiceRenderer;
 import com.datakomerz.pymes.billing.service.BillingDocumentView.DocumentLinks;
@@ -24,10 +26,13 @@ import com.datakomerz.pymes.sales.Sale;
 import com.datakomerz.pymes.sales.SaleRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.datakomerz.pymes.multitenancy.TenantContext;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
@@ -40,15 +45,25 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 @DataJpaTest
-@Import({BillingService.class, BillingServiceTest.TestConfig.class})
+@Import({BillingService.class, DocumentNumberAllocator.class, DocumentRenderQueue.class, BillingPdfProperties.class,
+    BillingServiceTest.TestConfig.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:billing_service;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
 class BillingServiceTest {
 
   @Autowired
@@ -72,6 +87,9 @@ class BillingServiceTest {
   @Autowired
   private JdbcTemplate jdbcTemplate;
 
+  @Autowired
+  private DocumentRenderQueue renderQueue;
+
   private Sale sale;
 
   private static final String DEFAULT_PAYLOAD_HASH = "payload-hash";
@@ -83,12 +101,12 @@ class BillingServiceTest {
           id UUID PRIMARY KEY,
           document_id UUID NOT NULL,
           idempotency_key VARCHAR(100) NOT NULL,
-          provider_payload CLOB NOT NULL,
+          provider_payload TEXT NOT NULL,
           status VARCHAR(24) NOT NULL,
           sync_attempts INT NOT NULL DEFAULT 0,
           last_sync_at TIMESTAMP,
           error_detail VARCHAR(255),
-          encrypted_blob BLOB,
+          encrypted_blob BYTEA,
           created_at TIMESTAMP NOT NULL,
           updated_at TIMESTAMP NOT NULL
         )
@@ -118,7 +136,7 @@ class BillingServiceTest {
   }
 
   @Test
-  void issueInvoiceOffline_enqueuesDocumentAndReturnsLocalLink() {
+  void issueInvoiceOffline_enqueuesDocumentAndDefersLocalRender() {
     InvoicePayload payload = InvoicePayloadFixtures.fiscalOffline(sale.getId());
 
     var result = billingService.issueInvoice(
@@ -132,10 +150,11 @@ class BillingServiceTest {
     assertThat(view.category()).isEqualTo(com.datakomerz.pymes.billing.model.DocumentCategory.FISCAL);
     assertThat(view.fiscalStatus()).isEqualTo(FiscalDocumentStatus.OFFLINE_PENDING);
     assertThat(view.offline()).isTrue();
+    assertThat(view.renderStatus()).isEqualTo(RenderStatus.RENDER_PENDING);
     DocumentLinks links = view.links();
-    assertThat(links.localPdf()).isNotBlank();
+    assertThat(links.localPdf()).isNull();
     assertThat(links.officialPdf()).isNull();
-    assertThat(view.files()).hasSize(1);
+    assertThat(view.files()).isEmpty();
     assertThat(contingencyQueueItemRepository.findByIdempotencyKey("invoice-offline-key"))
         .isPresent();
   }
@@ -166,12 +185,45 @@ class BillingServiceTest {
     assertThat(view.provider()).isEqualTo("demo-provider");
     assertThat(view.trackId()).isEqualTo("track-777");
     assertThat(view.number()).isEqualTo("F001-000123");
-    assertThat(view.files()).hasSize(2);
+    assertThat(view.renderStatus()).isEqualTo(RenderStatus.RENDER_PENDING);
+    assertThat(view.files()).hasSize(1);
     assertThat(view.links().officialPdf()).isNotBlank();
     assertThat(billingProvider.getLastPayload()).isNotNull();
     assertThat(billingProvider.getLastIdempotencyKey()).isEqualTo("invoice-online-key");
   }
 
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void issueInvoiceOnline_linksOfficialVersionToTheLocalRender() {
+    try {
+      billingProvider.setNextResult(new IssueInvoiceResult(
+          "demo-provider",
+          "provider-doc-2",
+          "track-778",
+          "F001-000124",
+          new OfficialDocument("official-pdf".getBytes(StandardCharsets.UTF_8), "official.pdf",
+              "application/pdf", null)
+      ));
+
+      BillingDocumentView view = billingService.issueInvoice(
+          false,
+          "GOOD",
+          InvoicePayloadFixtures.fiscalOnline(sale.getId()),
+          "invoice-linked-key",
+          DEFAULT_PAYLOAD_HASH).document();
+
+      assertThat(renderQueue.awaitRendered(view.id(), Duration.ofSeconds(10))).isEqualTo(RenderStatus.READY);
+      UUID localId = jdbcTemplate.queryForObject(
+          "select id from document_files where document_id = ? and version = 'LOCAL'", UUID.class, view.id());
+      UUID previousOfOfficial = jdbcTemplate.queryForObject(
+          "select previous_file_id from document_files where document_id = ? and version = 'OFFICIAL'",
+          UUID.class, view.id());
+      assertThat(previousOfOfficial).isNotNull().isEqualTo(localId);
+    } finally {
+      deleteCommittedRows();
+    }
+  }
+
   @Test
   void issueInvoiceWhenProviderRejects_marksDocumentAsFailed() {
     billingProvider.setNextException(new BillingProviderException("Rule violation"));
@@ -193,6 +245,35 @@ class BillingServiceTest {
     assertThat(document.isOffline()).isFalse();
   }
 
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void failedIssuance_returnsItsProvisionalNumberToTheSeries() {
+    try {
+      billingProvider.setNextException(new BillingProviderException("Rule violation"));
+      assertThatThrownBy(() -> billingService.issueInvoice(
+          false,
+          "GOOD",
+          InvoicePayloadFixtures.fiscalOnline(sale.getId()),
+          "invoice-rolled-back-key",
+          DEFAULT_PAYLOAD_HASH))
+          .isInstanceOf(BillingProviderException.class);
+
+      BillingDocumentView view = billingService.issueInvoice(
+          true,
+          "OFFLINE",
+          InvoicePayloadFixtures.fiscalOffline(sale.getId()),
+          "invoice-after-rollback-key",
+          DEFAULT_PAYLOAD_HASH).document();
+
+      assertThat(view.provisionalNumber()).isEqualTo("CTG-2025-00001");
+      assertThat(fiscalDocumentRepository.findByCompanyIdAndIdempotencyKey(
+          sale.getCompanyId(), "invoice-rolled-back-key")).isEmpty();
+      renderQueue.awaitRendered(view.id(), Duration.ofSeconds(10));
+    } finally {
+      deleteCommittedRows();
+    }
+  }
+
   @Test
   void createNonFiscal_generatesReadyDocument() {
     InvoicePayload payload = new InvoicePayload(
@@ -209,11 +290,24 @@ class BillingServiceTest {
 
     assertThat(view.category()).isEqualTo(com.datakomerz.pymes.billing.model.DocumentCategory.NON_FISCAL);
     assertThat(view.nonFiscalStatus()).isEqualTo(com.company.billing.persistence.NonFiscalDocumentStatus.READY);
+    assertThat(view.renderStatus()).isEqualTo(RenderStatus.READY);
     assertThat(view.links().localPdf()).isNotBlank();
     assertThat(view.files()).hasSize(1);
     assertThat(view.number()).startsWith("NF-");
   }
 
+  private void deleteCommittedRows() {
+    UUID companyId = sale.getCompanyId();
+    String documents = "select d.id from fiscal_documents d join sales s on s.id = d.sale_id where s.company_id = ?";
+    jdbcTemplate.update("update document_files set previous_file_id = null where document_id in (" + documents + ")",
+        companyId);
+    jdbcTemplate.update("delete from document_files where document_id in (" + documents + ")", companyId);
+    jdbcTemplate.update("delete from contingency_queue_items where document_id in (" + documents + ")", companyId);
+    jdbcTemplate.update("delete from fiscal_documents where id in (" + documents + ")", companyId);
+    jdbcTemplate.update("delete from document_sequences where company_id = ?", companyId);
+    jdbcTemplate.update("delete from sales where company_id = ?", companyId);
+  }
+
   private ObjectNode newPayloadNode(String mode) {
     ObjectNode node = objectMapper.createObjectNode();
     node.put("mode", mode);
@@ -222,8 +316,19 @@ class BillingServiceTest {
   }
 
   @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
   static class TestConfig {
 
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("billing-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+
     @Bean
     @Primary
     ObjectMapper billingTestObjectMapper() {
@@ -254,6 +359,11 @@ class BillingServiceTest {
     BillingIdempotencyStore billingIdempotencyStore() {
       return new InMemoryBillingIdempotencyStore();
     }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
   }
 
   static class InMemoryBillingStorageService implements BillingStorageService {
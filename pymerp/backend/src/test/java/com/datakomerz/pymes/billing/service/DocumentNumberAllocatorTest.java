@@ -0,0 +1,131 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.billing.persistence.DocumentSequenceRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@DataJpaTest
+@Import(DocumentNumberAllocator.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties =
+    "spring.datasource.url=jdbc:h2:mem:document_numbers;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;LOCK_TIMEOUT=10000")
+// Every reservation runs in its own committed transaction, as issuance does.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DocumentNumberAllocatorTest {
+
+  private static final int THREADS = 16;
+  private static final int DOCUMENTS = 1_000;
+
+  @Autowired
+  private DocumentNumberAllocator allocator;
+
+  @Autowired
+  private DocumentSequenceRepository sequenceRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Test
+  void parallelIssuanceHasNoGapsOrDuplicates() throws Exception {
+    UUID companyId = UUID.randomUUID();
+
+    List<Long> numbers = issueInParallel(companyId, "NF", DOCUMENTS);
+
+    assertThat(numbers).hasSize(DOCUMENTS).doesNotHaveDuplicates();
+    assertThat(numbers).containsExactlyInAnyOrderElementsOf(
+        LongStream.rangeClosed(1, DOCUMENTS).boxed().toList());
+    assertThat(sequenceRepository.findNextValue(companyId, "NF", 2024)).contains((long) DOCUMENTS + 1);
+  }
+
+  @Test
+  void rolledBackReservationIsHandedOutAgain() {
+    UUID companyId = UUID.randomUUID();
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    assertThat(next(companyId, "CTG", 2024, () -> 0)).isEqualTo(1);
+    Long rolledBack = transaction.execute(status -> {
+      long number = allocator.next(companyId, "CTG", 2024, () -> 0);
+      status.setRollbackOnly();
+      return number;
+    });
+
+    assertThat(rolledBack).isEqualTo(2);
+    assertThat(next(companyId, "CTG", 2024, () -> 0)).isEqualTo(2);
+  }
+
+  @Test
+  void reservationRequiresTheIssuingTransaction() {
+    assertThatThrownBy(() -> allocator.next(UUID.randomUUID(), "CTG", 2024, () -> 0))
+        .isInstanceOf(IllegalTransactionStateException.class);
+  }
+
+  @Test
+  void newSeriesContinuesAfterLegacyNumbersAndIsIsolatedPerPrefixAndYear() {
+    UUID companyId = UUID.randomUUID();
+    UUID otherCompany = UUID.randomUUID();
+
+    assertThat(next(companyId, "CTG", 2024, () -> 41)).isEqualTo(42);
+    assertThat(next(companyId, "CTG", 2024, () -> 999)).isEqualTo(43);
+    assertThat(next(companyId, "CTG", 2025, () -> 0)).isEqualTo(1);
+    assertThat(next(companyId, "NF", 2024, () -> 0)).isEqualTo(1);
+    assertThat(next(otherCompany, "CTG", 2024, () -> 0)).isEqualTo(1);
+  }
+
+  private long next(UUID companyId, String prefix, int year, LongSupplier lastIssued) {
+    return new TransactionTemplate(transactionManager)
+        .execute(status -> allocator.next(companyId, prefix, year, lastIssued));
+  }
+
+  private List<Long> issueInParallel(UUID companyId, String prefix, int count) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    Set<Long> seen = ConcurrentHashMap.newKeySet();
+    List<Long> numbers = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        Callable<Void> task = () -> {
+          start.await();
+          long number = next(companyId, prefix, 2024, () -> 0);
+          seen.add(number);
+          numbers.add(number);
+          return null;
+        };
+        futures.add(executor.submit(task));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(seen).hasSameSizeAs(numbers);
+    return numbers;
+  }
+}
@@ -0,0 +1,193 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.company.billing.persistence.DocumentFile;
+import com.company.billing.persistence.DocumentFileRepository;
+import com.company.billing.persistence.DocumentFileVersion;
+import com.company.billing.persistence.FiscalDocument;
+import com.company.billing.persistence.FiscalDocumentRepository;
+import com.company.billing.persistence.RenderStatus;
+import com.datakomerz.pymes.billing.render.BillingPdfProperties;
+import com.datakomerz.pymes.billing.render.LocalInvoiceRenderer;
+import com.datakomerz.pymes.billing.render.StubLocalInvoiceRenderer;
+import com.datakomerz.pymes.sales.Sale;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class DocumentRenderQueueTest {
+
+  private final FiscalDocumentRepository fiscalDocumentRepository = mock(FiscalDocumentRepository.class);
+  private final DocumentFileRepository documentFileRepository = mock(DocumentFileRepository.class);
+  private final BillingStorageService storageService = mock(BillingStorageService.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private DocumentRenderQueue queue;
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    if (queue != null) {
+      queue.shutdown();
+    }
+  }
+
+  @Test
+  void rendersOnWorkerAndMarksDocumentReady() throws Exception {
+    queue = newQueue(new StubLocalInvoiceRenderer(), 2, 10);
+    UUID documentId = stubDocument();
+
+    RenderStatus status = queue.submit(documentId).get(5, TimeUnit.SECONDS);
+
+    assertThat(status).isEqualTo(RenderStatus.READY);
+    verify(documentFileRepository).save(any(DocumentFile.class));
+    verify(fiscalDocumentRepository).updateRenderStatus(documentId, RenderStatus.READY);
+    assertThat(meterRegistry.get("billing.render.duration").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void waitsForCommitBeforeQueueingAndDropsRolledBackRenders() throws Exception {
+    queue = newQueue(new StubLocalInvoiceRenderer(), 1, 10);
+    UUID committed = stubDocument();
+    UUID rolledBack = stubDocument();
+
+    TransactionSynchronizationManager.initSynchronization();
+    CompletableFuture<RenderStatus> committedRender = queue.submit(committed);
+    List<TransactionSynchronization> first = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    TransactionSynchronizationManager.initSynchronization();
+    queue.submit(rolledBack);
+    List<TransactionSynchronization> second = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+
+    Thread.sleep(50);
+    verify(fiscalDocumentRepository, never()).lockForRender(any());
+
+    first.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    second.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    assertThat(committedRender.get(5, TimeUnit.SECONDS)).isEqualTo(RenderStatus.READY);
+    verify(fiscalDocumentRepository, never()).lockForRender(rolledBack);
+    assertThat(meterRegistry.get("billing.render.inFlight").gauge().value()).isZero();
+  }
+
+  @Test
+  void fullQueueRendersOnCallerThread() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    UUID blocking = stubDocument();
+    StubLocalInvoiceRenderer delegate = new StubLocalInvoiceRenderer();
+    LocalInvoiceRenderer renderer = mock(LocalInvoiceRenderer.class);
+    Map<UUID, String> renderThreads = new ConcurrentHashMap<>();
+    when(renderer.renderContingencyFiscalPdf(any(), any())).thenAnswer(invocation -> {
+      FiscalDocument document = invocation.getArgument(0);
+      renderThreads.put(document.getId(), Thread.currentThread().getName());
+      if (document.getId().equals(blocking)) {
+        release.await(5, TimeUnit.SECONDS);
+      }
+      return delegate.renderContingencyFiscalPdf(document, invocation.getArgument(1));
+    });
+    queue = newQueue(renderer, 1, 1);
+    UUID queued = stubDocument();
+    UUID overflow = stubDocument();
+
+    CompletableFuture<RenderStatus> first = queue.submit(blocking);
+    verify(renderer, timeout(2000)).renderContingencyFiscalPdf(any(), any());
+    CompletableFuture<RenderStatus> second = queue.submit(queued);
+    CompletableFuture<RenderStatus> third = queue.submit(overflow);
+
+    assertThat(third).isCompletedWithValue(RenderStatus.READY);
+    assertThat(renderThreads.get(overflow)).isEqualTo(Thread.currentThread().getName());
+    assertThat(meterRegistry.get("billing.render.callerRuns").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("billing.render.queue.depth").gauge().value()).isEqualTo(1);
+
+    release.countDown();
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(RenderStatus.READY);
+    assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(RenderStatus.READY);
+    assertThat(renderThreads.get(queued)).startsWith("pdf-render-");
+  }
+
+  @Test
+  void failedRenderIsFlaggedAndRetriedWhenAwaited() throws Exception {
+    LocalInvoiceRenderer renderer = mock(LocalInvoiceRenderer.class);
+    when(renderer.renderContingencyFiscalPdf(any(), any()))
+        .thenThrow(new IllegalStateException("font missing"))
+        .thenAnswer(invocation -> new StubLocalInvoiceRenderer()
+            .renderContingencyFiscalPdf(invocation.getArgument(0), invocation.getArgument(1)));
+    queue = newQueue(renderer, 1, 10);
+    UUID documentId = stubDocument();
+
+    assertThat(queue.submit(documentId).get(5, TimeUnit.SECONDS)).isEqualTo(RenderStatus.FAILED);
+    verify(fiscalDocumentRepository).updateRenderStatus(documentId, RenderStatus.FAILED);
+    assertThat(meterRegistry.get("billing.render.failed").counter().count()).isEqualTo(1);
+
+    when(fiscalDocumentRepository.findRenderStatus(documentId)).thenReturn(Optional.of(RenderStatus.FAILED));
+    assertThat(queue.awaitRendered(documentId, Duration.ofSeconds(5))).isEqualTo(RenderStatus.READY);
+    verify(fiscalDocumentRepository).updateRenderStatus(documentId, RenderStatus.READY);
+  }
+
+  @Test
+  void documentLockedByAnotherNodeIsLeftToThatNode() throws Exception {
+    queue = newQueue(new StubLocalInvoiceRenderer(), 1, 10);
+    UUID documentId = UUID.randomUUID();
+    when(fiscalDocumentRepository.lockForRender(documentId)).thenReturn(Optional.empty());
+    when(fiscalDocumentRepository.existsById(documentId)).thenReturn(true);
+
+    assertThat(queue.submit(documentId).get(5, TimeUnit.SECONDS)).isEqualTo(RenderStatus.RENDER_PENDING);
+    verify(documentFileRepository, never()).save(any(DocumentFile.class));
+    verify(fiscalDocumentRepository, never()).updateRenderStatus(eq(documentId), any());
+  }
+
+  private DocumentRenderQueue newQueue(LocalInvoiceRenderer renderer, int workers, int capacity) throws Exception {
+    BillingPdfProperties properties = new BillingPdfProperties();
+    properties.getRender().setWorkers(workers);
+    properties.getRender().setQueueCapacity(capacity);
+    when(storageService.store(any(), any(), eq(DocumentFileVersion.LOCAL), any(byte[].class), any(), any()))
+        .thenReturn(new BillingStorageService.StoredFile("memory/local.pdf", "checksum"));
+    return new DocumentRenderQueue(
+        properties,
+        renderer,
+        fiscalDocumentRepository,
+        documentFileRepository,
+        storageService,
+        new StaticListableBeanFactory(Map.of("clock", Clock.systemUTC())).getBeanProvider(Clock.class),
+        mock(PlatformTransactionManager.class),
+        meterRegistry);
+  }
+
+  private UUID stubDocument() {
+    Sale sale = new Sale();
+    sale.setCompanyId(UUID.randomUUID());
+    FiscalDocument document = new FiscalDocument();
+    document.setId(UUID.randomUUID());
+    document.setSale(sale);
+    document.setProvisionalNumber("CTG-" + document.getId());
+    document.setRenderStatus(RenderStatus.RENDER_PENDING);
+    when(fiscalDocumentRepository.lockForRender(document.getId())).thenReturn(Optional.of(document));
+    when(documentFileRepository.findByDocumentIdAndVersion(document.getId(), DocumentFileVersion.LOCAL))
+        .thenReturn(List.of());
+    return document.getId();
+  }
+}
@@ -0,0 +1,70 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.company.billing.persistence.DocumentFileKind;
+import com.company.billing.persistence.DocumentFileVersion;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemBillingStorageServiceTest {
+
+  @TempDir
+  Path root;
+
+  @Test
+  void streamedStoreWritesFileAndChecksumsWhileWriting() throws Exception {
+    FileSystemBillingStorageService storage = new FileSystemBillingStorageService(root.toString());
+    byte[] content = "<DTE>contenido</DTE>".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+    UUID documentId = UUID.randomUUID();
+
+    BillingStorageService.StoredFile stored = storage.store(documentId, DocumentFileKind.FISCAL,
+        DocumentFileVersion.OFFICIAL, new ByteArrayInputStream(content), "dte.xml", "application/xml");
+
+    assertThat(stored.checksum())
+        .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)));
+    Path file = storage.resolveFile(stored.storageKey()).orElseThrow();
+    assertThat(Files.readAllBytes(file)).isEqualTo(content);
+    try (Stream<Path> siblings = Files.list(file.getParent())) {
+      assertThat(siblings).containsExactly(file);
+    }
+  }
+
+  @Test
+  void byteArrayStoreMatchesStreamedStore() throws Exception {
+    FileSystemBillingStorageService storage = new FileSystemBillingStorageService(root.toString());
+    byte[] content = "%PDF-1.4".getBytes(StandardCharsets.ISO_8859_1);
+    UUID documentId = UUID.randomUUID();
+
+    BillingStorageService.StoredFile fromBytes = storage.store(documentId, DocumentFileKind.FISCAL,
+        DocumentFileVersion.LOCAL, content, "local.pdf", "application/pdf");
+    BillingStorageService.StoredFile fromStream = storage.store(documentId, DocumentFileKind.FISCAL,
+        DocumentFileVersion.LOCAL, new ByteArrayInputStream(content), "local.pdf", "application/pdf");
+
+    assertThat(fromStream).isEqualTo(fromBytes);
+    assertThat(storage.read(fromBytes.storageKey())).isEqualTo(content);
+  }
+
+  @Test
+  void emptyStreamIsRejectedWithoutLeavingFiles() throws Exception {
+    FileSystemBillingStorageService storage = new FileSystemBillingStorageService(root.toString());
+    UUID documentId = UUID.randomUUID();
+
+    assertThatThrownBy(() -> storage.store(documentId, DocumentFileKind.FISCAL, DocumentFileVersion.LOCAL,
+        new ByteArrayInputStream(new byte[0]), "local.pdf", "application/pdf"))
+        .isInstanceOf(IllegalArgumentException.class);
+    try (Stream<Path> files = Files.list(root.resolve("fiscal").resolve(documentId.toString()))) {
+      assertThat(files).isEmpty();
+    }
+    assertThat(storage.resolveFile("https://provider.example/dte.pdf")).isEmpty();
+  }
+}
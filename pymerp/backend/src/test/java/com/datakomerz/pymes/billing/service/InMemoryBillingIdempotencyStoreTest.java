@@ -0,0 +1,88 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.billing.service.BillingIdempotencyStore.IdempotencyEntry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class InMemoryBillingIdempotencyStoreTest {
+
+  private static final int DUPLICATES = 200;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void duplicateSubmitStormWakesAllWaitersOnCompletion() throws Exception {
+    // A timeout far beyond the test's own budget proves waiters are woken, not timed out.
+    InMemoryBillingIdempotencyStore store = new InMemoryBillingIdempotencyStore(Duration.ofSeconds(30));
+    UUID tenantId = UUID.randomUUID();
+    UUID documentId = UUID.randomUUID();
+    assertThat(store.reserve(tenantId, "storm", "hash")).isTrue();
+
+    CountDownLatch started = new CountDownLatch(DUPLICATES);
+    List<Future<Optional<IdempotencyEntry>>> waiters = new ArrayList<>();
+    for (int i = 0; i < DUPLICATES; i++) {
+      waiters.add(executor.submit(() -> {
+        assertThat(store.reserve(tenantId, "storm", "hash")).isFalse();
+        started.countDown();
+        return store.awaitCompletion(tenantId, "storm");
+      }));
+    }
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(50);
+
+    long completedAt = System.nanoTime();
+    store.complete(tenantId, "storm", "hash", documentId);
+
+    for (Future<Optional<IdempotencyEntry>> waiter : waiters) {
+      assertThat(waiter.get(5, TimeUnit.SECONDS)).contains(new IdempotencyEntry(documentId, "hash"));
+    }
+    assertThat(Duration.ofNanos(System.nanoTime() - completedAt)).isLessThan(Duration.ofSeconds(5));
+    assertThat(store.pendingWaiterKeys()).isZero();
+  }
+
+  @Test
+  void invalidationReleasesWaitersWithoutResult() throws Exception {
+    InMemoryBillingIdempotencyStore store = new InMemoryBillingIdempotencyStore(Duration.ofSeconds(30));
+    UUID tenantId = UUID.randomUUID();
+    store.reserve(tenantId, "failed", "hash");
+
+    Future<Optional<IdempotencyEntry>> waiter = executor.submit(() -> store.awaitCompletion(tenantId, "failed"));
+    Thread.sleep(50);
+    store.invalidate(tenantId, "failed");
+
+    assertThat(waiter.get(5, TimeUnit.SECONDS)).isEmpty();
+    assertThat(store.pendingWaiterKeys()).isZero();
+  }
+
+  @Test
+  void waitersGiveUpAtTimeoutAndCompletedKeysReturnImmediately() {
+    InMemoryBillingIdempotencyStore store = new InMemoryBillingIdempotencyStore(Duration.ofMillis(100));
+    UUID tenantId = UUID.randomUUID();
+    UUID documentId = UUID.randomUUID();
+    store.reserve(tenantId, "slow", "hash");
+
+    assertThat(store.awaitCompletion(tenantId, "slow")).isEmpty();
+    assertThat(store.pendingWaiterKeys()).isZero();
+
+    store.complete(tenantId, "slow", "hash", documentId);
+    assertThat(store.awaitCompletion(tenantId, "slow")).contains(new IdempotencyEntry(documentId, "hash"));
+    assertThat(store.awaitCompletion(tenantId, "unknown")).isEmpty();
+  }
+}
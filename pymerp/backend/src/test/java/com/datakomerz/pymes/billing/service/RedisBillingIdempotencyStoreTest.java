@@ -0,0 +1,147 @@
+package com.datakomerz.pymes.billing.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datakomerz.pymes.billing.config.BillingIdempotencyProperties;
+import com.datakomerz.pymes.billing.service.BillingIdempotencyStore.IdempotencyEntry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+/**
+ * Two stores share one fake Redis keyspace and a fake channel, standing in for two nodes.
+ */
+class RedisBillingIdempotencyStoreTest {
+
+  private static final int DUPLICATES = 200;
+
+  private final Map<String, String> keyspace = new ConcurrentHashMap<>();
+  private final List<RedisBillingIdempotencyStore> subscribers = new CopyOnWriteArrayList<>();
+  private final AtomicInteger reads = new AtomicInteger();
+  private final ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+  private BillingIdempotencyProperties properties;
+
+  @BeforeEach
+  void setUp() {
+    properties = new BillingIdempotencyProperties();
+    properties.setWaitTimeout(Duration.ofSeconds(10));
+    // Far beyond the test budget: only the completion signal can wake waiters in time.
+    properties.setWaitPollInterval(Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void duplicateSubmitStormOnAnotherNodeIsWokenByPublishedCompletion() throws Exception {
+    RedisBillingIdempotencyStore owner = node();
+    RedisBillingIdempotencyStore sibling = node();
+    UUID tenantId = UUID.randomUUID();
+    UUID documentId = UUID.randomUUID();
+    assertThat(owner.reserve(tenantId, "storm", "hash")).isTrue();
+
+    CountDownLatch started = new CountDownLatch(DUPLICATES);
+    List<Future<Optional<IdempotencyEntry>>> waiters = new ArrayList<>();
+    for (int i = 0; i < DUPLICATES; i++) {
+      waiters.add(executor.submit(() -> {
+        assertThat(sibling.reserve(tenantId, "storm", "hash")).isFalse();
+        started.countDown();
+        return sibling.awaitCompletion(tenantId, "storm");
+      }));
+    }
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    Thread.sleep(100);
+    int readsBeforeCompletion = reads.get();
+
+    owner.complete(tenantId, "storm", "hash", documentId);
+
+    for (Future<Optional<IdempotencyEntry>> waiter : waiters) {
+      assertThat(waiter.get(5, TimeUnit.SECONDS)).contains(new IdempotencyEntry(documentId, "hash"));
+    }
+    // Parked waiters read once more after the signal instead of polling.
+    assertThat(readsBeforeCompletion).isLessThanOrEqualTo(DUPLICATES);
+    assertThat(reads.get() - readsBeforeCompletion).isLessThanOrEqualTo(DUPLICATES);
+    assertThat(sibling.pendingWaiterKeys()).isZero();
+  }
+
+  @Test
+  void invalidationOnOwnerReleasesSiblingWaiters() throws Exception {
+    RedisBillingIdempotencyStore owner = node();
+    RedisBillingIdempotencyStore sibling = node();
+    UUID tenantId = UUID.randomUUID();
+    owner.reserve(tenantId, "failed", "hash");
+
+    Future<Optional<IdempotencyEntry>> waiter = executor.submit(() -> sibling.awaitCompletion(tenantId, "failed"));
+    Thread.sleep(100);
+    owner.invalidate(tenantId, "failed");
+
+    assertThat(waiter.get(5, TimeUnit.SECONDS)).isEmpty();
+  }
+
+  @Test
+  void lostSignalIsCoveredByRecheckInterval() {
+    properties.setWaitPollInterval(Duration.ofMillis(20));
+    RedisBillingIdempotencyStore store = node();
+    UUID tenantId = UUID.randomUUID();
+    UUID documentId = UUID.randomUUID();
+    store.reserve(tenantId, "quiet", "hash");
+    // Written behind the store's back, as if the publish never arrived.
+    executor.submit(() -> {
+      Thread.sleep(100);
+      keyspace.put("billing:idempotency:" + tenantId + ":quiet",
+          "{\"documentId\":\"" + documentId + "\",\"payloadHash\":\"hash\"}");
+      return null;
+    });
+
+    assertThat(store.awaitCompletion(tenantId, "quiet")).contains(new IdempotencyEntry(documentId, "hash"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private RedisBillingIdempotencyStore node() {
+    StringRedisTemplate template = mock(StringRedisTemplate.class);
+    ValueOperations<String, String> values = mock(ValueOperations.class);
+    when(template.opsForValue()).thenReturn(values);
+    when(values.get(anyString())).thenAnswer(invocation -> {
+      reads.incrementAndGet();
+      return keyspace.get(invocation.<String>getArgument(0));
+    });
+    when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+        keyspace.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+    doAnswer(invocation -> keyspace.put(invocation.getArgument(0), invocation.getArgument(1)))
+        .when(values).set(anyString(), anyString(), any(Duration.class));
+    when(template.delete(anyString())).thenAnswer(invocation -> keyspace.remove(invocation.<String>getArgument(0)) != null);
+    when(template.convertAndSend(anyString(), any())).thenAnswer(invocation -> {
+      subscribers.forEach(subscriber -> subscriber.onCompletionSignal(invocation.getArgument(1)));
+      return (long) subscribers.size();
+    });
+    RedisBillingIdempotencyStore store = new RedisBillingIdempotencyStore(template, properties, new ObjectMapper(),
+        mock(ObjectProvider.class));
+    subscribers.add(store);
+    return store;
+  }
+}
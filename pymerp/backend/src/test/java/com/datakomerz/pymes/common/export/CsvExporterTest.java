@@ -0,0 +1,229 @@
+package com.datakomerz.pymes.common.export;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.customers.dto.CustomerExportRow;
+import com.datakomerz.pymes.inventory.InventoryMovement;
+import com.datakomerz.pymes.inventory.InventoryMovementRepository;
+import com.datakomerz.pymes.inventory.dto.InventoryMovementExportRow;
+import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductRepository;
+import com.datakomerz.pymes.sales.Sale;
+import com.datakomerz.pymes.sales.SaleRepository;
+import com.datakomerz.pymes.sales.dto.SaleExportRow;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest
+@Import(CsvExporterTest.TestConfig.class)
+class CsvExporterTest {
+
+  @Autowired
+  private CustomerRepository customers;
+
+  @Autowired
+  private ProductRepository products;
+
+  @Autowired
+  private SaleRepository sales;
+
+  @Autowired
+  private InventoryMovementRepository movements;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private CsvExporter exporter;
+  private UUID companyId;
+
+  @BeforeEach
+  void setUp() {
+    exporter = new CsvExporter(transactionManager, 2);
+    companyId = UUID.randomUUID();
+  }
+
+  @Test
+  void streamsCustomerProjectionsWithoutManagingEntities() throws IOException {
+    customer("Zapatería Núñez", "76.111.111-1", true);
+    customer("Almacén \"El Sol\", Ltda", null, true);
+    customer("Inactivo", null, false);
+    customer("Otra empresa", null, true).setCompanyId(UUID.randomUUID());
+    customers.flush();
+    entityManager.clear();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    int[] managedWhileStreaming = new int[1];
+    long rows = exporter.write(output, false, List.of("Nombre", "RUT", "Activo"),
+      () -> customers.streamForExport(null, null, Boolean.TRUE, companyId),
+      (CustomerExportRow row) -> {
+        managedWhileStreaming[0] = Math.max(managedWhileStreaming[0],
+          entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+        return new Object[] {row.name(), row.rut(), row.active()};
+      });
+
+    assertThat(rows).isEqualTo(2);
+    assertThat(managedWhileStreaming[0]).isZero();
+    assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo("""
+      \uFEFFNombre,RUT,Activo
+      "Almacén ""El Sol"", Ltda",,Sí
+      Zapatería Núñez,76.111.111-1,Sí
+      """);
+
+    assertThat(customers.streamForExport("nunez", null, null, companyId).map(CustomerExportRow::name))
+      .containsExactly("Zapatería Núñez");
+  }
+
+  @Test
+  void gzipOutputIsFlushedAsRowsAreWritten() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      product("SKU-" + i, "Producto " + i);
+    }
+    product("OTRO", "Harina");
+    AtomicInteger flushes = new AtomicInteger();
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    OutputStream output = new OutputStream() {
+      @Override
+      public void write(int b) {
+        buffer.write(b);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) {
+        buffer.write(bytes, offset, length);
+      }
+
+      @Override
+      public void flush() {
+        flushes.incrementAndGet();
+      }
+    };
+
+    long rows = exporter.write(output, true, List.of("SKU", "Stock"),
+      () -> products.streamForExport(companyId, null, "producto"),
+      row -> new Object[] {row.sku(), row.criticalStock()});
+
+    assertThat(rows).isEqualTo(5);
+    assertThat(flushes.get()).isGreaterThanOrEqualTo(2);
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()))) {
+      String csv = new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+      assertThat(csv.lines().toList()).hasSize(6).startsWith("\uFEFFSKU,Stock", "SKU-0,0.00");
+    }
+  }
+
+  @Test
+  void salesAndMovementsProjectJoinedNames() {
+    Customer customer = customer("Distribuidora Sur", null, true);
+    sale(customer.getId(), "Factura", "emitida");
+    sale(null, "Boleta", "cancelled");
+    Product product = product("SKU-9", "Aceite");
+    movement(product.getId(), "SALE_OUT", new BigDecimal("-2"));
+
+    try (Stream<SaleExportRow> rows = sales.streamForExport(companyId, "emitida", null, null, "sur", null, null)) {
+      assertThat(rows.map(SaleExportRow::customerName)).containsExactly("Distribuidora Sur");
+    }
+    try (Stream<SaleExportRow> rows = sales.streamForExport(companyId, null, null, null, null, null, null)) {
+      assertThat(rows).hasSize(2);
+    }
+    try (Stream<InventoryMovementExportRow> rows = movements.streamForExport(companyId, null, null, "SALE_OUT", null,
+        null, null)) {
+      assertThat(rows).singleElement()
+        .satisfies(row -> {
+          assertThat(row.productSku()).isEqualTo("SKU-9");
+          assertThat(row.qty()).isEqualByComparingTo("-2");
+        });
+    }
+  }
+
+  @Test
+  void formatsValues() {
+    assertThat(CsvStreamWriter.format(null)).isEmpty();
+    assertThat(CsvStreamWriter.format(Boolean.FALSE)).isEqualTo("No");
+    assertThat(CsvStreamWriter.format(new BigDecimal("1E+3"))).isEqualTo("1000");
+    assertThat(CsvStreamWriter.format("línea\nnueva")).isEqualTo("\"línea\nnueva\"");
+    assertThat(CsvStreamWriter.format(OffsetDateTime.parse("2026-03-01T23:30:00Z"))).isEqualTo("2026-03-01 23:30:00");
+  }
+
+  private Customer customer(String name, String rut, boolean active) {
+    Customer customer = new Customer();
+    customer.setCompanyId(companyId);
+    customer.setName(name);
+    customer.setRut(rut);
+    customer.setActive(active);
+    return customers.save(customer);
+  }
+
+  private Product product(String sku, String name) {
+    Product product = new Product();
+    product.setCompanyId(companyId);
+    product.setSku(sku);
+    product.setName(name);
+    product.setActive(Boolean.TRUE);
+    return products.saveAndFlush(product);
+  }
+
+  private void sale(UUID customerId, String docType, String status) {
+    Sale sale = new Sale();
+    sale.setCompanyId(companyId);
+    sale.setCustomerId(customerId);
+    sale.setStatus(status);
+    sale.setNet(BigDecimal.TEN);
+    sale.setVat(BigDecimal.ZERO);
+    sale.setTotal(BigDecimal.TEN);
+    sale.setDocType(docType);
+    sale.setIssuedAt(OffsetDateTime.now());
+    sales.saveAndFlush(sale);
+  }
+
+  private void movement(UUID productId, String type, BigDecimal qty) {
+    InventoryMovement movement = new InventoryMovement();
+    movement.setCompanyId(companyId);
+    movement.setProductId(productId);
+    movement.setType(type);
+    movement.setQty(qty);
+    movements.saveAndFlush(movement);
+  }
+
+  @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
+  static class TestConfig {
+
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("export-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+  }
+}
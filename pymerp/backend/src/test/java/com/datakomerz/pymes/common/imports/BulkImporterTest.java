@@ -0,0 +1,321 @@
+package com.datakomerz.pymes.common.imports;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.datakomerz.pymes.common.ValueNormalizer;
+import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerBulkImport;
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductBulkImport;
+import com.datakomerz.pymes.products.ProductCatalogIndex;
+import com.datakomerz.pymes.products.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@DataJpaTest
+@Import(BulkImporterTest.TestConfig.class)
+class BulkImporterTest {
+
+  private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Autowired
+  private CustomerRepository customers;
+
+  @Autowired
+  private ProductRepository products;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private BulkImporter importer;
+  private ProductCatalogIndex catalogIndex;
+  private UUID companyId;
+
+  @BeforeEach
+  void setUp() {
+    importer = new BulkImporter(entityManager, transactionManager, 2, 2, 100, 100);
+    catalogIndex = mock(ProductCatalogIndex.class);
+    companyId = UUID.randomUUID();
+  }
+
+  @AfterEach
+  void tearDown() {
+    importer.shutdown();
+  }
+
+  @Test
+  void importsCustomersAndReportsInvalidAndDuplicateRows() throws IOException {
+    Customer existing = new Customer();
+    existing.setCompanyId(companyId);
+    existing.setName("Existente");
+    existing.setEmail("ya@cliente.cl");
+    customers.saveAndFlush(existing);
+
+    String csv = """
+      \uFEFFNombre;RUT;Email;Teléfono;Activo
+      Ferretería Sur;76.111.111-1;VENTAS@SUR.CL;+56 9 1234 5678;Sí
+      \"Almacén \"\"Norte\"\"\";;norte@cliente.cl;;No
+
+      Duplicado;;ventas@sur.cl;;
+      ;;sin-nombre@cliente.cl;;
+      Mal correo;;no-es-email;;
+      Existente 2;;ya@cliente.cl;;
+      Mismo RUT;76111111-1;;;
+      Activo raro;;;;quizás
+      """;
+
+    BulkImportReport report = customerImport().importFile(companyId, csvFile("clientes.csv", csv));
+
+    assertThat(report.processed()).isEqualTo(8);
+    assertThat(report.imported()).isEqualTo(2);
+    assertThat(report.failed()).isEqualTo(6);
+    assertThat(report.errorsTruncated()).isFalse();
+    assertThat(report.errors())
+      .extracting(BulkImportReport.RowError::row)
+      .containsExactly(5, 6, 7, 8, 9, 10);
+    assertThat(report.errors()).extracting(BulkImportReport.RowError::message)
+      .anySatisfy(message -> assertThat(message).isEqualTo("email 'ventas@sur.cl' repetido en la fila 2"))
+      .anySatisfy(message -> assertThat(message).startsWith("name: "))
+      .anySatisfy(message -> assertThat(message).startsWith("email: "))
+      .anySatisfy(message -> assertThat(message).isEqualTo("email 'ya@cliente.cl' ya existe"))
+      .anySatisfy(message -> assertThat(message).isEqualTo("rut '761111111' repetido en la fila 2"))
+      .anySatisfy(message -> assertThat(message).contains("quizás"));
+
+    entityManager.clear();
+    assertThat(customers.findAll().stream()
+        .filter(customer -> companyId.equals(customer.getCompanyId()))
+        .sorted(Comparator.comparing(Customer::getName)))
+      .extracting(Customer::getName, Customer::getRut, Customer::getEmail)
+      .containsExactly(
+        tuple("Existente", null, "ya@cliente.cl"),
+        tuple("Ferretería Sur", "76111111-1", "ventas@sur.cl"));
+    assertThat(customers.findExistingRuts(companyId, List.of("761111111"))).containsExactly("761111111");
+  }
+
+  @Test
+  void importsProductsFromXlsx() throws IOException {
+    Product deleted = new Product();
+    deleted.setCompanyId(companyId);
+    deleted.setSku("OLD-1");
+    deleted.setName("Descontinuado");
+    deleted.setBarcode("111");
+    deleted.setDeletedAt(OffsetDateTime.now());
+    products.saveAndFlush(deleted);
+
+    byte[] xlsx = xlsx(
+      new String[] {"SKU", "Nombre", "Código de Barras", "Stock Crítico", "Activo"},
+      """
+        <row r="1"><c r="A1" t="s"><v>0</v></c><c r="B1" t="s"><v>1</v></c><c r="C1" t="s"><v>2</v></c>\
+        <c r="D1" t="s"><v>3</v></c><c r="E1" t="s"><v>4</v></c></row>
+        <row r="2"><c r="A2" t="inlineStr"><is><t>ARR-1</t></is></c><c r="B2" t="inlineStr"><is><t>Arroz 1kg</t></is></c>\
+        <c r="C2"><v>7.801610001196E12</v></c><c r="D2"><v>2.5</v></c><c r="E2" t="b"><v>1</v></c></row>
+        <row r="3"><c r="A3" t="inlineStr"><is><t>OLD-1</t></is></c><c r="B3" t="inlineStr"><is><t>Reingreso</t></is></c></row>
+        <row r="5"><c r="A5" t="inlineStr"><is><t>ACE-1</t></is></c><c r="B5" t="inlineStr"><is><t>Aceite</t></is></c>\
+        <c r="C5" t="str"><v>111</v></c><c r="D5" t="str"><v>-1</v></c><c r="E5" t="b"><v>0</v></c></row>
+        <row r="6"><c r="A6" t="inlineStr"><is><t>SAL-1</t></is></c><c r="B6" t="inlineStr"><is><t>Sal</t></is></c>\
+        <c r="E6" t="b"><v>0</v></c></row>
+        """);
+
+    BulkImportReport report = productImport().importFile(companyId, new MockMultipartFile("file", "productos.xlsx",
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", xlsx));
+
+    assertThat(report.imported()).isEqualTo(2);
+    assertThat(report.errors()).extracting(BulkImportReport.RowError::row, BulkImportReport.RowError::message)
+      .containsExactly(
+        tuple(3, "sku 'OLD-1' ya existe"),
+        tuple(5, "criticalStock: no puede ser negativo"));
+    verify(catalogIndex).invalidate(companyId);
+
+    entityManager.clear();
+    assertThat(products.findByCompanyIdAndDeletedAtIsNull(companyId).stream()
+        .sorted(Comparator.comparing(Product::getSku)))
+      .extracting(Product::getSku, Product::getBarcode, Product::getActive)
+      .containsExactly(
+        tuple("ARR-1", "7801610001196", true),
+        tuple("SAL-1", null, false));
+    assertThat(products.findExistingSkus(companyId, List.of("ARR-1", "NONE"))).containsExactly("ARR-1");
+    assertThat(products.findByCompanyIdAndDeletedAtIsNull(companyId))
+      .filteredOn(product -> "ARR-1".equals(product.getSku()))
+      .singleElement()
+      .satisfies(product -> assertThat(product.getCriticalStock()).isEqualByComparingTo(new BigDecimal("2.5")));
+  }
+
+  @Test
+  void rejectsFileWithoutRequiredColumns() throws IOException {
+    BulkImportReport report = productImport().importFile(companyId, csvFile("productos.csv", """
+      Nombre,Categoría
+      Arroz,Abarrotes
+      """));
+
+    assertThat(report.processed()).isZero();
+    assertThat(report.errors()).singleElement()
+      .isEqualTo(new BulkImportReport.RowError(1, "Faltan columnas obligatorias: sku"));
+  }
+
+  @Test
+  void capsReportedErrors() throws IOException {
+    importer = new BulkImporter(entityManager, transactionManager, 10, 1, 100, 2);
+    StringBuilder csv = new StringBuilder("sku,name\n");
+    for (int i = 0; i < 5; i++) {
+      csv.append("SKU-").append(i).append(",\n");
+    }
+
+    BulkImportReport report = productImport().importFile(companyId, csvFile("p.csv", csv.toString()));
+
+    assertThat(report.failed()).isEqualTo(5);
+    assertThat(report.errors()).hasSize(2);
+    assertThat(report.errorsTruncated()).isTrue();
+  }
+
+  @Test
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  void rowViolatingConstraintInBatchIsRetriedAloneAndReported() throws IOException {
+    importer.shutdown();
+    importer = new BulkImporter(entityManager, transactionManager, 10, 1, 100, 100);
+    Product concurrent = new Product();
+    concurrent.setCompanyId(companyId);
+    concurrent.setSku("DUP-1");
+    concurrent.setName("Importado en paralelo");
+    products.saveAndFlush(concurrent);
+    // The duplicate check misses DUP-1, as when another import commits it after the check ran.
+    ProductBulkImport delegate = productImport();
+    BulkImportHandler<Product> racing = new BulkImportHandler<>() {
+      @Override
+      public Map<String, String> columns() {
+        return delegate.columns();
+      }
+
+      @Override
+      public Set<String> requiredColumns() {
+        return delegate.requiredColumns();
+      }
+
+      @Override
+      public Product parse(UUID companyId, Map<String, String> fields) {
+        return delegate.parse(companyId, fields);
+      }
+
+      @Override
+      public Map<String, String> uniqueKeys(Product entity) {
+        return delegate.uniqueKeys(entity);
+      }
+
+      @Override
+      public Set<String> findExisting(UUID companyId, String field, Collection<String> keys) {
+        return Set.of();
+      }
+    };
+
+    try {
+      BulkImportReport report;
+      try (ImportRowReader reader = ImportRowReader.open(csvFile("productos.csv", """
+          sku,name
+          ARR-1,Arroz
+          DUP-1,Duplicado
+          SAL-1,Sal
+          """))) {
+        report = importer.run(companyId, reader, racing);
+      }
+
+      assertThat(report.processed()).isEqualTo(3);
+      assertThat(report.imported()).isEqualTo(2);
+      assertThat(report.errors()).singleElement()
+        .satisfies(error -> {
+          assertThat(error.row()).isEqualTo(3);
+          assertThat(error.message()).startsWith("No se pudo guardar: ");
+        });
+      assertThat(products.findByCompanyIdAndDeletedAtIsNull(companyId).stream()
+          .sorted(Comparator.comparing(Product::getSku)))
+        .extracting(Product::getSku, Product::getName)
+        .containsExactly(
+          tuple("ARR-1", "Arroz"),
+          tuple("DUP-1", "Importado en paralelo"),
+          tuple("SAL-1", "Sal"));
+    } finally {
+      products.deleteAll(products.findByCompanyIdAndDeletedAtIsNull(companyId));
+    }
+  }
+
+  private CustomerBulkImport customerImport() {
+    return new CustomerBulkImport(importer, customers, new ValueNormalizer(), VALIDATOR);
+  }
+
+  private ProductBulkImport productImport() {
+    return new ProductBulkImport(importer, products, catalogIndex, new ValueNormalizer(), VALIDATOR);
+  }
+
+  private static MockMultipartFile csvFile(String name, String content) {
+    return new MockMultipartFile("file", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] xlsx(String[] sharedStrings, String rows) throws IOException {
+    StringBuilder strings = new StringBuilder(
+      "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+    for (String value : sharedStrings) {
+      strings.append("<si><t>").append(value).append("</t></si>");
+    }
+    strings.append("</sst>");
+    String sheet = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+      + rows + "</sheetData></worksheet>";
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+      zip.write(sheet.getBytes(StandardCharsets.UTF_8));
+      zip.putNextEntry(new ZipEntry("xl/sharedStrings.xml"));
+      zip.write(strings.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
+  static class TestConfig {
+
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("import-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.datakomerz.pymes.common.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.datakomerz.pymes.multitenancy.TenantContext;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+class HotPathMetricsTest {
+
+  private final MeterRegistry registry = new SimpleMeterRegistry();
+
+  @AfterEach
+  void clearTenant() {
+    TenantContext.clear();
+  }
+
+  @Test
+  void rowsAreTaggedWithCurrentTenant() {
+    UUID tenant = UUID.randomUUID();
+    TenantContext.setTenantId(tenant);
+    HotPathMetrics metrics = new HotPathMetrics(registry);
+
+    metrics.recordRows("sales.create", "items", 3);
+    metrics.recordRows("sales.create", "items", 5);
+
+    DistributionSummary summary = registry.get(HotPathMetrics.ROWS)
+        .tags("operation", "sales.create", "kind", "items", HotPathMetrics.TENANT_TAG, tenant.toString())
+        .summary();
+    assertThat(summary.count()).isEqualTo(2);
+    assertThat(summary.totalAmount()).isEqualTo(8.0);
+  }
+
+  @Test
+  void tenantsBeyondLimitAreGroupedAsOther() {
+    registry.config().meterFilter(new TenantTagLimiter(2));
+    HotPathMetrics metrics = new HotPathMetrics(registry);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+
+    for (UUID tenant : new UUID[] {first, second, UUID.randomUUID(), UUID.randomUUID(), first}) {
+      TenantContext.setTenantId(tenant);
+      metrics.recordRows("inventory.consume_fifo", "lots", 1);
+    }
+    TenantContext.clear();
+    metrics.recordRows("inventory.consume_fifo", "lots", 1);
+
+    assertThat(registry.get(HotPathMetrics.ROWS).summaries())
+        .extracting(summary -> summary.getId().getTag(HotPathMetrics.TENANT_TAG))
+        .containsExactlyInAnyOrder(first.toString(), second.toString(), TenantTagLimiter.OTHER,
+            HotPathMetrics.NO_TENANT);
+    assertThat(registry.get(HotPathMetrics.ROWS).tag(HotPathMetrics.TENANT_TAG, TenantTagLimiter.OTHER)
+        .summary().count()).isEqualTo(2);
+    assertThat(registry.get(HotPathMetrics.ROWS).tag(HotPathMetrics.TENANT_TAG, first.toString())
+        .summary().count()).isEqualTo(2);
+  }
+
+  @Test
+  void timedMethodsRecordOperationAndTenant() {
+    UUID tenant = UUID.randomUUID();
+    TenantContext.setTenantId(tenant);
+    AspectJProxyFactory factory = new AspectJProxyFactory(new SampleService());
+    factory.addAspect(new HotPathTimingAspect(registry));
+    SampleService service = factory.getProxy();
+
+    service.work();
+    assertThatThrownBy(service::fail).isInstanceOf(IllegalStateException.class);
+
+    Timer timer = registry.get(HotPathMetrics.TIMER)
+        .tags("operation", "sample.work", HotPathMetrics.TENANT_TAG, tenant.toString(),
+            HotPathTimingAspect.EXCEPTION_TAG, HotPathTimingAspect.NO_EXCEPTION)
+        .timer();
+    assertThat(timer.count()).isEqualTo(1);
+    assertThat(registry.get(HotPathMetrics.TIMER)
+        .tags("operation", "sample.fail", HotPathTimingAspect.EXCEPTION_TAG, "IllegalStateException")
+        .timer().count()).isEqualTo(1);
+  }
+
+  static class SampleService {
+
+    @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sample.work"})
+    public void work() {
+    }
+
+    @Timed(value = HotPathMetrics.TIMER, extraTags = {"operation", "sample.fail"})
+    public void fail() {
+      throw new IllegalStateException("boom");
+    }
+  }
+}
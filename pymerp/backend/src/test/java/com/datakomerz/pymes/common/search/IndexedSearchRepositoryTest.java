@@ -0,0 +1,171 @@
+package com.datakomerz.pymes.common.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductRepository;
+import com.datakomerz.pymes.sales.Sale;
+import com.datakomerz.pymes.sales.SaleRepository;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Runs the search queries on H2; on PostgreSQL the same LIKE predicates are served by the
+ * trigram indexes from V51.
+ */
+@DataJpaTest
+@Import(IndexedSearchRepositoryTest.TestConfig.class)
+class IndexedSearchRepositoryTest {
+
+  @Autowired
+  private CustomerRepository customers;
+
+  @Autowired
+  private ProductRepository products;
+
+  @Autowired
+  private SaleRepository sales;
+
+  private UUID companyId;
+
+  @BeforeEach
+  void setUp() {
+    companyId = UUID.randomUUID();
+  }
+
+  @Test
+  void customersMatchUnaccentedNamesCompactRutAndPhoneDigitsRanked() {
+    Customer contains = customer("Comercial Andrés Ltda", "76.111.111-1", null);
+    Customer wordPrefix = customer("Ferretería Andrea", null, null);
+    Customer prefix = customer("Andrés Bello", null, "+56 9 8765 4321");
+    customer("Panadería Sur", "12.345.678-5", null);
+
+    assertThat(customers.searchCustomers("andr", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Customer::getId)
+      .containsExactly(prefix.getId(), wordPrefix.getId(), contains.getId());
+    assertThat(customers.searchCustomers("ANDRÉS", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Customer::getId)
+      .containsExactly(prefix.getId(), contains.getId());
+    assertThat(customers.searchCustomers("12345678-5", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Customer::getName)
+      .containsExactly("Panadería Sur");
+    assertThat(customers.searchCustomers("76.111", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Customer::getId)
+      .containsExactly(contains.getId());
+    assertThat(customers.searchCustomers("987654321", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Customer::getId)
+      .containsExactly(prefix.getId());
+    assertThat(customers.searchCustomersIncludingInactive("andr", null, companyId, PageRequest.of(0, 10))
+      .getContent())
+      .extracting(Customer::getId)
+      .containsExactly(prefix.getId(), wordPrefix.getId(), contains.getId());
+    assertThat(customers.searchCustomers(null, null, null, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(4);
+  }
+
+  @Test
+  void searchColumnsFollowUpdates() {
+    Customer customer = customer("Juan Pérez", null, null);
+    customer.setName("María Núñez");
+    customers.saveAndFlush(customer);
+
+    assertThat(customers.searchCustomers("nunez", null, null, PageRequest.of(0, 10)).getContent()).hasSize(1);
+    assertThat(customers.searchCustomers("perez", null, null, PageRequest.of(0, 10)).getContent()).isEmpty();
+  }
+
+  @Test
+  void productsRankNamePrefixFirstAndMatchSkuIgnoringCase() {
+    product("SKU-100", "Jugo de Piña");
+    product("SKU-101", "Piña en conserva");
+    product("SKU-1000", "Café molido");
+
+    assertThat(products.searchByName(null, "%pina%", "pina%", "% pina%",
+        PageRequest.of(0, 10, Sort.by("name"))).getContent())
+      .extracting(Product::getName)
+      .containsExactly("Piña en conserva", "Jugo de Piña");
+    assertThat(products.searchBySku(Boolean.TRUE, SearchTerms.containsIgnoreCase("sku-100"), "sku-100",
+        PageRequest.of(0, 10, Sort.by("name"))).getContent())
+      .extracting(Product::getSku)
+      .containsExactly("SKU-100", "SKU-1000");
+  }
+
+  @Test
+  void salesMatchDocumentFieldsIdAndCustomerWithoutCasting() {
+    Customer customer = customer("Distribuidora Ñandú", "11.111.111-1", null);
+    Sale boleta = sale(customer.getId(), "Boleta", "Efectivo");
+    Sale factura = sale(null, "Factura", "Transferencia");
+
+    assertThat(sales.search(null, null, null, "ñandu", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Sale::getId)
+      .containsExactly(boleta.getId());
+    assertThat(sales.search(null, null, null, "transfer", null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Sale::getId)
+      .containsExactly(factura.getId());
+    String idFragment = factura.getId().toString().substring(0, 13);
+    assertThat(sales.search(null, null, null, idFragment, null, null, PageRequest.of(0, 10)).getContent())
+      .extracting(Sale::getId)
+      .containsExactly(factura.getId());
+    assertThat(sales.search(null, null, null, null, null, null, PageRequest.of(0, 10)).getTotalElements())
+      .isEqualTo(2);
+  }
+
+  private Customer customer(String name, String rut, String phone) {
+    Customer customer = new Customer();
+    customer.setCompanyId(companyId);
+    customer.setName(name);
+    customer.setRut(rut);
+    customer.setPhone(phone);
+    return customers.saveAndFlush(customer);
+  }
+
+  private Product product(String sku, String name) {
+    Product product = new Product();
+    product.setCompanyId(companyId);
+    product.setSku(sku);
+    product.setName(name);
+    return products.saveAndFlush(product);
+  }
+
+  private Sale sale(UUID customerId, String docType, String paymentMethod) {
+    Sale sale = new Sale();
+    sale.setCompanyId(companyId);
+    sale.setCustomerId(customerId);
+    sale.setStatus("emitida");
+    sale.setNet(BigDecimal.TEN);
+    sale.setVat(BigDecimal.ZERO);
+    sale.setTotal(BigDecimal.TEN);
+    sale.setDocType(docType);
+    sale.setPaymentMethod(paymentMethod);
+    return sales.saveAndFlush(sale);
+  }
+
+  @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
+  static class TestConfig {
+
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("search-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package com.datakomerz.pymes.common.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SearchNormalizerTest {
+
+  @Test
+  void foldsAccentsCaseAndPunctuation() {
+    assertThat(SearchNormalizer.normalize("  José Pérez-Ñuñez & Cía. ")).isEqualTo("jose perez nunez cia");
+    assertThat(SearchNormalizer.normalize("ventas@ACME.cl")).isEqualTo("ventas acme cl");
+    assertThat(SearchNormalizer.normalize(" -- ")).isNull();
+    assertThat(SearchNormalizer.normalize(null)).isNull();
+  }
+
+  @Test
+  void compactsRutAndPhone() {
+    assertThat(SearchNormalizer.compactRut("12.345.678-K")).isEqualTo("12345678k");
+    assertThat(SearchNormalizer.compactRut("-")).isNull();
+    assertThat(SearchNormalizer.digits("+56 9 1234 5678")).isEqualTo("56912345678");
+    assertThat(SearchNormalizer.join("a", null, "", "b")).isEqualTo("a b");
+  }
+
+  @Test
+  void buildsPatternsFromFoldedQuery() {
+    SearchTerms terms = SearchTerms.of("12.345.678-5");
+
+    assertThat(terms.text()).isEqualTo("12 345 678 5");
+    assertThat(terms.compact()).isEqualTo("123456785");
+    assertThat(terms.contains()).isEqualTo("%12 345 678 5%");
+    assertThat(terms.compactContains()).isEqualTo("%123456785%");
+    assertThat(SearchTerms.of("Ñu").prefix()).isEqualTo("nu%");
+    assertThat(SearchTerms.of("Ñu").wordPrefix()).isEqualTo("% nu%");
+    assertThat(SearchTerms.of("  ")).isNull();
+    assertThat(SearchTerms.containsIgnoreCase(" SKU_10% ")).isEqualTo("%sku\\_10\\%%");
+  }
+}
@@ -8,12 +8,15 @@ import org.springframework.boot.DefaultApplicationArguments;
 import org.springframework.mock.env.MockEnvironment;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SecretsValidatorTest {
 
-  private static final String VALID_JWT_SECRET = "example-jwt-secret-32-characters-long";
+  private static final String VALID_JWT_SECRET = "jwt-signing-secret-32-characters-long";
   private static final String VALID_BILLING_SECRET = "billing-secret-24chars-long!!";
+  private static final String VALID_REFRESH_SECRET = "refresh-token-hmac-secret-32-chars-long";
 
   private static MockEnvironment validEnvironment() {
     MockEnvironment environment = new MockEnvironment();
@@ -27,8 +30,13 @@ class SecretsValidatorTest {
   }
 
   private static SecurityProperties securityProperties(String secret) {
+    return securityProperties(secret, VALID_REFRESH_SECRET);
+  }
+
+  private static SecurityProperties securityProperties(String secret, String refreshSecret) {
     SecurityProperties properties = new SecurityProperties();
     properties.getJwt().setSecret(secret);
+    properties.getJwt().setRefreshTokenSecret(refreshSecret);
     return properties;
   }
 
@@ -62,6 +70,34 @@ class SecretsValidatorTest {
     assertThrows(IllegalStateException.class, () -> validator.run(new DefaultApplicationArguments(new String[0])));
   }
 
+  @Test
+  void refreshTokenSecretMissingFails() {
+    SecretsValidator validator = new SecretsValidator(
+      securityProperties(VALID_JWT_SECRET, ""),
+      billingWebhookProperties(VALID_BILLING_SECRET),
+      validEnvironment()
+    );
+
+    IllegalStateException error = assertThrows(IllegalStateException.class,
+      () -> validator.run(new DefaultApplicationArguments(new String[0])));
+    assertTrue(error.getMessage().contains("Secret JWT_REFRESH_TOKEN_SECRET is missing or weak (blank)"));
+    assertFalse(error.getMessage().contains("Secret JWT_SECRET "));
+  }
+
+  @Test
+  void refreshTokenSecretSharedWithJwtFails() {
+    SecretsValidator validator = new SecretsValidator(
+      securityProperties(VALID_JWT_SECRET, VALID_JWT_SECRET),
+      billingWebhookProperties(VALID_BILLING_SECRET),
+      validEnvironment()
+    );
+
+    IllegalStateException error = assertThrows(IllegalStateException.class,
+      () -> validator.run(new DefaultApplicationArguments(new String[0])));
+    assertTrue(error.getMessage().contains("Secret JWT_REFRESH_TOKEN_SECRET must differ from JWT_SECRET"));
+    assertFalse(error.getMessage().contains("placeholder value detected"));
+  }
+
   @Test
   void validSecretsAreAllowed() {
     SecretsValidator validator = new SecretsValidator(
@@ -0,0 +1,195 @@
+package com.datakomerz.pymes.customers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.datakomerz.pymes.customers.dto.CustomerStatsResponse;
+import com.datakomerz.pymes.products.Product;
+import com.datakomerz.pymes.products.ProductRepository;
+import com.datakomerz.pymes.sales.Sale;
+import com.datakomerz.pymes.sales.SaleEvent;
+import com.datakomerz.pymes.sales.SaleItem;
+import com.datakomerz.pymes.sales.SaleItemRepository;
+import com.datakomerz.pymes.sales.SaleRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.test.context.TestPropertySource;
+
+@DataJpaTest
+@Import(CustomerStatsServiceTest.TestConfig.class)
+// Row creation uses "on conflict do nothing", which H2 only parses in PostgreSQL mode.
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:customer_stats;DB_CLOSE_DELAY=-1;MODE=PostgreSQL")
+class CustomerStatsServiceTest {
+
+  private static final OffsetDateTime DAY_1 = OffsetDateTime.of(2024, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+
+  @Autowired
+  private CustomerStatsRepository statsRepository;
+
+  @Autowired
+  private CustomerProductStatsRepository productStatsRepository;
+
+  @Autowired
+  private SaleRepository sales;
+
+  @Autowired
+  private SaleItemRepository saleItems;
+
+  @Autowired
+  private ProductRepository products;
+
+  private CustomerStatsService service;
+  private UUID companyId;
+  private UUID customerId;
+
+  @BeforeEach
+  void setUp() {
+    service = new CustomerStatsService(statsRepository, productStatsRepository, sales, 1);
+    companyId = UUID.randomUUID();
+    customerId = UUID.randomUUID();
+  }
+
+  @Test
+  void rollsUpCreatedSalesAndTopProducts() {
+    Product rice = product("ARR-1", "Arroz");
+    Product oil = product("ACE-1", "Aceite");
+
+    service.onSale(created(sale(DAY_1, "119"), List.of(
+      line(rice, "2", "50"), line(oil, "1", "19"), line(rice, "1", "50"))));
+    service.onSale(created(sale(DAY_1.plusDays(10), "59.50"), List.of(line(oil, "3", "25"))));
+
+    CustomerStatsResponse stats = service.summary(customerId);
+
+    assertThat(stats.totalSales()).isEqualTo(2);
+    assertThat(stats.totalRevenue()).isEqualByComparingTo("178.50");
+    assertThat(stats.firstSaleDate()).isEqualTo(LocalDate.of(2024, 3, 1));
+    assertThat(stats.lastSaleDate()).isEqualTo(LocalDate.of(2024, 3, 11));
+    assertThat(stats.averageDaysBetweenSales()).isEqualByComparingTo("10.0");
+    assertThat(stats.topProducts()).singleElement().satisfies(top -> {
+      assertThat(top.productName()).isEqualTo("Arroz");
+      assertThat(top.quantity()).isEqualTo(3);
+      assertThat(top.revenue()).isEqualByComparingTo("150");
+    });
+  }
+
+  @Test
+  void cancelledSaleIsRemovedFromTheRollup() {
+    Product rice = product("ARR-2", "Arroz");
+    Sale first = sale(DAY_1, "100");
+    service.onSale(created(first, List.of(line(rice, "1", "100"))));
+    Sale last = sale(DAY_1.plusDays(5), "200");
+    service.onSale(created(last, List.of(line(rice, "2", "100"))));
+
+    last.setStatus("cancelled");
+    sales.saveAndFlush(last);
+    service.onSale(new SaleEvent(SaleEvent.Type.CANCELLED, companyId, last.getId(), customerId,
+      last.getIssuedAt(), last.getTotal(), List.of(line(rice, "2", "100"))));
+
+    CustomerStatsResponse stats = service.summary(customerId);
+    assertThat(stats.totalSales()).isEqualTo(1);
+    assertThat(stats.totalRevenue()).isEqualByComparingTo("100");
+    assertThat(stats.lastSaleDate()).isEqualTo(LocalDate.of(2024, 3, 1));
+    assertThat(stats.averageDaysBetweenSales()).isNull();
+    assertThat(stats.topProducts()).singleElement()
+      .satisfies(top -> assertThat(top.revenue()).isEqualByComparingTo("100"));
+  }
+
+  @Test
+  void customerWithoutSalesHasEmptyStats() {
+    service.onSale(new SaleEvent(SaleEvent.Type.CREATED, companyId, UUID.randomUUID(), null, DAY_1,
+      BigDecimal.TEN, List.of()));
+
+    CustomerStatsResponse stats = service.summary(customerId);
+    assertThat(stats.totalSales()).isZero();
+    assertThat(stats.lastSaleDate()).isNull();
+    assertThat(stats.topProducts()).isEmpty();
+  }
+
+  @Test
+  void countsItemsPerSaleInOneQuery() {
+    Product rice = product("ARR-3", "Arroz");
+    Sale withTwo = sale(DAY_1, "10");
+    Sale withOne = sale(DAY_1, "10");
+    Sale empty = sale(DAY_1, "10");
+    item(withTwo, rice);
+    item(withTwo, rice);
+    item(withOne, rice);
+
+    assertThat(saleItems.countBySaleIds(List.of(withTwo.getId(), withOne.getId(), empty.getId())))
+      .extracting(SaleItemRepository.SaleItemCount::getSaleId, SaleItemRepository.SaleItemCount::getItemCount)
+      .containsExactlyInAnyOrder(
+        tuple(withTwo.getId(), 2L),
+        tuple(withOne.getId(), 1L));
+  }
+
+  private Product product(String sku, String name) {
+    Product product = new Product();
+    product.setCompanyId(companyId);
+    product.setSku(sku);
+    product.setName(name);
+    return products.saveAndFlush(product);
+  }
+
+  private Sale sale(OffsetDateTime issuedAt, String total) {
+    Sale sale = new Sale();
+    sale.setCompanyId(companyId);
+    sale.setCustomerId(customerId);
+    sale.setStatus("emitida");
+    sale.setNet(new BigDecimal(total));
+    sale.setVat(BigDecimal.ZERO);
+    sale.setTotal(new BigDecimal(total));
+    sale.setIssuedAt(issuedAt);
+    return sales.saveAndFlush(sale);
+  }
+
+  private void item(Sale sale, Product product) {
+    SaleItem item = new SaleItem();
+    item.setSaleId(sale.getId());
+    item.setProductId(product.getId());
+    item.setQty(BigDecimal.ONE);
+    item.setUnitPrice(BigDecimal.TEN);
+    saleItems.saveAndFlush(item);
+  }
+
+  private SaleEvent created(Sale sale, List<SaleEvent.Line> lines) {
+    return new SaleEvent(SaleEvent.Type.CREATED, companyId, sale.getId(), customerId, sale.getIssuedAt(),
+      sale.getTotal(), lines);
+  }
+
+  private static SaleEvent.Line line(Product product, String qty, String unitPrice) {
+    BigDecimal quantity = new BigDecimal(qty);
+    return new SaleEvent.Line(product.getId(), quantity, quantity.multiply(new BigDecimal(unitPrice)));
+  }
+
+  @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
+  static class TestConfig {
+
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("stats-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(OffsetDateTime.now());
+    }
+  }
+}
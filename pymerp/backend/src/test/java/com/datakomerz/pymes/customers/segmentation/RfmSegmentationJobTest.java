@@ -0,0 +1,157 @@
+package com.datakomerz.pymes.customers.segmentation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.customers.Customer;
+import com.datakomerz.pymes.customers.CustomerRepository;
+import com.datakomerz.pymes.customers.CustomerStats;
+import com.datakomerz.pymes.customers.CustomerStatsRepository;
+import jakarta.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@DataJpaTest
+@Import(RfmSegmentationJobTest.TestConfig.class)
+class RfmSegmentationJobTest {
+
+  private static final OffsetDateTime START = OffsetDateTime.of(2024, 6, 1, 3, 30, 0, 0, ZoneOffset.UTC);
+
+  @Autowired
+  private CustomerStatsRepository statsRepository;
+
+  @Autowired
+  private CustomerRepository customers;
+
+  @Autowired
+  private CustomerSegmentationRunRepository runRepository;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private UUID companyId;
+
+  @BeforeEach
+  void setUp() {
+    companyId = UUID.randomUUID();
+  }
+
+  @Test
+  void firstRunScoresEveryoneAndKeepsManualSegments() {
+    Customer champion = customer(null, START.minusDays(3), 20, "6000000");
+    Customer hibernating = customer(null, START.minusDays(400), 1, "20000");
+    Customer vip = customer("VIP", START.minusDays(3), 20, "6000000");
+
+    RfmSegmentationJob.Result result = job(START).segment(companyId);
+
+    assertThat(result).isEqualTo(new RfmSegmentationJob.Result(3, 2, true));
+    assertThat(segmentOf(champion)).isEqualTo("RFM_CHAMPIONS");
+    assertThat(segmentOf(hibernating)).isEqualTo("RFM_HIBERNATING");
+    assertThat(segmentOf(vip)).isEqualTo("VIP");
+    CustomerStats stats = statsRepository.findById(champion.getId()).orElseThrow();
+    assertThat(stats.getRfmRecency()).isEqualTo(5);
+    assertThat(stats.getRfmFrequency()).isEqualTo(5);
+    assertThat(stats.getRfmMonetary()).isEqualTo(5);
+  }
+
+  @Test
+  void laterRunsOnlyRescoreChangedRollups() {
+    customer(null, START.minusDays(3), 20, "6000000");
+    Customer returning = customer(null, START.minusDays(400), 1, "20000");
+    job(START).segment(companyId);
+
+    OffsetDateTime nextDay = START.plusDays(1);
+    statsRepository.addSale(returning.getId(), new BigDecimal("15000"), nextDay.minusHours(2), nextDay.minusHours(2));
+    entityManager.clear();
+
+    RfmSegmentationJob.Result result = job(nextDay).segment(companyId);
+
+    assertThat(result).isEqualTo(new RfmSegmentationJob.Result(1, 1, false));
+    assertThat(segmentOf(returning)).isEqualTo("RFM_POTENTIAL");
+  }
+
+  @Test
+  void recencyDecayIsPickedUpWithoutNewSales() {
+    Customer fading = customer(null, START.minusDays(85), 10, "2000000");
+    job(START).segment(companyId);
+    assertThat(segmentOf(fading)).isEqualTo("RFM_CHAMPIONS");
+
+    RfmSegmentationJob.Result result = job(START.plusDays(10)).segment(companyId);
+
+    assertThat(result).isEqualTo(new RfmSegmentationJob.Result(1, 1, false));
+    assertThat(segmentOf(fading)).isEqualTo("RFM_LOYAL");
+    assertThat(statsRepository.findById(fading.getId()).orElseThrow().getRfmRecency()).isEqualTo(3);
+  }
+
+  @Test
+  void tenantHeldByAnotherNodeIsSkipped() {
+    customer(null, START.minusDays(3), 1, "1000");
+    job(START).segment(companyId);
+    runRepository.claim(companyId, START.plusDays(1), START.plusDays(1).plusHours(1));
+
+    assertThat(job(START.plusDays(1)).segment(companyId)).isNull();
+  }
+
+  private RfmSegmentationJob job(OffsetDateTime now) {
+    entityManager.clear();
+    return new RfmSegmentationJob(new CustomerSegmentationProperties(), statsRepository, customers, runRepository,
+        entityManager, transactionManager, Clock.fixed(now.toInstant(), ZoneOffset.UTC));
+  }
+
+  private Customer customer(String segment, OffsetDateTime lastSaleAt, int sales, String revenue) {
+    Customer customer = new Customer();
+    customer.setCompanyId(companyId);
+    customer.setName("Cliente " + sales);
+    customer.setSegment(segment);
+    customer = customers.saveAndFlush(customer);
+
+    CustomerStats stats = new CustomerStats();
+    stats.setCustomerId(customer.getId());
+    stats.setCompanyId(companyId);
+    stats.setTotalSales(sales);
+    stats.setTotalRevenue(new BigDecimal(revenue));
+    stats.setFirstSaleAt(lastSaleAt.minusDays(30));
+    stats.setLastSaleAt(lastSaleAt);
+    stats.setUpdatedAt(lastSaleAt);
+    statsRepository.saveAndFlush(stats);
+    return customer;
+  }
+
+  private String segmentOf(Customer customer) {
+    entityManager.clear();
+    return customers.findById(customer.getId()).orElseThrow().getSegment();
+  }
+
+  @TestConfiguration
+  @EnableJpaAuditing(auditorAwareRef = "testAuditor", dateTimeProviderRef = "testDateTimeProvider")
+  static class TestConfig {
+
+    @Bean
+    AuditorAware<String> testAuditor() {
+      return () -> Optional.of("segmentation-test");
+    }
+
+    @Bean
+    DateTimeProvider testDateTimeProvider() {
+      return () -> Optional.of(Instant.now().atOffset(ZoneOffset.UTC));
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.datakomerz.pymes.multitenancy;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import jakarta.persistence.EntityManager;
+import java.util.UUID;
+import org.hibernate.Filter;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+/**
+ * Tests unitarios para la habilitación del filtro una vez por transacción.
+ */
+class TenantFilterEnablerTest {
+
+  private final TenantFilterEnabler enabler = new TenantFilterEnabler();
+  private EntityManager entityManager;
+  private Session session;
+
+  @BeforeEach
+  void setUp() {
+    entityManager = mock(EntityManager.class);
+    session = mock(Session.class);
+    Filter filter = mock(Filter.class);
+    when(entityManager.unwrap(Session.class)).thenReturn(session);
+    when(session.enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME)).thenReturn(filter);
+    when(filter.setParameter(any(), any())).thenReturn(filter);
+
+    TenantContext.setTenantId(UUID.randomUUID());
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+  }
+
+  @AfterEach
+  void tearDown() {
+    completeTransaction();
+    TenantContext.clear();
+  }
+
+  @Test
+  void shouldEnableFilterOnlyOncePerTransaction() {
+    for (int i = 0; i < 100; i++) {
+      assertTrue(enabler.ensureTenantFilter(entityManager));
+    }
+
+    verify(session, times(1)).enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+  }
+
+  @Test
+  void shouldReEnableWhenTenantChanges() {
+    enabler.ensureTenantFilter(entityManager);
+    TenantContext.setTenantId(UUID.randomUUID());
+    enabler.ensureTenantFilter(entityManager);
+    enabler.ensureTenantFilter(entityManager);
+
+    verify(session, times(2)).enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+  }
+
+  @Test
+  void shouldReEnableAfterExplicitDisable() {
+    enabler.ensureTenantFilter(entityManager);
+    enabler.disableTenantFilter(entityManager);
+    enabler.ensureTenantFilter(entityManager);
+
+    verify(session, times(2)).enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+    verify(session).disableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+  }
+
+  @Test
+  void shouldForgetMarkerWhenTransactionCompletes() {
+    enabler.ensureTenantFilter(entityManager);
+    completeTransaction();
+
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    enabler.ensureTenantFilter(entityManager);
+
+    verify(session, times(2)).enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+  }
+
+  @Test
+  void shouldEnableInSuspendingTransaction() {
+    enabler.ensureTenantFilter(entityManager);
+    var suspended = TransactionSynchronizationManager.getSynchronizations();
+    suspended.forEach(TransactionSynchronization::suspend);
+    TransactionSynchronizationManager.clearSynchronization();
+
+    // REQUIRES_NEW: nueva sesión, el filtro debe habilitarse de nuevo
+    TransactionSynchronizationManager.initSynchronization();
+    enabler.ensureTenantFilter(entityManager);
+    completeTransaction();
+
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    suspended.forEach(sync -> {
+      sync.resume();
+      TransactionSynchronizationManager.registerSynchronization(sync);
+    });
+    enabler.ensureTenantFilter(entityManager);
+
+    verify(session, times(2)).enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME);
+  }
+
+  @Test
+  void shouldNotEnableWithoutTenant() {
+    TenantContext.clear();
+
+    assertFalse(enabler.ensureTenantFilter(entityManager));
+  }
+
+  private void completeTransaction() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_COMMITTED);
+      TransactionSynchronizationManager.clear();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.datakomerz.pymes.multitenancy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests unitarios para los accesores generados de TenantIntrospector.
+ */
+class TenantIntrospectorTest {
+
+  @Test
+  void shouldReadCompanyIdFromTenantAwareEntity() {
+    UUID tenant = UUID.randomUUID();
+    TenantAwareEntity entity = new TenantAwareEntity() { };
+    entity.setCompanyId(tenant);
+
+    assertEquals(tenant, TenantIntrospector.resolveTenantId(entity));
+  }
+
+  @Test
+  void shouldPreferTenantIdGetter() {
+    UUID tenant = UUID.randomUUID();
+
+    assertEquals(tenant, TenantIntrospector.resolveTenantId(new GetterEntity(tenant)));
+  }
+
+  @Test
+  void shouldReadPrivateFieldWhenNoGetterExists() {
+    UUID tenant = UUID.randomUUID();
+
+    assertEquals(tenant, TenantIntrospector.resolveTenantId(new FieldEntity(tenant)));
+  }
+
+  @Test
+  void shouldParseStringIdentifiers() {
+    UUID tenant = UUID.randomUUID();
+
+    assertEquals(tenant, TenantIntrospector.resolveTenantId(new StringEntity(tenant.toString())));
+  }
+
+  @Test
+  void shouldReturnNullWhenNoAccessorExists() {
+    assertNull(TenantIntrospector.resolveTenantId(new Object()));
+    assertNull(TenantIntrospector.resolveTenantId(null));
+  }
+
+  static class GetterEntity {
+    private final UUID tenantId;
+
+    GetterEntity(UUID tenantId) {
+      this.tenantId = tenantId;
+    }
+
+    public UUID getTenantId() {
+      return tenantId;
+    }
+
+    public UUID getCompanyId() {
+      return UUID.randomUUID();
+    }
+  }
+
+  static class FieldEntity {
+    private final UUID companyId;
+
+    FieldEntity(UUID companyId) {
+      this.companyId = companyId;
+    }
+  }
+
+  static class StringEntity {
+    private final String companyId;
+
+    StringEntity(String companyId) {
+      this.companyId = companyId;
+    }
+
+    public String getCompanyId() {
+      return companyId;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.datakomerz.pymes.multitenancy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.datakomerz.pymes.products.Product;
+import jakarta.persistence.EntityManager;
+import java.util.Properties;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Verifica la proyección de company_id contra H2 sin levantar el contexto completo.
+ */
+class TenantOwnershipResolverTest {
+
+  private static LocalContainerEntityManagerFactoryBean factoryBean;
+
+  private EntityManager entityManager;
+  private TenantOwnershipResolver resolver;
+  private UUID tenantId;
+  private UUID productId;
+
+  @BeforeAll
+  static void createEntityManagerFactory() {
+    Properties jpaProperties = new Properties();
+    jpaProperties.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+    factoryBean = new LocalContainerEntityManagerFactoryBean();
+    factoryBean.setDataSource(new DriverManagerDataSource(
+        "jdbc:h2:mem:tenant_ownership;DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", ""));
+    factoryBean.setPackagesToScan(Product.class.getPackageName());
+    factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+    factoryBean.setJpaProperties(jpaProperties);
+    factoryBean.afterPropertiesSet();
+  }
+
+  @AfterAll
+  static void closeEntityManagerFactory() {
+    factoryBean.destroy();
+  }
+
+  @BeforeEach
+  void setUp() {
+    entityManager = factoryBean.getObject().createEntityManager();
+    resolver = new TenantOwnershipResolver(entityManager);
+    tenantId = UUID.randomUUID();
+    productId = UUID.randomUUID();
+
+    entityManager.getTransaction().begin();
+    entityManager.createNativeQuery("insert into products (id, company_id, sku, name, critical_stock, is_active, "
+            + "created_at, created_by, updated_at, updated_by) values (?1, ?2, 'SKU-1', 'Producto', 0, true, "
+            + "current_timestamp, 'test', current_timestamp, 'test')")
+        .setParameter(1, productId)
+        .setParameter(2, tenantId)
+        .executeUpdate();
+    entityManager.getTransaction().commit();
+  }
+
+  @AfterEach
+  void tearDown() {
+    entityManager.close();
+  }
+
+  @Test
+  void shouldResolveOwnerWithoutLoadingEntity() {
+    assertThat(resolver.supports(Product.class)).isTrue();
+    assertThat(resolver.resolveOwner(Product.class, productId)).contains(tenantId);
+    assertThat(entityManager.unwrap(org.hibernate.Session.class).getStatistics().getEntityCount()).isZero();
+  }
+
+  @Test
+  void shouldReturnEmptyForMissingRow() {
+    assertThat(resolver.resolveOwner(Product.class, UUID.randomUUID())).isEmpty();
+  }
+
+  @Test
+  void shouldTreatSoftDeletedRowAsMissing() {
+    entityManager.getTransaction().begin();
+    entityManager.createNativeQuery("update products set deleted_at = current_timestamp where id = ?1")
+        .setParameter(1, productId)
+        .executeUpdate();
+    entityManager.getTransaction().commit();
+
+    assertThat(resolver.resolveOwner(Product.class, productId)).isEmpty();
+  }
+
+  @Test
+  void shouldIgnoreEnabledTenantFilter() {
+    entityManager.unwrap(org.hibernate.Session.class)
+        .enableFilter(TenantFilterEnabler.TENANT_FILTER_NAME)
+        .setParameter(TenantFilterEnabler.TENANT_PARAMETER_NAME, UUID.randomUUID());
+
+    assertThat(resolver.resolveOwner(Product.class, productId)).contains(tenantId);
+  }
+}
@@ -0,0 +1,96 @@
+package com.datakomerz.pymes.multitenancy;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datakomerz.pymes.products.Product;
+import jakarta.persistence.EntityManager;
+import java.util.Optional;
+import java.util.UUID;
+import org.aspectj.lang.JoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Verifica sin contexto Spring que la validación se memoiza por request.
+ */
+class TenantValidationAspectMemoTest {
+
+  private final EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+  private final TenantOwnershipResolver ownershipResolver = mock(TenantOwnershipResolver.class);
+  private final TenantValidationAspect aspect = new TenantValidationAspect(
+      entityManager, mock(TenantFilterEnabler.class), ownershipResolver);
+
+  private UUID tenantId;
+  private UUID productId;
+
+  @BeforeEach
+  void setUp() {
+    tenantId = UUID.randomUUID();
+    productId = UUID.randomUUID();
+    TenantContext.setTenantId(tenantId);
+    when(entityManager.getMetamodel().entity(Product.class).getIdType().getJavaType())
+        .thenAnswer(invocation -> UUID.class);
+    when(ownershipResolver.supports(Product.class)).thenReturn(true);
+    when(ownershipResolver.resolveOwner(any(), any())).thenReturn(Optional.of(tenantId));
+  }
+
+  @AfterEach
+  void tearDown() {
+    TenantContext.clear();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void secondLookupInTheSameRequestDoesNotQueryAgain() throws Exception {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+    aspect.validateMethod(joinPoint(productId), annotation());
+    aspect.validateMethod(joinPoint(productId.toString()), annotation());
+
+    verify(ownershipResolver, times(1)).resolveOwner(Product.class, productId);
+  }
+
+  @Test
+  void eachRequestValidatesAgain() throws Exception {
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    aspect.validateMethod(joinPoint(productId), annotation());
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    aspect.validateMethod(joinPoint(productId), annotation());
+
+    verify(ownershipResolver, times(2)).resolveOwner(Product.class, productId);
+  }
+
+  @Test
+  void withoutRequestNothingIsMemoized() throws Exception {
+    aspect.validateMethod(joinPoint(productId), annotation());
+    aspect.validateMethod(joinPoint(productId), annotation());
+
+    verify(ownershipResolver, times(2)).resolveOwner(Product.class, productId);
+  }
+
+  private static JoinPoint joinPoint(Object id) {
+    JoinPoint joinPoint = mock(JoinPoint.class);
+    when(joinPoint.getArgs()).thenReturn(new Object[] {id});
+    return joinPoint;
+  }
+
+  private static ValidateTenant annotation() throws NoSuchMethodException {
+    return Guarded.class.getDeclaredMethod("load", Object.class).getAnnotation(ValidateTenant.class);
+  }
+
+  private static class Guarded {
+
+    @ValidateTenant(entityClass = Product.class, entityParamIndex = 0)
+    void load(Object id) {
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package com.datakomerz.pymes.products;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datakomerz.pymes.inventory.InventoryService;
+import com.datakomerz.pymes.pricing.PriceHistory;
+import com.datakomerz.pymes.pricing.PriceHistoryRepository;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ProductCatalogIndexTest {
+
+  private final Map<UUID, List<Product>> database = new HashMap<>();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  void looksUpBarcodeAndSkuAfterSingleLoad() {
+    UUID companyId = UUID.randomUUID();
+    Product cola = product(companyId, "BEB-001", "Coca-Cola 1.5L", "7801610001196", true);
+    product(companyId, "BEB-002", "Agua Mineral", "7801610002001", false);
+    ProductCatalogIndex index = index(10, 1_000);
+
+    assertThat(index.findByBarcode(companyId, " 7801610001196 ")).extracting(ProductCatalogIndex.Entry::id)
+      .containsExactly(cola.getId());
+    assertThat(index.findBySku(companyId, "beb-001")).map(ProductCatalogIndex.Entry::name).contains("Coca-Cola 1.5L");
+    assertThat(index.findByBarcode(companyId, "0000")).isEmpty();
+    assertThat(index.findByBarcode(UUID.randomUUID(), "7801610001196")).isEmpty();
+    assertThat(loads).hasValue(2);
+  }
+
+  @Test
+  void typeaheadMatchesNamePrefixThenWordPrefixIgnoringAccents() {
+    UUID companyId = UUID.randomUUID();
+    product(companyId, "A1", "Pan amasado", null, true);
+    product(companyId, "A2", "Mermelada de Piña", null, true);
+    product(companyId, "A3", "Piña en conserva", null, true);
+    product(companyId, "A4", "Pino navideño", null, false);
+    ProductCatalogIndex index = index(10, 1_000);
+
+    assertThat(index.typeahead(companyId, "PIÑ", true, 10)).extracting(ProductCatalogIndex.Entry::name)
+      .containsExactly("Piña en conserva", "Mermelada de Piña");
+    assertThat(index.typeahead(companyId, "pi", true, 10)).extracting(ProductCatalogIndex.Entry::name)
+      .containsExactly("Piña en conserva", "Mermelada de Piña");
+    assertThat(index.typeahead(companyId, "pi", false, 10)).extracting(ProductCatalogIndex.Entry::name)
+      .containsExactly("Piña en conserva", "Pino navideño", "Mermelada de Piña");
+    assertThat(index.typeahead(companyId, "pi", false, 1)).hasSize(1);
+    assertThat(index.typeahead(companyId, "  ", false, 10)).isEmpty();
+  }
+
+  @Test
+  void savesAndDeletesThroughProductServiceKeepIndexConsistent() {
+    UUID companyId = UUID.randomUUID();
+    Product original = product(companyId, "SKU-1", "Leche", "111", true);
+    ProductCatalogIndex index = index(10, 1_000);
+    assertThat(index.findByBarcode(companyId, "111")).hasSize(1);
+
+    ProductRepository repository = mock(ProductRepository.class);
+    when(repository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    when(repository.findById(original.getId())).thenReturn(Optional.of(original));
+    PriceHistoryRepository prices = mock(PriceHistoryRepository.class);
+    PriceHistory price = new PriceHistory();
+    price.setPrice(new BigDecimal("990.0000"));
+    when(prices.findFirstByProductIdOrderByValidFromDesc(original.getId())).thenReturn(Optional.of(price));
+    ProductService service = new ProductService(repository, mock(InventoryService.class), prices,
+      event -> index.onProductChanged((ProductCatalogChanged) event));
+
+    original.setBarcode("222");
+    original.setName("Leche descremada");
+    service.save(original);
+    Product created = product(companyId, "SKU-2", "Yogurt", "333", true);
+    service.save(created);
+
+    assertThat(index.findByBarcode(companyId, "111")).isEmpty();
+    assertThat(index.findByBarcode(companyId, "222")).extracting(ProductCatalogIndex.Entry::name)
+      .containsExactly("Leche descremada");
+    assertThat(index.findBySku(companyId, "SKU-1")).map(ProductCatalogIndex.Entry::price)
+      .contains(new BigDecimal("990.0000"));
+    assertThat(index.typeahead(companyId, "desc", true, 5)).hasSize(1);
+    assertThat(index.findBySku(companyId, "SKU-2")).isPresent();
+
+    service.delete(companyId, original.getId());
+
+    assertThat(index.findByBarcode(companyId, "222")).isEmpty();
+    assertThat(index.findBySku(companyId, "sku-1")).isEmpty();
+    assertThat(loads).hasValue(1);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedTenantsByCountAndSize() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    UUID third = UUID.randomUUID();
+    for (UUID companyId : List.of(first, second, third)) {
+      for (int i = 0; i < 3; i++) {
+        product(companyId, "SKU-" + i, "Producto " + i, "10" + i, true);
+      }
+    }
+    ProductCatalogIndex index = index(2, 7);
+
+    index.findBySku(first, "SKU-0");
+    index.findBySku(second, "SKU-0");
+    index.findBySku(first, "SKU-1");
+    index.findBySku(third, "SKU-0");
+
+    assertThat(index.cachedTenants()).isEqualTo(2);
+    assertThat(index.indexedProducts()).isEqualTo(6);
+    index.findBySku(first, "SKU-2");
+    assertThat(loads).hasValue(3);
+    index.findBySku(second, "SKU-2");
+    assertThat(loads).hasValue(4);
+
+    // A tenant bigger than the whole budget is served but never cached.
+    ProductCatalogIndex tiny = index(10, 2);
+    assertThat(tiny.findBySku(first, "SKU-1")).isPresent();
+    assertThat(tiny.cachedTenants()).isZero();
+  }
+
+  @Test
+  void changeDuringLoadIsNotCachedAsStaleSnapshot() {
+    UUID companyId = UUID.randomUUID();
+    Product product = product(companyId, "SKU-1", "Café", "555", true);
+    ProductCatalogIndex[] holder = new ProductCatalogIndex[1];
+    holder[0] = new ProductCatalogIndex(id -> {
+      List<ProductCatalogIndex.Entry> snapshot = database.get(id).stream().map(ProductCatalogIndexTest::unpriced).toList();
+      loads.incrementAndGet();
+      if (loads.get() == 1) {
+        holder[0].onProductChanged(ProductCatalogChanged.of(product, null));
+      }
+      return snapshot;
+    }, 10, 1_000);
+
+    holder[0].findBySku(companyId, "SKU-1");
+    assertThat(holder[0].cachedTenants()).isZero();
+    holder[0].findBySku(companyId, "SKU-1");
+    assertThat(holder[0].cachedTenants()).isEqualTo(1);
+  }
+
+  @Test
+  void snapshotOlderThanMaxAgeIsReloaded() {
+    UUID companyId = UUID.randomUUID();
+    product(companyId, "SKU-1", "Té verde", "777", true);
+    MutableClock clock = new MutableClock();
+    ProductCatalogIndex index = new ProductCatalogIndex(id -> {
+      loads.incrementAndGet();
+      return database.get(id).stream().map(ProductCatalogIndexTest::unpriced).toList();
+    }, 10, 1_000, Duration.ofMinutes(2), clock);
+
+    index.findBySku(companyId, "SKU-1");
+    clock.advance(Duration.ofSeconds(90));
+    // Written on another node whose message never arrived.
+    product(companyId, "SKU-2", "Té negro", "888", true);
+    assertThat(index.findBySku(companyId, "SKU-2")).isEmpty();
+
+    clock.advance(Duration.ofSeconds(30));
+    assertThat(index.findBySku(companyId, "SKU-2")).isPresent();
+    assertThat(loads).hasValue(2);
+    assertThat(index.indexedProducts()).isEqualTo(2);
+  }
+
+  @Test
+  void localChangesAreForwardedToPeersAndPeerChangesAreNot() {
+    UUID companyId = UUID.randomUUID();
+    Product product = product(companyId, "SKU-1", "Harina", "999", true);
+    ProductCatalogIndex index = index(10, 1_000);
+    List<ProductCatalogChanged> forwarded = new ArrayList<>();
+    index.publishTo(forwarded::add);
+    index.findBySku(companyId, "SKU-1");
+
+    product.setName("Harina integral");
+    index.onProductChanged(ProductCatalogChanged.of(product, null));
+    index.invalidate(companyId);
+    assertThat(forwarded).extracting(ProductCatalogChanged::productId).containsExactly(product.getId(), null);
+
+    index.findBySku(companyId, "SKU-1");
+    Product peerEdit = product(companyId, "SKU-2", "Avena", "1000", true);
+    index.applyFromPeer(ProductCatalogChanged.of(peerEdit, null));
+    assertThat(index.findBySku(companyId, "SKU-2")).isPresent();
+    index.applyFromPeer(ProductCatalogChanged.invalidated(companyId));
+    assertThat(index.cachedTenants()).isZero();
+    assertThat(forwarded).hasSize(2);
+  }
+
+  @Test
+  void concurrentChangesAreAllApplied() throws Exception {
+    UUID companyId = UUID.randomUUID();
+    product(companyId, "SKU-0", "Base", "0", true);
+    ProductCatalogIndex index = index(10, 10_000);
+    index.findBySku(companyId, "SKU-0");
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int i = 1; i <= 200; i++) {
+        Product product = product(companyId, "SKU-" + i, "Producto " + i, "B" + i, true);
+        writers.add(executor.submit(() -> index.onProductChanged(ProductCatalogChanged.of(product, null))));
+      }
+      for (Future<?> writer : writers) {
+        writer.get(5, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(index.findBySku(companyId, "SKU-200")).isPresent();
+    assertThat(index.typeahead(companyId, "producto", true, 50)).hasSize(50);
+    assertThat(index.indexedProducts()).isEqualTo(201);
+    assertThat(loads).hasValue(1);
+  }
+
+  private ProductCatalogIndex index(int maxTenants, int maxProducts) {
+    return new ProductCatalogIndex(companyId -> {
+      loads.incrementAndGet();
+      return database.getOrDefault(companyId, List.of()).stream().map(ProductCatalogIndexTest::unpriced).toList();
+    }, maxTenants, maxProducts);
+  }
+
+  private static ProductCatalogIndex.Entry unpriced(Product product) {
+    return ProductCatalogIndex.Entry.of(product, null);
+  }
+
+  private Product product(UUID companyId, String sku, String name, String barcode, boolean active) {
+    Product product = new Product();
+    product.setId(UUID.randomUUID());
+    product.setCompanyId(companyId);
+    product.setSku(sku);
+    product.setName(name);
+    product.setBarcode(barcode);
+    product.setActive(active);
+    product.prePersist();
+    database.computeIfAbsent(companyId, ignored -> new ArrayList<>()).add(product);
+    return product;
+  }
+
+  static class MutableClock extends Clock {
+
+    private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -1,10 +1,22 @@
 package com.datakomerz.pymes.products;
 
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class QrCodeServiceTest {
-  private final QrCodeService service = new QrCodeService();
+  private final QrCodeService service = new QrCodeService(16);
 
   @Test
   void generatesPngImage() {
@@ -14,4 +26,55 @@ class QrCodeServiceTest {
     assertThat(qr.extension()).isEqualTo("png");
     assertThat(qr.contentType()).isEqualTo("image/png");
   }
+
+  @Test
+  void pngIsOneBitAndDecodesBackToContent() throws Exception {
+    byte[] png = service.generate("SKU-12345").content();
+
+    assertThat(png[24]).as("bit depth").isEqualTo((byte) 1);
+    assertThat(png[25]).as("color type").isEqualTo((byte) 0);
+    BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+    assertThat(image.getWidth()).isEqualTo(256);
+    assertThat(image.getHeight()).isEqualTo(256);
+    String decoded = new QRCodeReader()
+      .decode(new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image))))
+      .getText();
+    assertThat(decoded).isEqualTo("SKU-12345");
+  }
+
+  @Test
+  void generatesSvgPath() {
+    QrCodeService.GeneratedQr qr = service.generateSvg("SKU-12345", 120);
+    String svg = new String(qr.content(), StandardCharsets.UTF_8);
+
+    assertThat(qr.contentType()).isEqualTo("image/svg+xml");
+    assertThat(svg).startsWith("<svg").contains("width=\"120\"").contains("<path fill=\"#000\" d=\"M");
+  }
+
+  @Test
+  void cachesByContentAndSizeWithLruEviction() {
+    QrCodeService small = new QrCodeService(2);
+    QrCodeService.GeneratedQr first = small.generate("A", 100);
+
+    assertThat(small.generate("A", 100)).isSameAs(first);
+    assertThat(small.generate("A", 120)).isNotSameAs(first);
+    small.generate("B", 100);
+    assertThat(small.cachedEntries()).isEqualTo(2);
+    assertThat(small.generate("A", 100)).isNotSameAs(first);
+  }
+
+  @Test
+  void generatesCatalogueInBatch() {
+    Map<String, QrCodeService.GeneratedQr> codes = service.generateAll(
+      Arrays.asList("SKU-1", "SKU-2", "SKU-1", " ", null, "SKU-3"));
+
+    assertThat(codes).containsOnlyKeys("SKU-1", "SKU-2", "SKU-3");
+    assertThat(codes.get("SKU-2")).isSameAs(service.generate("SKU-2"));
+  }
+
+  @Test
+  void rejectsBlankValues() {
+    assertThatThrownBy(() -> service.generate(" ")).isInstanceOf(IllegalArgumentException.class);
+    assertThat(service.generateAll(List.of())).isEmpty();
+  }
 }
@@ -0,0 +1,18 @@
+package com.datakomerz.pymes.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class SecurityUtilsTest {
+
+  @Test
+  void clientIpIgnoresForwardedForSentByTheClient() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setRemoteAddr("203.0.113.7");
+    request.addHeader("X-Forwarded-For", "198.51.100.1, 203.0.113.7");
+
+    assertThat(SecurityUtils.getClientIp(request)).isEqualTo("203.0.113.7");
+  }
+}
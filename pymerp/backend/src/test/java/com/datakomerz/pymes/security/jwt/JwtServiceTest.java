@@ -0,0 +1,69 @@
+package com.datakomerz.pymes.security.jwt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.datakomerz.pymes.auth.UserAccount;
+import com.datakomerz.pymes.config.SecurityProperties;
+import com.datakomerz.pymes.security.AppUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class JwtServiceTest {
+
+  private static final String SECRET = "unit-test-jwt-secret-with-at-least-32-characters";
+  private static final String ROTATED_SECRET = "rotated-jwt-secret-with-at-least-32-characters!";
+
+  private SecurityProperties properties;
+  private JwtService jwtService;
+  private AppUserDetails user;
+
+  @BeforeEach
+  void setUp() {
+    properties = new SecurityProperties();
+    properties.getJwt().setSecret(SECRET);
+    jwtService = new JwtService(properties);
+
+    UserAccount account = new UserAccount();
+    account.setId(UUID.randomUUID());
+    account.setCompanyId(UUID.randomUUID());
+    account.setEmail("user@pymerp.cl");
+    account.setRoles("ROLE_ADMIN");
+    user = new AppUserDetails(account);
+  }
+
+  @Test
+  void generatedTokenParsesAndValidates() {
+    String token = jwtService.generateToken(user);
+
+    Claims claims = jwtService.parseClaims(token);
+
+    assertThat(claims.getSubject()).isEqualTo("user@pymerp.cl");
+    assertThat(claims.get("companyId", String.class)).isEqualTo(user.getCompanyId().toString());
+    assertThat(jwtService.isTokenValid(token, "USER@pymerp.cl")).isTrue();
+    assertThat(jwtService.isTokenValid(claims, "other@pymerp.cl")).isFalse();
+  }
+
+  @Test
+  void rotatedSecretIsPickedUpWithoutRestart() {
+    String oldToken = jwtService.generateToken(user);
+
+    properties.getJwt().setSecret(ROTATED_SECRET);
+    String newToken = jwtService.generateToken(user);
+
+    assertThat(jwtService.isTokenValid(newToken, "user@pymerp.cl")).isTrue();
+    assertThatThrownBy(() -> jwtService.parseClaims(oldToken)).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  void shortSecretIsRejected() {
+    properties.getJwt().setSecret("too-short");
+
+    assertThatThrownBy(() -> jwtService.generateToken(user))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("at least 32 characters");
+  }
+}